@@ -23,12 +23,31 @@ import org.jboss.arquillian.container.spi.client.protocol.ProtocolDescription;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.arquillian.daemon.protocol.arquillian.DaemonProtocol;
 import org.jboss.arquillian.daemon.protocol.arquillian.DeploymentContext;
+import org.jboss.arquillian.daemon.protocol.arquillian.DeploymentFailover;
+import org.jboss.arquillian.daemon.protocol.arquillian.FrameConnection;
+import org.jboss.arquillian.daemon.protocol.arquillian.ShardUtilization;
+import org.jboss.arquillian.daemon.protocol.arquillian.TestHistory;
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.DeltaManifest;
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
 import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.descriptor.api.Descriptor;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -38,11 +57,27 @@ import java.io.PrintWriter;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Base support for containers of the Arquillian Server Daemon
+ * Base support for containers of the Arquillian Server Daemon. A container may shard the tests of its deployments
+ * across further daemons by returning containers connected to them from
+ * {@link DaemonDeployableContainerBase#getShards()}; each archive is then deployed to all at once, and presented to
+ * Arquillian as a single sharded deployment, scheduled by the durations in
+ * {@link DaemonDeployableContainerBase#getTestHistory()} if any. As Arquillian executes tests one at a time, sharding
+ * shortens a run only for callers which execute tests concurrently or in batches. A container able to move a
+ * deployment to another daemon should its own be lost returns the means to do so from
+ * {@link DaemonDeployableContainerBase#getFailover(Archive)}.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
@@ -51,6 +86,21 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
 
     private static final Logger log = Logger.getLogger(DaemonDeployableContainerBase.class.getName());
     private static final String ERROR_MESSAGE_DESCRIPTORS_UNSUPPORTED = "Descriptor deployment not supported";
+    private static final String PREFIX_EXPORT_FILE = "arquillian-daemon-export-";
+    private static final String SUFFIX_EXPORT_FILE = ".zip";
+    private static final String SUFFIX_CLASS_FILE = ".class";
+
+    /**
+     * Deploys archives to shards, each on a thread of its own so that all receive the archive at once
+     */
+    private static final ExecutorService SHARD_DEPLOYERS = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "Arquillian Daemon Shard Deployer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     private String currentDeploymentId;
     private InetSocketAddress remoteAddress;
@@ -59,6 +109,9 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
     private InputStream socketInstream;
     private BufferedReader reader;
     private PrintWriter writer;
+    private FrameConnection connection;
+    private ShardUtilization utilization;
+    private long startTime;
 
     @Override
     public void setup(final CONFIGTYPE configuration) {
@@ -80,7 +133,7 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
             while (true) {
                 try {
                     // TODO Security Action
-                    socket = new Socket(remoteAddress.getHostString(), remoteAddress.getPort());
+                    socket = connect(remoteAddress);
                     if (log.isLoggable(Level.FINEST)) {
                         log.finest("Got connection to " + remoteAddress.toString());
                     }
@@ -107,11 +160,16 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
             }
             assert socket !=null :"Socket should have been connected";
             this.socket = socket;
+            this.utilization = new ShardUtilization(remoteAddress.getHostString() + ":" + remoteAddress.getPort());
+            this.startTime = System.currentTimeMillis();
             this.socketOutstream = socket.getOutputStream();
             this.writer = new PrintWriter(new OutputStreamWriter(this.socketOutstream, WireProtocol.CHARSET),
                 true);
             this.socketInstream = socket.getInputStream();
             this.reader = new BufferedReader(new InputStreamReader(this.socketInstream));
+
+            // Use binary framing if the server supports it
+            this.negotiateFraming();
         } catch (final IOException ioe) {
             this.closeRemoteResources();
             throw new LifecycleException("Could not open connection to remote process", ioe);
@@ -125,9 +183,38 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
      */
     @Override
     public void stop() throws LifecycleException {
+        if (!this.getShards().isEmpty()) {
+            this.logUtilization();
+            this.saveTestHistory();
+        }
         this.closeRemoteResources();
     }
 
+    /**
+     * Returns started containers of further daemons across which to shard the tests of each deployment, in addition
+     * to this one's; by default none. Shards must use the binary framing mode of the wire protocol, and are deployed to
+     * and undeployed from along with this container.
+     */
+    protected List<? extends DaemonDeployableContainerBase<?>> getShards() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the durations of earlier test runs by which to schedule the tests of sharded deployments, and into which
+     * to record theirs, saved upon {@link DaemonDeployableContainerBase#stop()}; by default none
+     */
+    protected TestHistory getTestHistory() {
+        return null;
+    }
+
+    /**
+     * Returns the means to move the specified archive, once deployed, to another daemon should the connection to this
+     * one be lost; by default none. Applies only to unsharded deployments over framed connections.
+     */
+    protected DeploymentFailover getFailover(final Archive<?> archive) {
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -146,33 +233,77 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
     @Override
     public final ProtocolMetaData deploy(final Archive<?> archive) throws DeploymentException {
 
-        final String deploymentId;
-        try {
+        // Create and return ProtocolMetaData
+        final ProtocolMetaData pmd = new ProtocolMetaData();
+        final List<? extends DaemonDeployableContainerBase<?>> shards = this.getShards();
+        if (shards.isEmpty()) {
+            final DeploymentContext deploymentContext = this.deployToDaemon(archive);
+            final DeploymentFailover failover = this.isFramed() ? this.getFailover(archive) : null;
+            pmd.addContext(failover == null ? deploymentContext : DeploymentContext.createFailover(deploymentContext,
+                failover));
+            return pmd;
+        }
 
-            // Write the deploy command prefix and flush it
-            writer.print(WireProtocol.COMMAND_DEPLOY_PREFIX);
-            writer.flush();
-            // Now write the archive
-            archive.as(ZipExporter.class).exportTo(socketOutstream);
-            socketOutstream.flush();
-            // Terminate the command
-            writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
-            writer.flush();
-
-            // Block until we get "OK" response
-            final String response = reader.readLine();
-            if (!response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
-                throw new DeploymentException("Did not receive proper response from the server, instead was: "
-                    + response);
-            }
-            if (log.isLoggable(Level.FINEST)) {
-                log.finest("Response from deployment: " + response);
+        // Deploy to each shard alongside this daemon, and present them all as one
+        if (!this.isFramed()) {
+            throw new DeploymentException("Sharding requires a server supporting the binary framing mode");
+        }
+        final List<Future<DeploymentContext>> shardDeployments = new ArrayList<>(shards.size());
+        for (final DaemonDeployableContainerBase<?> shard : shards) {
+            shardDeployments.add(SHARD_DEPLOYERS.submit(new Callable<DeploymentContext>() {
+                @Override
+                public DeploymentContext call() throws DeploymentException {
+                    return shard.deploy(archive).getContexts(DeploymentContext.class).iterator().next();
+                }
+            }));
+        }
+        final List<DeploymentContext> shardContexts = new ArrayList<>(shards.size() + 1);
+        final List<ShardUtilization> utilizations = new ArrayList<>(shards.size() + 1);
+        DeploymentException failure = null;
+        try {
+            shardContexts.add(this.deployToDaemon(archive));
+        } catch (final DeploymentException de) {
+            failure = de;
+        }
+        utilizations.add(utilization);
+        // Wait on every shard, even once one has failed, so that none is left deploying
+        for (int i = 0; i < shards.size(); i++) {
+            try {
+                shardContexts.add(shardDeployments.get(i).get());
+            } catch (final ExecutionException ee) {
+                if (failure == null) {
+                    failure = ee.getCause() instanceof DeploymentException ? (DeploymentException) ee.getCause()
+                        : new DeploymentException("Could not deploy to shard", ee.getCause());
+                }
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new DeploymentException("Interrupted while deploying to shards", ie);
+                }
             }
+            final DaemonDeployableContainerBase<?> shard = shards.get(i);
+            utilizations.add(shard.utilization);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        pmd.addContext(DeploymentContext.createSharded(shardContexts, utilizations, this.getTestHistory(),
+            getClassNames(archive)));
+        return pmd;
+    }
+
+    /**
+     * Deploys the specified archive to the daemon this container is connected to, alone, returning the context of the
+     * deployment; used in failing over to redeploy an archive to the daemon newly connected to
+     *
+     * @throws DeploymentException
+     *     If the archive could not be deployed, in which case the connection is closed
+     */
+    protected final DeploymentContext deployToDaemon(final Archive<?> archive) throws DeploymentException {
 
-            // Set deployment name
-            final int startIndex = (WireProtocol.RESPONSE_OK_PREFIX + WireProtocol.COMMAND_DEPLOY_PREFIX)
-                .length();
-            deploymentId = response.substring(startIndex);
+        final String deploymentId;
+        try {
+            deploymentId = this.isFramed() ? this.deployFramed(archive) : this.deployLegacy(archive);
             if (log.isLoggable(Level.FINER)) {
                 log.finer("Got deployment: " + deploymentId);
             }
@@ -185,12 +316,8 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
             throw new DeploymentException("Unexpected problem encountered during deployment", re);
         }
 
-        // Create and return ProtocolMetaData
-        final ProtocolMetaData pmd = new ProtocolMetaData();
-        final DeploymentContext deploymentContext = DeploymentContext.create(deploymentId, socketInstream,
-            socketOutstream, reader, writer);
-        pmd.addContext(deploymentContext);
-        return pmd;
+        return this.isFramed() ? DeploymentContext.createFramed(deploymentId, connection) : DeploymentContext.create(
+            deploymentId, socketInstream, socketOutstream, reader, writer);
     }
 
     /**
@@ -203,27 +330,40 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
         assert currentDeploymentId !=null :"Deployment name should be set";
 
         try {
-            // Write the undeploy command prefix and flush it
-            writer.print(WireProtocol.COMMAND_UNDEPLOY_PREFIX);
-            // Write the deployment name
-            writer.print(currentDeploymentId);
-            // Terminate the command and flush
-            writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
-            writer.flush();
-
-            // Block until we get "OK" response
-            final String response = reader.readLine();
-            if (!response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
-                throw new DeploymentException("Did not receive proper response from the server, instead was: "
-                    + response);
-            }
+            if (this.isFramed()) {
+                final Frame response = this.request(WireProtocol.OPCODE_UNDEPLOY, currentDeploymentId);
+                if (response.getOpcode() != WireProtocol.OPCODE_RESPONSE_OK) {
+                    throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                        + response.getPayloadAsString());
+                }
+            } else {
+                // Write the undeploy command prefix and flush it
+                writer.print(WireProtocol.COMMAND_UNDEPLOY_PREFIX);
+                // Write the deployment name
+                writer.print(currentDeploymentId);
+                // Terminate the command and flush
+                writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+                writer.flush();
+
+                // Block until we get "OK" response
+                final String response = reader.readLine();
+                if (!response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
+                    throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                        + response);
+                }
 
-            if (log.isLoggable(Level.FINEST)) {
-                log.finest("Response from undeployment: " + response);
+                if (log.isLoggable(Level.FINEST)) {
+                    log.finest("Response from undeployment: " + response);
+                }
             }
 
             // Clear the name of the current deployment
             this.currentDeploymentId = null;
+
+            // And remove it from each shard
+            for (final DaemonDeployableContainerBase<?> shard : this.getShards()) {
+                shard.undeploy(archive);
+            }
         } catch (final IOException ioe) {
             this.closeRemoteResources();
             throw new DeploymentException("I/O problem encountered during undeployment", ioe);
@@ -251,6 +391,279 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
         throw new UnsupportedOperationException(ERROR_MESSAGE_DESCRIPTORS_UNSUPPORTED);
     }
 
+    /**
+     * Writes the deploy command, the archive and the EOF delimiter, returning the deployment ID from the response
+     */
+    private String deployLegacy(final Archive<?> archive) throws IOException, DeploymentException {
+        // Write the deploy command prefix and flush it
+        writer.print(WireProtocol.COMMAND_DEPLOY_PREFIX);
+        writer.flush();
+        // Now write the archive
+        archive.as(ZipExporter.class).exportTo(socketOutstream);
+        socketOutstream.flush();
+        // Terminate the command
+        writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+        writer.flush();
+
+        // Block until we get "OK" response
+        final String response = reader.readLine();
+        if (!response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
+            throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                + response);
+        }
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest("Response from deployment: " + response);
+        }
+
+        // Set deployment name
+        final int startIndex = (WireProtocol.RESPONSE_OK_PREFIX + WireProtocol.COMMAND_DEPLOY_PREFIX).length();
+        return response.substring(startIndex);
+    }
+
+    /**
+     * Asks the server to deploy contents it already holds with the same {@link ArchiveDigest} as the archive, else
+     * sends only those entries it lacks relative to the contents last deployed under the same archive name, else sends
+     * the archive in full, returning the deployment ID from the response. The server is asked which entries it lacks
+     * alongside the request for cached contents, so that a miss costs no further round trip before sending.
+     */
+    private String deployFramed(final Archive<?> archive) throws IOException, DeploymentException {
+        final ArchiveDigest digest = digest(archive);
+        final DeltaManifest manifest = DeltaManifest.create(archive.getName(), digest.getEntryDigests());
+        final ByteArrayOutputStream encodedManifest = new ByteArrayOutputStream();
+        manifest.write(new DataOutputStream(encodedManifest));
+        final Future<Frame> pendingCached = connection.request(WireProtocol.OPCODE_DEPLOY_CACHED, digest.getDigest());
+        final Future<Frame> pendingQuery = connection.request(WireProtocol.OPCODE_DELTA_QUERY,
+            encodedManifest.toByteArray());
+
+        final Frame cached = FrameConnection.await(pendingCached);
+        if (cached.getOpcode() == WireProtocol.OPCODE_RESPONSE_OK) {
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("Server already held contents of " + archive.getName() + ": " + digest.getDigest());
+            }
+            return cached.getPayloadAsString();
+        }
+        if (cached.getOpcode() != WireProtocol.OPCODE_RESPONSE_NOT_FOUND) {
+            throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                + cached.getPayloadAsString());
+        }
+
+        final Frame query = FrameConnection.await(pendingQuery);
+        if (query.getOpcode() != WireProtocol.OPCODE_RESPONSE_ENTRIES) {
+            throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                + query.getPayloadAsString());
+        }
+        final List<String> missing = DeltaManifest.readPaths(new DataInputStream(new ByteArrayInputStream(query
+            .getPayload())));
+        if (missing.size() >= manifest.getEntryDigests().size()) {
+            // Nothing to reuse, so a delta would only add the manifest to a full archive
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("Server held none of the entries of " + archive.getName() + "; sending in full");
+            }
+            return this.deployFull(archive);
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("Sending " + missing.size() + " of " + manifest.getEntryDigests().size() + " entries of "
+                + archive.getName());
+        }
+        final String deltaId = this.deployDelta(archive, encodedManifest.toByteArray(), missing);
+        if (deltaId != null) {
+            return deltaId;
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("Server could not apply delta of " + archive.getName() + "; sending in full");
+        }
+        return this.deployFull(archive);
+    }
+
+    /**
+     * Sends the specified encoded manifest and those entries of the archive which the server lacks, returning the
+     * deployment ID from the response, or <code>null</code> if the server no longer holds the rest
+     */
+    private String deployDelta(final Archive<?> archive, final byte[] encodedManifest, final List<String> missing)
+        throws IOException, DeploymentException {
+        // The manifest, then a ZIP of just the missing entries
+        final GenericArchive delta = ShrinkWrap.create(GenericArchive.class, archive.getName());
+        for (final String path : missing) {
+            delta.add(archive.get(path).getAsset(), path);
+        }
+        final File exported = File.createTempFile(PREFIX_EXPORT_FILE, SUFFIX_EXPORT_FILE);
+        final Future<Frame> pending;
+        try {
+            final OutputStream exportOutstream = new BufferedOutputStream(new FileOutputStream(exported));
+            try {
+                exportOutstream.write(encodedManifest);
+                delta.as(ZipExporter.class).exportTo(exportOutstream);
+            } finally {
+                exportOutstream.close();
+            }
+            pending = connection.request(WireProtocol.OPCODE_DEPLOY_DELTA, exported);
+        } finally {
+            if (!exported.delete() && log.isLoggable(Level.FINER)) {
+                log.finer("Could not delete exported archive " + exported.getAbsolutePath());
+            }
+        }
+
+        final Frame response = FrameConnection.await(pending);
+        if (response.getOpcode() == WireProtocol.OPCODE_RESPONSE_NOT_FOUND) {
+            return null;
+        }
+        if (response.getOpcode() != WireProtocol.OPCODE_RESPONSE_OK) {
+            throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                + response.getPayloadAsString());
+        }
+        return response.getPayloadAsString();
+    }
+
+    /**
+     * Exports the archive locally so its length can be announced in the frame header, then sends it, returning the
+     * deployment ID from the response
+     */
+    private String deployFull(final Archive<?> archive) throws IOException, DeploymentException {
+        final File exported = File.createTempFile(PREFIX_EXPORT_FILE, SUFFIX_EXPORT_FILE);
+        final Future<Frame> pending;
+        try {
+            archive.as(ZipExporter.class).exportTo(exported, true);
+            pending = connection.request(WireProtocol.OPCODE_DEPLOY, exported);
+        } finally {
+            if (!exported.delete() && log.isLoggable(Level.FINER)) {
+                log.finer("Could not delete exported archive " + exported.getAbsolutePath());
+            }
+        }
+
+        final Frame response = FrameConnection.await(pending);
+        if (response.getOpcode() != WireProtocol.OPCODE_RESPONSE_OK) {
+            throw new DeploymentException("Did not receive proper response from the server, instead was: "
+                + response.getPayloadAsString());
+        }
+        return response.getPayloadAsString();
+    }
+
+    /**
+     * Computes the {@link ArchiveDigest} of the specified archive's contents, as the server will upon receiving it
+     */
+    private static ArchiveDigest digest(final Archive<?> archive) throws IOException {
+        final ArchiveDigest digest = new ArchiveDigest();
+        for (final Node node : archive.getContent().values()) {
+            final Asset asset = node.getAsset();
+            if (asset == null) {
+                // Directory
+                continue;
+            }
+            final InputStream contents = asset.openStream();
+            try {
+                digest.addEntry(node.getPath().get(), contents);
+            } finally {
+                contents.close();
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Returns the names of the top-level classes held in the specified archive
+     */
+    private static List<String> getClassNames(final Archive<?> archive) {
+        final List<String> classNames = new ArrayList<>();
+        for (final ArchivePath path : archive.getContent().keySet()) {
+            final String name = path.get();
+            if (name.endsWith(SUFFIX_CLASS_FILE) && name.indexOf('$') < 0) {
+                classNames.add(name.substring(1, name.length() - SUFFIX_CLASS_FILE.length()).replace('/', '.'));
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Opens a connection to the specified address. Requests are small frames, often several in flight at once, each
+     * flushed whole; so we disable Nagle's algorithm, as the server does, rather than have each wait on the
+     * acknowledgement of the last.
+     */
+    private static Socket connect(final InetSocketAddress address) throws IOException {
+        final Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()));
+            return socket;
+        } catch (final IOException ioe) {
+            socket.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Logs the number of tests each daemon executed since start, and the share of that time it spent executing them
+     */
+    private void logUtilization() {
+        final long elapsed = Math.max(System.currentTimeMillis() - startTime, 1L);
+        final StringBuilder report = new StringBuilder("Shard utilization over ").append(elapsed).append("ms:");
+        final List<ShardUtilization> utilizations = new ArrayList<>();
+        utilizations.add(utilization);
+        for (final DaemonDeployableContainerBase<?> shard : this.getShards()) {
+            utilizations.add(shard.utilization);
+        }
+        for (final ShardUtilization shardUtilization : utilizations) {
+            if (shardUtilization == null) {
+                continue;
+            }
+            report.append("\n  ").append(shardUtilization.getName()).append(": ")
+                .append(shardUtilization.getTestCount()).append(" tests, busy ")
+                .append(shardUtilization.getBusyMillis()).append("ms (")
+                .append(shardUtilization.getBusyMillis() * 100 / elapsed).append("%)");
+        }
+        log.info(report.toString());
+    }
+
+    /**
+     * Saves the test history, if any; failure to do so costs only the scheduling of later runs, so is merely logged
+     */
+    private void saveTestHistory() {
+        final TestHistory history = this.getTestHistory();
+        if (history == null) {
+            return;
+        }
+        try {
+            history.save();
+        } catch (final IOException ioe) {
+            log.log(Level.WARNING, "Could not save test history to " + history.getFile().getAbsolutePath(), ioe);
+        }
+    }
+
+    /**
+     * Asks the server to switch this connection to the binary framing mode; if it doesn't understand the request we
+     * continue with the text commands
+     */
+    private void negotiateFraming() throws IOException {
+        writer.print(WireProtocol.COMMAND_PROTOCOL_PREFIX + WireProtocol.FRAME_VERSION);
+        writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+        writer.flush();
+        final String response = reader.readLine();
+        if (response == null || !response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Server does not support framing, falling back to text commands: " + response);
+            }
+            return;
+        }
+        this.connection = FrameConnection.open(socketInstream, socketOutstream);
+    }
+
+    /**
+     * Returns whether this connection uses the binary framing mode of the wire protocol
+     */
+    protected final boolean isFramed() {
+        return connection != null;
+    }
+
+    /**
+     * Sends a request with the specified opcode and (optional) String payload over a framed connection, and blocks
+     * until the response is received
+     *
+     * @throws IOException
+     */
+    protected final Frame request(final byte opcode, final String payload) throws IOException {
+        assert this.isFramed() :"Connection must be framed";
+        return FrameConnection.await(connection.request(opcode, payload));
+    }
+
     /**
      * @return the remoteAddress
      */
@@ -258,6 +671,18 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
         return remoteAddress;
     }
 
+    /**
+     * Sets the address to which {@link DaemonDeployableContainerBase#start()} will connect, for instance once a
+     * launched daemon has reported the port it bound
+     *
+     * @param remoteAddress
+     *     the remoteAddress to set
+     */
+    protected final void setRemoteAddress(final InetSocketAddress remoteAddress) {
+        assert remoteAddress !=null :"Remote address must be specified";
+        this.remoteAddress = remoteAddress;
+    }
+
     /**
      * @return the writer
      */
@@ -276,6 +701,10 @@ public abstract class DaemonDeployableContainerBase<CONFIGTYPE extends DaemonCon
      * Safely close remote resources
      */
     private void closeRemoteResources() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
         if (reader != null) {
             try {
                 reader.close();
@@ -0,0 +1,39 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.embedded;
+
+import org.jboss.arquillian.container.spi.ConfigurationException;
+import org.jboss.arquillian.container.spi.client.container.ContainerConfiguration;
+import org.jboss.arquillian.daemon.server.ServerBase;
+
+/**
+ * {@link ContainerConfiguration} implementation for Embedded Containers. There is no address to configure, as the
+ * daemon runs within the client JVM; it is tuned by the same system properties as a standalone daemon, such as
+ * {@link ServerBase#SYSPROP_NAME_DEPLOYMENT_BUDGET}.
+ */
+public class EmbeddedDaemonContainerConfiguration implements ContainerConfiguration {
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.ContainerConfiguration#validate()
+     */
+    @Override
+    public void validate() throws ConfigurationException {
+        // Nothing to validate
+    }
+}
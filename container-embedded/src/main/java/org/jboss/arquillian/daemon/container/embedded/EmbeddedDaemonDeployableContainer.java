@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.embedded;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
+import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
+import org.jboss.arquillian.container.spi.client.protocol.ProtocolDescription;
+import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
+import org.jboss.arquillian.daemon.protocol.arquillian.DaemonProtocol;
+import org.jboss.arquillian.daemon.protocol.arquillian.DeploymentContext;
+import org.jboss.arquillian.daemon.protocol.arquillian.EmbeddedDeployment;
+import org.jboss.arquillian.daemon.server.EmbeddedServer;
+import org.jboss.arquillian.daemon.server.ServerLifecycleException;
+import org.jboss.arquillian.daemon.server.Servers;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.descriptor.api.Descriptor;
+
+/**
+ * {@link DeployableContainer} implementation for an Arquillian Server Daemon embedded within the client JVM. Archives
+ * are deployed to, and tests executed upon, the daemon by direct calls, with no socket, forked process or transfer of
+ * the archive between them; each deployment is nonetheless isolated from the client's classpath as it would be in a
+ * standalone daemon.
+ */
+public class EmbeddedDaemonDeployableContainer implements DeployableContainer<EmbeddedDaemonContainerConfiguration> {
+
+    private static final Logger log = Logger.getLogger(EmbeddedDaemonDeployableContainer.class.getName());
+    private static final String ERROR_MESSAGE_DESCRIPTORS_UNSUPPORTED = "Descriptor deployment not supported";
+
+    private EmbeddedServer server;
+    private String currentDeploymentId;
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#getConfigurationClass()
+     */
+    @Override
+    public Class<EmbeddedDaemonContainerConfiguration> getConfigurationClass() {
+        return EmbeddedDaemonContainerConfiguration.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#setup(org.jboss.arquillian.container.spi.client.container.ContainerConfiguration)
+     */
+    @Override
+    public void setup(final EmbeddedDaemonContainerConfiguration configuration) {
+        this.server = Servers.createEmbedded();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#start()
+     */
+    @Override
+    public void start() throws LifecycleException {
+        final long startTime = System.currentTimeMillis();
+        try {
+            server.start();
+        } catch (final ServerLifecycleException | RuntimeException e) {
+            throw new LifecycleException("Could not start the embedded server", e);
+        }
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Started embedded server in " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#stop()
+     */
+    @Override
+    public void stop() throws LifecycleException {
+        try {
+            server.stop();
+        } catch (final ServerLifecycleException | RuntimeException e) {
+            throw new LifecycleException("Could not stop the embedded server", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#getDefaultProtocol()
+     */
+    @Override
+    public ProtocolDescription getDefaultProtocol() {
+        return DaemonProtocol.DESCRIPTION;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#deploy(org.jboss.shrinkwrap.api.Archive)
+     */
+    @Override
+    public ProtocolMetaData deploy(final Archive<?> archive) throws DeploymentException {
+        final EmbeddedServer server = this.server;
+        final String deploymentId;
+        try {
+            deploymentId = server.deployArchive(archive);
+        } catch (final IOException ioe) {
+            throw new DeploymentException("I/O problem encountered during deployment", ioe);
+        } catch (final RuntimeException re) {
+            throw new DeploymentException("Unexpected problem encountered during deployment", re);
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("Got deployment: " + deploymentId);
+        }
+        this.currentDeploymentId = deploymentId;
+
+        final ProtocolMetaData pmd = new ProtocolMetaData();
+        pmd.addContext(DeploymentContext.createEmbedded(deploymentId, new EmbeddedDeployment() {
+            @Override
+            public Object execute(final String testClassName, final String methodName) {
+                return server.runTest(deploymentId, testClassName, methodName);
+            }
+        }));
+        return pmd;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#undeploy(org.jboss.shrinkwrap.api.Archive)
+     */
+    @Override
+    public void undeploy(final Archive<?> archive) throws DeploymentException {
+        assert currentDeploymentId !=null :"Deployment name should be set";
+        if (!server.undeployArchive(currentDeploymentId)) {
+            throw new DeploymentException("Archive with ID " + currentDeploymentId + " is not deployed");
+        }
+        this.currentDeploymentId = null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#deploy(org.jboss.shrinkwrap.descriptor.api.Descriptor)
+     */
+    @Override
+    public void deploy(final Descriptor descriptor) throws DeploymentException {
+        throw new UnsupportedOperationException(ERROR_MESSAGE_DESCRIPTORS_UNSUPPORTED);
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     * @see org.jboss.arquillian.container.spi.client.container.DeployableContainer#undeploy(org.jboss.shrinkwrap.descriptor.api.Descriptor)
+     */
+    @Override
+    public void undeploy(final Descriptor descriptor) throws DeploymentException {
+        throw new UnsupportedOperationException(ERROR_MESSAGE_DESCRIPTORS_UNSUPPORTED);
+    }
+}
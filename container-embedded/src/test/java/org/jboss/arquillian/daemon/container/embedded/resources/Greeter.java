@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.embedded.resources;
+
+/**
+ * Test class to greet a user
+ */
+public class Greeter {
+
+    public static final String PREFIX = "Word up, ";
+
+    /**
+     * Greets the user by prepending {@link Greeter#PREFIX} to the required, supplied name
+     *
+     * @throws IllegalArgumentException
+     *     If the name is not specified
+     */
+    public static String greet(final String name) throws IllegalArgumentException {
+        if (name == null || name.length() == 0) {
+            throw new IllegalArgumentException("name must be specified");
+        }
+        return PREFIX + name;
+    }
+}
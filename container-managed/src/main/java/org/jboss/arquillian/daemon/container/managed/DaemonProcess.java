@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+
+/**
+ * A server daemon running in a JVM of its own, launched from the server JAR. The output of the process is relayed to
+ * our own (or appended to a log), and watched for the daemon's report that it is ready (see
+ * {@link WireProtocol#READY_PREFIX}).
+ */
+final class DaemonProcess {
+
+    private static final Logger log = Logger.getLogger(DaemonProcess.class.getName());
+    private static final String SYSPROP_KEY_JAVA_HOME = "java.home";
+    private static final long MILLIS_POLL_LOG = 50;
+
+    private final Process process;
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private volatile int port = -1;
+    private volatile boolean closed;
+
+    private DaemonProcess(final Process process) {
+        this.process = process;
+    }
+
+    /**
+     * Launches the server daemon of the specified JAR, to bind the specified host and port (which may be 0, for the
+     * daemon to choose)
+     *
+     * @throws IOException
+     *     If the process could not be started
+     */
+    static DaemonProcess launch(final File serverJarFile, final String host, final int port) throws IOException {
+        return launch(serverJarFile, host, port, Collections.<String, String> emptyMap(), null);
+    }
+
+    /**
+     * Launches the server daemon of the specified JAR, to bind the specified host and port (which may be 0, for the
+     * daemon to choose), with the specified system properties set. If a log file is specified, the output of the
+     * daemon is appended to it rather than relayed, so that the daemon may outlive this JVM.
+     *
+     * @throws IOException
+     *     If the process could not be started
+     */
+    static DaemonProcess launch(final File serverJarFile, final String host, final int port,
+        final Map<String, String> systemProperties, final File logFile) throws IOException {
+        assert serverJarFile !=null :"Server JAR file must be specified";
+        assert host !=null :"Host must be specified";
+        assert systemProperties !=null :"System properties must be specified";
+
+        // Build the launch command
+        final File javaHome = new File(SecurityActions.getSystemProperty(SYSPROP_KEY_JAVA_HOME));
+        final List<String> command = new ArrayList<>(10 + systemProperties.size());
+        command.add(javaHome.getAbsolutePath() + "/bin/java");
+        for (final Map.Entry<String, String> property : systemProperties.entrySet()) {
+            command.add("-D" + property.getKey() + "=" + property.getValue());
+        }
+        command.add("-jar");
+        command.add(serverJarFile.getAbsolutePath());
+        command.add(host);
+        command.add(Integer.toString(port));
+        return start(command, logFile);
+    }
+
+    /**
+     * Starts the specified command as a daemon process, relaying its output (or, if a log file is specified,
+     * appending it there) while watching for readiness
+     *
+     * @throws IOException
+     *     If the process could not be started
+     */
+    static DaemonProcess start(final List<String> command, final File logFile) throws IOException {
+        assert command !=null && !command.isEmpty() :"Command must be specified";
+        final ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectErrorStream(true);
+        final long logOffset;
+        if (logFile != null) {
+            logOffset = logFile.length();
+            processBuilder.redirectOutput(Redirect.appendTo(logFile));
+        } else {
+            logOffset = 0;
+        }
+        final DaemonProcess daemon = new DaemonProcess(processBuilder.start());
+        final Thread watcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (logFile != null) {
+                    daemon.tailLog(logFile, logOffset);
+                } else {
+                    daemon.relayOutput();
+                }
+            }
+        }, "Arquillian Daemon Output");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        return daemon;
+    }
+
+    /**
+     * Waits up to the specified time for the daemon to report readiness, returning the port it reported, else -1 if
+     * it did not (or its output ended first)
+     */
+    int awaitPort(final long timeout, final TimeUnit unit) throws InterruptedException {
+        ready.await(timeout, unit);
+        return port;
+    }
+
+    /**
+     * Returns whether the output of the process has ended, as it does when the process exits
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns whether the process has not yet exited
+     */
+    boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (final IllegalThreadStateException itse) {
+            return true;
+        }
+    }
+
+    /**
+     * Blocks until the process exits
+     */
+    void waitFor() throws InterruptedException {
+        process.waitFor();
+    }
+
+    /**
+     * Kills the process and blocks until it has exited
+     */
+    void destroy() throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+
+    /**
+     * Kills the process without awaiting its exit
+     */
+    void destroyQuietly() {
+        process.destroy();
+    }
+
+    private void relayOutput() {
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                Charset.defaultCharset()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                System.out.println(line);
+                this.checkReady(line);
+            }
+        } catch (final IOException ioe) {
+            if (log.isLoggable(Level.FINEST)) {
+                log.finest("Server daemon output closed: " + ioe);
+            }
+        } finally {
+            closed = true;
+            ready.countDown();
+        }
+    }
+
+    /**
+     * Follows the specified log from the specified offset until the daemon reports readiness or exits
+     */
+    private void tailLog(final File logFile, final long offset) {
+        try {
+            final RandomAccessFile in = new RandomAccessFile(logFile, "r");
+            try {
+                in.seek(offset);
+                final ByteArrayOutputStream line = new ByteArrayOutputStream();
+                while (ready.getCount() > 0) {
+                    final int b = in.read();
+                    if (b == '\n') {
+                        this.checkReady(new String(line.toByteArray(), Charset.defaultCharset()).trim());
+                        line.reset();
+                    } else if (b >= 0) {
+                        line.write(b);
+                    } else if (this.isAlive()) {
+                        Thread.sleep(MILLIS_POLL_LOG);
+                    } else {
+                        return;
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (final IOException ioe) {
+            log.log(Level.WARNING, "Could not follow server daemon log " + logFile.getAbsolutePath(), ioe);
+        } catch (final InterruptedException ie) {
+            Thread.interrupted();
+        } finally {
+            // Exited, or no longer watched
+            closed = !this.isAlive();
+            ready.countDown();
+        }
+    }
+
+    private void checkReady(final String line) {
+        if (ready.getCount() > 0 && line.startsWith(WireProtocol.READY_PREFIX)) {
+            port = parsePort(line);
+            if (port < 0) {
+                log.warning("Could not parse server daemon readiness: " + line);
+            }
+            ready.countDown();
+        }
+    }
+
+    /**
+     * Returns the port reported by the specified readiness line (<code>READY_PREFIX host port</code>), or -1 if the
+     * line does not name both a host and a valid port
+     */
+    static int parsePort(final String line) {
+        assert line !=null && line.startsWith(WireProtocol.READY_PREFIX) :"Readiness line must be specified";
+        final String address = line.substring(WireProtocol.READY_PREFIX.length()).trim();
+        final int portIndex = address.lastIndexOf(' ') + 1;
+        if (portIndex <= 1) {
+            return -1;
+        }
+        final int port;
+        try {
+            port = Integer.parseInt(address.substring(portIndex));
+        } catch (final NumberFormatException nfe) {
+            return -1;
+        }
+        return port > 0 && port <= 0xFFFF ? port : -1;
+    }
+}
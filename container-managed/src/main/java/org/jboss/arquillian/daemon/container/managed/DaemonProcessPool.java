@@ -0,0 +1,218 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of spare {@link DaemonProcess}es, started and bound in the background so that a container start may be handed
+ * one already warm rather than paying JVM boot and daemon startup itself. Pools are shared by all containers of this
+ * JVM launching the same server JAR on the same host; spares each bind an ephemeral port on that host. Spares left
+ * over are killed when this JVM exits. Thread-safe.
+ */
+final class DaemonProcessPool {
+
+    private static final Logger log = Logger.getLogger(DaemonProcessPool.class.getName());
+    private static final ConcurrentMap<String, DaemonProcessPool> POOLS = new ConcurrentHashMap<>();
+    private static final long MILLIS_POLL_LAUNCHING = 100;
+
+    private final DaemonLauncher daemonLauncher;
+    private final String host;
+    private final int size;
+    private final int secondsToAwaitReady;
+    private final BlockingQueue<DaemonProcess> spares = new LinkedBlockingQueue<>();
+    private final ExecutorService launcher;
+
+    /**
+     * Spares either launching or ready to be taken
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new pool of the specified size for daemons bound to the specified host, launching each through the
+     * specified {@link DaemonLauncher}. The pool is not filled until {@link DaemonProcessPool#replenish()}.
+     */
+    DaemonProcessPool(final DaemonLauncher daemonLauncher, final String host, final int size,
+        final int secondsToAwaitReady) {
+        assert daemonLauncher !=null :"Daemon launcher must be specified";
+        this.daemonLauncher = daemonLauncher;
+        this.host = host;
+        this.size = size;
+        this.secondsToAwaitReady = secondsToAwaitReady;
+        this.launcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Arquillian Daemon Pool Launcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Obtains the pool of the specified size for daemons of the specified server JAR bound to the specified host,
+     * creating and filling it if this is the first request for it. The size of an existing pool is not changed.
+     */
+    static DaemonProcessPool get(final File serverJarFile, final String host, final int size,
+        final int secondsToAwaitReady) {
+        assert serverJarFile !=null :"Server JAR file must be specified";
+        assert host !=null :"Host must be specified";
+        assert size > 0 :"Pool size must be positive";
+        final String key = serverJarFile.getAbsolutePath() + '@' + host;
+        final DaemonProcessPool existing = POOLS.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final DaemonProcessPool created = new DaemonProcessPool(new DaemonLauncher() {
+            @Override
+            public DaemonProcess launch() throws IOException {
+                return DaemonProcess.launch(serverJarFile, host, 0);
+            }
+        }, host, size, secondsToAwaitReady);
+        final DaemonProcessPool raced = POOLS.putIfAbsent(key, created);
+        if (raced != null) {
+            created.launcher.shutdown();
+            return raced;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                created.close();
+            }
+        }));
+        created.replenish();
+        return created;
+    }
+
+    /**
+     * Takes a spare daemon, waiting up to the specified time for one already launching to report readiness; if there
+     * is none, launches one (whose readiness the caller must await)
+     *
+     * @throws IOException
+     *     If a daemon had to be launched and could not be
+     * @throws InterruptedException
+     *     If interrupted while waiting for a spare
+     */
+    DaemonProcess take(final long timeout, final TimeUnit unit) throws IOException, InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            final DaemonProcess spare = spares.poll(MILLIS_POLL_LAUNCHING, TimeUnit.MILLISECONDS);
+            if (spare == null) {
+                continue;
+            }
+            pending.decrementAndGet();
+            if (spare.isAlive()) {
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer("Took warm server daemon from pool for " + host);
+                }
+                return spare;
+            }
+            log.warning("Discarding pooled server daemon which has exited");
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("No warm server daemon in pool for " + host + "; launching one");
+        }
+        return daemonLauncher.launch();
+    }
+
+    /**
+     * Launches spares in the background until the pool holds its configured number, counting those already launching
+     */
+    void replenish() {
+        while (!closed) {
+            final int current = pending.get();
+            if (current >= size) {
+                return;
+            }
+            if (pending.compareAndSet(current, current + 1)) {
+                launcher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        launchSpare();
+                    }
+                });
+            }
+        }
+    }
+
+    private void launchSpare() {
+        DaemonProcess spare = null;
+        try {
+            if (!closed) {
+                spare = daemonLauncher.launch();
+                if (spare.awaitPort(secondsToAwaitReady, TimeUnit.SECONDS) >= 0 && !closed) {
+                    spares.add(spare);
+                    // Closed meanwhile? Make sure the spare is not left running
+                    if (closed && spares.remove(spare)) {
+                        spare.destroy();
+                    }
+                    return;
+                }
+                log.warning("Pooled server daemon did not report readiness in the allotted " + secondsToAwaitReady
+                    + "s");
+                spare.destroy();
+            }
+        } catch (final IOException ioe) {
+            log.log(Level.WARNING, "Could not launch pooled server daemon", ioe);
+        } catch (final InterruptedException ie) {
+            Thread.interrupted();
+            if (spare != null) {
+                spare.destroyQuietly();
+            }
+        }
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Stops launching spares and kills those not taken
+     */
+    void close() {
+        closed = true;
+        launcher.shutdownNow();
+        DaemonProcess spare;
+        while ((spare = spares.poll()) != null) {
+            spare.destroyQuietly();
+        }
+    }
+
+    /**
+     * Launches the daemons of a pool, each binding an ephemeral port
+     */
+    interface DaemonLauncher {
+
+        /**
+         * Launches a new daemon, whose readiness the caller must await
+         *
+         * @throws IOException
+         *     If the daemon could not be launched
+         */
+        DaemonProcess launch() throws IOException;
+    }
+}
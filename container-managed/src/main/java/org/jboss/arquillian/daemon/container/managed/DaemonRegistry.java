@@ -0,0 +1,336 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.jboss.arquillian.daemon.server.ServerBase;
+
+/**
+ * Registry of long-lived server daemons shared by all builds of this user, kept in the temp directory in a directory
+ * accessible to this user alone, which is refused if another user owns it or may write to it. Each entry
+ * records the address of a running daemon launched from a server JAR of given contents on a given host, so that
+ * containers in later JVMs may attach to it rather than launch their own. The registry directory is set by the
+ * {@link DaemonRegistry#SYSPROP_NAME_REGISTRY} system property. Entries are read and written only while holding a
+ * file lock, so that of any number of concurrent builds just one launches a daemon. Daemons so launched log to a file
+ * alongside their entry and stop themselves once idle for the configured time; entries outliving their daemon are
+ * replaced upon the next lookup. As the port of a stopped daemon may since have been taken by any other process, an
+ * entry is trusted only if it was written by this user, and the process at its address answers as a daemon would.
+ * Thread-safe.
+ */
+final class DaemonRegistry {
+
+    /**
+     * System property naming the directory holding the registry, defaulting to
+     * <code>arquillian-daemon-registry-${user.name}</code> in the temp directory
+     */
+    static final String SYSPROP_NAME_REGISTRY = "arquillian.daemon.registry";
+
+    private static final Logger log = Logger.getLogger(DaemonRegistry.class.getName());
+    private static final String SYSPROP_NAME_TMP_DIR = "java.io.tmpdir";
+    private static final String SYSPROP_NAME_USER_NAME = "user.name";
+    private static final String PREFIX_DEFAULT_REGISTRY = "arquillian-daemon-registry-";
+    private static final String VIEW_POSIX = "posix";
+    private static final Set<PosixFilePermission> PERMISSIONS_OWNER_ONLY = PosixFilePermissions
+        .fromString("rwx------");
+    private static final String ALGORITHM_KEY = "SHA-256";
+    private static final String SUFFIX_ENTRY = ".properties";
+    private static final String SUFFIX_LOCK = ".lock";
+    private static final String SUFFIX_LOG = ".log";
+    private static final String PROPERTY_HOST = "host";
+    private static final String PROPERTY_PORT = "port";
+    private static final int MILLIS_CONNECT_TIMEOUT = 1000;
+    private static final int MILLIS_RESPONSE_TIMEOUT = 5000;
+    private static final int CORRELATION_ID_LOAD = 1;
+    private static final int MAX_RESPONSE_PAYLOAD_LENGTH = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Guards the file locks, which are held on behalf of the whole JVM
+     */
+    private static final Object LOCK = new Object();
+
+    private DaemonRegistry() {
+        throw new UnsupportedOperationException("No instances permitted");
+    }
+
+    /**
+     * Returns the address of a running daemon of the specified server JAR bound to the specified host, launching
+     * one if the registry names none that answers as a daemon. A daemon launched binds an ephemeral port and stops
+     * itself after the specified number of seconds without connections.
+     *
+     * @throws IOException
+     *     If the registry could not be read or written, or a daemon could not be launched
+     * @throws InterruptedException
+     *     If interrupted while awaiting the readiness of a daemon launched
+     */
+    static InetSocketAddress attachOrLaunch(final File serverJarFile, final String host,
+        final int idleTimeoutSeconds, final int secondsToAwaitReady) throws IOException, InterruptedException {
+        assert serverJarFile !=null :"Server JAR file must be specified";
+        assert host !=null :"Host must be specified";
+        final File registry = getRegistryDirectory();
+        final UserPrincipal user = secureDirectory(registry);
+        final String key = key(serverJarFile, host);
+        final File entry = new File(registry, key + SUFFIX_ENTRY);
+
+        synchronized (LOCK) {
+            final RandomAccessFile lockFile = new RandomAccessFile(new File(registry, key + SUFFIX_LOCK), "rw");
+            try {
+                final FileLock lock = lockFile.getChannel().lock();
+                try {
+                    // Attach to the registered daemon, if it is still there
+                    final InetSocketAddress registered = read(entry, user);
+                    if (registered != null && isDaemon(registered)) {
+                        if (log.isLoggable(Level.FINE)) {
+                            log.fine("Attaching to registered server daemon at " + registered);
+                        }
+                        return registered;
+                    }
+
+                    // Launch one to outlive us, and register it
+                    final File logFile = new File(registry, key + SUFFIX_LOG);
+                    log.info("Launching shared server daemon, logging to " + logFile.getAbsolutePath());
+                    final DaemonProcess daemon = DaemonProcess.launch(serverJarFile, host, 0, Collections
+                        .singletonMap(ServerBase.SYSPROP_NAME_IDLE_TIMEOUT, Integer.toString(idleTimeoutSeconds)),
+                        logFile);
+                    final int port = daemon.awaitPort(secondsToAwaitReady, TimeUnit.SECONDS);
+                    if (port < 0) {
+                        daemon.destroyQuietly();
+                        throw new IOException("Shared server daemon did not report readiness in the allotted "
+                            + secondsToAwaitReady + "s; see " + logFile.getAbsolutePath());
+                    }
+                    final InetSocketAddress launched = new InetSocketAddress(host, port);
+                    write(entry, launched);
+                    return launched;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                lockFile.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the specified registry directory if need be, accessible to this user alone. Where the file system knows
+     * owners and permissions, refuses a directory another user owns or may write to, as any daemon it names could be
+     * another user's; and returns this user, else null.
+     *
+     * @throws IOException
+     *     If the directory could not be created, or is refused
+     */
+    static UserPrincipal secureDirectory(final File registry) throws IOException {
+        assert registry !=null :"Registry must be specified";
+        final Path directory = registry.toPath().toAbsolutePath();
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains(VIEW_POSIX);
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            final Path parent = directory.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try {
+                if (posix) {
+                    Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PERMISSIONS_OWNER_ONLY));
+                } else {
+                    Files.createDirectory(directory);
+                }
+            } catch (final FileAlreadyExistsException faee) {
+                // Created meanwhile by a concurrent build; checked as any other
+            }
+        }
+        if (!posix) {
+            if (!Files.isDirectory(directory)) {
+                throw new IOException("Daemon registry is not a directory: " + directory);
+            }
+            return null;
+        }
+        final PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class,
+            LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory()) {
+            throw new IOException("Daemon registry is not a directory: " + directory);
+        }
+        final UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+            .lookupPrincipalByName(SecurityActions.getSystemProperty(SYSPROP_NAME_USER_NAME));
+        if (!user.equals(attributes.owner())) {
+            throw new IOException("Daemon registry " + directory + " is owned by " + attributes.owner().getName()
+                + " rather than " + user.getName());
+        }
+        if (attributes.permissions().contains(PosixFilePermission.GROUP_WRITE)
+            || attributes.permissions().contains(PosixFilePermission.OTHERS_WRITE)) {
+            throw new IOException("Daemon registry " + directory + " may be written by other users");
+        }
+        return user;
+    }
+
+    /**
+     * Returns the address named by the specified entry, if any; an entry not written by the specified user (if known)
+     * is removed as though it were not there
+     */
+    private static InetSocketAddress read(final File entry, final UserPrincipal user) throws IOException {
+        if (!entry.isFile()) {
+            return null;
+        }
+        if (user != null) {
+            final UserPrincipal owner = Files.getOwner(entry.toPath(), LinkOption.NOFOLLOW_LINKS);
+            if (!user.equals(owner)) {
+                log.warning("Dropping daemon registry entry " + entry.getAbsolutePath() + " written by "
+                    + owner.getName());
+                Files.delete(entry.toPath());
+                return null;
+            }
+        }
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(entry);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        final String host = properties.getProperty(PROPERTY_HOST);
+        final String port = properties.getProperty(PROPERTY_PORT);
+        if (host == null || port == null) {
+            return null;
+        }
+        try {
+            return new InetSocketAddress(host, Integer.parseInt(port));
+        } catch (final IllegalArgumentException iae) {
+            // Includes NumberFormatException; a corrupt entry is as good as none
+            return null;
+        }
+    }
+
+    private static void write(final File entry, final InetSocketAddress address) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(PROPERTY_HOST, address.getHostString());
+        properties.setProperty(PROPERTY_PORT, Integer.toString(address.getPort()));
+        final OutputStream out = new FileOutputStream(entry);
+        try {
+            properties.store(out, "Arquillian Server Daemon");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns whether the process at the specified address is a daemon, switching a connection to framing mode and
+     * asking it for its load as only a daemon would answer
+     */
+    static boolean isDaemon(final InetSocketAddress address) {
+        final Socket socket = new Socket();
+        try {
+            socket.connect(address, MILLIS_CONNECT_TIMEOUT);
+            socket.setSoTimeout(MILLIS_RESPONSE_TIMEOUT);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET));
+            writer.print(WireProtocol.COMMAND_PROTOCOL_PREFIX + WireProtocol.FRAME_VERSION);
+            writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+            writer.flush();
+            // The server sends nothing more until asked, so the reader takes only this line
+            final String response = new BufferedReader(new InputStreamReader(socketInstream, WireProtocol.CHARSET))
+                .readLine();
+            if (response == null || !response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
+                return false;
+            }
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            Frame.create(CORRELATION_ID_LOAD, WireProtocol.OPCODE_LOAD, (String) null).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame frame = Frame.read(new DataInputStream(socketInstream), MAX_RESPONSE_PAYLOAD_LENGTH);
+            return frame.getCorrelationId() == CORRELATION_ID_LOAD
+                && frame.getOpcode() == WireProtocol.OPCODE_RESPONSE_LOAD;
+        } catch (final IOException | RuntimeException e) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Process at " + address + " is not a server daemon: " + e);
+            }
+            return false;
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Returns the hex-encoded SHA-256 digest of the contents of the specified JAR and the specified host
+     */
+    static String key(final File serverJarFile, final String host) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM_KEY);
+        } catch (final NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("JVM does not support " + ALGORITHM_KEY, nsae);
+        }
+        final InputStream in = new FileInputStream(serverJarFile);
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        digest.update(host.getBytes(Charset.forName("UTF-8")));
+        return ArchiveDigest.toHex(digest.digest());
+    }
+
+    private static File getRegistryDirectory() {
+        final String configured = SecurityActions.getSystemProperty(SYSPROP_NAME_REGISTRY);
+        if (configured != null && configured.length() > 0) {
+            return new File(configured);
+        }
+        return new File(SecurityActions.getSystemProperty(SYSPROP_NAME_TMP_DIR), PREFIX_DEFAULT_REGISTRY
+            + SecurityActions.getSystemProperty(SYSPROP_NAME_USER_NAME));
+    }
+}
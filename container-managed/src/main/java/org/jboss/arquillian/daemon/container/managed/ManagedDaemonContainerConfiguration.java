@@ -30,8 +30,43 @@ import org.jboss.arquillian.daemon.container.common.DaemonContainerConfiguration
 public class ManagedDaemonContainerConfiguration extends DaemonContainerConfigurationBase implements
     ContainerConfiguration {
 
+    private static final int DEFAULT_IDLE_TIMEOUT = 600;
+
     private String serverJarFile;
 
+    /**
+     * Number of spare daemons to keep started in the background, each bound to an ephemeral port of the configured
+     * host; 0 (the default) launches a daemon on the configured port upon each start instead
+     */
+    private int poolSize;
+
+    /**
+     * Whether to attach to a long-lived daemon shared with other builds, launching one only if none is running (see
+     * {@link DaemonRegistry}); the configured port is then not used
+     */
+    private boolean persistent;
+
+    /**
+     * Seconds a persistent daemon may go without connections before stopping itself
+     */
+    private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    /**
+     * Number of daemons to launch, across which the tests of each deployment are sharded; all but the first bind an
+     * ephemeral port of the configured host. Each archive is deployed to all daemons at once. Arquillian itself
+     * executes tests one at a time, so sharding spreads their classes across the daemons without running them any
+     * sooner; it shortens a run only for callers which execute tests concurrently, or in batches through
+     * <code>DaemonMethodExecutor.invokeBatch</code>.
+     */
+    private int shards = 1;
+
+    /**
+     * File in which to keep the durations of tests, by which the test classes of later runs are weighed in spreading
+     * them across shards, heaviest first; defaults to <code>arquillian-daemon-test-history.properties</code> in the
+     * temp directory
+     */
+    private String testHistoryFile;
+
     /**
      * {@inheritDoc}
      *
@@ -48,6 +83,24 @@ public class ManagedDaemonContainerConfiguration extends DaemonContainerConfigur
             throw new ConfigurationException("Server JAR file must exist and not be a directory: "
                 + file.getAbsolutePath());
         }
+        if (poolSize < 0) {
+            throw new ConfigurationException("\"poolSize\" must not be negative");
+        }
+        if (persistent && poolSize > 0) {
+            throw new ConfigurationException("\"persistent\" and \"poolSize\" may not be used together");
+        }
+        if (shards < 1) {
+            throw new ConfigurationException("\"shards\" must be positive");
+        }
+        if (persistent && shards > 1) {
+            throw new ConfigurationException("\"persistent\" and \"shards\" may not be used together");
+        }
+        if (testHistoryFile != null && new File(testHistoryFile).isDirectory()) {
+            throw new ConfigurationException("\"testHistoryFile\" must not be a directory: " + testHistoryFile);
+        }
+        if (idleTimeout < 1) {
+            throw new ConfigurationException("\"idleTimeout\" must be positive");
+        }
     }
 
     /**
@@ -64,4 +117,79 @@ public class ManagedDaemonContainerConfiguration extends DaemonContainerConfigur
     public void setServerJarFile(final String serverJarFile) {
         this.serverJarFile = serverJarFile;
     }
+
+    /**
+     * @return the poolSize
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @param poolSize
+     *     the poolSize to set
+     */
+    public void setPoolSize(final int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * @return the persistent
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * @param persistent
+     *     the persistent to set
+     */
+    public void setPersistent(final boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * @return the idleTimeout
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout
+     *     the idleTimeout to set
+     */
+    public void setIdleTimeout(final int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @return the shards
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * @param shards
+     *     the shards to set
+     */
+    public void setShards(final int shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * @return the testHistoryFile
+     */
+    public String getTestHistoryFile() {
+        return testHistoryFile;
+    }
+
+    /**
+     * @param testHistoryFile
+     *     the testHistoryFile to set
+     */
+    public void setTestHistoryFile(final String testHistoryFile) {
+        this.testHistoryFile = testHistoryFile;
+    }
 }
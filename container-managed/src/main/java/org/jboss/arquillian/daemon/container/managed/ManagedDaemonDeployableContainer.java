@@ -19,16 +19,20 @@ package org.jboss.arquillian.daemon.container.managed;
 import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
 import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase;
+import org.jboss.arquillian.daemon.protocol.arquillian.TestHistory;
 import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.ProcessBuilder.Redirect;
 import java.net.InetSocketAddress;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,11 +47,40 @@ public class ManagedDaemonDeployableContainer extends
     DeployableContainer<ManagedDaemonContainerConfiguration> {
 
     private static final Logger log = Logger.getLogger(ManagedDaemonDeployableContainer.class.getName());
-    private static final String SYSPROP_KEY_JAVA_HOME = "java.home";
+
+    private static final int SECONDS_TO_AWAIT_READY = 10;
+    private static final String SYSPROP_NAME_TMP_DIR = "java.io.tmpdir";
+    private static final String NAME_DEFAULT_TEST_HISTORY = "arquillian-daemon-test-history.properties";
 
     private Thread shutdownHookThread;
     private File serverjarFile;
-    private Process remoteProcess;
+    private DaemonProcess remoteProcess;
+
+    /**
+     * Pool of warm daemons to take from upon start, or <code>null</code> if each start launches its own
+     */
+    private DaemonProcessPool pool;
+
+    /**
+     * Whether to attach to a shared daemon which outlives us, rather than launch one of our own
+     */
+    private boolean persistent;
+    private int idleTimeout;
+
+    /**
+     * Address as configured, which the launched daemon is told to bind; its port may be 0, to be chosen by the daemon
+     */
+    private InetSocketAddress configuredAddress;
+
+    /**
+     * Containers of the further daemons across which tests are sharded, if so configured
+     */
+    private final List<ManagedDaemonDeployableContainer> shards = new ArrayList<>();
+
+    /**
+     * Durations of earlier runs by which sharded tests are scheduled, if sharding
+     */
+    private TestHistory testHistory;
 
     /**
      * {@inheritDoc}
@@ -68,36 +101,149 @@ public class ManagedDaemonDeployableContainer extends
     public void setup(final ManagedDaemonContainerConfiguration configuration) {
         super.setup(configuration);
         serverjarFile = new File(configuration.getServerJarFile());
+        configuredAddress = this.getRemoteAddress();
+        persistent = configuration.isPersistent();
+        idleTimeout = configuration.getIdleTimeout();
+        final int poolSize = configuration.getPoolSize();
+        if (poolSize > 0) {
+            pool = DaemonProcessPool.get(serverjarFile, configuredAddress.getHostString(), poolSize,
+                SECONDS_TO_AWAIT_READY);
+        }
+        shards.clear();
+        testHistory = null;
+        if (configuration.getShards() > 1) {
+            final String testHistoryFile = configuration.getTestHistoryFile();
+            testHistory = TestHistory.load(testHistoryFile != null ? new File(testHistoryFile) : new File(
+                SecurityActions.getSystemProperty(SYSPROP_NAME_TMP_DIR), NAME_DEFAULT_TEST_HISTORY));
+        }
+        for (int i = 1; i < configuration.getShards(); i++) {
+            final ManagedDaemonContainerConfiguration shardConfiguration = new ManagedDaemonContainerConfiguration();
+            shardConfiguration.setHost(configuration.getHost());
+            shardConfiguration.setPort("0");
+            shardConfiguration.setServerJarFile(configuration.getServerJarFile());
+            shardConfiguration.setPoolSize(poolSize);
+            final ManagedDaemonDeployableContainer shard = new ManagedDaemonDeployableContainer();
+            shard.setup(shardConfiguration);
+            shards.add(shard);
+        }
     }
 
     /**
-     * Starts the process, then forwards control to {@link DaemonDeployableContainerBase#start()} to connect.
+     * Starts the process, or takes a warm one from the pool if so configured, and awaits its report that it is ready
+     * (see {@link WireProtocol#READY_PREFIX}), then forwards control to {@link DaemonDeployableContainerBase#start()}
+     * to connect to the port reported. If configured as persistent, instead attaches to the shared daemon. If
+     * configured with several shards, their daemons are started alongside.
      *
      * @see org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase#start()
      */
     @Override
     public void start() throws LifecycleException {
+        if (shards.isEmpty()) {
+            this.startDaemon();
+            return;
+        }
 
-        // Build the launch command
-        final File javaHome = new File(SecurityActions.getSystemProperty(SYSPROP_KEY_JAVA_HOME));
-        final List<String> command = new ArrayList<>(10);
-        command.add(javaHome.getAbsolutePath() + "/bin/java");
-        command.add("-jar");
-        command.add(serverjarFile.getAbsolutePath());
-        final InetSocketAddress remoteAddress = this.getRemoteAddress();
-        command.add(remoteAddress.getHostString());
-        command.add(Integer.toString(remoteAddress.getPort()));
-
-        // Launch the process
-        final ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.redirectErrorStream(true);
-        processBuilder.redirectOutput(Redirect.INHERIT);
-        final Process process;
+        // Start the shards concurrently with our own daemon
+        final ExecutorService shardStarter = Executors.newFixedThreadPool(shards.size());
+        final List<Future<?>> shardStarts = new ArrayList<>(shards.size());
         try {
-            process = processBuilder.start();
+            for (final ManagedDaemonDeployableContainer shard : shards) {
+                shardStarts.add(shardStarter.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws LifecycleException {
+                        shard.start();
+                        return null;
+                    }
+                }));
+            }
+            LifecycleException failure = null;
+            try {
+                this.startDaemon();
+            } catch (final LifecycleException le) {
+                failure = le;
+            }
+            for (int i = 0; i < shards.size(); i++) {
+                try {
+                    shardStarts.get(i).get();
+                } catch (final ExecutionException ee) {
+                    if (failure == null) {
+                        failure = new LifecycleException("Could not start shard " + i, ee.getCause());
+                    }
+                    shardStarts.set(i, null);
+                } catch (final InterruptedException ie) {
+                    Thread.interrupted();
+                    throw new LifecycleException("Interrupted while awaiting the start of shard " + i, ie);
+                }
+            }
+            if (failure != null) {
+                // Don't leave behind those which did start
+                for (int i = 0; i < shards.size(); i++) {
+                    if (shardStarts.get(i) != null) {
+                        stopQuietly(shards.get(i));
+                    }
+                }
+                throw failure;
+            }
+        } finally {
+            shardStarter.shutdown();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase#getShards()
+     */
+    @Override
+    protected List<ManagedDaemonDeployableContainer> getShards() {
+        return shards;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase#getTestHistory()
+     */
+    @Override
+    protected TestHistory getTestHistory() {
+        return testHistory;
+    }
+
+    /**
+     * Starts or attaches to this container's own daemon, and connects to it
+     */
+    private void startDaemon() throws LifecycleException {
+
+        // Attach to a shared daemon, if so configured
+        if (persistent) {
+            try {
+                this.setRemoteAddress(DaemonRegistry.attachOrLaunch(serverjarFile, configuredAddress.getHostString(),
+                    idleTimeout, SECONDS_TO_AWAIT_READY));
+            } catch (final IOException ioe) {
+                throw new LifecycleException("Could not attach to a shared server daemon", ioe);
+            } catch (final InterruptedException ie) {
+                Thread.interrupted();
+                throw new LifecycleException("Interrupted while awaiting shared server daemon readiness", ie);
+            }
+            super.start();
+            return;
+        }
+
+        // Launch the process, or take a spare
+        final DaemonProcess process;
+        try {
+            if (pool != null) {
+                process = pool.take(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS);
+            } else {
+                process = DaemonProcess.launch(serverjarFile, configuredAddress.getHostString(),
+                    configuredAddress.getPort());
+            }
             this.remoteProcess = process;
         } catch (final IOException e) {
             throw new LifecycleException("Could not start container", e);
+        } catch (final InterruptedException ie) {
+            Thread.interrupted();
+            throw new LifecycleException("Interrupted while awaiting a pooled server daemon", ie);
         }
 
         // Add a shutdown hook for when this current process terminates to kill the one we've launched
@@ -105,9 +251,8 @@ public class ManagedDaemonDeployableContainer extends
             @Override
             public void run() {
                 if (process != null) {
-                    process.destroy();
                     try {
-                        process.waitFor();
+                        process.destroy();
                     } catch (final InterruptedException e) {
                         Thread.interrupted();
                         throw new RuntimeException("Interrupted while awaiting server daemon process termination", e);
@@ -118,6 +263,20 @@ public class ManagedDaemonDeployableContainer extends
         shutdownHookThread = new Thread(shutdownServerRunnable);
         Runtime.getRuntime().addShutdownHook(shutdownHookThread);
 
+        // Wait until the daemon accepts connections, then connect to the port it bound
+        final int port;
+        try {
+            port = process.awaitPort(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS);
+        } catch (final InterruptedException ie) {
+            Thread.interrupted();
+            throw new LifecycleException("Interrupted while awaiting server daemon readiness", ie);
+        }
+        if (port < 0) {
+            throw new LifecycleException("Server daemon did not report readiness in the allotted "
+                + SECONDS_TO_AWAIT_READY + "s" + (process.isClosed() ? "; its output has ended" : ""));
+        }
+        this.setRemoteAddress(new InetSocketAddress(configuredAddress.getHostString(), port));
+
         // Call the super implementation (to handle connect)
         super.start();
     }
@@ -129,16 +288,49 @@ public class ManagedDaemonDeployableContainer extends
      */
     @Override
     public void stop() throws LifecycleException {
+        try {
+            this.stopDaemon();
+        } finally {
+            for (final ManagedDaemonDeployableContainer shard : shards) {
+                stopQuietly(shard);
+            }
+        }
+    }
 
+    private static void stopQuietly(final ManagedDaemonDeployableContainer container) {
         try {
-            // Write the stop command
-            this.getWriter().print(WireProtocol.COMMAND_STOP);
-            // Terminate the command and flush
-            this.getWriter().print(WireProtocol.COMMAND_EOF_DELIMITER);
-            this.getWriter().flush();
-
-            // Block until we get "OK" response
-            final String response = this.getReader().readLine();
+            container.stop();
+        } catch (final LifecycleException le) {
+            log.log(Level.WARNING, "Could not stop shard", le);
+        }
+    }
+
+    /**
+     * Stops this container's own daemon, unless shared, and disconnects from it
+     */
+    private void stopDaemon() throws LifecycleException {
+
+        // Leave a shared daemon running for the next build; it stops itself once idle
+        if (persistent) {
+            super.stop();
+            return;
+        }
+
+        try {
+            final String response;
+            if (this.isFramed()) {
+                // Send the stop frame and block until we get the response
+                response = this.request(WireProtocol.OPCODE_STOP, null).getPayloadAsString();
+            } else {
+                // Write the stop command
+                this.getWriter().print(WireProtocol.COMMAND_STOP);
+                // Terminate the command and flush
+                this.getWriter().print(WireProtocol.COMMAND_EOF_DELIMITER);
+                this.getWriter().flush();
+
+                // Block until we get "OK" response
+                response = this.getReader().readLine();
+            }
             if (log.isLoggable(Level.FINEST)) {
                 log.finest("Response from stop: " + response);
             }
@@ -162,24 +354,10 @@ public class ManagedDaemonDeployableContainer extends
         }
         // Null out
         remoteProcess = null;
-    }
-
-    private static final class SecurityActions {
-        private SecurityActions() {
-            throw new UnsupportedOperationException("No instance permitted");
-        }
 
-        static String getSystemProperty(final String key) {
-            assert key !=null && key.length() > 0 :"key must be specified";
-            if (System.getSecurityManager() == null) {
-                return System.getProperty(key);
-            }
-            return AccessController.doPrivileged(new PrivilegedAction<String>() {
-                @Override
-                public String run() {
-                    return System.getProperty(key);
-                }
-            });
+        // Launch a spare in the background to take the place of the one stopped
+        if (pool != null) {
+            pool.replenish();
         }
     }
 }
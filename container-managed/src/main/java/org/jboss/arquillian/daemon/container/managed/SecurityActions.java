@@ -0,0 +1,47 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+/**
+ * Not to leak out of this package
+ */
+final class SecurityActions {
+
+    /**
+     * No instances
+     */
+    private SecurityActions() {
+        throw new IllegalArgumentException("No instances");
+    }
+
+    static String getSystemProperty(final String sysPropName) {
+        assert sysPropName !=null && sysPropName.length() > 0 :"System property name must be specified";
+        if (System.getSecurityManager() == null) {
+            return System.getProperty(sysPropName);
+        } else {
+            return AccessController.doPrivileged(new PrivilegedAction<String>() {
+                @Override
+                public String run() {
+                    return System.getProperty(sysPropName);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link DaemonProcessPool} hands out warm daemons, refills itself, discards daemons which have
+ * exited or never became ready, and kills those left over on close. Pools launch {@link StubDaemon}s in place of the
+ * server JAR.
+ */
+public class DaemonProcessPoolTest {
+
+    private static final String HOST = "localhost";
+    private static final int SECONDS_TO_AWAIT_READY = 30;
+    private static final long MILLIS_TIMEOUT = 30000;
+    private static final int PORT = 4242;
+
+    private DaemonProcessPool pool;
+    private StubLauncher launcher;
+
+    @After
+    public void closePool() throws InterruptedException {
+        if (pool != null) {
+            pool.close();
+        }
+        for (final DaemonProcess daemon : launcher.launched) {
+            daemon.destroy();
+        }
+    }
+
+    @Test(timeout = MILLIS_TIMEOUT)
+    public void warmDaemonIsTaken() throws Exception {
+        this.createPool(1, SECONDS_TO_AWAIT_READY, StubDaemon.command(StubDaemon.ready(PORT)));
+        final DaemonProcess taken = pool.take(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS);
+        Assert.assertSame("Spare should have been taken rather than a daemon launched", launcher.awaitLaunched(1),
+            taken);
+        Assert.assertEquals("Taken daemon should already be ready", PORT, taken.awaitPort(0, TimeUnit.SECONDS));
+        Assert.assertTrue(taken.isAlive());
+    }
+
+    @Test(timeout = MILLIS_TIMEOUT)
+    public void takenDaemonIsReplaced() throws Exception {
+        this.createPool(1, SECONDS_TO_AWAIT_READY, StubDaemon.command(StubDaemon.ready(PORT)));
+        final DaemonProcess taken = pool.take(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS);
+        pool.replenish();
+        final DaemonProcess replacement = launcher.awaitLaunched(2);
+        Assert.assertNotSame(taken, replacement);
+        Assert.assertSame(replacement, pool.take(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS));
+        Assert.assertEquals(2, launcher.launched.size());
+    }
+
+    @Test(timeout = MILLIS_TIMEOUT)
+    public void exitedDaemonIsDiscarded() throws Exception {
+        // The spare exits just after reporting readiness; any daemon launched after it stays up
+        this.createPool(1, SECONDS_TO_AWAIT_READY, StubDaemon.command(StubDaemon.ready(PORT), StubDaemon.EXIT),
+            StubDaemon.command(StubDaemon.ready(PORT)));
+        final DaemonProcess exited = launcher.awaitLaunched(1);
+        exited.waitFor();
+        final DaemonProcess taken = pool.take(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS);
+        Assert.assertNotSame(exited, taken);
+        Assert.assertTrue(taken.isAlive());
+        Assert.assertEquals(PORT, taken.awaitPort(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = MILLIS_TIMEOUT)
+    public void unreadyDaemonIsDiscarded() throws Exception {
+        this.createPool(1, 1, StubDaemon.command("Starting"), StubDaemon.command(StubDaemon.ready(PORT)));
+        final DaemonProcess unready = launcher.awaitLaunched(1);
+        unready.waitFor();
+        final DaemonProcess taken = pool.take(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS);
+        Assert.assertNotSame(unready, taken);
+        Assert.assertEquals(PORT, taken.awaitPort(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = MILLIS_TIMEOUT)
+    public void closeKillsSparesAndStopsLaunching() throws Exception {
+        this.createPool(2, SECONDS_TO_AWAIT_READY, StubDaemon.command(StubDaemon.ready(PORT)));
+        final DaemonProcess first = launcher.awaitLaunched(1);
+        final DaemonProcess second = launcher.awaitLaunched(2);
+        Assert.assertEquals(PORT, first.awaitPort(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS));
+        Assert.assertEquals(PORT, second.awaitPort(SECONDS_TO_AWAIT_READY, TimeUnit.SECONDS));
+        pool.close();
+        first.waitFor();
+        second.waitFor();
+        pool.replenish();
+        Assert.assertEquals("Closed pool should launch nothing more", 2, launcher.launched.size());
+    }
+
+    /**
+     * Creates and fills a pool whose launches run the specified commands in turn, the last for any further launch
+     */
+    @SafeVarargs
+    private final void createPool(final int size, final int secondsToAwaitReady, final List<String>... commands) {
+        launcher = new StubLauncher(Arrays.asList(commands));
+        pool = new DaemonProcessPool(launcher, HOST, size, secondsToAwaitReady);
+        pool.replenish();
+    }
+
+    private static final class StubLauncher implements DaemonProcessPool.DaemonLauncher {
+
+        private final List<List<String>> commands;
+        private final List<DaemonProcess> launched = new CopyOnWriteArrayList<>();
+
+        private StubLauncher(final List<List<String>> commands) {
+            this.commands = commands;
+        }
+
+        @Override
+        public synchronized DaemonProcess launch() throws IOException {
+            final DaemonProcess daemon = DaemonProcess.start(commands.get(Math.min(launched.size(),
+                commands.size() - 1)), null);
+            launched.add(daemon);
+            return daemon;
+        }
+
+        /**
+         * Waits until the specified number of daemons have been launched, returning the last of them
+         */
+        private DaemonProcess awaitLaunched(final int count) throws InterruptedException {
+            while (launched.size() < count) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            return launched.get(count - 1);
+        }
+    }
+}
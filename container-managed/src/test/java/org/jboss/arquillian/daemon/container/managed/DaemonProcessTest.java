@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link DaemonProcess} picks the port out of the daemon's readiness report, whether relayed or
+ * logged, and gives up waiting on it where the report is malformed, the process exits first, or time runs out. Runs a
+ * {@link StubDaemon} in place of the server JAR.
+ */
+public class DaemonProcessTest {
+
+    private static final long SECONDS_TIMEOUT = 30;
+
+    @Test
+    public void readyLineIsParsed() {
+        Assert.assertEquals(12345, DaemonProcess.parsePort(StubDaemon.ready(12345)));
+        Assert.assertEquals(65535, DaemonProcess.parsePort(WireProtocol.READY_PREFIX + "::1 65535"));
+        Assert.assertEquals(8080, DaemonProcess.parsePort(WireProtocol.READY_PREFIX + "127.0.0.1 8080 \r"));
+    }
+
+    @Test
+    public void malformedReadyLineIsRejected() {
+        for (final String address : new String[] { "", "localhost", "8080", "localhost port", "localhost 0",
+            "localhost -1", "localhost 65536", "localhost 99999999999" }) {
+            Assert.assertEquals("Port of '" + address + "'", -1, DaemonProcess.parsePort(WireProtocol.READY_PREFIX
+                + address));
+        }
+    }
+
+    @Test
+    public void reportedPortIsAwaited() throws Exception {
+        final DaemonProcess daemon = DaemonProcess.start(StubDaemon.command("Starting", StubDaemon.ready(4242)),
+            null);
+        try {
+            Assert.assertEquals(4242, daemon.awaitPort(SECONDS_TIMEOUT, TimeUnit.SECONDS));
+            Assert.assertTrue(daemon.isAlive());
+        } finally {
+            daemon.destroy();
+        }
+    }
+
+    @Test
+    public void loggedPortIsAwaited() throws Exception {
+        final File logFile = File.createTempFile("daemon", ".log");
+        try {
+            final DaemonProcess daemon = DaemonProcess.start(StubDaemon.command("Starting", StubDaemon.ready(4242)),
+                logFile);
+            try {
+                Assert.assertEquals(4242, daemon.awaitPort(SECONDS_TIMEOUT, TimeUnit.SECONDS));
+                Assert.assertTrue(daemon.isAlive());
+            } finally {
+                daemon.destroy();
+            }
+        } finally {
+            Assert.assertTrue(logFile.delete());
+        }
+    }
+
+    @Test
+    public void malformedReadinessEndsWait() throws Exception {
+        final DaemonProcess daemon = DaemonProcess.start(StubDaemon.command(WireProtocol.READY_PREFIX
+            + "localhost port", StubDaemon.ready(4242)), null);
+        try {
+            final long start = System.nanoTime();
+            Assert.assertEquals(-1, daemon.awaitPort(SECONDS_TIMEOUT, TimeUnit.SECONDS));
+            Assert.assertTrue("Malformed readiness should not be waited out",
+                System.nanoTime() - start < TimeUnit.SECONDS.toNanos(SECONDS_TIMEOUT));
+        } finally {
+            daemon.destroy();
+        }
+    }
+
+    @Test
+    public void exitBeforeReadinessEndsWait() throws Exception {
+        final DaemonProcess daemon = DaemonProcess.start(StubDaemon.command("Starting", StubDaemon.EXIT), null);
+        Assert.assertEquals(-1, daemon.awaitPort(SECONDS_TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertTrue(daemon.isClosed());
+        daemon.waitFor();
+        Assert.assertFalse(daemon.isAlive());
+    }
+
+    @Test
+    public void loggedExitBeforeReadinessEndsWait() throws Exception {
+        final File logFile = File.createTempFile("daemon", ".log");
+        try {
+            final DaemonProcess daemon = DaemonProcess.start(StubDaemon.command("Starting", StubDaemon.EXIT), logFile);
+            Assert.assertEquals(-1, daemon.awaitPort(SECONDS_TIMEOUT, TimeUnit.SECONDS));
+            daemon.waitFor();
+            Assert.assertFalse(daemon.isAlive());
+        } finally {
+            Assert.assertTrue(logFile.delete());
+        }
+    }
+
+    @Test
+    public void silentDaemonTimesOut() throws Exception {
+        final DaemonProcess daemon = DaemonProcess.start(StubDaemon.command("Starting"), null);
+        try {
+            Assert.assertEquals(-1, daemon.awaitPort(500, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(daemon.isAlive());
+            Assert.assertFalse(daemon.isClosed());
+        } finally {
+            daemon.destroy();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link DaemonRegistry} keeps its registry to this user, attaches to the daemon it has
+ * registered, launches just one for any number of concurrent lookups, and replaces entries naming anything other than
+ * a running daemon. Uses a registry of
+ * its own in a temp directory, and stops every daemon launched.
+ */
+public class DaemonRegistryTest {
+
+    private static final File SERVER_JAR_FILE = new File("target/arquillian-daemon-main.jar");
+    private static final String HOST = "localhost";
+    private static final int SECONDS_IDLE_TIMEOUT = 60;
+    private static final int SECONDS_TO_AWAIT_READY = 30;
+    private static final long MILLIS_TO_AWAIT_STOP = 10000;
+
+    private File registry;
+    private final Set<InetSocketAddress> launched = new HashSet<>();
+
+    @Before
+    public void createRegistry() throws IOException {
+        registry = Files.createTempDirectory("daemon-registry").toFile();
+        System.setProperty(DaemonRegistry.SYSPROP_NAME_REGISTRY, registry.getAbsolutePath());
+    }
+
+    @After
+    public void stopDaemons() throws Exception {
+        System.clearProperty(DaemonRegistry.SYSPROP_NAME_REGISTRY);
+        for (final InetSocketAddress daemon : launched) {
+            stop(daemon);
+        }
+        final File[] files = registry.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                Assert.assertTrue(file.delete());
+            }
+        }
+        Assert.assertTrue(registry.delete());
+    }
+
+    @Test
+    public void keyDependsOnContentsAndHost() throws IOException {
+        final File copy = File.createTempFile("daemon", ".jar");
+        final File other = File.createTempFile("daemon", ".jar");
+        try {
+            Files.copy(SERVER_JAR_FILE.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.write(other.toPath(), new byte[] { 1, 2, 3 });
+            final String key = DaemonRegistry.key(SERVER_JAR_FILE, HOST);
+            Assert.assertEquals("Key should not depend on the location of the JAR", key, DaemonRegistry.key(copy,
+                HOST));
+            Assert.assertNotEquals(key, DaemonRegistry.key(SERVER_JAR_FILE, "127.0.0.1"));
+            Assert.assertNotEquals(key, DaemonRegistry.key(other, HOST));
+        } finally {
+            Assert.assertTrue(copy.delete());
+            Assert.assertTrue(other.delete());
+        }
+    }
+
+    @Test
+    public void registryIsCreatedForThisUserAlone() throws IOException {
+        Assume.assumeTrue(isPosix());
+        final File parent = new File(registry, "parent");
+        final File created = new File(parent, "registry");
+        try {
+            Assert.assertNotNull(DaemonRegistry.secureDirectory(created));
+            Assert.assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(created
+                .toPath()));
+            Assert.assertNotNull("Existing registry should be accepted", DaemonRegistry.secureDirectory(created));
+        } finally {
+            created.delete();
+            parent.delete();
+        }
+    }
+
+    @Test
+    public void registryWritableByOthersIsRefused() throws IOException {
+        Assume.assumeTrue(isPosix());
+        final File shared = new File(registry, "shared");
+        Files.createDirectory(shared.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions
+            .fromString("rwx------")));
+        try {
+            Files.setPosixFilePermissions(shared.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+            try {
+                DaemonRegistry.secureDirectory(shared);
+                Assert.fail("Registry writable by others should have been refused");
+            } catch (final IOException expected) {
+                // Refused
+            }
+        } finally {
+            Assert.assertTrue(shared.delete());
+        }
+    }
+
+    @Test
+    public void registeredDaemonIsAttached() throws Exception {
+        final InetSocketAddress first = this.attachOrLaunch();
+        Assert.assertTrue(DaemonRegistry.isDaemon(first));
+        Assert.assertEquals(first, this.attachOrLaunch());
+    }
+
+    @Test
+    public void concurrentLookupsLaunchOneDaemon() throws Exception {
+        final ExecutorService lookups = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<InetSocketAddress>> addresses = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                addresses.add(lookups.submit(new Callable<InetSocketAddress>() {
+                    @Override
+                    public InetSocketAddress call() throws Exception {
+                        return DaemonRegistryTest.this.attachOrLaunch();
+                    }
+                }));
+            }
+            final Set<InetSocketAddress> distinct = new HashSet<>();
+            for (final Future<InetSocketAddress> address : addresses) {
+                distinct.add(address.get());
+            }
+            Assert.assertEquals("Concurrent lookups should share one daemon", 1, distinct.size());
+        } finally {
+            lookups.shutdownNow();
+        }
+    }
+
+    @Test
+    public void entryOfStoppedDaemonIsReplaced() throws Exception {
+        final InetSocketAddress first = this.attachOrLaunch();
+        stop(first);
+        final InetSocketAddress second = this.attachOrLaunch();
+        Assert.assertTrue(DaemonRegistry.isDaemon(second));
+    }
+
+    @Test
+    public void entryNamingAnotherProcessIsReplaced() throws Exception {
+        // Something else now listens on the registered port, answering anything with a line of its own
+        final ServerSocket impostor = new ServerSocket(0, 0, InetAddress.getByName(HOST));
+        final Thread server = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!impostor.isClosed()) {
+                    try {
+                        final Socket socket = impostor.accept();
+                        try {
+                            socket.getOutputStream().write("HTTP/1.1 400 Bad Request\r\n\r\n".getBytes("US-ASCII"));
+                        } finally {
+                            socket.close();
+                        }
+                    } catch (final IOException ioe) {
+                        return;
+                    }
+                }
+            }
+        }, "Impostor");
+        server.setDaemon(true);
+        server.start();
+        try {
+            final InetSocketAddress registered = new InetSocketAddress(HOST, impostor.getLocalPort());
+            Assert.assertFalse(DaemonRegistry.isDaemon(registered));
+            this.register(registered);
+            final InetSocketAddress attached = this.attachOrLaunch();
+            Assert.assertNotEquals(registered, attached);
+            Assert.assertTrue(DaemonRegistry.isDaemon(attached));
+        } finally {
+            impostor.close();
+        }
+    }
+
+    private InetSocketAddress attachOrLaunch() throws Exception {
+        final InetSocketAddress address = DaemonRegistry.attachOrLaunch(SERVER_JAR_FILE, HOST, SECONDS_IDLE_TIMEOUT,
+            SECONDS_TO_AWAIT_READY);
+        synchronized (launched) {
+            launched.add(address);
+        }
+        return address;
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Writes the registry entry for the server JAR on our host, naming the specified address
+     */
+    private void register(final InetSocketAddress address) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("host", address.getHostString());
+        properties.setProperty("port", Integer.toString(address.getPort()));
+        final OutputStream out = new FileOutputStream(new File(registry, DaemonRegistry.key(SERVER_JAR_FILE, HOST)
+            + ".properties"));
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Asks the daemon at the specified address to stop, waiting until it no longer answers
+     */
+    private static void stop(final InetSocketAddress daemon) throws Exception {
+        try {
+            final Socket socket = new Socket(daemon.getHostString(), daemon.getPort());
+            try {
+                socket.setSoTimeout((int) MILLIS_TO_AWAIT_STOP);
+                final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    WireProtocol.CHARSET));
+                writer.print(WireProtocol.COMMAND_STOP);
+                writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+                writer.flush();
+                socket.getInputStream().read();
+            } finally {
+                socket.close();
+            }
+        } catch (final IOException ioe) {
+            // Already stopped
+            return;
+        }
+        final long deadline = System.currentTimeMillis() + MILLIS_TO_AWAIT_STOP;
+        while (DaemonRegistry.isDaemon(daemon)) {
+            Assert.assertTrue("Daemon at " + daemon + " did not stop", System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.managed;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stands in for a server daemon in a JVM of its own: prints each of its arguments as a line of output, then waits
+ * until killed, unless told to {@link StubDaemon#EXIT} first
+ */
+public final class StubDaemon {
+
+    /**
+     * Argument upon which the stub exits rather than printing it
+     */
+    static final String EXIT = "EXIT";
+
+    private StubDaemon() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        for (final String line : args) {
+            if (EXIT.equals(line)) {
+                System.exit(0);
+            }
+            System.out.println(line);
+        }
+        System.out.flush();
+        Thread.sleep(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the command launching a stub which prints the specified lines
+     */
+    static List<String> command(final String... lines) {
+        final File classes;
+        try {
+            classes = new File(StubDaemon.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (final URISyntaxException urise) {
+            throw new IllegalStateException("Could not locate test classes", urise);
+        }
+        final List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        command.add("-cp");
+        command.add(classes.getAbsolutePath());
+        command.add(StubDaemon.class.getName());
+        command.addAll(Arrays.asList(lines));
+        return command;
+    }
+
+    /**
+     * Returns a readiness line as the daemon reports it, naming the specified port
+     */
+    static String ready(final int port) {
+        return "ARQUILLIAN-DAEMON-READY localhost " + port;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.remote;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+
+/**
+ * Addresses of several daemons, and the means to rank them by load. Each is asked for its load over a connection of
+ * its own, all at once, via {@link WireProtocol#OPCODE_LOAD}; daemons are ranked by the tests they have waiting per
+ * thread to run them, then by their open connections. Daemons which answer but cannot report their load rank after
+ * those which can, and those which cannot be reached in time are left out.
+ */
+final class DaemonEndpoints {
+
+    private static final Logger log = Logger.getLogger(DaemonEndpoints.class.getName());
+    private static final String SEPARATOR_ENDPOINTS = ",";
+    private static final char SEPARATOR_PORT = ':';
+    private static final int MAX_PORT = 0xffff;
+    private static final int MILLIS_CONNECT_TIMEOUT = 1000;
+    private static final int MILLIS_PROBE_TIMEOUT = 2000;
+    private static final int MAX_RESPONSE_PAYLOAD_LENGTH = 64 * 1024;
+    private static final String NAME_PROBE_THREAD = "Arquillian Daemon Load Probe";
+
+    private DaemonEndpoints() {
+        throw new UnsupportedOperationException("No instances permitted");
+    }
+
+    /**
+     * Parses the specified comma-separated <code>host:port</code> addresses, in order
+     *
+     * @throws IllegalArgumentException
+     *     If there are none, or any is malformed
+     */
+    static List<InetSocketAddress> parse(final String endpoints) throws IllegalArgumentException {
+        assert endpoints !=null :"Endpoints must be specified";
+        final List<InetSocketAddress> addresses = new ArrayList<>();
+        for (final String endpoint : endpoints.split(SEPARATOR_ENDPOINTS)) {
+            final String trimmed = endpoint.trim();
+            if (trimmed.length() == 0) {
+                continue;
+            }
+            final int separator = trimmed.lastIndexOf(SEPARATOR_PORT);
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Not a host:port address: " + trimmed);
+            }
+            final int port;
+            try {
+                port = Integer.parseInt(trimmed.substring(separator + 1));
+            } catch (final NumberFormatException nfe) {
+                throw new IllegalArgumentException("Invalid port in " + trimmed);
+            }
+            if (port < 1 || port > MAX_PORT) {
+                throw new IllegalArgumentException("Invalid port in " + trimmed);
+            }
+            addresses.add(InetSocketAddress.createUnresolved(trimmed.substring(0, separator), port));
+        }
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("No endpoints specified");
+        }
+        return addresses;
+    }
+
+    /**
+     * Returns those of the specified daemons which could be reached, least loaded first; daemons of equal load keep
+     * their order
+     */
+    static List<InetSocketAddress> byLoad(final List<InetSocketAddress> endpoints) {
+        assert endpoints !=null :"Endpoints must be specified";
+        if (endpoints.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final ExecutorService probes = Executors.newFixedThreadPool(endpoints.size(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, NAME_PROBE_THREAD);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            final List<Future<Load>> futures = new ArrayList<>(endpoints.size());
+            for (final InetSocketAddress endpoint : endpoints) {
+                futures.add(probes.submit(new Callable<Load>() {
+                    @Override
+                    public Load call() throws IOException {
+                        return probe(endpoint);
+                    }
+                }));
+            }
+            final long deadline = System.currentTimeMillis() + MILLIS_CONNECT_TIMEOUT + MILLIS_PROBE_TIMEOUT;
+            final List<Load> loads = new ArrayList<>(endpoints.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    loads.add(futures.get(i).get(Math.max(deadline - System.currentTimeMillis(), 0L),
+                        TimeUnit.MILLISECONDS));
+                } catch (final ExecutionException | TimeoutException e) {
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine("Could not reach daemon at " + endpoints.get(i) + ": " + e);
+                    }
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            Collections.sort(loads);
+            final List<InetSocketAddress> ranked = new ArrayList<>(loads.size());
+            for (final Load load : loads) {
+                ranked.add(load.endpoint);
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Daemons by load: " + loads);
+            }
+            return ranked;
+        } finally {
+            probes.shutdownNow();
+        }
+    }
+
+    /**
+     * Asks the daemon at the specified address for its load over a connection of its own
+     */
+    private static Load probe(final InetSocketAddress endpoint) throws IOException {
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(endpoint.getHostString(), endpoint.getPort()), MILLIS_CONNECT_TIMEOUT);
+            socket.setSoTimeout(MILLIS_PROBE_TIMEOUT);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET));
+            writer.print(WireProtocol.COMMAND_PROTOCOL_PREFIX + WireProtocol.FRAME_VERSION);
+            writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+            writer.flush();
+            // The server sends nothing more until asked, so the reader takes only this line
+            final String response = new BufferedReader(new InputStreamReader(socketInstream, WireProtocol.CHARSET))
+                .readLine();
+            if (response == null || !response.startsWith(WireProtocol.RESPONSE_OK_PREFIX)) {
+                return new Load(endpoint);
+            }
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            Frame.create(1, WireProtocol.OPCODE_LOAD, (String) null).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame frame = Frame.read(new DataInputStream(socketInstream), MAX_RESPONSE_PAYLOAD_LENGTH);
+            if (frame.getOpcode() != WireProtocol.OPCODE_RESPONSE_LOAD) {
+                return new Load(endpoint);
+            }
+            final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(frame.getPayload()));
+            return new Load(endpoint, payload.readInt(), payload.readInt(), payload.readInt());
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Load reported by a daemon, ordered least first
+     */
+    private static final class Load implements Comparable<Load> {
+
+        private final InetSocketAddress endpoint;
+        private final boolean reported;
+        private final double pendingPerThread;
+        private final int openConnections;
+
+        /**
+         * Creates the load of a daemon which could not report it
+         */
+        Load(final InetSocketAddress endpoint) {
+            this.endpoint = endpoint;
+            this.reported = false;
+            this.pendingPerThread = 0;
+            this.openConnections = 0;
+        }
+
+        Load(final InetSocketAddress endpoint, final int pendingTests, final int testThreads,
+            final int openConnections) {
+            this.endpoint = endpoint;
+            this.reported = true;
+            this.pendingPerThread = (double) pendingTests / Math.max(testThreads, 1);
+            this.openConnections = openConnections;
+        }
+
+        @Override
+        public int compareTo(final Load other) {
+            if (reported != other.reported) {
+                return reported ? -1 : 1;
+            }
+            final int byPending = Double.compare(pendingPerThread, other.pendingPerThread);
+            return byPending != 0 ? byPending : Integer.compare(openConnections, other.openConnections);
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + (reported ? " (" + pendingPerThread + " pending per thread, " + openConnections
+                + " connections)" : " (load unknown)");
+        }
+    }
+}
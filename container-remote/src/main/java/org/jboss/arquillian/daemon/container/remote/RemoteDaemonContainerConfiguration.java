@@ -16,15 +16,65 @@
  */
 package org.jboss.arquillian.daemon.container.remote;
 
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import org.jboss.arquillian.container.spi.ConfigurationException;
 import org.jboss.arquillian.container.spi.client.container.ContainerConfiguration;
 import org.jboss.arquillian.daemon.container.common.DaemonContainerConfigurationBase;
 
 /**
- * {@link ContainerConfiguration} implementation for Remote Containers
+ * {@link ContainerConfiguration} implementation for Remote Containers. Either a single daemon is given by host and
+ * port, or several by <code>endpoints</code>, in which case host and port default to those of the first.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
 public class RemoteDaemonContainerConfiguration extends DaemonContainerConfigurationBase implements
     ContainerConfiguration {
 
+    /**
+     * Comma-separated <code>host:port</code> addresses of daemons, of which the least loaded upon start is used for
+     * the whole run, and others failed over to should it be lost
+     */
+    private String endpoints;
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.container.common.DaemonContainerConfigurationBase#validate()
+     */
+    @Override
+    public void validate() throws ConfigurationException {
+        if (endpoints != null && endpoints.length() > 0) {
+            final List<InetSocketAddress> addresses;
+            try {
+                addresses = DaemonEndpoints.parse(endpoints);
+            } catch (final IllegalArgumentException iae) {
+                throw new ConfigurationException("\"endpoints\" must be comma-separated host:port addresses: "
+                    + iae.getMessage());
+            }
+            if (this.getHost() == null || this.getHost().length() == 0) {
+                this.setHost(addresses.get(0).getHostString());
+            }
+            if (this.getPort() == null || this.getPort().length() == 0) {
+                this.setPort(Integer.toString(addresses.get(0).getPort()));
+            }
+        }
+        super.validate();
+    }
+
+    /**
+     * @return the endpoints
+     */
+    public String getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @param endpoints
+     *     the endpoints to set
+     */
+    public void setEndpoints(final String endpoints) {
+        this.endpoints = endpoints;
+    }
 }
@@ -16,17 +16,42 @@
  */
 package org.jboss.arquillian.daemon.container.remote;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
+import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase;
+import org.jboss.arquillian.daemon.protocol.arquillian.DeploymentContext;
+import org.jboss.arquillian.daemon.protocol.arquillian.DeploymentFailover;
+import org.jboss.shrinkwrap.api.Archive;
 
 /**
- * {@link DeployableContainer} implementation for Remote Arquillian Server Daemon (connects to a running server).
+ * {@link DeployableContainer} implementation for Remote Arquillian Server Daemon (connects to a running server). If
+ * configured with several endpoints, connects to the least loaded of those reachable upon start, so that the test
+ * runs of many builds spread across them, and should that daemon be lost mid-run, redeploys to the next and continues
+ * there. Balancing is per build, not per deployment: every deployment of a run goes to the daemon chosen upon start,
+ * which keeps the contents it caches from one deployment to the next and spares each deployment a round of load
+ * probes. Load that shifts mid-run is therefore not followed.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
 public class RemoteDaemonDeployableContainer extends DaemonDeployableContainerBase<RemoteDaemonContainerConfiguration>
     implements DeployableContainer<RemoteDaemonContainerConfiguration> {
 
+    private static final Logger log = Logger.getLogger(RemoteDaemonDeployableContainer.class.getName());
+
+    /**
+     * Daemons among which to choose, in configured order; empty if only host and port are configured
+     */
+    private List<InetSocketAddress> endpoints = Collections.emptyList();
+
     /**
      * {@inheritDoc}
      *
@@ -36,4 +61,105 @@ public class RemoteDaemonDeployableContainer extends DaemonDeployableContainerBa
     public Class<RemoteDaemonContainerConfiguration> getConfigurationClass() {
         return RemoteDaemonContainerConfiguration.class;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase#setup(org.jboss.arquillian.daemon.container.common.DaemonContainerConfigurationBase)
+     */
+    @Override
+    public void setup(final RemoteDaemonContainerConfiguration configuration) {
+        super.setup(configuration);
+        final String endpoints = configuration.getEndpoints();
+        this.endpoints = endpoints == null || endpoints.length() == 0 ? Collections.<InetSocketAddress> emptyList()
+            : DaemonEndpoints.parse(endpoints);
+    }
+
+    /**
+     * Connects to the least loaded of the configured endpoints, if any, else to the configured host and port. The
+     * endpoints are ranked only here, so the daemon chosen serves every deployment until stopped or lost.
+     *
+     * @see org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase#start()
+     */
+    @Override
+    public void start() throws LifecycleException {
+        if (endpoints.isEmpty()) {
+            super.start();
+            return;
+        }
+        LifecycleException last = null;
+        for (final InetSocketAddress endpoint : DaemonEndpoints.byLoad(endpoints)) {
+            try {
+                this.connect(endpoint);
+                return;
+            } catch (final LifecycleException le) {
+                last = le;
+            }
+        }
+        throw new LifecycleException("Could not connect to any of the daemons at " + endpoints, last);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.container.common.DaemonDeployableContainerBase#getFailover(org.jboss.shrinkwrap.api.Archive)
+     */
+    @Override
+    protected DeploymentFailover getFailover(final Archive<?> archive) {
+        if (endpoints.size() < 2) {
+            return null;
+        }
+        return new DeploymentFailover() {
+            @Override
+            public DeploymentContext redeploy(final DeploymentContext lost) throws IOException {
+                return RemoteDaemonDeployableContainer.this.redeploy(archive, lost);
+            }
+        };
+    }
+
+    /**
+     * Disconnects from the daemon whose connection has been lost, and deploys the specified archive to the least
+     * loaded of the others which can be reached
+     */
+    private synchronized DeploymentContext redeploy(final Archive<?> archive, final DeploymentContext lost)
+        throws IOException {
+        final InetSocketAddress lostAddress = this.getRemoteAddress();
+        try {
+            this.stop();
+        } catch (final LifecycleException le) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Could not cleanly disconnect from lost daemon at " + lostAddress + ": " + le);
+            }
+        }
+        final List<InetSocketAddress> others = new ArrayList<>(endpoints.size());
+        for (final InetSocketAddress endpoint : endpoints) {
+            if (!(endpoint.getHostString().equals(lostAddress.getHostString()) && endpoint.getPort() == lostAddress
+                .getPort())) {
+                others.add(endpoint);
+            }
+        }
+        Exception last = null;
+        for (final InetSocketAddress endpoint : DaemonEndpoints.byLoad(others)) {
+            try {
+                this.connect(endpoint);
+                final DeploymentContext redeployed = this.deployToDaemon(archive);
+                if (log.isLoggable(Level.INFO)) {
+                    log.info("Moved " + lost.getName() + " from " + lostAddress + " to " + this.getRemoteAddress()
+                        + " as " + redeployed.getName());
+                }
+                return redeployed;
+            } catch (final LifecycleException | DeploymentException e) {
+                last = e;
+            }
+        }
+        throw new IOException("No other daemon could take " + lost.getName() + " from " + lostAddress, last);
+    }
+
+    private void connect(final InetSocketAddress endpoint) throws LifecycleException {
+        this.setRemoteAddress(new InetSocketAddress(endpoint.getHostString(), endpoint.getPort()));
+        super.start();
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Connected to daemon at " + endpoint);
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.remote;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link DaemonEndpoints} parses the configured addresses and ranks the daemons at them least
+ * loaded first, ahead of those which cannot report their load and leaving out those which cannot be reached
+ */
+public class DaemonEndpointsTest {
+
+    private final List<LoadReportingDaemon> daemons = new ArrayList<>();
+
+    @After
+    public void stopDaemons() throws IOException {
+        for (final LoadReportingDaemon daemon : daemons) {
+            daemon.close();
+        }
+    }
+
+    @Test
+    public void endpointsAreParsedInOrder() {
+        Assert.assertEquals(Arrays.asList(InetSocketAddress.createUnresolved("one", 1234), InetSocketAddress
+            .createUnresolved("::1", 80)), DaemonEndpoints.parse(" one:1234,, ::1:80 "));
+    }
+
+    @Test
+    public void malformedEndpointsAreRejected() {
+        for (final String endpoints : new String[] { "", " , ", "host", "host:", ":80", "host:port", "host:0",
+            "host:65536" }) {
+            try {
+                DaemonEndpoints.parse(endpoints);
+                Assert.fail("Should have rejected '" + endpoints + "'");
+            } catch (final IllegalArgumentException iae) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void leastLoadedComesFirst() throws IOException {
+        final LoadReportingDaemon busy = this.start(LoadReportingDaemon.start(8, 4, 1));
+        final LoadReportingDaemon crowded = this.start(LoadReportingDaemon.start(2, 4, 5));
+        final LoadReportingDaemon idle = this.start(LoadReportingDaemon.start(2, 4, 1));
+        final LoadReportingDaemon unreporting = this.start(LoadReportingDaemon.startUnreporting());
+        final List<InetSocketAddress> endpoints = DaemonEndpoints.parse(unreachable() + ',' + unreporting
+            .getEndpoint() + ',' + busy.getEndpoint() + ',' + crowded.getEndpoint() + ',' + idle.getEndpoint());
+        Assert.assertEquals(Arrays.asList(idle.getAddress(), crowded.getAddress(), busy.getAddress(), unreporting
+            .getAddress()), DaemonEndpoints.byLoad(endpoints));
+    }
+
+    @Test
+    public void equalLoadsKeepTheirOrder() throws IOException {
+        final LoadReportingDaemon first = this.start(LoadReportingDaemon.start(1, 2, 3));
+        final LoadReportingDaemon second = this.start(LoadReportingDaemon.start(1, 2, 3));
+        Assert.assertEquals(Arrays.asList(second.getAddress(), first.getAddress()), DaemonEndpoints.byLoad(
+            Arrays.asList(second.getAddress(), first.getAddress())));
+    }
+
+    private LoadReportingDaemon start(final LoadReportingDaemon daemon) {
+        daemons.add(daemon);
+        return daemon;
+    }
+
+    /**
+     * Returns the <code>host:port</code> address of a local port nothing listens on
+     */
+    private static String unreachable() throws IOException {
+        final ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        try {
+            return socket.getInetAddress().getHostAddress() + ':' + socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
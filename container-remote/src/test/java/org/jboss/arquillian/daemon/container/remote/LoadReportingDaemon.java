@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.container.remote;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+
+/**
+ * Stands in for a daemon on a local port, answering the probes of {@link DaemonEndpoints} with a fixed load (or, if
+ * it cannot report one, refusing the framing mode of the wire protocol)
+ */
+final class LoadReportingDaemon implements Closeable {
+
+    private static final int MAX_REQUEST_PAYLOAD_LENGTH = 64 * 1024;
+
+    private final ServerSocket serverSocket;
+    private final int[] load;
+
+    private LoadReportingDaemon(final ServerSocket serverSocket, final int[] load) {
+        this.serverSocket = serverSocket;
+        this.load = load;
+    }
+
+    /**
+     * Starts a new {@link LoadReportingDaemon} on a free local port, reporting the specified load
+     */
+    static LoadReportingDaemon start(final int pendingTests, final int testThreads, final int openConnections)
+        throws IOException {
+        return start(new int[] { pendingTests, testThreads, openConnections });
+    }
+
+    /**
+     * Starts a new {@link LoadReportingDaemon} on a free local port, unable to report its load
+     */
+    static LoadReportingDaemon startUnreporting() throws IOException {
+        return start(null);
+    }
+
+    private static LoadReportingDaemon start(final int[] load) throws IOException {
+        final LoadReportingDaemon daemon = new LoadReportingDaemon(new ServerSocket(0, 0,
+            InetAddress.getLoopbackAddress()), load);
+        final Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                daemon.accept();
+            }
+        }, "Load Reporting Daemon Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return daemon;
+    }
+
+    /**
+     * Returns the <code>host:port</code> address of this daemon
+     */
+    String getEndpoint() {
+        return serverSocket.getInetAddress().getHostAddress() + ':' + serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the address of this daemon as {@link DaemonEndpoints#parse(String)} does
+     */
+    InetSocketAddress getAddress() {
+        return InetSocketAddress.createUnresolved(serverSocket.getInetAddress().getHostAddress(),
+            serverSocket.getLocalPort());
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                try {
+                    this.serve(socket);
+                } finally {
+                    socket.close();
+                }
+            } catch (final IOException ioe) {
+                // Closed, or the probe gave up
+            }
+        }
+    }
+
+    private void serve(final Socket socket) throws IOException {
+        final InputStream in = new BufferedInputStream(socket.getInputStream());
+        final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        final String command = readCommand(in);
+        if (load == null || !command.startsWith(WireProtocol.COMMAND_PROTOCOL_PREFIX)) {
+            out.write((WireProtocol.RESPONSE_ERROR_PREFIX + "Unsupported command\n").getBytes(WireProtocol.CHARSET));
+            out.flush();
+            return;
+        }
+        out.write((WireProtocol.RESPONSE_OK_PREFIX + WireProtocol.FRAME_VERSION + '\n').getBytes(
+            WireProtocol.CHARSET));
+        out.flush();
+        final Frame request = Frame.read(new DataInputStream(in), MAX_REQUEST_PAYLOAD_LENGTH);
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream loadOut = new DataOutputStream(payload);
+        for (final int value : load) {
+            loadOut.writeInt(value);
+        }
+        Frame.create(request.getCorrelationId(), WireProtocol.OPCODE_RESPONSE_LOAD, payload.toByteArray()).write(out);
+        out.flush();
+    }
+
+    /**
+     * Reads a text command up to (and excluding) {@link WireProtocol#COMMAND_EOF_DELIMITER}
+     */
+    private static String readCommand(final InputStream in) throws IOException {
+        final ByteArrayOutputStream command = new ByteArrayOutputStream();
+        while (true) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed before end of command");
+            }
+            command.write(b);
+            final String read = command.toString(WireProtocol.CHARSET);
+            if (read.endsWith(WireProtocol.COMMAND_EOF_DELIMITER)) {
+                return read.substring(0, read.length() - WireProtocol.COMMAND_EOF_DELIMITER.length());
+            }
+        }
+    }
+}
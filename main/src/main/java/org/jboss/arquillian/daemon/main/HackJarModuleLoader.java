@@ -28,18 +28,33 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Hack implementation of a {@link ModuleLoader} capable of loading modules contained in a JAR under a known module root.
- * Explodes the module root into a temporary directory on the filesystem, by which a delegate {@link LocalModuleLoader}
- * may then load the modules. Temporarily necessary due to API restrictions in jboss-modules whereby the JarModuleLoader
- * is not accessible, nor is parsing a {@link ModuleSpec} from a <code>module.xml</code> file.
+ * Explodes the module root into a directory on the filesystem, by which a delegate {@link LocalModuleLoader} may then
+ * load the modules. Temporarily necessary due to API restrictions in jboss-modules whereby the JarModuleLoader is not
+ * accessible, nor is parsing a {@link ModuleSpec} from a <code>module.xml</code> file.
+ * <p>
+ * The exploded modules are cached beneath {@link HackJarModuleLoader#SYSPROP_NAME_CACHE_DIR} (by default a directory
+ * within <code>java.io.tmpdir</code>) in a directory named for a digest of the module root's entries, so that
+ * subsequent launches from the same JAR reuse them rather than exploding it again. Each cache directory is populated
+ * under a temporary name and renamed into place only once complete, so processes launched concurrently never observe
+ * a partial cache; should several explode the JAR at once, the first rename wins and the others discard their copies.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  * @deprecated In place until we can work out proper support for this either in jboss-modules or via a new jboss-modules
@@ -47,8 +62,18 @@ import java.util.jar.JarFile;
  */
 @Deprecated final class HackJarModuleLoader extends ModuleLoader {
 
+    private static final Logger log = Logger.getLogger(HackJarModuleLoader.class.getName());
+
+    /**
+     * System property naming the directory in which exploded modules are cached across launches
+     */
+    static final String SYSPROP_NAME_CACHE_DIR = "arquillian.daemon.modules.cache";
+
     private static final String SYSPROP_NAME_TMP_DIR = "java.io.tmpdir";
-    private static final String PREFIX_MODULES_DIR = "modules-";
+    private static final String NAME_DEFAULT_CACHE_DIR = "arquillian-daemon-modules";
+    private static final String SUFFIX_STAGING_DIR = ".tmp";
+    private static final String ALGORITHM_CACHE_KEY = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     /**
      * Local delegate for loading modules once unpacked
@@ -56,7 +81,7 @@ import java.util.jar.JarFile;
     private final ModuleLoader delegate;
 
     /**
-     * Target location the modules will be unpacked to
+     * Location the modules have been unpacked to
      */
     private final File localModulesLocation;
 
@@ -77,15 +102,135 @@ import java.util.jar.JarFile;
             throw new IllegalArgumentException("Module root within the JAR must be specified");
         }
 
-        // Set up the local temp modules directory
-        final String tempDirName = SecurityActions.getSystemProperty(SYSPROP_NAME_TMP_DIR);
-        final File tempDir = new File(tempDirName);
-        final File modulesDir = new File(tempDir, PREFIX_MODULES_DIR + UUID.randomUUID().toString());
+        // Locate the cache
+        String cacheDirName = SecurityActions.getSystemProperty(SYSPROP_NAME_CACHE_DIR);
+        if (cacheDirName == null || cacheDirName.length() == 0) {
+            cacheDirName = new File(SecurityActions.getSystemProperty(SYSPROP_NAME_TMP_DIR), NAME_DEFAULT_CACHE_DIR)
+                .getAbsolutePath();
+        }
+        final File cacheDir = new File(cacheDirName);
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+            throw new IllegalStateException("Could not create modules cache directory: " + cacheDir.getAbsolutePath());
+        }
+        final File modulesDir = new File(cacheDir, cacheKey(jar, moduleRoot));
+
+        // Explode, unless already done by a previous launch
+        final long start = System.currentTimeMillis();
+        if (modulesDir.isDirectory()) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Reusing modules cached in " + modulesDir.getAbsolutePath());
+            }
+        } else {
+            final File stagingDir = new File(cacheDir, modulesDir.getName() + "-" + UUID.randomUUID().toString()
+                + SUFFIX_STAGING_DIR);
+            try {
+                explode(jar, moduleRoot, stagingDir);
+                try {
+                    Files.move(stagingDir.toPath(), modulesDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (final IOException ioe) {
+                    // Another launch may have populated the cache while we were exploding
+                    if (!modulesDir.isDirectory()) {
+                        throw new IllegalStateException("Could not move exploded modules to "
+                            + modulesDir.getAbsolutePath(), ioe);
+                    }
+                }
+            } finally {
+                delete(stagingDir);
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Exploded modules to " + modulesDir.getAbsolutePath() + " in "
+                    + (System.currentTimeMillis() - start) + "ms");
+            }
+        }
+
+        // Set
+        this.delegate = new LocalModuleLoader(new File[] {modulesDir});
+        this.localModulesLocation = modulesDir;
+    }
+
+    /**
+     * Returns the directory the modules have been unpacked to, within the cache
+     */
+    File getLocalModulesLocation() {
+        return localModulesLocation;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ModuleLoader#preloadModule(org.jboss.modules.ModuleIdentifier)
+     */
+    @Override
+    protected Module preloadModule(final ModuleIdentifier identifier) throws ModuleLoadException {
+        assert identifier !=null;
+        return ModuleLoader.preloadModule(identifier, delegate);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ModuleLoader#toString()
+     */
+    @Override
+    public String toString() {
+        return HackJarModuleLoader.class.getSimpleName() + " delegating to modules in "
+            + localModulesLocation.getAbsolutePath();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ModuleLoader#findModule(org.jboss.modules.ModuleIdentifier)
+     */
+    @Override
+    protected ModuleSpec findModule(final ModuleIdentifier moduleIdentifier) throws ModuleLoadException {
+        // Due to incompatible API
+        throw new UnsupportedOperationException("All loading should be done via the delegate in preloadModule");
+    }
+
+    /**
+     * Computes the name of the cache directory for the modules beneath the specified root of the specified JAR from the
+     * name, size and CRC of each entry there, all of which are read from the JAR's central directory without
+     * decompressing anything
+     */
+    private static String cacheKey(final JarFile jar, final String moduleRoot) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM_CACHE_KEY);
+        } catch (final NoSuchAlgorithmException nsae) {
+            throw new RuntimeException("Every JVM must support " + ALGORITHM_CACHE_KEY, nsae);
+        }
+        final SortedMap<String, JarEntry> moduleEntries = new TreeMap<>();
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(moduleRoot)) {
+                moduleEntries.put(entry.getName(), entry);
+            }
+        }
+        final ByteBuffer sizes = ByteBuffer.allocate(16);
+        for (final JarEntry entry : moduleEntries.values()) {
+            digest.update(entry.getName().getBytes(Charset.forName("UTF-8")));
+            // Called via Buffer, as ByteBuffer overrides it covariantly from Java 9
+            ((Buffer) sizes).clear();
+            sizes.putLong(entry.getSize()).putLong(entry.getCrc());
+            digest.update(sizes.array());
+        }
+        final StringBuilder key = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Writes every file entry beneath the specified root of the specified JAR into the specified directory
+     */
+    private static void explode(final JarFile jar, final String moduleRoot, final File modulesDir) {
         if (!modulesDir.mkdir()) {
             throw new IllegalStateException("Could not create modules directory: " + modulesDir.getAbsolutePath());
         }
-
-        // Explode
+        final byte[] buffer = new byte[BUFFER_SIZE];
         final Enumeration<JarEntry> entries = jar.entries();
         while (entries.hasMoreElements()) {
             final JarEntry entry = entries.nextElement();
@@ -107,13 +252,11 @@ import java.util.jar.JarFile;
                     }
                     final String fileName = parsedFullFileName.substring(lastDirIndex);
                     final File targetFile = new File(targetDir, fileName);
-                    registerRecursiveDeleteOnExit(targetFile, modulesDir);
                     InputStream in = null;
                     OutputStream out = null;
                     try {
                         in = jar.getInputStream(entry);
                         out = new FileOutputStream(targetFile);
-                        final byte[] buffer = new byte[4096];
                         int read = 0;
                         while ((read = in.read(buffer, 0, buffer.length)) != -1) {
                             out.write(buffer, 0, read);
@@ -140,60 +283,20 @@ import java.util.jar.JarFile;
                 }
             }
         }
-
-        // Set
-        this.delegate = new LocalModuleLoader(new File[] {modulesDir});
-        this.localModulesLocation = modulesDir;
     }
 
     /**
-     * {@inheritDoc}
-     *
-     * @see org.jboss.modules.ModuleLoader#preloadModule(org.jboss.modules.ModuleIdentifier)
+     * Deletes the specified file or directory and everything beneath it, if it exists
      */
-    @Override
-    protected Module preloadModule(final ModuleIdentifier identifier) throws ModuleLoadException {
-        assert identifier !=null;
-        return ModuleLoader.preloadModule(identifier, delegate);
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * @see org.jboss.modules.ModuleLoader#toString()
-     */
-    @Override
-    public String toString() {
-        return HackJarModuleLoader.class.getSimpleName() + " delegating to modules in "
-            + localModulesLocation.getAbsolutePath();
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * @see org.jboss.modules.ModuleLoader#findModule(org.jboss.modules.ModuleIdentifier)
-     */
-    @Override
-    protected ModuleSpec findModule(final ModuleIdentifier moduleIdentifier) throws ModuleLoadException {
-        // Due to incompatible API
-        throw new UnsupportedOperationException("All loading should be done via the delegate in preloadModule");
-    }
-
-    private static void registerRecursiveDeleteOnExit(final File child, final File root) {
-        if (System.getSecurityManager() == null) {
-            child.deleteOnExit();
-        } else {
-            AccessController.doPrivileged(new PrivilegedAction<Void>() {
-                @Override
-                public Void run() {
-                    child.deleteOnExit();
-                    return null;
-                }
-            });
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
         }
-        final File parent = child.getParentFile();
-        if (!child.equals(root)) {
-            registerRecursiveDeleteOnExit(parent, root);
+        if (file.exists() && !file.delete() && log.isLoggable(Level.WARNING)) {
+            log.warning("Could not delete " + file.getAbsolutePath());
         }
     }
 }
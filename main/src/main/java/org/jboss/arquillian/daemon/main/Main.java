@@ -16,6 +16,7 @@
  */
 package org.jboss.arquillian.daemon.main;
 
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
 import org.jboss.arquillian.daemon.server.Server;
 import org.jboss.arquillian.daemon.server.Servers;
 import org.jboss.modules.Module;
@@ -27,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.AccessController;
@@ -47,6 +49,9 @@ import java.util.logging.Logger;
  * <p>
  * These arguments may be specified as system properties {@link Main#SYSPROP_NAME_BIND_NAME} and
  * {@link Main#SYSPROP_NAME_BIND_PORT}, which will take precedence over command-line arguments.
+ * <p>
+ * Modules are read in place from this JAR; setting {@link Main#SYSPROP_NAME_EXTRACT_MODULES} to <code>true</code>
+ * instead extracts them to a cache on disk, as earlier versions always did.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
@@ -57,6 +62,7 @@ public class Main {
     private static final String NAME_MODULE_ARQUILLIAN_DAEMON_SERVER = "org.jboss.arquillian.daemon.server";
     private static final String SYSPROP_NAME_BIND_NAME = "arquillian.daemon.bind.name";
     private static final String SYSPROP_NAME_BIND_PORT = "arquillian.daemon.bind.port";
+    private static final String SYSPROP_NAME_EXTRACT_MODULES = "arquillian.daemon.modules.extract";
 
     /**
      * Entry point; arguments as documented at the class level
@@ -71,26 +77,21 @@ public class Main {
         // Get a reference to this JAR, and create a ModuleLoader pointing to its modules dir
         final ProtectionDomain domain = getProtectionDomain();
         final URL thisJar = domain.getCodeSource().getLocation();
-        ModuleLoader loader = null;
-        JarFile jar = null;
+        final File jarFile;
         try {
+            jarFile = new File(thisJar.toURI());
+        } catch (final URISyntaxException e) {
+            throw new RuntimeException("Incorrectly-formatted URI to JAR: " + thisJar.toExternalForm());
+        }
+        final ModuleLoader loader;
+        if (Boolean.parseBoolean(SecurityActions.getSystemProperty(SYSPROP_NAME_EXTRACT_MODULES))) {
+            loader = createExtractingModuleLoader(jarFile);
+        } else {
+            // Read the modules in place, touching nothing on disk
             try {
-                jar = new JarFile(new File(thisJar.toURI()));
+                loader = new NestedJarModuleLoader(jarFile, LOCATION_MODULES);
             } catch (final IOException ioe) {
-                throw new RuntimeException("Could not obtain current JAR file: " + thisJar.toExternalForm());
-            } catch (final URISyntaxException e) {
-                throw new RuntimeException("Incorrectly-formatted URI to JAR: " + thisJar.toExternalForm());
-            }
-
-            // Create a module loader to load from this JAR
-            loader = new HackJarModuleLoader(jar, LOCATION_MODULES);
-        } finally {
-            if (jar != null) {
-                try {
-                    jar.close();
-                } catch (final IOException ioe) {
-                    // Swallow
-                }
+                throw new RuntimeException("Could not read modules from JAR: " + thisJar.toExternalForm(), ioe);
             }
         }
 
@@ -152,6 +153,18 @@ public class Main {
             throw new RuntimeException("Could not start server", e);
         }
 
+        // Announce readiness, with the port actually bound, to any launcher awaiting it
+        final Method getBoundAddressMethod = getMethod(serverClass, Server.METHOD_NAME_GET_BOUND_ADDRESS,
+            Server.METHOD_PARAMS_GET_BOUND_ADDRESS);
+        final InetSocketAddress boundAddress;
+        try {
+            boundAddress = (InetSocketAddress) getBoundAddressMethod.invoke(server);
+        } catch (final Exception e) {
+            throw new RuntimeException("Could not obtain bound address of server", e);
+        }
+        System.out.println(WireProtocol.READY_PREFIX + boundAddress.getHostString() + " " + boundAddress.getPort());
+        System.out.flush();
+
         // Gracefully shut down the server when we quit
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             @Override
@@ -174,6 +187,28 @@ public class Main {
         }));
     }
 
+    private static ModuleLoader createExtractingModuleLoader(final File jarFile) {
+        JarFile jar = null;
+        try {
+            try {
+                jar = new JarFile(jarFile);
+            } catch (final IOException ioe) {
+                throw new RuntimeException("Could not obtain current JAR file: " + jarFile.getAbsolutePath());
+            }
+
+            // Create a module loader to load from this JAR
+            return new HackJarModuleLoader(jar, LOCATION_MODULES);
+        } finally {
+            if (jar != null) {
+                try {
+                    jar.close();
+                } catch (final IOException ioe) {
+                    // Swallow
+                }
+            }
+        }
+    }
+
     private static String getDefaultValue(final String sysProp, final String suppliedValue) {
         final String fromSysProp = SecurityActions.getSystemProperty(sysProp);
         return fromSysProp != null ? fromSysProp : suppliedValue;
@@ -0,0 +1,250 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.main;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.jboss.arquillian.daemon.protocol.wire.ZipBuffer;
+import org.jboss.modules.DependencySpec;
+import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleLoadException;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.modules.ModuleSpec;
+import org.jboss.modules.ResourceLoaderSpec;
+import org.jboss.modules.filter.MultiplePathFilterBuilder;
+import org.jboss.modules.filter.PathFilter;
+import org.jboss.modules.filter.PathFilters;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * {@link ModuleLoader} which loads modules directly from the JAR containing them under a known module root, laid out
+ * as for a <code>LocalModuleLoader</code> (<code>name/as/path/slot/module.xml</code> alongside its resource roots).
+ * The JAR is mapped into memory and each nested resource root read in place, so unlike the
+ * {@link HackJarModuleLoader} nothing is written to the filesystem. Supports the subset of the
+ * <code>module.xml</code> schema used by the daemon's own modules: resource roots, module dependencies (with
+ * <code>export</code>, <code>services</code>, <code>optional</code> and <code>slot</code>) and a main class.
+ */
+final class NestedJarModuleLoader extends ModuleLoader {
+
+    private static final String NAME_MODULE_XML = "module.xml";
+    private static final String ELEMENT_MODULE = "module";
+    private static final String ELEMENT_RESOURCES = "resources";
+    private static final String ELEMENT_RESOURCE_ROOT = "resource-root";
+    private static final String ELEMENT_DEPENDENCIES = "dependencies";
+    private static final String ELEMENT_MAIN_CLASS = "main-class";
+    private static final String ATTRIBUTE_NAME = "name";
+    private static final String ATTRIBUTE_SLOT = "slot";
+    private static final String ATTRIBUTE_PATH = "path";
+    private static final String ATTRIBUTE_EXPORT = "export";
+    private static final String ATTRIBUTE_SERVICES = "services";
+    private static final String ATTRIBUTE_OPTIONAL = "optional";
+    private static final String SERVICES_NONE = "none";
+    private static final String SERVICES_IMPORT = "import";
+    private static final String SERVICES_EXPORT = "export";
+
+    private final File jarFile;
+    private final ZipBuffer jar;
+
+    /**
+     * Path within the JAR of the directory holding each module's <code>module.xml</code>, with trailing slash
+     */
+    private final Map<ModuleIdentifier, String> moduleLocations;
+
+    /**
+     * Creates a new {@link ModuleLoader} instance for the specified JAR file, where modules are located in a root
+     * denoted by the specified <code>moduleRoot</code> parameter (which is relative to the root of the JAR).
+     *
+     * @throws IllegalArgumentException
+     *     If either argument is not specified
+     * @throws IOException
+     *     If the JAR could not be read
+     */
+    NestedJarModuleLoader(final File jarFile, final String moduleRoot) throws IllegalArgumentException, IOException {
+        if (jarFile == null) {
+            throw new IllegalArgumentException("JAR file must be specified");
+        }
+        if (moduleRoot == null || moduleRoot.length() == 0) {
+            throw new IllegalArgumentException("Module root within the JAR must be specified");
+        }
+        this.jarFile = jarFile;
+        this.jar = ZipBuffer.open(jarFile, true);
+        final String rootPrefix = moduleRoot.endsWith("/") ? moduleRoot : moduleRoot + '/';
+        final Map<ModuleIdentifier, String> moduleLocations = new HashMap<>();
+        for (final ZipBuffer.Entry entry : jar.getEntries()) {
+            final String name = entry.getName();
+            if (!name.startsWith(rootPrefix) || !name.endsWith('/' + NAME_MODULE_XML)) {
+                continue;
+            }
+            // name/as/path/slot/module.xml
+            final String location = name.substring(0, name.length() - NAME_MODULE_XML.length());
+            final String modulePath = location.substring(rootPrefix.length(), location.length() - 1);
+            final int slotIndex = modulePath.lastIndexOf('/');
+            if (slotIndex > 0) {
+                moduleLocations.put(ModuleIdentifier.create(modulePath.substring(0, slotIndex).replace('/', '.'),
+                    modulePath.substring(slotIndex + 1)), location);
+            }
+        }
+        this.moduleLocations = moduleLocations;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ModuleLoader#findModule(org.jboss.modules.ModuleIdentifier)
+     */
+    @Override
+    protected ModuleSpec findModule(final ModuleIdentifier moduleIdentifier) throws ModuleLoadException {
+        final String location = moduleLocations.get(moduleIdentifier);
+        if (location == null) {
+            return null;
+        }
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            final Element module = factory.newDocumentBuilder()
+                .parse(new ByteArrayInputStream(jar.readBytes(jar.getEntry(location + NAME_MODULE_XML))))
+                .getDocumentElement();
+            if (!ELEMENT_MODULE.equals(localName(module))) {
+                throw new ModuleLoadException("Unsupported root element in " + location + NAME_MODULE_XML + ": "
+                    + localName(module));
+            }
+            final ModuleSpec.Builder builder = ModuleSpec.build(moduleIdentifier);
+            for (Node child = module.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (!(child instanceof Element)) {
+                    continue;
+                }
+                final Element element = (Element) child;
+                final String elementName = localName(element);
+                if (ELEMENT_RESOURCES.equals(elementName)) {
+                    this.addResourceRoots(builder, location, element);
+                } else if (ELEMENT_DEPENDENCIES.equals(elementName)) {
+                    addDependencies(builder, element);
+                } else if (ELEMENT_MAIN_CLASS.equals(elementName)) {
+                    builder.setMainClass(element.getAttribute(ATTRIBUTE_NAME));
+                } else {
+                    throw new ModuleLoadException("Unsupported element in " + location + NAME_MODULE_XML + ": "
+                        + elementName);
+                }
+            }
+            // As jboss-modules does, after the module's dependencies
+            builder.addDependency(DependencySpec.createLocalDependencySpec(PathFilters.acceptAll(),
+                PathFilters.acceptAll()));
+            return builder.create();
+        } catch (final IOException | SAXException | ParserConfigurationException e) {
+            throw new ModuleLoadException("Could not load module " + moduleIdentifier + " from " + location, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ModuleLoader#toString()
+     */
+    @Override
+    public String toString() {
+        return NestedJarModuleLoader.class.getSimpleName() + " reading modules in " + jarFile.getAbsolutePath();
+    }
+
+    private void addResourceRoots(final ModuleSpec.Builder builder, final String location, final Element resources)
+        throws IOException, ModuleLoadException {
+        for (Node child = resources.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!(child instanceof Element)) {
+                continue;
+            }
+            final Element root = (Element) child;
+            if (!ELEMENT_RESOURCE_ROOT.equals(localName(root)) || hasChildElements(root)) {
+                throw new ModuleLoadException("Unsupported resource in " + location + NAME_MODULE_XML + ": "
+                    + localName(root));
+            }
+            final String path = root.getAttribute(ATTRIBUTE_PATH);
+            final ZipBuffer.Entry entry = jar.getEntry(location + path);
+            if (entry == null || entry.isDirectory()) {
+                throw new ModuleLoadException("No JAR resource root " + path + " in " + location);
+            }
+            final ZipBuffer nested = ZipBuffer.create(jar.read(entry));
+            builder.addResourceRoot(ResourceLoaderSpec.createResourceLoaderSpec(new NestedJarResourceLoader(path,
+                nested, entry.getName())));
+        }
+    }
+
+    /**
+     * Adds the module dependencies of the specified element, filtered exactly as jboss-modules' own module.xml parser
+     * filters them
+     */
+    private static void addDependencies(final ModuleSpec.Builder builder, final Element dependencies)
+        throws ModuleLoadException {
+        for (Node child = dependencies.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!(child instanceof Element)) {
+                continue;
+            }
+            final Element dependency = (Element) child;
+            if (!ELEMENT_MODULE.equals(localName(dependency))) {
+                throw new ModuleLoadException("Unsupported dependency: " + localName(dependency));
+            }
+            final boolean export = Boolean.parseBoolean(dependency.getAttribute(ATTRIBUTE_EXPORT));
+            final boolean optional = Boolean.parseBoolean(dependency.getAttribute(ATTRIBUTE_OPTIONAL));
+            String services = dependency.getAttribute(ATTRIBUTE_SERVICES);
+            if (services.length() == 0) {
+                services = SERVICES_NONE;
+            } else if (!SERVICES_NONE.equals(services) && !SERVICES_IMPORT.equals(services)
+                && !SERVICES_EXPORT.equals(services)) {
+                throw new ModuleLoadException("Unsupported services disposition: " + services);
+            }
+            final String slot = dependency.getAttribute(ATTRIBUTE_SLOT);
+            final String name = dependency.getAttribute(ATTRIBUTE_NAME);
+
+            final MultiplePathFilterBuilder exportBuilder = PathFilters.multiplePathFilterBuilder(export);
+            if (SERVICES_EXPORT.equals(services)) {
+                exportBuilder.addFilter(PathFilters.getMetaInfServicesFilter(), true);
+            }
+            if (export) {
+                exportBuilder.addFilter(PathFilters.getMetaInfSubdirectoriesFilter(), false);
+                exportBuilder.addFilter(PathFilters.getMetaInfFilter(), false);
+            }
+            final PathFilter importFilter = SERVICES_NONE.equals(services) ? PathFilters.getDefaultImportFilter()
+                : PathFilters.getDefaultImportFilterWithServices();
+            builder.addDependency(DependencySpec.createModuleDependencySpec(importFilter, exportBuilder.create(), null,
+                slot.length() == 0 ? ModuleIdentifier.create(name) : ModuleIdentifier.create(name, slot), optional));
+        }
+    }
+
+    /**
+     * Returns whether the specified element has any child elements, such as the filters of a resource root, which
+     * are not supported
+     */
+    private static boolean hasChildElements(final Element element) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String localName(final Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.jboss.arquillian.daemon.protocol.wire.ZipBuffer;
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.PackageSpec;
+import org.jboss.modules.Resource;
+import org.jboss.modules.ResourceLoader;
+
+/**
+ * {@link ResourceLoader} serving classes and resources from a JAR nested within the daemon JAR, read in place by way
+ * of a {@link ZipBuffer}. Resources are given URLs of their own protocol, backed by that buffer, so that consumers
+ * reading them by URL (such as service loaders) need no file on disk either.
+ */
+final class NestedJarResourceLoader implements ResourceLoader {
+
+    private static final String PROTOCOL = "arquillian-daemon-module";
+    private static final String SEPARATOR_ENTRY = "!/";
+    private static final String SUFFIX_CLASS = ".class";
+
+    private final String rootName;
+    private final ZipBuffer jar;
+    private final URL rootUrl;
+    private final CodeSource codeSource;
+    private final Manifest manifest;
+    private final Collection<String> paths;
+    private final URLStreamHandler handler;
+
+    /**
+     * Creates a new instance for the specified nested JAR, known by the specified root name within its module and
+     * located at the specified path within the daemon JAR
+     *
+     * @throws IOException
+     *     If the manifest of the nested JAR could not be read
+     */
+    NestedJarResourceLoader(final String rootName, final ZipBuffer jar, final String location) throws IOException {
+        assert rootName !=null :"Root name must be specified";
+        assert jar !=null :"JAR must be specified";
+        assert location !=null :"Location must be specified";
+        this.rootName = rootName;
+        this.jar = jar;
+        this.handler = new EntryHandler();
+        this.rootUrl = new URL(PROTOCOL, null, -1, location, handler);
+        this.codeSource = new CodeSource(rootUrl, (CodeSigner[]) null);
+        final ZipBuffer.Entry manifestEntry = jar.getEntry(JarFile.MANIFEST_NAME);
+        this.manifest = manifestEntry == null ? null : new Manifest(new ByteArrayInputStream(
+            jar.readBytes(manifestEntry)));
+
+        // Directories holding at least one file, as jboss-modules indexes its own JAR resource roots
+        final Set<String> paths = new HashSet<>();
+        for (final ZipBuffer.Entry entry : jar.getEntries()) {
+            if (!entry.isDirectory()) {
+                final int lastSlash = entry.getName().lastIndexOf('/');
+                paths.add(lastSlash == -1 ? "" : entry.getName().substring(0, lastSlash));
+            }
+        }
+        this.paths = Collections.unmodifiableSet(paths);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ResourceLoader#getRootName()
+     */
+    @Override
+    public String getRootName() {
+        return rootName;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ResourceLoader#getClassSpec(java.lang.String)
+     */
+    @Override
+    public ClassSpec getClassSpec(final String fileName) throws IOException {
+        final ZipBuffer.Entry entry = jar.getEntry(fileName);
+        if (entry == null || !fileName.endsWith(SUFFIX_CLASS)) {
+            return null;
+        }
+        final ClassSpec spec = new ClassSpec();
+        spec.setBytes(jar.readBytes(entry));
+        spec.setCodeSource(codeSource);
+        return spec;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ResourceLoader#getPackageSpec(java.lang.String)
+     */
+    @Override
+    public PackageSpec getPackageSpec(final String name) throws IOException {
+        final PackageSpec spec = new PackageSpec();
+        if (manifest == null) {
+            return spec;
+        }
+        final Attributes main = manifest.getMainAttributes();
+        final Attributes forPackage = manifest.getAttributes(name.replace('.', '/') + '/');
+        spec.setSpecTitle(getAttribute(Attributes.Name.SPECIFICATION_TITLE, forPackage, main));
+        spec.setSpecVersion(getAttribute(Attributes.Name.SPECIFICATION_VERSION, forPackage, main));
+        spec.setSpecVendor(getAttribute(Attributes.Name.SPECIFICATION_VENDOR, forPackage, main));
+        spec.setImplTitle(getAttribute(Attributes.Name.IMPLEMENTATION_TITLE, forPackage, main));
+        spec.setImplVersion(getAttribute(Attributes.Name.IMPLEMENTATION_VERSION, forPackage, main));
+        spec.setImplVendor(getAttribute(Attributes.Name.IMPLEMENTATION_VENDOR, forPackage, main));
+        return spec;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ResourceLoader#getResource(java.lang.String)
+     */
+    @Override
+    public Resource getResource(final String name) {
+        final String entryName = name.startsWith("/") ? name.substring(1) : name;
+        final ZipBuffer.Entry entry = jar.getEntry(entryName);
+        if (entry == null || entry.isDirectory()) {
+            return null;
+        }
+        final URL url;
+        try {
+            url = new URL(PROTOCOL, null, -1, rootUrl.getFile() + SEPARATOR_ENTRY + entryName, handler);
+        } catch (final MalformedURLException murle) {
+            throw new IllegalStateException("Could not form URL for " + entryName + " in " + rootUrl, murle);
+        }
+        return new Resource() {
+
+            @Override
+            public String getName() {
+                return entryName;
+            }
+
+            @Override
+            public URL getURL() {
+                return url;
+            }
+
+            @Override
+            public InputStream openStream() throws IOException {
+                return new ByteArrayInputStream(jar.readBytes(entry));
+            }
+
+            @Override
+            public long getSize() {
+                return entry.getSize();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ResourceLoader#getLibrary(java.lang.String)
+     */
+    @Override
+    public String getLibrary(final String name) {
+        // Native libraries must be loaded from a file
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.modules.ResourceLoader#getPaths()
+     */
+    @Override
+    public Collection<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return NestedJarResourceLoader.class.getSimpleName() + " for " + rootUrl.getFile();
+    }
+
+    private static String getAttribute(final Attributes.Name name, final Attributes forPackage, final Attributes main) {
+        final String value = forPackage == null ? null : forPackage.getValue(name);
+        return value != null ? value : main.getValue(name);
+    }
+
+    /**
+     * Opens the entries named by URLs of this loader
+     */
+    private final class EntryHandler extends URLStreamHandler {
+
+        @Override
+        protected URLConnection openConnection(final URL url) throws IOException {
+            final String file = url.getFile();
+            final int separator = file.lastIndexOf(SEPARATOR_ENTRY);
+            final ZipBuffer.Entry entry = separator == -1 ? null : jar.getEntry(file.substring(separator
+                + SEPARATOR_ENTRY.length()));
+            if (entry == null || entry.isDirectory()) {
+                throw new IOException("No such resource: " + url);
+            }
+            return new URLConnection(url) {
+
+                @Override
+                public void connect() {
+                    connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return new ByteArrayInputStream(jar.readBytes(entry));
+                }
+
+                @Override
+                public int getContentLength() {
+                    return (int) entry.getSize();
+                }
+            };
+        }
+    }
+}
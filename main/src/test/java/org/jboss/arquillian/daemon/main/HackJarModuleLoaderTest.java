@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+
+import org.jboss.arquillian.daemon.main.resources.Greeter;
+import org.jboss.modules.Module;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link HackJarModuleLoader} explodes the modules of a JAR into its cache once, reuses them on
+ * later launches from the same JAR, explodes them anew once the JAR changes, and that concurrent launches populate
+ * the cache just once
+ */
+@SuppressWarnings("deprecation")
+public class HackJarModuleLoaderTest {
+
+    private static final int CONCURRENT_LAUNCHES = 4;
+
+    private File cacheDir;
+    private final List<File> jarFiles = new ArrayList<>();
+
+    @Before
+    public void createCache() throws IOException {
+        cacheDir = Files.createTempDirectory("modules-cache").toFile();
+        System.setProperty(HackJarModuleLoader.SYSPROP_NAME_CACHE_DIR, cacheDir.getAbsolutePath());
+    }
+
+    @After
+    public void deleteCache() {
+        System.clearProperty(HackJarModuleLoader.SYSPROP_NAME_CACHE_DIR);
+        ModuleJars.delete(cacheDir);
+        for (final File jarFile : jarFiles) {
+            ModuleJars.delete(jarFile);
+        }
+    }
+
+    @Test
+    public void modulesAreExplodedOnceThenReused() throws Exception {
+        final File jarFile = this.writeJar("Hello");
+        final File exploded = launch(jarFile).getLocalModulesLocation();
+        Assert.assertArrayEquals(new File[] { exploded }, cacheDir.listFiles());
+
+        // Anything exploding the JAR again would have to replace the directory, and with it this
+        final File marker = new File(exploded, "marker");
+        Assert.assertTrue(marker.createNewFile());
+        final HackJarModuleLoader relaunched = launch(jarFile);
+        Assert.assertEquals(exploded, relaunched.getLocalModulesLocation());
+        Assert.assertTrue("Cached modules were exploded again", marker.isFile());
+        assertLoads(relaunched, "Hello");
+    }
+
+    @Test
+    public void changedJarIsExplodedAnew() throws Exception {
+        final File exploded = launch(this.writeJar("Hello")).getLocalModulesLocation();
+        final HackJarModuleLoader changed = launch(this.writeJar("Goodbye"));
+        Assert.assertNotEquals(exploded, changed.getLocalModulesLocation());
+        Assert.assertEquals(2, cacheDir.listFiles().length);
+        assertLoads(changed, "Goodbye");
+    }
+
+    @Test
+    public void concurrentLaunchesPopulateOneCache() throws Exception {
+        final File jarFile = this.writeJar("Hello");
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService launches = Executors.newFixedThreadPool(CONCURRENT_LAUNCHES);
+        try {
+            final List<Future<HackJarModuleLoader>> loaders = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_LAUNCHES; i++) {
+                loaders.add(launches.submit(new Callable<HackJarModuleLoader>() {
+                    @Override
+                    public HackJarModuleLoader call() throws Exception {
+                        start.await();
+                        return launch(jarFile);
+                    }
+                }));
+            }
+            start.countDown();
+            final File exploded = loaders.get(0).get().getLocalModulesLocation();
+            for (final Future<HackJarModuleLoader> loader : loaders) {
+                Assert.assertEquals(exploded, loader.get().getLocalModulesLocation());
+                assertLoads(loader.get(), "Hello");
+            }
+            // Copies exploded by launches which lost the race are gone
+            Assert.assertArrayEquals(new File[] { exploded }, cacheDir.listFiles());
+        } finally {
+            launches.shutdownNow();
+        }
+    }
+
+    private File writeJar(final String resourceText) throws IOException {
+        final File jarFile = ModuleJars.write(resourceText, false);
+        jarFiles.add(jarFile);
+        return jarFile;
+    }
+
+    /**
+     * Creates a loader for the specified JAR, as {@link Main} does on launch
+     */
+    private static HackJarModuleLoader launch(final File jarFile) throws IOException {
+        final JarFile jar = new JarFile(jarFile);
+        try {
+            return new HackJarModuleLoader(jar, ModuleJars.MODULE_ROOT);
+        } finally {
+            jar.close();
+        }
+    }
+
+    private static void assertLoads(final HackJarModuleLoader loader, final String resourceText) throws Exception {
+        final Module module = loader.loadModule(ModuleJars.MODULE);
+        final Class<?> greeter = module.getClassLoader().loadClass(Greeter.class.getName());
+        Assert.assertSame(module.getClassLoader(), greeter.getClassLoader());
+        Assert.assertEquals(resourceText, ModuleJars.readResource(module.getClassLoader()));
+    }
+}
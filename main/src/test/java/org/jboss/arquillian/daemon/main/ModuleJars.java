@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.jboss.arquillian.daemon.main.resources.Greeter;
+import org.jboss.modules.ModuleIdentifier;
+
+/**
+ * Writes JARs laid out as the daemon JAR is, holding under {@link ModuleJars#MODULE_ROOT} a single module
+ * {@link ModuleJars#MODULE} whose resource root is a nested JAR of the {@link Greeter} class and a text resource
+ */
+final class ModuleJars {
+
+    static final String MODULE_ROOT = "META-INF/modules";
+    static final ModuleIdentifier MODULE = ModuleIdentifier.create("org.example.greeter");
+    static final String RESOURCE_NAME = "greeting.txt";
+
+    private static final String MODULE_LOCATION = MODULE_ROOT + "/org/example/greeter/main/";
+    private static final String NAME_RESOURCE_ROOT = "greeter.jar";
+    private static final String MODULE_XML = "<module xmlns=\"urn:jboss:module:1.1\" name=\"" + MODULE.getName()
+        + "\">\n  <resources>\n    <resource-root path=\"" + NAME_RESOURCE_ROOT + "\"/>\n  </resources>\n</module>\n";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ModuleJars() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    /**
+     * Writes a new temporary JAR whose module resource carries the specified text, holding the nested JAR either
+     * stored or deflated
+     */
+    static File write(final String resourceText, final boolean storeNested) throws IOException {
+        final File jarFile = File.createTempFile("modules", ".jar");
+        final JarOutputStream out = new JarOutputStream(new FileOutputStream(jarFile));
+        try {
+            putEntry(out, MODULE_LOCATION + "module.xml", MODULE_XML.getBytes(UTF_8), false);
+            putEntry(out, MODULE_LOCATION + NAME_RESOURCE_ROOT, nestedJar(resourceText), storeNested);
+        } finally {
+            out.close();
+        }
+        return jarFile;
+    }
+
+    /**
+     * Reads the text of the module resource as seen by the specified {@link ClassLoader}
+     */
+    static String readResource(final ClassLoader classLoader) throws IOException {
+        final InputStream in = classLoader.getResourceAsStream(RESOURCE_NAME);
+        if (in == null) {
+            throw new IOException("No " + RESOURCE_NAME + " visible to " + classLoader);
+        }
+        return new String(readFully(in), UTF_8);
+    }
+
+    /**
+     * Deletes the specified file or directory and everything beneath it, if it exists
+     */
+    static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IllegalStateException("Could not delete " + file.getAbsolutePath());
+        }
+    }
+
+    private static byte[] nestedJar(final String resourceText) throws IOException {
+        final String classEntry = Greeter.class.getName().replace('.', '/') + ".class";
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JarOutputStream out = new JarOutputStream(bytes);
+        try {
+            putEntry(out, classEntry, readClasspathEntry(classEntry), false);
+            putEntry(out, RESOURCE_NAME, resourceText.getBytes(UTF_8), false);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void putEntry(final JarOutputStream out, final String name, final byte[] contents,
+        final boolean store) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        if (store) {
+            final CRC32 crc = new CRC32();
+            crc.update(contents);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(contents.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(contents);
+        out.closeEntry();
+    }
+
+    private static byte[] readClasspathEntry(final String name) throws IOException {
+        final InputStream in = ModuleJars.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("No " + name + " on the test classpath");
+        }
+        return readFully(in);
+    }
+
+    /**
+     * Reads the specified stream to its end, closing it
+     */
+    static byte[] readFully(final InputStream in) throws IOException {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.main;
+
+import java.io.File;
+import java.net.URL;
+
+import org.jboss.arquillian.daemon.main.resources.Greeter;
+import org.jboss.modules.Module;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link NestedJarModuleLoader} loads classes and resources in place from the nested JARs of a
+ * module, be they stored or deflated within the outer JAR
+ */
+public class NestedJarModuleLoaderTest {
+
+    @Test
+    public void loadsFromStoredNestedJar() throws Exception {
+        assertLoads(true);
+    }
+
+    @Test
+    public void loadsFromDeflatedNestedJar() throws Exception {
+        assertLoads(false);
+    }
+
+    private static void assertLoads(final boolean storeNested) throws Exception {
+        final String resourceText = storeNested ? "Stored" : "Deflated";
+        final File jarFile = ModuleJars.write(resourceText, storeNested);
+        try {
+            final Module module = new NestedJarModuleLoader(jarFile, ModuleJars.MODULE_ROOT)
+                .loadModule(ModuleJars.MODULE);
+            final ClassLoader classLoader = module.getClassLoader();
+
+            final Class<?> greeter = classLoader.loadClass(Greeter.class.getName());
+            Assert.assertSame(classLoader, greeter.getClassLoader());
+            Assert.assertNotSame(Greeter.class, greeter);
+            Assert.assertEquals(Greeter.greet("Nested"), greeter.getMethod("greet", String.class).invoke(null,
+                "Nested"));
+
+            Assert.assertEquals(resourceText, ModuleJars.readResource(classLoader));
+            // The URL of the resource must be readable on its own too, as for any other resource
+            final URL url = classLoader.getResource(ModuleJars.RESOURCE_NAME);
+            Assert.assertNotNull(url);
+            Assert.assertArrayEquals(resourceText.getBytes("UTF-8"), ModuleJars.readFully(url.openStream()));
+        } finally {
+            ModuleJars.delete(jarFile);
+        }
+    }
+}
@@ -16,49 +16,92 @@
  */
 package org.jboss.arquillian.daemon.protocol.arquillian;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.arquillian.container.test.spi.TestDeployment;
 import org.jboss.arquillian.container.test.spi.client.deployment.DeploymentPackager;
 import org.jboss.arquillian.container.test.spi.client.deployment.ProtocolArchiveProcessor;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 
 /**
- * {@link DeploymentPackager} to merge auxiliar archive contents with the archive provided by the user
+ * {@link DeploymentPackager} to merge auxiliar archive contents with the archive provided by the user. Auxiliary
+ * archives named by the {@link DaemonDeploymentPackager#SYSPROP_NAME_SHARED_AUXILIARY} system property are instead
+ * merged under {@link WireProtocol#PATH_SHARED_ARCHIVES}, from where the daemon loads them once for all deployments
+ * sharing them, rather than once for each.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
-public enum DaemonDeploymentPackager implements DeploymentPackager{
+public enum DaemonDeploymentPackager implements DeploymentPackager {
 
     INSTANCE;
 
-private static final Logger log=Logger.getLogger(DaemonDeploymentPackager.class.getName());
+    /**
+     * System property naming the auxiliary archives (such as <code>arquillian-junit.jar</code>) whose classes may be
+     * shared by all deployments, rather than defined anew in each, separated by commas; a name ending in
+     * <code>*</code> matches all those beginning with what precedes it. Such archives must hold no state which one
+     * deployment's tests should not see from another's. None are shared by default.
+     */
+    public static final String SYSPROP_NAME_SHARED_AUXILIARY = "arquillian.daemon.shared.auxiliary";
 
-/**
- * {@inheritDoc}
- *
- * @see org.jboss.arquillian.container.test.spi.client.deployment.DeploymentPackager#generateDeployment(org.jboss.arquillian
- * .container.test.spi.TestDeployment, java.util.Collection)
- */
-@Override
-public Archive<?> generateDeployment(final TestDeployment testDeployment,
-final Collection<ProtocolArchiveProcessor> processors){
-// Merge auxiliary archives with the declared for ARQ and testrunner support
-final JavaArchive archive=testDeployment.getApplicationArchive().as(JavaArchive.class);
-    if(log.isLoggable(Level.FINEST)){
-    log.finest("Archive before additional packaging: "+archive.toString(true));
-    }
-    for(final Archive<?> auxArchive:testDeployment.getAuxiliaryArchives()){
-    archive.merge(auxArchive);
-    }
-    if(log.isLoggable(Level.FINEST)){
-    log.finest("Archive after additional packaging: "+archive.toString(true));
-    }
+    private static final Logger log = Logger.getLogger(DaemonDeploymentPackager.class.getName());
+    private static final String SEPARATOR_NAMES = ",";
+    private static final String WILDCARD = "*";
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.container.test.spi.client.deployment.DeploymentPackager#generateDeployment(org.jboss.arquillian
+     * .container.test.spi.TestDeployment, java.util.Collection)
+     */
+    @Override
+    public Archive<?> generateDeployment(final TestDeployment testDeployment,
+        final Collection<ProtocolArchiveProcessor> processors) {
+        // Merge auxiliary archives with the declared for ARQ and testrunner support
+        final JavaArchive archive = testDeployment.getApplicationArchive().as(JavaArchive.class);
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest("Archive before additional packaging: " + archive.toString(true));
+        }
+        final List<String> sharedNames = getSharedNames();
+        for (final Archive<?> auxArchive : testDeployment.getAuxiliaryArchives()) {
+            if (isShared(auxArchive.getName(), sharedNames)) {
+                archive.merge(auxArchive, WireProtocol.PATH_SHARED_ARCHIVES);
+            } else {
+                archive.merge(auxArchive);
+            }
+        }
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest("Archive after additional packaging: " + archive.toString(true));
+        }
 
-    return archive;
+        return archive;
+    }
 
+    private static List<String> getSharedNames() {
+        final List<String> names = new ArrayList<>();
+        final String value = SecurityActions.getSystemProperty(SYSPROP_NAME_SHARED_AUXILIARY);
+        if (value != null) {
+            for (final String name : value.split(SEPARATOR_NAMES)) {
+                if (name.trim().length() > 0) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
     }
+
+    private static boolean isShared(final String archiveName, final List<String> sharedNames) {
+        for (final String name : sharedNames) {
+            if (name.endsWith(WILDCARD) ? archiveName.startsWith(name.substring(0, name.length() - 1)) : archiveName
+                .equals(name)) {
+                return true;
+            }
+        }
+        return false;
     }
+}
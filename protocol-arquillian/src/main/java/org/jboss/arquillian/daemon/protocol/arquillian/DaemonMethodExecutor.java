@@ -17,19 +17,41 @@
 package org.jboss.arquillian.daemon.protocol.arquillian;
 
 import org.jboss.arquillian.container.test.spi.ContainerMethodExecutor;
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult.ThrowableDescription;
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
 import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.jboss.arquillian.test.spi.ArquillianProxyException;
 import org.jboss.arquillian.test.spi.TestMethodExecutor;
 import org.jboss.arquillian.test.spi.TestResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 /**
  * {@link ContainerMethodExecutor} implementation which executes tests on the remote JVM Arquillian Server Daemon and
- * returns the {@link TestResult} it returns.
+ * returns the {@link TestResult} it returns. Over a framed connection tests may also be started without waiting via
+ * {@link DaemonMethodExecutor#invokeAsync(TestMethodExecutor)}, any number being in flight at once, or many at once
+ * in a single request via {@link DaemonMethodExecutor#invokeBatch(List, boolean)}. Tests of a sharded deployment are
+ * dispatched across the daemons holding it, and those of a failover deployment to whichever daemon holds it now.
+ * Tests of an embedded deployment are executed in the calling thread by the daemon within this JVM.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
@@ -38,6 +60,7 @@ public class DaemonMethodExecutor implements ContainerMethodExecutor {
     @SuppressWarnings("unused")
     private static final Logger log = Logger.getLogger(DaemonMethodExecutor.class.getName());
     private static final String SPACE = " ";
+    private static final int INDEX_LENGTH = 4;
 
     private final DeploymentContext context;
 
@@ -58,6 +81,31 @@ public class DaemonMethodExecutor implements ContainerMethodExecutor {
 
         assert testMethodExecutor !=null :"Test method executor is required";
 
+        if (context.isSharded()) {
+            return context.getDispatcher().invoke(testMethodExecutor);
+        }
+        if (context.isFailover()) {
+            return context.getFailover().invoke(testMethodExecutor);
+        }
+        if (context.isEmbedded()) {
+            try {
+                return toTestResult(context.getEmbedded().execute(testMethodExecutor.getInstance().getClass().getName(),
+                    testMethodExecutor.getMethod().getName()));
+            } catch (final ExecutionException ee) {
+                throw new RuntimeException("Could not get test results", ee.getCause());
+            }
+        }
+        if (context.isFramed()) {
+            try {
+                return this.invokeAsync(testMethodExecutor).get();
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while awaiting test results", ie);
+            } catch (final ExecutionException ee) {
+                throw new RuntimeException("Could not get test results", ee.getCause());
+            }
+        }
+
         // Build the String request according to the wire protocol
         final String testCommand = createTestCommand(testMethodExecutor);
         final PrintWriter writer = this.context.getWriter();
@@ -80,6 +128,78 @@ public class DaemonMethodExecutor implements ContainerMethodExecutor {
         }
     }
 
+    /**
+     * Requests execution of the specified test over a framed connection, returning without waiting for it to complete
+     *
+     * @throws IllegalStateException
+     *     If the connection has not negotiated the binary framing mode of the wire protocol
+     */
+    public Future<TestResult> invokeAsync(final TestMethodExecutor testMethodExecutor) throws IllegalStateException {
+        assert testMethodExecutor !=null :"Test method executor is required";
+        if (!context.isFramed()) {
+            throw new IllegalStateException("Asynchronous invocation requires a framed connection");
+        }
+        if (context.isSharded()) {
+            return context.getDispatcher().invokeAsync(testMethodExecutor);
+        }
+        if (context.isFailover()) {
+            return context.getFailover().invokeAsync(testMethodExecutor);
+        }
+        try {
+            final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+            final DataOutputStream argumentsOut = new DataOutputStream(arguments);
+            argumentsOut.writeUTF(context.getName());
+            argumentsOut.writeUTF(testMethodExecutor.getInstance().getClass().getName());
+            argumentsOut.writeUTF(testMethodExecutor.getMethod().getName());
+            argumentsOut.close();
+            return new TestResultFuture(context.getConnection().request(WireProtocol.OPCODE_TEST,
+                arguments.toByteArray()));
+        } catch (final IOException ioe) {
+            throw new RuntimeException("Could not request test execution", ioe);
+        }
+    }
+
+    /**
+     * Requests execution of the specified tests in a single request over a framed connection, returning without
+     * waiting for them to complete. The server executes them one after another in the order given, or if parallel,
+     * concurrently; each {@link Future} in the returned list (in the same order) completes as its result arrives.
+     * Arquillian itself only ever calls {@link DaemonMethodExecutor#invoke(TestMethodExecutor)}, one test at a time;
+     * batches are for callers driving this executor directly.
+     *
+     * @throws IllegalStateException
+     *     If the connection has not negotiated the binary framing mode of the wire protocol
+     */
+    public List<Future<TestResult>> invokeBatch(final List<TestMethodExecutor> testMethodExecutors,
+        final boolean parallel) throws IllegalStateException {
+        assert testMethodExecutors !=null :"Test method executors are required";
+        if (!context.isFramed()) {
+            throw new IllegalStateException("Batch invocation requires a framed connection");
+        }
+        if (context.isSharded()) {
+            return Collections.unmodifiableList(context.getDispatcher().invokeBatch(testMethodExecutors, parallel));
+        }
+        if (context.isFailover()) {
+            return Collections.unmodifiableList(context.getFailover().invokeBatch(testMethodExecutors, parallel));
+        }
+        final BatchResults results = new BatchResults(testMethodExecutors.size());
+        try {
+            final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+            final DataOutputStream argumentsOut = new DataOutputStream(arguments);
+            argumentsOut.writeUTF(context.getName());
+            argumentsOut.writeBoolean(parallel);
+            argumentsOut.writeInt(testMethodExecutors.size());
+            for (final TestMethodExecutor testMethodExecutor : testMethodExecutors) {
+                argumentsOut.writeUTF(testMethodExecutor.getInstance().getClass().getName());
+                argumentsOut.writeUTF(testMethodExecutor.getMethod().getName());
+            }
+            argumentsOut.close();
+            context.getConnection().stream(WireProtocol.OPCODE_TEST_BATCH, arguments.toByteArray(), results);
+        } catch (final IOException ioe) {
+            throw new RuntimeException("Could not request test execution", ioe);
+        }
+        return Collections.<Future<TestResult>> unmodifiableList(results.futures);
+    }
+
     private String createTestCommand(TestMethodExecutor testMethodExecutor) {
         return WireProtocol.COMMAND_TEST_PREFIX +
             context.getName() +
@@ -90,6 +210,207 @@ public class DaemonMethodExecutor implements ContainerMethodExecutor {
             WireProtocol.COMMAND_EOF_DELIMITER;
     }
 
+    /**
+     * Decodes the {@link TestResult} from the response to a test request once it has been received
+     */
+    private static final class TestResultFuture implements Future<TestResult> {
+
+        private final Future<Frame> response;
+
+        TestResultFuture(final Future<Frame> response) {
+            assert response !=null :"response must be specified";
+            this.response = response;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            // The server will run the test regardless
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return response.isDone();
+        }
+
+        @Override
+        public TestResult get() throws InterruptedException, ExecutionException {
+            return decode(response.get());
+        }
+
+        @Override
+        public TestResult get(final long timeout, final TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+            return decode(response.get(timeout, unit));
+        }
+
+        private static TestResult decode(final Frame response) throws ExecutionException {
+            if (response.getOpcode() != WireProtocol.OPCODE_RESPONSE_TEST_RESULT) {
+                throw new ExecutionException(new IOException("Could not get test results: "
+                    + response.getPayloadAsString()));
+            }
+            return decodeTestResult(response.getPayload(), 0);
+        }
+    }
+
+    /**
+     * Deserializes the {@link TestResult} from the specified payload, starting at the specified offset
+     *
+     * @throws ExecutionException
+     *     If the test result could not be read
+     */
+    private static TestResult decodeTestResult(final byte[] payload, final int offset) throws ExecutionException {
+        if (payload.length > offset && payload[offset] == CompactTestResult.MARKER) {
+            final CompactTestResult compact;
+            try {
+                compact = CompactTestResult.read(new DataInputStream(new ByteArrayInputStream(payload, offset,
+                    payload.length - offset)));
+            } catch (final IOException ioe) {
+                throw new ExecutionException(ioe);
+            }
+            return fromCompact(compact);
+        }
+        try {
+            final ObjectInputStream resultIn = new ObjectInputStream(new ByteArrayInputStream(payload, offset,
+                payload.length - offset));
+            try {
+                return (TestResult) resultIn.readObject();
+            } finally {
+                resultIn.close();
+            }
+        } catch (final IOException ioe) {
+            throw new ExecutionException(ioe);
+        } catch (final ClassNotFoundException cnfe) {
+            throw new ExecutionException("test result not on the client classpath", cnfe);
+        }
+    }
+
+    /**
+     * Creates the {@link TestResult} described by the specified {@link CompactTestResult}
+     *
+     * @throws ExecutionException
+     *     If its status is not known
+     */
+    private static TestResult fromCompact(final CompactTestResult compact) throws ExecutionException {
+        final TestResult result;
+        try {
+            result = new TestResult(TestResult.Status.valueOf(compact.getStatus()));
+        } catch (final IllegalArgumentException iae) {
+            throw new ExecutionException("Unknown test status: " + compact.getStatus(), iae);
+        }
+        if (compact.getThrowable() != null) {
+            result.setThrowable(toThrowable(compact.getThrowable()));
+        }
+        return result.setStart(compact.getStart()).setEnd(compact.getEnd());
+    }
+
+    /**
+     * Returns the {@link TestResult} of a test executed by an embedded daemon, creating it again from its compact
+     * description if so returned, else carrying it over from the deployment's {@link ClassLoader} to the client's by
+     * serialization
+     *
+     * @throws ExecutionException
+     *     If the test result could not be read
+     */
+    private static TestResult toTestResult(final Object result) throws ExecutionException {
+        if (result instanceof CompactTestResult) {
+            return fromCompact((CompactTestResult) result);
+        }
+        if (result instanceof TestResult) {
+            return (TestResult) result;
+        }
+        final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try {
+            final ObjectOutputStream out = new ObjectOutputStream(serialized);
+            try {
+                out.writeObject(result);
+            } finally {
+                out.close();
+            }
+        } catch (final IOException ioe) {
+            throw new ExecutionException(ioe);
+        }
+        return decodeTestResult(serialized.toByteArray(), 0);
+    }
+
+    /**
+     * Creates the described {@link Throwable} and its causes again, standing in an {@link ArquillianProxyException} for
+     * any whose class is not visible to the client, as deserialization of the test result would
+     */
+    private static Throwable toThrowable(final ThrowableDescription description) {
+        final Throwable cause = description.getCause() == null ? null : toThrowable(description.getCause());
+        final Throwable throwable = description.newInstance(DaemonMethodExecutor.class.getClassLoader());
+        if (throwable == null) {
+            final ArquillianProxyException proxy = new ArquillianProxyException(description.getMessage(),
+                description.getClassName(), "Original exception could not be created on the client", cause);
+            proxy.setStackTrace(description.getStackTrace());
+            return proxy;
+        }
+        if (cause != null) {
+            throwable.initCause(cause);
+        }
+        return throwable;
+    }
+
+    /**
+     * Completes the {@link Future} result of each test in a batch as its response arrives; any not completed by the
+     * time the final response arrives (or the connection fails) are failed
+     */
+    private static final class BatchResults implements FrameConnection.FrameListener {
+
+        private final List<SettableFuture<TestResult>> futures;
+
+        BatchResults(final int size) {
+            final List<SettableFuture<TestResult>> futures = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                futures.add(new SettableFuture<TestResult>());
+            }
+            this.futures = futures;
+        }
+
+        @Override
+        public void received(final Frame frame) {
+            final byte[] payload = frame.getPayload();
+            switch (frame.getOpcode()) {
+                case WireProtocol.OPCODE_RESPONSE_BATCH_RESULT:
+                    final SettableFuture<TestResult> result = futures.get(ByteBuffer.wrap(payload).getInt());
+                    try {
+                        result.complete(decodeTestResult(payload, INDEX_LENGTH));
+                    } catch (final ExecutionException ee) {
+                        result.fail(ee.getCause());
+                    } catch (final RuntimeException re) {
+                        result.fail(re);
+                    }
+                    break;
+                case WireProtocol.OPCODE_RESPONSE_BATCH_ERROR:
+                    final String message = new String(payload, INDEX_LENGTH, payload.length - INDEX_LENGTH, Charset
+                        .forName(WireProtocol.CHARSET));
+                    futures.get(ByteBuffer.wrap(payload).getInt()).fail(new IOException("Could not get test results: "
+                        + message));
+                    break;
+                case WireProtocol.OPCODE_RESPONSE_OK:
+                    // Anything still outstanding won't be answered
+                    this.failed(new IOException("Server did not report test results"));
+                    break;
+                default:
+                    this.failed(new IOException("Could not get test results: " + frame.getPayloadAsString()));
+            }
+        }
+
+        @Override
+        public void failed(final IOException cause) {
+            // Those already completed are left as they are
+            for (final SettableFuture<TestResult> future : futures) {
+                future.fail(cause);
+            }
+        }
+    }
+
     /**
      * Wrapper which does forwards all operations except {@link InputStream#close()} to the delegate
      *
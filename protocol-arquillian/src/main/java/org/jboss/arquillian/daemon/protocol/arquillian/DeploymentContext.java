@@ -22,12 +22,20 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link NamedContext} implementation backed by streams and reader/writer to interact with the Arquillian Server Daemon
  * over wire protocol. No caller should close any of the resources in this {@link DeploymentContext}; they are to be
  * managed by the establishing container. Essentially acts as a value object to hand off resources between the container
- * and the {@link DaemonMethodExecutor}
+ * and the {@link DaemonMethodExecutor}. If the connection has negotiated the binary framing mode of the wire protocol,
+ * its {@link FrameConnection} is to be used for all further requests and responses. A deployment made to several
+ * daemons at once is described by a sharded context, which holds the framed context of each; one which may move to
+ * another daemon should its own be lost is described by a failover context, which holds the framed context in use.
+ * A deployment to a daemon running within the client JVM is described by an embedded context, which has no connection
+ * at all and executes its tests through an {@link EmbeddedDeployment}.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
@@ -37,14 +45,24 @@ public class DeploymentContext extends NamedContext {
     private final OutputStream socketOutstream;
     private final BufferedReader reader;
     private final PrintWriter writer;
+    private final FrameConnection connection;
+    private final ShardDispatcher dispatcher;
+    private final FailoverDispatcher failover;
+    private final EmbeddedDeployment embedded;
 
     private DeploymentContext(final String deploymentName, final InputStream socketInstream,
-        final OutputStream socketOutstream, final BufferedReader reader, final PrintWriter writer) {
+        final OutputStream socketOutstream, final BufferedReader reader, final PrintWriter writer,
+        final FrameConnection connection, final ShardDispatcher dispatcher, final FailoverDispatcher failover,
+        final EmbeddedDeployment embedded) {
         super(deploymentName);
         this.socketInstream = socketInstream;
         this.socketOutstream = socketOutstream;
         this.reader = reader;
         this.writer = writer;
+        this.connection = connection;
+        this.dispatcher = dispatcher;
+        this.failover = failover;
+        this.embedded = embedded;
     }
 
     /**
@@ -75,7 +93,159 @@ public class DeploymentContext extends NamedContext {
             throw new IllegalArgumentException("writer must be specified");
         }
         return new DeploymentContext(deploymentName, socketInstream, socketOutstream,
-            reader, writer);
+            reader, writer, null, null, null, null);
+    }
+
+    /**
+     * Creates and returns a new {@link DeploymentContext} instance for a connection which has negotiated the binary
+     * framing mode of the wire protocol
+     *
+     * @param deploymentName
+     *     Name of the deployment
+     *
+     * @throws IllegalArgumentException
+     *     If any argument is not specified
+     */
+    public static DeploymentContext createFramed(final String deploymentName, final FrameConnection connection)
+        throws IllegalArgumentException {
+        if (deploymentName == null || deploymentName.length() == 0) {
+            throw new IllegalArgumentException("Deployment name must be specified");
+        }
+        if (connection == null) {
+            throw new IllegalArgumentException("connection must be specified");
+        }
+        return new DeploymentContext(deploymentName, null, null, null, null, connection, null, null, null);
+    }
+
+    /**
+     * Creates and returns a new {@link DeploymentContext} instance for the same archive deployed to several daemons,
+     * across which its tests are to be sharded. Each shard is described by its own framed context, and tallies its
+     * tests in the {@link ShardUtilization} at the same index. The first shard lends the returned context its name and
+     * connection, so that callers unaware of sharding address that daemon alone.
+     *
+     * @throws IllegalArgumentException
+     *     If no shards are specified, any is not framed, or there is not one utilization per shard
+     */
+    public static DeploymentContext createSharded(final List<DeploymentContext> shards,
+        final List<ShardUtilization> utilizations) throws IllegalArgumentException {
+        return createSharded(shards, utilizations, null);
+    }
+
+    /**
+     * Creates and returns a new {@link DeploymentContext} instance as
+     * {@link DeploymentContext#createSharded(List, List)} does, whose tests are scheduled by, and record their
+     * durations in, the specified {@link TestHistory}, if any
+     *
+     * @throws IllegalArgumentException
+     *     If no shards are specified, any is not framed, or there is not one utilization per shard
+     */
+    public static DeploymentContext createSharded(final List<DeploymentContext> shards,
+        final List<ShardUtilization> utilizations, final TestHistory history) throws IllegalArgumentException {
+        return createSharded(shards, utilizations, history, Collections.<String> emptyList());
+    }
+
+    /**
+     * Creates and returns a new {@link DeploymentContext} instance as
+     * {@link DeploymentContext#createSharded(List, List, TestHistory)} does, whose classes of the specified names that
+     * are known to the history are assigned to shards up front, heaviest first, rather than as their tests are first
+     * executed
+     *
+     * @throws IllegalArgumentException
+     *     If no shards are specified, any is not framed, there is not one utilization per shard, or the class names
+     *     are not specified
+     */
+    public static DeploymentContext createSharded(final List<DeploymentContext> shards,
+        final List<ShardUtilization> utilizations, final TestHistory history, final Collection<String> classNames)
+        throws IllegalArgumentException {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("shards must be specified");
+        }
+        if (utilizations == null || utilizations.size() != shards.size()) {
+            throw new IllegalArgumentException("one utilization must be specified per shard");
+        }
+        for (final DeploymentContext shard : shards) {
+            if (!shard.isFramed() || shard.isSharded()) {
+                throw new IllegalArgumentException("each shard must be a framed, unsharded context");
+            }
+        }
+        if (classNames == null) {
+            throw new IllegalArgumentException("class names must be specified");
+        }
+        final DeploymentContext first = shards.get(0);
+        return new DeploymentContext(first.getName(), null, null, null, null, first.getConnection(),
+            new ShardDispatcher(shards, utilizations, history, classNames), null, null);
+    }
+
+    /**
+     * Creates and returns a new {@link DeploymentContext} instance for a deployment described by the specified framed
+     * context, whose tests are moved to another daemon by the specified {@link DeploymentFailover} should the
+     * connection to its own be lost. The test in progress when that happens is executed again on the new daemon. The
+     * returned context lends its name and connection from the original deployment.
+     *
+     * @throws IllegalArgumentException
+     *     If either argument is not specified, or the context is not framed or is sharded
+     */
+    public static DeploymentContext createFailover(final DeploymentContext context, final DeploymentFailover failover)
+        throws IllegalArgumentException {
+        if (context == null || !context.isFramed() || context.isSharded() || context.isFailover()) {
+            throw new IllegalArgumentException("context must be specified as a framed, unsharded context");
+        }
+        if (failover == null) {
+            throw new IllegalArgumentException("failover must be specified");
+        }
+        return new DeploymentContext(context.getName(), null, null, null, null, context.getConnection(), null,
+            new FailoverDispatcher(context, failover), null);
+    }
+
+    /**
+     * Creates and returns a new {@link DeploymentContext} instance for a deployment to a daemon running within the
+     * client JVM, whose tests are executed by the specified {@link EmbeddedDeployment}
+     *
+     * @param deploymentName
+     *     Name of the deployment
+     *
+     * @throws IllegalArgumentException
+     *     If any argument is not specified
+     */
+    public static DeploymentContext createEmbedded(final String deploymentName, final EmbeddedDeployment embedded)
+        throws IllegalArgumentException {
+        if (deploymentName == null || deploymentName.length() == 0) {
+            throw new IllegalArgumentException("Deployment name must be specified");
+        }
+        if (embedded == null) {
+            throw new IllegalArgumentException("embedded deployment must be specified");
+        }
+        return new DeploymentContext(deploymentName, null, null, null, null, null, null, null, embedded);
+    }
+
+    /**
+     * Returns whether this context uses the binary framing mode of the wire protocol, in which case only
+     * {@link DeploymentContext#getConnection()} is available
+     */
+    public boolean isFramed() {
+        return connection != null;
+    }
+
+    /**
+     * Returns whether this context describes a deployment to several daemons, across which its tests are dispatched
+     */
+    public boolean isSharded() {
+        return dispatcher != null;
+    }
+
+    /**
+     * Returns whether this context describes a deployment which moves to another daemon should its own be lost
+     */
+    public boolean isFailover() {
+        return failover != null;
+    }
+
+    /**
+     * Returns whether this context describes a deployment to a daemon running within the client JVM, in which case
+     * none of the streams or connection are available
+     */
+    public boolean isEmbedded() {
+        return embedded != null;
     }
 
     /**
@@ -105,4 +275,32 @@ public class DeploymentContext extends NamedContext {
     public PrintWriter getWriter() {
         return writer;
     }
+
+    /**
+     * @return the connection
+     */
+    public FrameConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the dispatcher of tests across the shards of a sharded context, else <code>null</code>
+     */
+    ShardDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Returns the dispatcher of tests to the daemon currently holding a failover context, else <code>null</code>
+     */
+    FailoverDispatcher getFailover() {
+        return failover;
+    }
+
+    /**
+     * Returns the means of executing tests upon an embedded context, else <code>null</code>
+     */
+    EmbeddedDeployment getEmbedded() {
+        return embedded;
+    }
 }
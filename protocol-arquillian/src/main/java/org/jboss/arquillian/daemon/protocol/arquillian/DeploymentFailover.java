@@ -0,0 +1,36 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.IOException;
+
+/**
+ * Moves a deployment whose daemon can no longer be reached to another daemon, so that its tests may continue there.
+ * Implemented by containers able to choose among several daemons, and given to
+ * {@link DeploymentContext#createFailover(DeploymentContext, DeploymentFailover)}.
+ */
+public interface DeploymentFailover {
+
+    /**
+     * Deploys the archive of the specified context, whose connection has been lost, to another daemon, returning the
+     * framed context of the new deployment
+     *
+     * @throws IOException
+     *     If no other daemon could take the deployment
+     */
+    DeploymentContext redeploy(DeploymentContext lost) throws IOException;
+}
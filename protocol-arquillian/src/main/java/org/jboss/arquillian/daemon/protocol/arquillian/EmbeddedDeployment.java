@@ -0,0 +1,34 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+
+/**
+ * Executes the tests of a deployment held by a daemon running within the JVM of the client, by a direct call rather
+ * than over a connection. Implemented by containers embedding the daemon, and given to
+ * {@link DeploymentContext#createEmbedded(String, EmbeddedDeployment)}.
+ */
+public interface EmbeddedDeployment {
+
+    /**
+     * Executes the specified test method of the specified test class in the calling thread, returning its result as a
+     * {@link CompactTestResult} where it can be described structurally, else as returned by the test runner within the
+     * deployment's {@link ClassLoader}
+     */
+    Object execute(String testClassName, String methodName);
+}
@@ -0,0 +1,228 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.test.spi.TestMethodExecutor;
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * Dispatches the tests of a failover deployment to the daemon currently holding it. Should a request fail because the
+ * connection to that daemon has been lost, the deployment is moved to another by the {@link DeploymentFailover} and
+ * the test executed once more there; failures over a connection still usable are the test's own, and are passed on.
+ * Requests failing together over the same lost connection move the deployment only once. Thread-safe.
+ */
+final class FailoverDispatcher {
+
+    private static final Logger log = Logger.getLogger(FailoverDispatcher.class.getName());
+
+    private final DeploymentFailover failover;
+
+    /**
+     * Deployment in use, and the executor of tests against it; guarded by this
+     */
+    private DeploymentContext current;
+    private DaemonMethodExecutor executor;
+
+    FailoverDispatcher(final DeploymentContext initial, final DeploymentFailover failover) {
+        assert initial !=null :"Initial context must be specified";
+        assert failover !=null :"Failover must be specified";
+        this.failover = failover;
+        this.current = initial;
+        this.executor = new DaemonMethodExecutor(initial);
+    }
+
+    /**
+     * Executes the specified test, blocking until it completes
+     */
+    TestResult invoke(final TestMethodExecutor testMethodExecutor) {
+        final DaemonMethodExecutor executor = this.getExecutor();
+        try {
+            return executor.invoke(testMethodExecutor);
+        } catch (final RuntimeException re) {
+            final DaemonMethodExecutor next = this.failOver(executor);
+            if (next == null) {
+                throw re;
+            }
+            return next.invoke(testMethodExecutor);
+        }
+    }
+
+    /**
+     * Requests execution of the specified test without waiting for it to complete; should the connection be lost
+     * before it does, the test is executed again upon {@link Future#get()}
+     */
+    Future<TestResult> invokeAsync(final TestMethodExecutor testMethodExecutor) {
+        final DaemonMethodExecutor executor = this.getExecutor();
+        try {
+            return new FailoverFuture(executor, testMethodExecutor, executor.invokeAsync(testMethodExecutor));
+        } catch (final RuntimeException re) {
+            final DaemonMethodExecutor next = this.failOver(executor);
+            if (next == null) {
+                throw re;
+            }
+            return new FailoverFuture(next, testMethodExecutor, next.invokeAsync(testMethodExecutor));
+        }
+    }
+
+    /**
+     * Requests execution of the specified tests in a single request without waiting for them to complete; any whose
+     * results are lost with the connection are executed again, one by one, upon {@link Future#get()}
+     */
+    List<Future<TestResult>> invokeBatch(final List<TestMethodExecutor> testMethodExecutors, final boolean parallel) {
+        DaemonMethodExecutor executor = this.getExecutor();
+        List<Future<TestResult>> results;
+        try {
+            results = executor.invokeBatch(testMethodExecutors, parallel);
+        } catch (final RuntimeException re) {
+            final DaemonMethodExecutor next = this.failOver(executor);
+            if (next == null) {
+                throw re;
+            }
+            executor = next;
+            results = next.invokeBatch(testMethodExecutors, parallel);
+        }
+        final List<Future<TestResult>> failoverResults = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            failoverResults.add(new FailoverFuture(executor, testMethodExecutors.get(i), results.get(i)));
+        }
+        return failoverResults;
+    }
+
+    private synchronized DaemonMethodExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Moves the deployment from the daemon of the specified executor if the connection to it has been lost, returning
+     * the executor to use instead; returns <code>null</code> if the connection is still usable, so that the failure
+     * stands
+     *
+     * @throws IllegalStateException
+     *     If the deployment could not be moved
+     */
+    private synchronized DaemonMethodExecutor failOver(final DaemonMethodExecutor failed) throws IllegalStateException {
+        if (executor != failed) {
+            // Already moved by another request which failed alongside
+            return executor;
+        }
+        if (current.getConnection().isUsable()) {
+            return null;
+        }
+        if (log.isLoggable(Level.WARNING)) {
+            log.warning("Lost connection to the daemon holding " + current.getName() + "; redeploying elsewhere");
+        }
+        final DeploymentContext redeployed;
+        try {
+            redeployed = failover.redeploy(current);
+        } catch (final IOException ioe) {
+            throw new IllegalStateException("Could not move " + current.getName() + " to another daemon", ioe);
+        }
+        if (redeployed == null || !redeployed.isFramed() || redeployed.isSharded() || redeployed.isFailover()) {
+            throw new IllegalStateException("Failover must redeploy to a framed, unsharded context: " + redeployed);
+        }
+        current = redeployed;
+        executor = new DaemonMethodExecutor(redeployed);
+        return executor;
+    }
+
+    /**
+     * Result of a test which, should it be lost with the connection, is executed again after failing over
+     */
+    private final class FailoverFuture implements Future<TestResult> {
+
+        private final DaemonMethodExecutor executor;
+        private final TestMethodExecutor testMethodExecutor;
+        private final Future<TestResult> result;
+
+        /**
+         * Result of executing the test again, once it has been; guarded by this
+         */
+        private TestResult retried;
+
+        FailoverFuture(final DaemonMethodExecutor executor, final TestMethodExecutor testMethodExecutor,
+            final Future<TestResult> result) {
+            this.executor = executor;
+            this.testMethodExecutor = testMethodExecutor;
+            this.result = result;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return result.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        @Override
+        public TestResult get() throws InterruptedException, ExecutionException {
+            try {
+                return result.get();
+            } catch (final ExecutionException ee) {
+                return this.retry(ee);
+            }
+        }
+
+        @Override
+        public TestResult get(final long timeout, final TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+            try {
+                return result.get(timeout, unit);
+            } catch (final ExecutionException ee) {
+                return this.retry(ee);
+            }
+        }
+
+        private synchronized TestResult retry(final ExecutionException ee) throws ExecutionException {
+            if (retried != null) {
+                return retried;
+            }
+            final DaemonMethodExecutor next;
+            try {
+                next = FailoverDispatcher.this.failOver(executor);
+            } catch (final IllegalStateException ise) {
+                throw new ExecutionException(ise);
+            }
+            if (next == null) {
+                throw ee;
+            }
+            try {
+                retried = next.invoke(testMethodExecutor);
+                return retried;
+            } catch (final RuntimeException re) {
+                throw new ExecutionException(re);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client side of a connection to the Arquillian Server Daemon which has negotiated the binary framing mode of the
+ * {@link WireProtocol}. Any number of requests may be outstanding at once; each is tagged with a new correlation ID,
+ * and a dedicated reader thread completes the {@link Future} registered under that ID as its response arrives, in
+ * whatever order the server sends them. Requests answered by a stream of responses may instead register a
+ * {@link FrameListener} via {@link FrameConnection#stream(byte, byte[], FrameListener)}. Thread-safe.
+ * <p>
+ * This connection does not own the underlying streams; the establishing container closes the socket, after which
+ * {@link FrameConnection#close()} fails any requests still outstanding.
+ */
+public final class FrameConnection implements Closeable {
+
+    private static final Logger log = Logger.getLogger(FrameConnection.class.getName());
+    private static final String NAME_READER_THREAD = "arquillian-daemon-frame-reader";
+
+    /**
+     * Upper bound on the payload of any response, each of which is held in memory; a test result carries its
+     * serialized cause of failure, so this is generous
+     */
+    private static final int MAX_RESPONSE_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+
+    private final DataInputStream frameInstream;
+    private final DataOutputStream frameOutstream;
+    private final AtomicInteger nextCorrelationId;
+    private final ConcurrentMap<Integer, Outstanding> outstanding;
+
+    /**
+     * Set once no further responses may be received; guarded by {@link FrameConnection#outstanding}
+     */
+    private IOException failure;
+
+    private FrameConnection(final InputStream socketInstream, final OutputStream socketOutstream) {
+        this.frameInstream = new DataInputStream(new BufferedInputStream(socketInstream));
+        this.frameOutstream = new DataOutputStream(new BufferedOutputStream(socketOutstream));
+        this.nextCorrelationId = new AtomicInteger();
+        this.outstanding = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a new {@link FrameConnection} over the specified streams of a socket which has already negotiated the
+     * framing mode, and starts reading responses from it
+     *
+     * @throws IllegalArgumentException
+     *     If either stream is not specified
+     */
+    public static FrameConnection open(final InputStream socketInstream, final OutputStream socketOutstream)
+        throws IllegalArgumentException {
+        if (socketInstream == null) {
+            throw new IllegalArgumentException("socket instream must be specified");
+        }
+        if (socketOutstream == null) {
+            throw new IllegalArgumentException("socket outstream must be specified");
+        }
+        final FrameConnection connection = new FrameConnection(socketInstream, socketOutstream);
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                connection.readResponses();
+            }
+        }, NAME_READER_THREAD);
+        reader.setDaemon(true);
+        reader.start();
+        return connection;
+    }
+
+    /**
+     * Sends a request with the specified opcode and payload, returning the {@link Future} response
+     *
+     * @throws IOException
+     *     If the request could not be sent
+     */
+    public Future<Frame> request(final byte opcode, final byte[] payload) throws IOException {
+        final ResponseFuture response = new ResponseFuture();
+        this.send(opcode, payload, response, false);
+        return response;
+    }
+
+    /**
+     * Sends a request with the specified opcode and payload, passing each response to the specified listener until
+     * (and including) a final {@link WireProtocol#OPCODE_RESPONSE_OK} or {@link WireProtocol#OPCODE_RESPONSE_ERROR}
+     *
+     * @throws IOException
+     *     If the request could not be sent
+     */
+    public void stream(final byte opcode, final byte[] payload, final FrameListener listener) throws IOException {
+        assert listener !=null :"Listener must be specified";
+        this.send(opcode, payload, listener, true);
+    }
+
+    /**
+     * Sends a request with the specified opcode and (optional) String payload, returning the {@link Future} response
+     *
+     * @throws IOException
+     *     If the request could not be sent
+     */
+    public Future<Frame> request(final byte opcode, final String payload) throws IOException {
+        return this.request(opcode, Frame.create(0, opcode, payload).getPayload());
+    }
+
+    /**
+     * Sends a request with the specified opcode whose payload is the contents of the specified file, streamed without
+     * being read into memory, returning the {@link Future} response
+     *
+     * @throws IOException
+     *     If the request could not be sent, or the file is too large to be sent in a single frame
+     */
+    public Future<Frame> request(final byte opcode, final File payload) throws IOException {
+        final long length = payload.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Payload of " + length + " bytes exceeds maximum frame length");
+        }
+        final ResponseFuture response = new ResponseFuture();
+        final int correlationId = this.register(response, false);
+        try {
+            synchronized (frameOutstream) {
+                Frame.writeHeader(frameOutstream, correlationId, opcode, (int) length);
+                Files.copy(payload.toPath(), frameOutstream);
+                frameOutstream.flush();
+            }
+        } catch (final IOException ioe) {
+            outstanding.remove(correlationId);
+            // Written in part, if at all; nothing more may follow it on this stream
+            this.fail(ioe);
+            throw ioe;
+        } catch (final RuntimeException re) {
+            outstanding.remove(correlationId);
+            throw re;
+        }
+        return response;
+    }
+
+    /**
+     * Blocks until the specified response is available, translating any failure to receive it into an
+     * {@link IOException}
+     *
+     * @throws IOException
+     */
+    public static Frame await(final Future<Frame> response) throws IOException {
+        try {
+            return response.get();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while awaiting response", ie);
+        } catch (final ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Could not receive response", cause);
+        }
+    }
+
+    /**
+     * Fails all outstanding requests, and any made hereafter
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        this.fail(new IOException("Connection closed"));
+    }
+
+    /**
+     * Returns whether requests may still be made over this connection; once it has failed (in reading a response or
+     * writing a request) or been closed, they may not
+     */
+    public boolean isUsable() {
+        synchronized (outstanding) {
+            return failure == null;
+        }
+    }
+
+    private void send(final byte opcode, final byte[] payload, final FrameListener listener, final boolean streaming)
+        throws IOException {
+        final int correlationId = this.register(listener, streaming);
+        try {
+            synchronized (frameOutstream) {
+                Frame.create(correlationId, opcode, payload).write(frameOutstream);
+                frameOutstream.flush();
+            }
+        } catch (final IOException ioe) {
+            outstanding.remove(correlationId);
+            // Written in part, if at all; nothing more may follow it on this stream
+            this.fail(ioe);
+            throw ioe;
+        } catch (final RuntimeException re) {
+            outstanding.remove(correlationId);
+            throw re;
+        }
+    }
+
+    private int register(final FrameListener listener, final boolean streaming) throws IOException {
+        final int correlationId = nextCorrelationId.incrementAndGet();
+        synchronized (outstanding) {
+            if (failure != null) {
+                throw new IOException("Connection is no longer usable", failure);
+            }
+            outstanding.put(correlationId, new Outstanding(listener, streaming));
+        }
+        return correlationId;
+    }
+
+    private void readResponses() {
+        try {
+            while (true) {
+                final Frame frame = Frame.read(frameInstream, MAX_RESPONSE_PAYLOAD_LENGTH);
+                final Outstanding request = outstanding.get(frame.getCorrelationId());
+                if (request == null) {
+                    if (log.isLoggable(Level.WARNING)) {
+                        log.warning("Received response to unknown request " + frame.getCorrelationId());
+                    }
+                    continue;
+                }
+                if (!request.streaming || frame.getOpcode() == WireProtocol.OPCODE_RESPONSE_OK
+                    || frame.getOpcode() == WireProtocol.OPCODE_RESPONSE_ERROR) {
+                    outstanding.remove(frame.getCorrelationId());
+                }
+                try {
+                    request.listener.received(frame);
+                } catch (final RuntimeException re) {
+                    // Don't let one listener stop responses reaching all the others
+                    if (log.isLoggable(Level.WARNING)) {
+                        log.log(Level.WARNING, "Listener failed to handle response to request "
+                            + frame.getCorrelationId(), re);
+                    }
+                }
+            }
+        } catch (final IOException ioe) {
+            if (log.isLoggable(Level.FINEST)) {
+                log.finest("Stopped reading responses: " + ioe.getMessage());
+            }
+            this.fail(ioe);
+        }
+    }
+
+    private void fail(final IOException cause) {
+        synchronized (outstanding) {
+            if (failure == null) {
+                failure = cause;
+            }
+            for (final Outstanding request : outstanding.values()) {
+                request.listener.failed(cause);
+            }
+            outstanding.clear();
+        }
+    }
+
+    /**
+     * Receives the responses to a request; called from the reader thread of the connection
+     */
+    public interface FrameListener {
+
+        /**
+         * Called with each response to the request
+         */
+        void received(Frame frame);
+
+        /**
+         * Called if the connection fails before the final response to the request is received
+         */
+        void failed(IOException cause);
+    }
+
+    /**
+     * A request awaiting its (final) response
+     */
+    private static final class Outstanding {
+
+        private final FrameListener listener;
+        private final boolean streaming;
+
+        Outstanding(final FrameListener listener, final boolean streaming) {
+            this.listener = listener;
+            this.streaming = streaming;
+        }
+    }
+
+    /**
+     * {@link Future} response to a single request, completed by the reader thread
+     */
+    private static final class ResponseFuture extends SettableFuture<Frame> implements FrameListener {
+
+        @Override
+        public void received(final Frame frame) {
+            this.complete(frame);
+        }
+
+        @Override
+        public void failed(final IOException cause) {
+            this.fail(cause);
+        }
+    }
+}
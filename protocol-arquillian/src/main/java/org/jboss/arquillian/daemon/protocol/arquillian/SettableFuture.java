@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link Future} completed from outside by whichever thread obtains its result, such as that reading responses from
+ * the server; only the first completion counts. Cannot be cancelled, as the server does the work regardless.
+ * Thread-safe.
+ */
+class SettableFuture<V> implements Future<V> {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /**
+     * Whether completed; guarded by this. The result is visible to those who await {@link SettableFuture#done}.
+     */
+    private boolean completed;
+    private V value;
+    private Throwable failure;
+
+    /**
+     * Completes this future with the specified value, returning whether it was not already complete
+     */
+    boolean complete(final V value) {
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+            this.value = value;
+        }
+        done.countDown();
+        return true;
+    }
+
+    /**
+     * Completes this future with the specified cause of failure, returning whether it was not already complete
+     */
+    boolean fail(final Throwable cause) {
+        assert cause !=null :"Cause must be specified";
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+            this.failure = cause;
+        }
+        done.countDown();
+        return true;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        done.await();
+        return this.result();
+    }
+
+    @Override
+    public V get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException,
+        TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return this.result();
+    }
+
+    private V result() throws ExecutionException {
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+}
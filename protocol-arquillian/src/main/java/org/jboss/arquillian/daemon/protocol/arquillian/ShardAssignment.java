@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each test class of a sharded deployment to one shard, for good, as it is first seen. A class goes to the
+ * shard with the least work assigned so far, ties going to the lowest index. The work of a class is its duration
+ * estimated by the {@link TestHistory}, if any, else the same for all classes. Classes of the deployment known to the
+ * history may be assigned up front, heaviest first, so that the longest classes are spread before the short ones fill
+ * in around them. Assigned work is kept in the {@link ShardUtilization} of each shard, which outlive the deployment, so
+ * that classes are spread across the shards even as each is deployed on its own; and it depends only on what was
+ * assigned before, never on what happens to be running at the time, so that classes whose tests are executed one
+ * after another are spread all the same. Thread-safe; assignments are made under the lock of the first shard's
+ * {@link ShardUtilization}, which all deployments across the same shards share.
+ */
+final class ShardAssignment {
+
+    /**
+     * Work assigned for each class in the absence of a history
+     */
+    private static final long UNIFORM_ESTIMATE = 1L;
+
+    private final List<ShardUtilization> utilizations;
+
+    /**
+     * Durations by which to weigh classes, if any
+     */
+    private final TestHistory history;
+
+    /**
+     * Index of the shard to which each class is assigned; guarded by the lock
+     */
+    private final Map<String, Integer> shardsByClass;
+
+    /**
+     * Creates a new instance assigning classes across the shards of the specified utilizations, weighed by the
+     * specified history if any
+     */
+    ShardAssignment(final List<ShardUtilization> utilizations, final TestHistory history) {
+        assert utilizations !=null && !utilizations.isEmpty() :"Utilizations must be specified";
+        this.utilizations = new ArrayList<>(utilizations);
+        this.history = history;
+        this.shardsByClass = new HashMap<>();
+    }
+
+    /**
+     * Assigns those of the specified classes known to the history, heaviest first, each to the shard with the least
+     * work assigned; the others are left to be assigned as they are first seen
+     */
+    void assignKnown(final Collection<String> classNames) {
+        assert classNames !=null :"Class names must be specified";
+        if (history == null) {
+            return;
+        }
+        final Map<String, Long> estimates = new HashMap<>();
+        for (final String className : classNames) {
+            if (history.isKnown(className)) {
+                estimates.put(className, history.estimate(className));
+            }
+        }
+        final List<String> heaviestFirst = new ArrayList<>(estimates.keySet());
+        Collections.sort(heaviestFirst, new Comparator<String>() {
+            @Override
+            public int compare(final String o1, final String o2) {
+                final int byEstimate = estimates.get(o2).compareTo(estimates.get(o1));
+                return byEstimate != 0 ? byEstimate : o1.compareTo(o2);
+            }
+        });
+        synchronized (this.getLock()) {
+            for (final String className : heaviestFirst) {
+                this.shardOf(className);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the shard to which tests of the specified class are sent, assigning the class to the shard
+     * with the least work assigned if it has none yet
+     */
+    int shardOf(final String className) {
+        assert className !=null :"Class name must be specified";
+        synchronized (this.getLock()) {
+            final Integer assigned = shardsByClass.get(className);
+            if (assigned != null) {
+                return assigned;
+            }
+            int leastLoaded = 0;
+            for (int i = 1; i < utilizations.size(); i++) {
+                if (utilizations.get(i).getAssignedLoad() < utilizations.get(leastLoaded).getAssignedLoad()) {
+                    leastLoaded = i;
+                }
+            }
+            return this.assign(className, leastLoaded);
+        }
+    }
+
+    /**
+     * Assigns the specified class to the specified shard, unless it is assigned already, returning the shard to which
+     * it is assigned
+     */
+    int assign(final String className, final int shard) {
+        assert className !=null :"Class name must be specified";
+        assert shard >= 0 && shard < utilizations.size() :"No shard " + shard;
+        synchronized (this.getLock()) {
+            final Integer assigned = shardsByClass.get(className);
+            if (assigned != null) {
+                return assigned;
+            }
+            shardsByClass.put(className, shard);
+            utilizations.get(shard).assign(history != null ? history.estimate(className) : UNIFORM_ESTIMATE);
+            return shard;
+        }
+    }
+
+    private Object getLock() {
+        return utilizations.get(0);
+    }
+}
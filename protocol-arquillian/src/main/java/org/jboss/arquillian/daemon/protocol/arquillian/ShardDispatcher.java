@@ -0,0 +1,277 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.arquillian.test.spi.TestMethodExecutor;
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * Dispatches the tests of a sharded deployment across the daemons holding it. All tests of a test class are executed
+ * by the same daemon, so that any state the class keeps between its tests is found where it is expected. A class not
+ * seen before is assigned by a {@link ShardAssignment} to the daemon with the least work assigned so far, across all
+ * deployments to the same daemons, so that classes are spread across the daemons even as Arquillian deploys each on its
+ * own and executes its tests one at a time. A batch is split by class into a queue from which each daemon takes the
+ * next class as soon as it has finished its last, so that no daemon idles while another has work waiting. Given a
+ * {@link TestHistory}, classes are weighed by their recorded durations, those of the deployment known to it are
+ * assigned heaviest first, and the queue is ordered longest class first, so that the slowest classes start early and
+ * the short ones fill in around them; the duration of each test is recorded there. Thread-safe.
+ */
+final class ShardDispatcher {
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "Arquillian Daemon Shard Worker");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final List<DaemonMethodExecutor> executors;
+    private final List<ShardUtilization> utilizations;
+
+    /**
+     * Durations by which to order batches and into which to record results, if any
+     */
+    private final TestHistory history;
+
+    /**
+     * Shard to which the tests of each class are sent
+     */
+    private final ShardAssignment assignment;
+
+    ShardDispatcher(final List<DeploymentContext> shards, final List<ShardUtilization> utilizations,
+        final TestHistory history, final Collection<String> classNames) {
+        assert shards !=null && !shards.isEmpty() :"Shards must be specified";
+        assert utilizations !=null && utilizations.size() == shards.size() :"One utilization per shard required";
+        final List<DaemonMethodExecutor> executors = new ArrayList<>(shards.size());
+        for (final DeploymentContext shard : shards) {
+            executors.add(new DaemonMethodExecutor(shard));
+        }
+        this.executors = executors;
+        this.utilizations = new ArrayList<>(utilizations);
+        this.history = history;
+        this.assignment = new ShardAssignment(utilizations, history);
+        this.assignment.assignKnown(classNames);
+    }
+
+    /**
+     * Executes the specified test on the shard of its class, blocking until it completes
+     */
+    TestResult invoke(final TestMethodExecutor testMethodExecutor) {
+        final int shard = assignment.shardOf(testMethodExecutor.getInstance().getClass().getName());
+        return this.completed(shard, testMethodExecutor, executors.get(shard).invoke(testMethodExecutor));
+    }
+
+    /**
+     * Requests execution of the specified test on the shard of its class, without waiting for it to complete; the
+     * result is counted once obtained from the returned {@link Future}
+     */
+    Future<TestResult> invokeAsync(final TestMethodExecutor testMethodExecutor) {
+        final int shard = assignment.shardOf(testMethodExecutor.getInstance().getClass().getName());
+        return new ShardResultFuture(shard, testMethodExecutor, executors.get(shard).invokeAsync(testMethodExecutor));
+    }
+
+    /**
+     * Executes the specified tests across all shards, each class being taken from a shared queue by the next shard
+     * to become free and sent to it as a batch of its own, longest class first where known. Returns without waiting;
+     * each {@link Future} in the returned list (in the same order as the tests) completes as its result arrives.
+     */
+    List<Future<TestResult>> invokeBatch(final List<TestMethodExecutor> testMethodExecutors, final boolean parallel) {
+        final List<SettableFuture<TestResult>> results = new ArrayList<>(testMethodExecutors.size());
+        final Map<String, List<Integer>> indicesByClass = new LinkedHashMap<>();
+        for (int i = 0; i < testMethodExecutors.size(); i++) {
+            results.add(new SettableFuture<TestResult>());
+            final String className = testMethodExecutors.get(i).getInstance().getClass().getName();
+            List<Integer> indices = indicesByClass.get(className);
+            if (indices == null) {
+                indices = new ArrayList<>();
+                indicesByClass.put(className, indices);
+            }
+            indices.add(i);
+        }
+        final List<Map.Entry<String, List<Integer>>> ordered = new ArrayList<>(indicesByClass.entrySet());
+        if (history != null) {
+            this.sortLongestFirst(ordered, testMethodExecutors);
+        }
+        final Queue<Map.Entry<String, List<Integer>>> classes = new ConcurrentLinkedQueue<>(ordered);
+        final int workers = Math.min(executors.size(), indicesByClass.size());
+        for (int shard = 0; shard < workers; shard++) {
+            final int worker = shard;
+            WORKERS.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ShardDispatcher.this.drain(worker, classes, testMethodExecutors, results, parallel);
+                }
+            });
+        }
+        return new ArrayList<Future<TestResult>>(results);
+    }
+
+    /**
+     * Sends the tests of one class after another from the queue to the specified shard, each once the last has
+     * completed, until the queue is empty
+     */
+    private void drain(final int shard, final Queue<Map.Entry<String, List<Integer>>> classes,
+        final List<TestMethodExecutor> testMethodExecutors, final List<SettableFuture<TestResult>> results,
+        final boolean parallel) {
+        Map.Entry<String, List<Integer>> next;
+        while ((next = classes.poll()) != null) {
+            assignment.assign(next.getKey(), shard);
+            final List<Integer> indices = next.getValue();
+            final List<TestMethodExecutor> batch = new ArrayList<>(indices.size());
+            for (final Integer index : indices) {
+                batch.add(testMethodExecutors.get(index));
+            }
+            try {
+                final List<Future<TestResult>> batchResults = executors.get(shard).invokeBatch(batch, parallel);
+                for (int i = 0; i < indices.size(); i++) {
+                    final SettableFuture<TestResult> result = results.get(indices.get(i));
+                    try {
+                        result.complete(this.completed(shard, testMethodExecutors.get(indices.get(i)),
+                            batchResults.get(i).get()));
+                    } catch (final ExecutionException ee) {
+                        result.fail(ee.getCause());
+                    }
+                }
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                failRemaining(indices, results, ie);
+                return;
+            } catch (final RuntimeException re) {
+                // This shard is unusable; leave the rest of the queue to the others
+                failRemaining(indices, results, re);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Orders the specified classes of a batch by their estimated duration, longest first; classes of equal estimate,
+     * as all are when none has run before, keep their order
+     */
+    private void sortLongestFirst(final List<Map.Entry<String, List<Integer>>> classes,
+        final List<TestMethodExecutor> testMethodExecutors) {
+        final Map<String, Long> estimates = new LinkedHashMap<>();
+        for (final Map.Entry<String, List<Integer>> testClass : classes) {
+            final List<String> methodNames = new ArrayList<>(testClass.getValue().size());
+            for (final Integer index : testClass.getValue()) {
+                methodNames.add(testMethodExecutors.get(index).getMethod().getName());
+            }
+            estimates.put(testClass.getKey(), history.estimate(testClass.getKey(), methodNames));
+        }
+        Collections.sort(classes, new Comparator<Map.Entry<String, List<Integer>>>() {
+            @Override
+            public int compare(final Map.Entry<String, List<Integer>> o1, final Map.Entry<String, List<Integer>> o2) {
+                return estimates.get(o2.getKey()).compareTo(estimates.get(o1.getKey()));
+            }
+        });
+    }
+
+    /**
+     * Counts the specified result of a test executed by the specified shard, and records its duration in the history
+     * if there is one
+     */
+    private TestResult completed(final int shard, final TestMethodExecutor testMethodExecutor,
+        final TestResult testResult) {
+        utilizations.get(shard).record(testResult);
+        if (history != null && testResult.getStart() > 0 && testResult.getEnd() > 0) {
+            history.record(testMethodExecutor.getInstance().getClass().getName(), testMethodExecutor.getMethod()
+                .getName(), testResult.getEnd() - testResult.getStart());
+        }
+        return testResult;
+    }
+
+    private static void failRemaining(final List<Integer> indices, final List<SettableFuture<TestResult>> results,
+        final Throwable cause) {
+        for (final Integer index : indices) {
+            results.get(index).fail(cause);
+        }
+    }
+
+    /**
+     * Tallies the result of a test sent to a shard once it is obtained
+     */
+    private final class ShardResultFuture implements Future<TestResult> {
+
+        private final int shard;
+        private final TestMethodExecutor testMethodExecutor;
+        private final Future<TestResult> result;
+        private boolean tallied;
+
+        ShardResultFuture(final int shard, final TestMethodExecutor testMethodExecutor,
+            final Future<TestResult> result) {
+            this.shard = shard;
+            this.testMethodExecutor = testMethodExecutor;
+            this.result = result;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return result.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        @Override
+        public TestResult get() throws InterruptedException, ExecutionException {
+            return this.tally(result.get());
+        }
+
+        @Override
+        public TestResult get(final long timeout, final TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+            return this.tally(result.get(timeout, unit));
+        }
+
+        /**
+         * Counts the result of the test, once only
+         */
+        private synchronized TestResult tally(final TestResult testResult) {
+            if (!tallied) {
+                tallied = true;
+                ShardDispatcher.this.completed(shard, testMethodExecutor, testResult);
+            }
+            return testResult;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * Tally of the tests one of several daemons has executed, across which the tests of each deployment are sharded (see
+ * {@link DeploymentContext#createSharded(java.util.List, java.util.List)}), and the time it spent executing them as
+ * reported in their {@link TestResult}s. Also keeps the estimated work assigned to the daemon so far, which lasts across
+ * deployments, so that the test classes of successive deployments are spread across the daemons. Thread-safe.
+ */
+public final class ShardUtilization {
+
+    private final String name;
+    private final AtomicInteger testCount = new AtomicInteger();
+    private final AtomicLong busyMillis = new AtomicLong();
+    private final AtomicLong assignedLoad = new AtomicLong();
+
+    /**
+     * Creates a new, empty tally for the daemon of the specified name
+     *
+     * @throws IllegalArgumentException
+     *     If the name is not specified
+     */
+    public ShardUtilization(final String name) throws IllegalArgumentException {
+        if (name == null || name.length() == 0) {
+            throw new IllegalArgumentException("name must be specified");
+        }
+        this.name = name;
+    }
+
+    void record(final TestResult testResult) {
+        testCount.incrementAndGet();
+        final long duration = testResult.getEnd() - testResult.getStart();
+        if (duration > 0) {
+            busyMillis.addAndGet(duration);
+        }
+    }
+
+    /**
+     * Notes a test class assigned to this daemon, of the specified estimated work
+     */
+    void assign(final long estimate) {
+        assignedLoad.addAndGet(estimate);
+    }
+
+    /**
+     * Returns the estimated work assigned to this daemon so far
+     */
+    long getAssignedLoad() {
+        return assignedLoad.get();
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of tests whose results have been received from this daemon
+     */
+    public int getTestCount() {
+        return testCount.get();
+    }
+
+    /**
+     * Returns the total time, in milliseconds, this daemon spent executing the tests counted
+     */
+    public long getBusyMillis() {
+        return busyMillis.get();
+    }
+}
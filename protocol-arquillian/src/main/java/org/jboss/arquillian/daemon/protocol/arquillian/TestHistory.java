@@ -0,0 +1,233 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Durations of test methods as observed in earlier runs, kept in a local properties file keyed by
+ * <code>class#method</code>, by which the tests of sharded deployments are scheduled longest-first. Each observation
+ * is averaged with the duration already known, so that one slow run does not upset the schedule. Tests not seen before
+ * are estimated from the other methods of their class, else from all known methods. Thread-safe.
+ */
+public final class TestHistory {
+
+    private static final Logger log = Logger.getLogger(TestHistory.class.getName());
+    private static final char SEPARATOR_METHOD = '#';
+    private static final String SUFFIX_TEMP_FILE = ".tmp";
+    private static final String COMMENT = "Arquillian Daemon test durations, in milliseconds";
+
+    /**
+     * Estimate of a test method when nothing at all is known
+     */
+    private static final long DEFAULT_MILLIS = 1L;
+
+    private final File file;
+
+    /**
+     * Milliseconds, keyed by <code>class#method</code>
+     */
+    private final ConcurrentMap<String, Long> durations;
+
+    private TestHistory(final File file, final Map<String, Long> durations) {
+        this.file = file;
+        this.durations = new ConcurrentHashMap<>(durations);
+    }
+
+    /**
+     * Loads the history kept in the specified file, which need not exist yet; a file which cannot be read is logged
+     * and treated as empty
+     *
+     * @throws IllegalArgumentException
+     *     If the file is not specified
+     */
+    public static TestHistory load(final File file) throws IllegalArgumentException {
+        if (file == null) {
+            throw new IllegalArgumentException("file must be specified");
+        }
+        final Map<String, Long> durations = new ConcurrentHashMap<>();
+        if (file.isFile()) {
+            final Properties properties = new Properties();
+            try {
+                final InputStream in = new FileInputStream(file);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException | IllegalArgumentException e) {
+                // Malformed escapes are reported as the latter, once the entries before them have been loaded
+                log.log(Level.WARNING, "Could not read test history " + file.getAbsolutePath() + "; starting afresh",
+                    e);
+                properties.clear();
+            }
+            for (final String key : properties.stringPropertyNames()) {
+                try {
+                    durations.put(key, Long.valueOf(properties.getProperty(key)));
+                } catch (final NumberFormatException nfe) {
+                    // Ignore the entry; it will be replaced once the test runs again
+                }
+            }
+        }
+        return new TestHistory(file, durations);
+    }
+
+    /**
+     * Writes this history to its file, replacing its previous contents
+     *
+     * @throws IOException
+     *     If the file could not be written
+     */
+    public void save() throws IOException {
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Long> duration : durations.entrySet()) {
+            properties.setProperty(duration.getKey(), duration.getValue().toString());
+        }
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent.getAbsolutePath());
+        }
+        // Write aside and move into place, so that a concurrent load never sees half a file
+        final File temp = new File(file.getAbsolutePath() + SUFFIX_TEMP_FILE);
+        final OutputStream out = new FileOutputStream(temp);
+        try {
+            properties.store(out, COMMENT);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Could not move " + temp.getAbsolutePath() + " to " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Notes that the specified test method took the specified time
+     */
+    void record(final String className, final String methodName, final long millis) {
+        assert className !=null :"Class name must be specified";
+        assert methodName !=null :"Method name must be specified";
+        if (millis < 0) {
+            return;
+        }
+        final String key = className + SEPARATOR_METHOD + methodName;
+        while (true) {
+            final Long known = durations.putIfAbsent(key, millis);
+            if (known == null || durations.replace(key, known, (known + millis) / 2)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether any test method of the specified class has been recorded
+     */
+    boolean isKnown(final String className) {
+        assert className !=null :"Class name must be specified";
+        return !this.getMethodNames(className).isEmpty();
+    }
+
+    /**
+     * Returns the estimated time, in milliseconds, to run all the known test methods of the specified class; a class
+     * not seen before is estimated as the mean of all known classes
+     */
+    long estimate(final String className) {
+        assert className !=null :"Class name must be specified";
+        final List<String> methodNames = this.getMethodNames(className);
+        if (!methodNames.isEmpty()) {
+            return this.estimate(className, methodNames);
+        }
+        final Map<String, Long> classTotals = new HashMap<>();
+        for (final Map.Entry<String, Long> duration : durations.entrySet()) {
+            final int separator = duration.getKey().lastIndexOf(SEPARATOR_METHOD);
+            if (separator > 0) {
+                final String knownClass = duration.getKey().substring(0, separator);
+                final Long total = classTotals.get(knownClass);
+                classTotals.put(knownClass, (total != null ? total : 0L) + duration.getValue());
+            }
+        }
+        if (classTotals.isEmpty()) {
+            return DEFAULT_MILLIS;
+        }
+        long allTotal = 0;
+        for (final Long total : classTotals.values()) {
+            allTotal += total;
+        }
+        return allTotal / classTotals.size();
+    }
+
+    /**
+     * Returns the estimated time, in milliseconds, to run the specified test methods of the specified class
+     */
+    long estimate(final String className, final Collection<String> methodNames) {
+        assert className !=null :"Class name must be specified";
+        assert methodNames !=null :"Method names must be specified";
+        final String prefix = className + SEPARATOR_METHOD;
+        long classTotal = 0;
+        int classCount = 0;
+        long allTotal = 0;
+        int allCount = 0;
+        for (final Map.Entry<String, Long> duration : durations.entrySet()) {
+            allTotal += duration.getValue();
+            allCount++;
+            if (duration.getKey().startsWith(prefix)) {
+                classTotal += duration.getValue();
+                classCount++;
+            }
+        }
+        final long unseen = classCount > 0 ? classTotal / classCount : allCount > 0 ? allTotal / allCount
+            : DEFAULT_MILLIS;
+        long estimate = 0;
+        for (final String methodName : methodNames) {
+            final Long known = durations.get(prefix + methodName);
+            estimate += known != null ? known : unseen;
+        }
+        return estimate;
+    }
+
+    private List<String> getMethodNames(final String className) {
+        final String prefix = className + SEPARATOR_METHOD;
+        final List<String> methodNames = new ArrayList<>();
+        for (final String key : durations.keySet()) {
+            if (key.startsWith(prefix)) {
+                methodNames.add(key.substring(prefix.length()));
+            }
+        }
+        return methodNames;
+    }
+}
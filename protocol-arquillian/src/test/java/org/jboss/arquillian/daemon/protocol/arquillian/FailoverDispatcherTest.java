@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.arquillian.test.spi.TestMethodExecutor;
+import org.jboss.arquillian.test.spi.TestResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Ensures the {@link FailoverDispatcher} moves a deployment to another daemon once the connection to its own is lost,
+ * just once for any number of requests lost together, and passes on failures over a connection still usable
+ */
+public class FailoverDispatcherTest {
+
+    private static final String DEPLOYMENT_NAME = "failover.jar";
+    private static final long MILLIS_TIMEOUT = 10000;
+
+    private FakeDaemon first;
+    private FakeDaemon second;
+    private final AtomicInteger redeploys = new AtomicInteger();
+    private DaemonMethodExecutor executor;
+
+    @Before
+    public void deploy() throws IOException {
+        first = FakeDaemon.start();
+        second = FakeDaemon.start();
+        executor = new DaemonMethodExecutor(DeploymentContext.createFailover(first.connect(DEPLOYMENT_NAME),
+            new DeploymentFailover() {
+                @Override
+                public DeploymentContext redeploy(final DeploymentContext lost) throws IOException {
+                    redeploys.incrementAndGet();
+                    return second.connect(lost.getName());
+                }
+            }));
+    }
+
+    @After
+    public void stopDaemons() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void lostConnectionMovesDeployment() {
+        final Tests tests = new Tests();
+        invoke(tests, "a");
+        first.close();
+        invoke(tests, "b");
+        invoke(tests, "c");
+        Assert.assertEquals(1, redeploys.get());
+        Assert.assertEquals(Arrays.asList(name("a")), first.getTests());
+        Assert.assertEquals(Arrays.asList(name("b"), name("c")), second.getTests());
+    }
+
+    @Test
+    public void requestsLostTogetherMoveDeploymentOnce() throws Exception {
+        final Tests tests = new Tests();
+        first.holdResults();
+        final List<Future<TestResult>> results = new ArrayList<>();
+        for (final String methodName : Arrays.asList("a", "b", "c")) {
+            results.add(executor.invokeAsync(FakeDaemon.test(tests, methodName)));
+        }
+        final long deadline = System.currentTimeMillis() + MILLIS_TIMEOUT;
+        while (first.getTests().size() < results.size()) {
+            Assert.assertTrue("Tests never reached the first daemon", System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        first.close();
+        for (final Future<TestResult> result : results) {
+            Assert.assertEquals(TestResult.Status.PASSED, result.get().getStatus());
+        }
+        Assert.assertEquals("Deployment should move once for requests lost together", 1, redeploys.get());
+        Assert.assertEquals(3, second.getTests().size());
+        Assert.assertTrue(second.getTests().containsAll(Arrays.asList(name("a"), name("b"), name("c"))));
+    }
+
+    @Test
+    public void failureOverUsableConnectionIsPassedOn() {
+        first.rejectTests();
+        final TestMethodExecutor test = FakeDaemon.test(new Tests(), "a");
+        try {
+            executor.invoke(test);
+            Assert.fail("Rejected test should fail");
+        } catch (final RuntimeException re) {
+            // Expected
+        }
+        Assert.assertEquals("Deployment should stay put while its connection is usable", 0, redeploys.get());
+        Assert.assertEquals(Arrays.asList(name("a")), first.getTests());
+        Assert.assertTrue(second.getTests().isEmpty());
+    }
+
+    private void invoke(final Object instance, final String methodName) {
+        Assert.assertEquals(TestResult.Status.PASSED, executor.invoke(FakeDaemon.test(instance, methodName))
+            .getStatus());
+    }
+
+    private static String name(final String methodName) {
+        return Tests.class.getName() + "#" + methodName;
+    }
+
+    public static class Tests {
+        public void a() {
+        }
+
+        public void b() {
+        }
+
+        public void c() {
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.jboss.arquillian.test.spi.TestMethodExecutor;
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * Stands in for a daemon speaking the framed wire protocol on a local port, passing every test it is asked to run
+ * and noting which (as <code>class#method</code>) and how many requests they came in. May be told to hold back or
+ * reject the results of single tests.
+ */
+final class FakeDaemon implements Closeable {
+
+    private static final char SEPARATOR_METHOD = '#';
+    private static final int MAX_REQUEST_PAYLOAD_LENGTH = 64 * 1024;
+
+    private final ServerSocket serverSocket;
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private final List<String> tests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean holding;
+    private volatile boolean rejecting;
+
+    private FakeDaemon(final ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+    }
+
+    /**
+     * Starts a new {@link FakeDaemon} on a free local port
+     */
+    static FakeDaemon start() throws IOException {
+        final FakeDaemon daemon = new FakeDaemon(new ServerSocket(0, 0, InetAddress.getLoopbackAddress()));
+        final Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                daemon.accept();
+            }
+        }, "Fake Daemon Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return daemon;
+    }
+
+    /**
+     * Connects to this daemon, returning a framed context for the deployment of the specified name
+     */
+    DeploymentContext connect(final String deploymentName) throws IOException {
+        final Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        sockets.add(socket);
+        return DeploymentContext.createFramed(deploymentName, FrameConnection.open(socket.getInputStream(),
+            socket.getOutputStream()));
+    }
+
+    /**
+     * Creates a {@link TestMethodExecutor} for the named no-argument method of the specified test instance
+     */
+    static TestMethodExecutor test(final Object instance, final String methodName) {
+        final Method method;
+        try {
+            method = instance.getClass().getMethod(methodName);
+        } catch (final NoSuchMethodException nsme) {
+            throw new IllegalArgumentException(nsme);
+        }
+        return new TestMethodExecutor() {
+            @Override
+            public Method getMethod() {
+                return method;
+            }
+
+            @Override
+            public Object getInstance() {
+                return instance;
+            }
+
+            @Override
+            public void invoke(final Object... parameters) throws Throwable {
+                method.invoke(instance, parameters);
+            }
+        };
+    }
+
+    /**
+     * Stops answering single tests, still noting them, so that they remain outstanding until this daemon is closed
+     */
+    void holdResults() {
+        holding = true;
+    }
+
+    /**
+     * Answers every single test hereafter with an error, as a daemon does which cannot run it; the connection remains
+     * usable
+     */
+    void rejectTests() {
+        rejecting = true;
+    }
+
+    /**
+     * Returns the tests run so far, as <code>class#method</code>, in the order they were received
+     */
+    List<String> getTests() {
+        return new ArrayList<>(tests);
+    }
+
+    /**
+     * Returns the number of requests received, counting each batch as one
+     */
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(serverSocket);
+        for (final Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (final IOException ioe) {
+                return;
+            }
+            sockets.add(socket);
+            final Thread server = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    FakeDaemon.this.serve(socket);
+                }
+            }, "Fake Daemon Connection");
+            server.setDaemon(true);
+            server.start();
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                final Frame request = Frame.read(in, MAX_REQUEST_PAYLOAD_LENGTH);
+                final DataInputStream arguments = new DataInputStream(new ByteArrayInputStream(request.getPayload()));
+                requests.incrementAndGet();
+                switch (request.getOpcode()) {
+                    case WireProtocol.OPCODE_TEST:
+                        arguments.readUTF();
+                        this.run(arguments.readUTF(), arguments.readUTF());
+                        if (rejecting) {
+                            Frame.create(request.getCorrelationId(), WireProtocol.OPCODE_RESPONSE_ERROR,
+                                "Rejected by fake daemon").write(out);
+                        } else if (!holding) {
+                            Frame.create(request.getCorrelationId(), WireProtocol.OPCODE_RESPONSE_TEST_RESULT,
+                                passed(null)).write(out);
+                        }
+                        break;
+                    case WireProtocol.OPCODE_TEST_BATCH:
+                        arguments.readUTF();
+                        arguments.readBoolean();
+                        final int size = arguments.readInt();
+                        for (int i = 0; i < size; i++) {
+                            this.run(arguments.readUTF(), arguments.readUTF());
+                            Frame.create(request.getCorrelationId(), WireProtocol.OPCODE_RESPONSE_BATCH_RESULT,
+                                passed(i)).write(out);
+                        }
+                        Frame.create(request.getCorrelationId(), WireProtocol.OPCODE_RESPONSE_OK, (String) null).write(
+                            out);
+                        break;
+                    default:
+                        Frame.create(request.getCorrelationId(), WireProtocol.OPCODE_RESPONSE_ERROR,
+                            "Unsupported opcode " + request.getOpcode()).write(out);
+                }
+                out.flush();
+            }
+        } catch (final IOException ioe) {
+            // Connection closed
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Notes the specified test run
+     */
+    private void run(final String className, final String methodName) {
+        tests.add(className + SEPARATOR_METHOD + methodName);
+    }
+
+    /**
+     * Encodes a passed test result, preceded by the specified batch index if any
+     */
+    private static byte[] passed(final Integer index) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        if (index != null) {
+            out.writeInt(index);
+        }
+        final long now = System.currentTimeMillis();
+        CompactTestResult.create(TestResult.Status.PASSED.name(), now, now + 1, null).write(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (final IOException ioe) {
+            // Nothing more to do
+        }
+    }
+}
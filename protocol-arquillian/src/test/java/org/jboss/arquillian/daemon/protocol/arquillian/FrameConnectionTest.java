@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures the {@link FrameConnection} gives up on a server announcing a response larger than it will hold
+ */
+public class FrameConnectionTest {
+
+    private static final long MILLIS_TIMEOUT = 10000;
+
+    @Test
+    public void oversizedResponseFailsConnection() throws Exception {
+        final PipedOutputStream server = new PipedOutputStream();
+        final FrameConnection connection = FrameConnection.open(new PipedInputStream(server),
+            new ByteArrayOutputStream());
+        try {
+            final Future<Frame> response = connection.request(WireProtocol.OPCODE_LOAD, (String) null);
+            final DataOutputStream serverOutstream = new DataOutputStream(server);
+            Frame.writeHeader(serverOutstream, 1, WireProtocol.OPCODE_RESPONSE_LOAD, Integer.MAX_VALUE);
+            serverOutstream.flush();
+            try {
+                response.get(MILLIS_TIMEOUT, TimeUnit.MILLISECONDS);
+                Assert.fail("Oversized response should fail the request");
+            } catch (final ExecutionException ee) {
+                Assert.assertTrue(ee.getCause() instanceof IOException);
+            }
+            Assert.assertFalse(connection.isUsable());
+        } finally {
+            connection.close();
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.jboss.arquillian.test.spi.TestMethodExecutor;
+import org.jboss.arquillian.test.spi.TestResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Ensures the {@link ShardDispatcher} spreads test classes across the daemons of a sharded deployment, keeping the
+ * tests of each class together
+ */
+public class ShardDispatcherTest {
+
+    private FakeDaemon first;
+    private FakeDaemon second;
+    private List<ShardUtilization> utilizations;
+
+    @Before
+    public void startDaemons() throws IOException {
+        first = FakeDaemon.start();
+        second = FakeDaemon.start();
+        utilizations = Arrays.asList(new ShardUtilization("first"), new ShardUtilization("second"));
+    }
+
+    @After
+    public void stopDaemons() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void classesExecutedInTurnLandOnDifferentDaemons() throws IOException {
+        final DaemonMethodExecutor executor = this.deploy("sharded.jar");
+        final One one = new One();
+        invoke(executor, one, "a");
+        invoke(executor, one, "b");
+        invoke(executor, new Two(), "a");
+        invoke(executor, one, "c");
+        invoke(executor, new Three(), "a");
+        Assert.assertEquals(Arrays.asList(name(One.class, "a"), name(One.class, "b"), name(One.class, "c"),
+            name(Three.class, "a")), first.getTests());
+        Assert.assertEquals(Arrays.asList(name(Two.class, "a")), second.getTests());
+        Assert.assertEquals(4, utilizations.get(0).getTestCount());
+        Assert.assertEquals(1, utilizations.get(1).getTestCount());
+    }
+
+    @Test
+    public void classesOfSuccessiveDeploymentsLandOnDifferentDaemons() throws IOException {
+        invoke(this.deploy("one.jar"), new One(), "a");
+        invoke(this.deploy("two.jar"), new Two(), "a");
+        invoke(this.deploy("three.jar"), new Three(), "a");
+        Assert.assertEquals(Arrays.asList(name(One.class, "a"), name(Three.class, "a")), first.getTests());
+        Assert.assertEquals(Arrays.asList(name(Two.class, "a")), second.getTests());
+    }
+
+    @Test
+    public void batchIsSentOneClassPerRequest() throws IOException, InterruptedException, ExecutionException {
+        final One one = new One();
+        final List<TestMethodExecutor> batch = Arrays.asList(FakeDaemon.test(one, "a"), FakeDaemon.test(one, "b"),
+            FakeDaemon.test(new Two(), "a"), FakeDaemon.test(one, "c"), FakeDaemon.test(new Three(), "a"));
+        for (final Future<TestResult> result : this.deploy("sharded.jar").invokeBatch(batch, false)) {
+            Assert.assertEquals(TestResult.Status.PASSED, result.get().getStatus());
+        }
+        Assert.assertEquals(3, first.getRequestCount() + second.getRequestCount());
+        final List<String> tests = new ArrayList<>(first.getTests());
+        tests.addAll(second.getTests());
+        Assert.assertEquals(5, tests.size());
+        final List<String> oneTests = Arrays.asList(name(One.class, "a"), name(One.class, "b"), name(One.class, "c"));
+        Assert.assertTrue("Tests of one class split across daemons", first.getTests().containsAll(oneTests)
+            || second.getTests().containsAll(oneTests));
+    }
+
+    @Test
+    public void invokedTestsAreRecorded() throws IOException {
+        final File file = File.createTempFile("history", ".properties");
+        try {
+            Assert.assertTrue(file.delete());
+            final TestHistory history = TestHistory.load(file);
+            final DaemonMethodExecutor executor = this.deploy("recorded.jar", history);
+            invoke(executor, new One(), "a");
+            invoke(executor, new Two(), "a");
+            Assert.assertTrue(history.isKnown(One.class.getName()));
+            Assert.assertTrue(history.isKnown(Two.class.getName()));
+            Assert.assertFalse(history.isKnown(Three.class.getName()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void classesAreSpreadByRecordedDuration() throws IOException {
+        final File file = File.createTempFile("history", ".properties");
+        try {
+            final TestHistory history = TestHistory.load(file);
+            history.record(Three.class.getName(), "a", 1000);
+            history.record(One.class.getName(), "a", 10);
+            // Two is estimated as the mean of the known classes, so it joins the lighter daemon
+            final DaemonMethodExecutor executor = this.deploy("weighed.jar", history);
+            invoke(executor, new Three(), "a");
+            invoke(executor, new One(), "a");
+            invoke(executor, new Two(), "a");
+            Assert.assertEquals(Arrays.asList(name(Three.class, "a")), first.getTests());
+            Assert.assertEquals(Arrays.asList(name(One.class, "a"), name(Two.class, "a")), second.getTests());
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void knownClassesAreAssignedHeaviestFirst() throws IOException {
+        final File file = File.createTempFile("history", ".properties");
+        try {
+            final TestHistory history = TestHistory.load(file);
+            history.record(One.class.getName(), "a", 10);
+            history.record(One.class.getName(), "b", 10);
+            history.record(Two.class.getName(), "a", 10);
+            history.record(Three.class.getName(), "a", 1000);
+            // Executed in turn, One and Two would take a daemon each, and Three would join one of them
+            final DaemonMethodExecutor executor = this.deploy("planned.jar", history, One.class, Two.class,
+                Three.class);
+            final One one = new One();
+            invoke(executor, one, "a");
+            invoke(executor, new Two(), "a");
+            invoke(executor, new Three(), "a");
+            invoke(executor, one, "b");
+            Assert.assertEquals(Arrays.asList(name(Three.class, "a")), first.getTests());
+            Assert.assertEquals(Arrays.asList(name(One.class, "a"), name(Two.class, "a"), name(One.class, "b")),
+                second.getTests());
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void batchIsSentLongestClassFirst() throws IOException, InterruptedException, ExecutionException {
+        final File file = File.createTempFile("history", ".properties");
+        try {
+            final TestHistory history = TestHistory.load(file);
+            history.record(Three.class.getName(), "a", 1000);
+            history.record(One.class.getName(), "a", 10);
+            history.save();
+            // One: 10 known and 2 x 10 estimated from its class; Two: 505 estimated from all known
+            this.invokeBatchOnFirst(TestHistory.load(file));
+            Assert.assertEquals(Arrays.asList(name(Three.class, "a"), name(Two.class, "a"), name(One.class, "a"),
+                name(One.class, "b"), name(One.class, "c")), first.getTests());
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void batchKeepsItsOrderWithoutHistory() throws IOException, InterruptedException, ExecutionException {
+        final File file = File.createTempFile("history", ".properties");
+        try {
+            Assert.assertTrue(file.delete());
+            final TestHistory missing = TestHistory.load(file);
+            this.invokeBatchOnFirst(missing);
+            Files.write(file.toPath(), (name(Three.class, "a") + "=\\uZZZZ\n").getBytes("ISO-8859-1"));
+            this.invokeBatchOnFirst(TestHistory.load(file));
+            final List<String> inOrder = Arrays.asList(name(One.class, "a"), name(One.class, "b"), name(One.class, "c"),
+                name(Two.class, "a"), name(Three.class, "a"));
+            final List<String> twice = new ArrayList<>(inOrder);
+            twice.addAll(inOrder);
+            Assert.assertEquals(twice, first.getTests());
+            // The durations of the first batch were recorded
+            Assert.assertEquals(1, missing.estimate(Three.class.getName(), Arrays.asList("a")));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Executes a batch of the tests of all classes, in declaration order, as a sharded deployment to the first daemon
+     * alone, scheduled by the specified history
+     */
+    private void invokeBatchOnFirst(final TestHistory history) throws IOException, InterruptedException,
+        ExecutionException {
+        final One one = new One();
+        final List<TestMethodExecutor> batch = Arrays.asList(FakeDaemon.test(one, "a"), FakeDaemon.test(one, "b"),
+            FakeDaemon.test(one, "c"), FakeDaemon.test(new Two(), "a"), FakeDaemon.test(new Three(), "a"));
+        final DaemonMethodExecutor executor = new DaemonMethodExecutor(DeploymentContext.createSharded(Arrays
+            .asList(first.connect("history.jar")), utilizations.subList(0, 1), history));
+        for (final Future<TestResult> result : executor.invokeBatch(batch, false)) {
+            Assert.assertEquals(TestResult.Status.PASSED, result.get().getStatus());
+        }
+    }
+
+    /**
+     * Deploys to both daemons as one sharded deployment of the specified name, returning its executor
+     */
+    private DaemonMethodExecutor deploy(final String deploymentName) throws IOException {
+        return new DaemonMethodExecutor(DeploymentContext.createSharded(Arrays.asList(first.connect(deploymentName),
+            second.connect(deploymentName)), utilizations));
+    }
+
+    /**
+     * Deploys to both daemons as one sharded deployment of the specified name, holding the specified classes and
+     * scheduled by the specified history, returning its executor
+     */
+    private DaemonMethodExecutor deploy(final String deploymentName, final TestHistory history,
+        final Class<?>... classes) throws IOException {
+        final List<String> classNames = new ArrayList<>(classes.length);
+        for (final Class<?> testClass : classes) {
+            classNames.add(testClass.getName());
+        }
+        return new DaemonMethodExecutor(DeploymentContext.createSharded(Arrays.asList(first.connect(deploymentName),
+            second.connect(deploymentName)), utilizations, history, classNames));
+    }
+
+    private static void invoke(final DaemonMethodExecutor executor, final Object instance, final String methodName) {
+        Assert.assertEquals(TestResult.Status.PASSED, executor.invoke(FakeDaemon.test(instance, methodName))
+            .getStatus());
+    }
+
+    private static String name(final Class<?> testClass, final String methodName) {
+        return testClass.getName() + "#" + methodName;
+    }
+
+    public static class One {
+        public void a() {
+        }
+
+        public void b() {
+        }
+
+        public void c() {
+        }
+    }
+
+    public static class Two {
+        public void a() {
+        }
+    }
+
+    public static class Three {
+        public void a() {
+        }
+    }
+}
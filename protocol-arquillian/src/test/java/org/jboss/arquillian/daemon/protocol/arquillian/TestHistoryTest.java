@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.arquillian;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Ensures the {@link TestHistory} averages the durations it records, estimates tests and classes it has not seen from
+ * those it has, and survives being saved and loaded again, starting afresh where its file is missing or corrupt
+ */
+public class TestHistoryTest {
+
+    private static final String CLASS_NAME = "org.example.SlowTest";
+    private static final String OTHER_CLASS_NAME = "org.example.FastTest";
+
+    private File dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("history").toFile();
+    }
+
+    @After
+    public void deleteDir() {
+        delete(dir);
+    }
+
+    @Test
+    public void durationsAreAveraged() {
+        final TestHistory history = TestHistory.load(new File(dir, "history.properties"));
+        history.record(CLASS_NAME, "a", 100);
+        history.record(CLASS_NAME, "a", 200);
+        history.record(CLASS_NAME, "a", -1);
+        Assert.assertEquals(150, estimate(history, CLASS_NAME, "a"));
+    }
+
+    @Test
+    public void unseenTestsAreEstimatedFromSeenOnes() {
+        final TestHistory history = TestHistory.load(new File(dir, "history.properties"));
+        Assert.assertEquals("Nothing known", 2, history.estimate(CLASS_NAME, Arrays.asList("a", "b")));
+        history.record(CLASS_NAME, "a", 100);
+        history.record(CLASS_NAME, "b", 300);
+        history.record(OTHER_CLASS_NAME, "a", 20);
+        Assert.assertEquals("Unseen method of a seen class", 200, estimate(history, CLASS_NAME, "c"));
+        Assert.assertEquals("Unseen class", 140, estimate(history, "org.example.NewTest", "a"));
+        Assert.assertEquals(600, history.estimate(CLASS_NAME, Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    public void classesAreEstimatedFromTheirKnownMethods() {
+        final TestHistory history = TestHistory.load(new File(dir, "history.properties"));
+        Assert.assertFalse(history.isKnown(CLASS_NAME));
+        Assert.assertEquals("Nothing known", 1, history.estimate(CLASS_NAME));
+        history.record(CLASS_NAME, "a", 100);
+        history.record(CLASS_NAME, "b", 300);
+        history.record(OTHER_CLASS_NAME, "a", 20);
+        Assert.assertTrue(history.isKnown(CLASS_NAME));
+        Assert.assertEquals(400, history.estimate(CLASS_NAME));
+        Assert.assertEquals("Unseen class", 210, history.estimate("org.example.NewTest"));
+        Assert.assertFalse(history.isKnown("org.example"));
+    }
+
+    @Test
+    public void savedHistoryIsLoadedAgain() throws IOException {
+        final File file = new File(new File(dir, "not-yet-created"), "history.properties");
+        final TestHistory history = TestHistory.load(file);
+        history.record(CLASS_NAME, "a", 100);
+        history.record(OTHER_CLASS_NAME, "a", 20);
+        history.save();
+        Assert.assertArrayEquals("Nothing should be left aside", new File[] { file }, file.getParentFile()
+            .listFiles());
+
+        final TestHistory loaded = TestHistory.load(file);
+        Assert.assertEquals(100, estimate(loaded, CLASS_NAME, "a"));
+        Assert.assertEquals(20, estimate(loaded, OTHER_CLASS_NAME, "a"));
+        loaded.record(CLASS_NAME, "a", 200);
+        loaded.save();
+        Assert.assertEquals(150, estimate(TestHistory.load(file), CLASS_NAME, "a"));
+    }
+
+    @Test
+    public void missingHistoryIsEmpty() {
+        final TestHistory history = TestHistory.load(new File(dir, "missing.properties"));
+        Assert.assertEquals(1, estimate(history, CLASS_NAME, "a"));
+    }
+
+    @Test
+    public void corruptEntriesAreIgnored() throws IOException {
+        final File file = new File(dir, "history.properties");
+        Files.write(file.toPath(), (CLASS_NAME + "#a=fast\n" + OTHER_CLASS_NAME + "#a=50\n").getBytes("ISO-8859-1"));
+        final TestHistory history = TestHistory.load(file);
+        Assert.assertEquals("Corrupt entry should be estimated as unseen", 50, estimate(history, CLASS_NAME, "a"));
+    }
+
+    @Test
+    public void corruptHistoryIsEmpty() throws IOException {
+        final File file = new File(dir, "history.properties");
+        Files.write(file.toPath(), (OTHER_CLASS_NAME + "#a=50\n" + CLASS_NAME + "#a=\\uZZZZ\n").getBytes(
+            "ISO-8859-1"));
+        final TestHistory history = TestHistory.load(file);
+        Assert.assertEquals(1, estimate(history, OTHER_CLASS_NAME, "a"));
+        history.record(CLASS_NAME, "a", 100);
+        history.save();
+        Assert.assertEquals("Corrupt file should be replaced", 100, estimate(TestHistory.load(file), CLASS_NAME,
+            "a"));
+    }
+
+    private static long estimate(final TestHistory history, final String className, final String methodName) {
+        return history.estimate(className, Collections.singletonList(methodName));
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        Assert.assertTrue("Could not delete " + file, file.delete());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.wire;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Computes the content digest by which client and server identify identical archives. The digest covers the path and
+ * contents of each file entry, independent of entry order, timestamps or ZIP encoding, so two archives built from the
+ * same classes and resources yield the same digest however they were assembled. Not thread-safe.
+ */
+public final class ArchiveDigest {
+
+    /**
+     * Algorithm used for both entry and archive digests
+     */
+    public static final String ALGORITHM = "SHA-256";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SortedMap<String, byte[]> entryDigests = new TreeMap<>();
+
+    /**
+     * Adds a file entry at the specified path, reading (but not closing) the specified stream of its contents
+     *
+     * @throws IOException
+     *     If the contents could not be read
+     */
+    public void addEntry(final String path, final InputStream contents) throws IOException {
+        assert path !=null :"Path must be specified";
+        assert contents !=null :"Contents must be specified";
+        final MessageDigest digest = newMessageDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = contents.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        entryDigests.put(path, digest.digest());
+    }
+
+    /**
+     * Adds a file entry at the specified path whose contents have the specified, already computed, digest
+     */
+    public void addEntryDigest(final String path, final byte[] digest) {
+        assert path !=null :"Path must be specified";
+        assert digest !=null :"Digest must be specified";
+        entryDigests.put(path, digest);
+    }
+
+    /**
+     * Returns the digests of all entries added so far, keyed and sorted by path
+     */
+    public Map<String, byte[]> getEntryDigests() {
+        return Collections.unmodifiableMap(entryDigests);
+    }
+
+    /**
+     * Returns the digest of the archive as a whole, in hexadecimal
+     */
+    public String getDigest() {
+        final MessageDigest digest = newMessageDigest();
+        try {
+            for (final Map.Entry<String, byte[]> entry : entryDigests.entrySet()) {
+                digest.update(entry.getKey().getBytes(WireProtocol.CHARSET));
+                digest.update((byte) 0);
+                digest.update(entry.getValue());
+            }
+        } catch (final UnsupportedEncodingException uee) {
+            throw new RuntimeException("Unsupported encoding", uee);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Renders the specified bytes in lowercase hexadecimal
+     */
+    public static String toHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException nsae) {
+            throw new RuntimeException("Every JVM must support " + ALGORITHM, nsae);
+        }
+    }
+}
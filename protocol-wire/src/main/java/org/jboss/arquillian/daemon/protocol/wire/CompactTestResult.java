@@ -0,0 +1,345 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.wire;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Compact encoding of a test result, used in place of Java serialization in the framed protocol: its status name,
+ * start and end times and, if present, its {@link Throwable} rendered structurally as class name, message, stack trace
+ * and cause. Only a {@link Throwable} fully described by those may be encoded this way (see
+ * {@link CompactTestResult#isDescribable(Throwable)}); results carrying any other are to be Java-serialized instead.
+ * An encoded result begins with {@link CompactTestResult#MARKER}, which no Java serialization stream does, so readers
+ * may tell the two apart by the first byte. Immutable.
+ */
+public final class CompactTestResult {
+
+    /**
+     * First byte of an encoded result; Java serialization streams begin with 0xAC
+     */
+    public static final byte MARKER = 0x01;
+
+    /**
+     * Deepest chain of causes which will be described
+     */
+    private static final int MAX_CAUSE_DEPTH = 32;
+
+    private final String status;
+    private final long start;
+    private final long end;
+    private final ThrowableDescription throwable;
+
+    private CompactTestResult(final String status, final long start, final long end,
+        final ThrowableDescription throwable) {
+        this.status = status;
+        this.start = start;
+        this.end = end;
+        this.throwable = throwable;
+    }
+
+    /**
+     * Creates a new {@link CompactTestResult} with the specified status name, start and end times, and optional
+     * {@link Throwable}, or returns <code>null</code> if that {@link Throwable} cannot be described structurally
+     *
+     * @throws IllegalArgumentException
+     *     If the status is not specified
+     */
+    public static CompactTestResult create(final String status, final long start, final long end,
+        final Throwable throwable) throws IllegalArgumentException {
+        if (status == null || status.length() == 0) {
+            throw new IllegalArgumentException("status must be specified");
+        }
+        if (throwable != null && !isDescribable(throwable)) {
+            return null;
+        }
+        return new CompactTestResult(status, start, end, describe(throwable));
+    }
+
+    /**
+     * Returns whether the specified {@link Throwable}, and each of its causes, is fully described by its class name,
+     * message, stack trace and cause: that is, it declares no state of its own, has no suppressed exceptions, does not
+     * compute its message, and can be constructed again from that message alone
+     */
+    public static boolean isDescribable(final Throwable throwable) {
+        final Map<Throwable, Boolean> seen = new IdentityHashMap<>();
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (seen.put(current, Boolean.TRUE) != null || seen.size() > MAX_CAUSE_DEPTH) {
+                return false;
+            }
+            final Class<?> type = current.getClass();
+            if (current.getSuppressed().length > 0 || findConstructor(type, current.getMessage() != null) == null) {
+                return false;
+            }
+            try {
+                if (type.getMethod("getMessage").getDeclaringClass() != Throwable.class) {
+                    return false;
+                }
+            } catch (final NoSuchMethodException nsme) {
+                throw new RuntimeException("Every Throwable has a message", nsme);
+            }
+            for (Class<?> declaring = type; declaring != Throwable.class; declaring = declaring.getSuperclass()) {
+                for (final Field field : declaring.getDeclaredFields()) {
+                    if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a {@link CompactTestResult} as written by {@link CompactTestResult#write(DataOutput)}
+     *
+     * @throws IOException
+     *     If the result could not be read
+     */
+    public static CompactTestResult read(final DataInput in) throws IOException {
+        final byte marker = in.readByte();
+        if (marker != MARKER) {
+            throw new IOException("Not a compact test result, begins with: " + marker);
+        }
+        final String status = in.readUTF();
+        final long start = in.readLong();
+        final long end = in.readLong();
+        ThrowableDescription throwable = null;
+        if (in.readBoolean()) {
+            throwable = ThrowableDescription.read(in, 0);
+        }
+        return new CompactTestResult(status, start, end, throwable);
+    }
+
+    /**
+     * Writes this result to the specified output
+     *
+     * @throws IOException
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeByte(MARKER);
+        out.writeUTF(status);
+        out.writeLong(start);
+        out.writeLong(end);
+        out.writeBoolean(throwable != null);
+        if (throwable != null) {
+            throwable.write(out);
+        }
+    }
+
+    /**
+     * @return the status name
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the start
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the end
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the description of the {@link Throwable} of this result, or <code>null</code> if there was none
+     */
+    public ThrowableDescription getThrowable() {
+        return throwable;
+    }
+
+    private static ThrowableDescription describe(final Throwable throwable) {
+        if (throwable == null) {
+            return null;
+        }
+        return new ThrowableDescription(throwable.getClass().getName(), throwable.getMessage(),
+            throwable.getStackTrace(), describe(throwable.getCause()));
+    }
+
+    /**
+     * Returns the public constructor by which a {@link Throwable} of the specified type may be created again with or
+     * without a message, or <code>null</code> if there is none
+     */
+    private static Constructor<?> findConstructor(final Class<?> type, final boolean hasMessage) {
+        try {
+            return type.getConstructor(String.class);
+        } catch (final NoSuchMethodException nsme) {
+            // Fall through
+        }
+        try {
+            // Such as AssertionError; these would render a null message as "null"
+            return hasMessage ? type.getConstructor(Object.class) : type.getConstructor();
+        } catch (final NoSuchMethodException nsme) {
+            return null;
+        }
+    }
+
+    /**
+     * Structural rendering of a {@link Throwable}, from which it may be created again where its class is visible.
+     * Immutable.
+     */
+    public static final class ThrowableDescription {
+
+        private final String className;
+        private final String message;
+        private final StackTraceElement[] stackTrace;
+        private final ThrowableDescription cause;
+
+        private ThrowableDescription(final String className, final String message,
+            final StackTraceElement[] stackTrace, final ThrowableDescription cause) {
+            this.className = className;
+            this.message = message;
+            this.stackTrace = stackTrace;
+            this.cause = cause;
+        }
+
+        private static ThrowableDescription read(final DataInput in, final int depth) throws IOException {
+            if (depth > MAX_CAUSE_DEPTH) {
+                throw new IOException("Causes nested deeper than " + MAX_CAUSE_DEPTH);
+            }
+            final String className = in.readUTF();
+            final String message = in.readBoolean() ? readString(in) : null;
+            final int depthOfStack = in.readInt();
+            if (depthOfStack < 0) {
+                throw new IOException("Invalid stack trace depth: " + depthOfStack);
+            }
+            final StackTraceElement[] stackTrace = new StackTraceElement[depthOfStack];
+            for (int i = 0; i < depthOfStack; i++) {
+                final String declaringClass = in.readUTF();
+                final String methodName = in.readUTF();
+                final String fileName = in.readBoolean() ? in.readUTF() : null;
+                stackTrace[i] = new StackTraceElement(declaringClass, methodName, fileName, in.readInt());
+            }
+            final ThrowableDescription cause = in.readBoolean() ? read(in, depth + 1) : null;
+            return new ThrowableDescription(className, message, stackTrace, cause);
+        }
+
+        private void write(final DataOutput out) throws IOException {
+            out.writeUTF(className);
+            out.writeBoolean(message != null);
+            if (message != null) {
+                writeString(out, message);
+            }
+            out.writeInt(stackTrace.length);
+            for (final StackTraceElement element : stackTrace) {
+                out.writeUTF(element.getClassName());
+                out.writeUTF(element.getMethodName());
+                out.writeBoolean(element.getFileName() != null);
+                if (element.getFileName() != null) {
+                    out.writeUTF(element.getFileName());
+                }
+                out.writeInt(element.getLineNumber());
+            }
+            out.writeBoolean(cause != null);
+            if (cause != null) {
+                cause.write(out);
+            }
+        }
+
+        // Messages, unlike names, are not bounded by the 64KB limit of DataOutput.writeUTF
+        private static String readString(final DataInput in) throws IOException {
+            final int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid string length: " + length);
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, WireProtocol.CHARSET);
+        }
+
+        private static void writeString(final DataOutput out, final String value) throws IOException {
+            final byte[] bytes = value.getBytes(WireProtocol.CHARSET);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * @return the className
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return the message, or <code>null</code> if there was none
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the stackTrace
+         */
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        /**
+         * Returns the description of the cause, or <code>null</code> if there was none
+         */
+        public ThrowableDescription getCause() {
+            return cause;
+        }
+
+        /**
+         * Creates the described {@link Throwable} with its message and stack trace, but without its cause, loading its
+         * class from the specified {@link ClassLoader}; returns <code>null</code> if the class is not visible there or
+         * can no longer be constructed from the message alone
+         */
+        public Throwable newInstance(final ClassLoader cl) {
+            final Class<?> type;
+            try {
+                type = Class.forName(className, false, cl);
+            } catch (final ClassNotFoundException | LinkageError e) {
+                return null;
+            }
+            if (!Throwable.class.isAssignableFrom(type)) {
+                return null;
+            }
+            final Constructor<?> constructor = findConstructor(type, message != null);
+            if (constructor == null) {
+                return null;
+            }
+            final Throwable throwable;
+            try {
+                throwable = (Throwable) (constructor.getParameterTypes().length == 0 ? constructor.newInstance()
+                    : constructor.newInstance(message));
+            } catch (final InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                return null;
+            }
+            if (throwable.getCause() != null) {
+                // The cause can't be set again
+                return null;
+            }
+            throwable.setStackTrace(stackTrace);
+            return throwable;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.wire;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Describes an archive to be deployed relative to the contents last deployed under the same archive name: the path
+ * and {@link ArchiveDigest#ALGORITHM} digest of each of its file entries. The server resolves every entry it already
+ * holds from those contents by digest, so only the remainder need be sent. Immutable.
+ */
+public final class DeltaManifest {
+
+    private final String archiveName;
+    private final SortedMap<String, byte[]> entryDigests;
+
+    private DeltaManifest(final String archiveName, final SortedMap<String, byte[]> entryDigests) {
+        this.archiveName = archiveName;
+        this.entryDigests = entryDigests;
+    }
+
+    /**
+     * Creates a new {@link DeltaManifest} for the archive of the specified name with the specified entry digests, as
+     * returned by {@link ArchiveDigest#getEntryDigests()}
+     *
+     * @throws IllegalArgumentException
+     *     If either argument is not specified
+     */
+    public static DeltaManifest create(final String archiveName, final Map<String, byte[]> entryDigests)
+        throws IllegalArgumentException {
+        if (archiveName == null || archiveName.length() == 0) {
+            throw new IllegalArgumentException("archive name must be specified");
+        }
+        if (entryDigests == null) {
+            throw new IllegalArgumentException("entry digests must be specified");
+        }
+        return new DeltaManifest(archiveName, new TreeMap<>(entryDigests));
+    }
+
+    /**
+     * Reads a {@link DeltaManifest} as written by {@link DeltaManifest#write(DataOutput)}
+     *
+     * @throws IOException
+     *     If the manifest could not be read
+     */
+    public static DeltaManifest read(final DataInput in) throws IOException {
+        final String archiveName = in.readUTF();
+        final int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid manifest entry count: " + count);
+        }
+        final SortedMap<String, byte[]> entryDigests = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            final String path = in.readUTF();
+            final byte[] digest = new byte[in.readUnsignedByte()];
+            in.readFully(digest);
+            entryDigests.put(path, digest);
+        }
+        return new DeltaManifest(archiveName, entryDigests);
+    }
+
+    /**
+     * Writes this manifest to the specified output
+     *
+     * @throws IOException
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeUTF(archiveName);
+        out.writeInt(entryDigests.size());
+        for (final Map.Entry<String, byte[]> entry : entryDigests.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeByte(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    /**
+     * Writes the specified entry paths, such as those a server lacks, to the specified output
+     *
+     * @throws IOException
+     */
+    public static void writePaths(final DataOutput out, final Collection<String> paths) throws IOException {
+        out.writeInt(paths.size());
+        for (final String path : paths) {
+            out.writeUTF(path);
+        }
+    }
+
+    /**
+     * Reads entry paths as written by {@link DeltaManifest#writePaths(DataOutput, Collection)}
+     *
+     * @throws IOException
+     */
+    public static List<String> readPaths(final DataInput in) throws IOException {
+        final int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid path count: " + count);
+        }
+        final List<String> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add(in.readUTF());
+        }
+        return paths;
+    }
+
+    /**
+     * @return the archiveName
+     */
+    public String getArchiveName() {
+        return archiveName;
+    }
+
+    /**
+     * Returns the digests of all entries, keyed and sorted by path
+     */
+    public Map<String, byte[]> getEntryDigests() {
+        return Collections.unmodifiableMap(entryDigests);
+    }
+
+    /**
+     * Returns the {@link ArchiveDigest#getDigest()} of the described archive
+     */
+    public String getDigest() {
+        final ArchiveDigest digest = new ArchiveDigest();
+        for (final Map.Entry<String, byte[]> entry : entryDigests.entrySet()) {
+            digest.addEntryDigest(entry.getKey(), entry.getValue());
+        }
+        return digest.getDigest();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.wire;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A single message in the binary framing mode of the {@link WireProtocol}: an opcode, a correlation ID and a payload,
+ * preceded on the wire by a header carrying the {@link WireProtocol#FRAME_VERSION} and the payload length. The
+ * correlation ID of a request is chosen by the client and echoed in the response to it. Payloads too large to be held
+ * in memory (ie. deployments) may be streamed by writing the header alone via
+ * {@link Frame#writeHeader(DataOutput, int, byte, int)} and then the payload bytes directly.
+ */
+public final class Frame {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int correlationId;
+    private final byte opcode;
+    private final byte[] payload;
+
+    private Frame(final int correlationId, final byte opcode, final byte[] payload) {
+        this.correlationId = correlationId;
+        this.opcode = opcode;
+        this.payload = payload;
+    }
+
+    /**
+     * Creates a new {@link Frame} with the specified correlation ID, opcode and payload
+     *
+     * @throws IllegalArgumentException
+     *     If the payload is not specified
+     */
+    public static Frame create(final int correlationId, final byte opcode, final byte[] payload)
+        throws IllegalArgumentException {
+        if (payload == null) {
+            throw new IllegalArgumentException("payload must be specified");
+        }
+        return new Frame(correlationId, opcode, payload);
+    }
+
+    /**
+     * Creates a new {@link Frame} with the specified correlation ID, opcode and a payload of the specified (optional)
+     * String encoded in {@link WireProtocol#CHARSET}
+     */
+    public static Frame create(final int correlationId, final byte opcode, final String payload) {
+        if (payload == null) {
+            return new Frame(correlationId, opcode, EMPTY);
+        }
+        try {
+            return new Frame(correlationId, opcode, payload.getBytes(WireProtocol.CHARSET));
+        } catch (final UnsupportedEncodingException uee) {
+            throw new RuntimeException("Unsupported encoding", uee);
+        }
+    }
+
+    /**
+     * Reads the next full {@link Frame} from the specified input, blocking until it is available. The payload is read
+     * into memory, so its length is checked against the specified maximum before any is allocated; a peer announcing
+     * more has either broken the framing or cannot be trusted, and the caller should give up on the input.
+     *
+     * @throws IOException
+     *     If the frame could not be read, is not of the supported {@link WireProtocol#FRAME_VERSION}, or its payload
+     *     exceeds the specified maximum length
+     */
+    public static Frame read(final DataInput in, final int maxPayloadLength) throws IOException {
+        assert maxPayloadLength >= 0 :"Maximum payload length must not be negative";
+        final byte version = in.readByte();
+        if (version != WireProtocol.FRAME_VERSION) {
+            throw new IOException("Unsupported frame version " + version + ", expected " + WireProtocol.FRAME_VERSION);
+        }
+        final byte opcode = in.readByte();
+        final int correlationId = in.readInt();
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid frame payload length: " + length);
+        }
+        if (length > maxPayloadLength) {
+            throw new IOException("Frame payload length " + length + " exceeds maximum of " + maxPayloadLength);
+        }
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(correlationId, opcode, payload);
+    }
+
+    /**
+     * Writes a frame header announcing a payload of the specified length, which the caller must then write in full
+     *
+     * @throws IOException
+     */
+    public static void writeHeader(final DataOutput out, final int correlationId, final byte opcode, final int length)
+        throws IOException {
+        assert length >= 0 :"Length must not be negative";
+        out.writeByte(WireProtocol.FRAME_VERSION);
+        out.writeByte(opcode);
+        out.writeInt(correlationId);
+        out.writeInt(length);
+    }
+
+    /**
+     * Writes this {@link Frame}, header and payload, to the specified output
+     *
+     * @throws IOException
+     */
+    public void write(final DataOutput out) throws IOException {
+        writeHeader(out, correlationId, opcode, payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * @return the correlationId
+     */
+    public int getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * @return the opcode
+     */
+    public byte getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * @return the payload
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the payload decoded as a String in {@link WireProtocol#CHARSET}
+     */
+    public String getPayloadAsString() {
+        try {
+            return new String(payload, WireProtocol.CHARSET);
+        } catch (final UnsupportedEncodingException uee) {
+            throw new RuntimeException("Unsupported encoding", uee);
+        }
+    }
+}
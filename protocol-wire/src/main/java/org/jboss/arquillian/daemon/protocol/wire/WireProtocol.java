@@ -22,6 +22,16 @@ package org.jboss.arquillian.daemon.protocol.wire;
  * To stop: <code>CMD stop<<EOF</code> To deploy: <code>DPL ${zip-formatted contents}<<EOF</code> To undeploy:
  * <code>CMD undeploy ${deploymentName}<<EOF</code> To execute tests:
  * <code>CMD test ${deploymentName} ${FQN test class} ${methodName}<<EOF</code>
+ * <p>
+ * Clients may instead negotiate the binary framing mode by sending <code>CMD protocol ${FRAME_VERSION}<<EOF</code>;
+ * if the server responds <code>OK protocol ${FRAME_VERSION}</code>, all further requests and responses on that
+ * connection are {@link Frame}s, each a header of {@link WireProtocol#FRAME_HEADER_LENGTH} bytes (version, opcode,
+ * correlation ID and payload length) followed by exactly that many payload bytes. Servers which do not understand the
+ * command respond with {@link WireProtocol#RESPONSE_ERROR_PREFIX}, in which case the client continues using the text
+ * commands above.
+ * <p>
+ * In framing mode a client may have many requests outstanding at once; each response carries the correlation ID of
+ * the request it answers, and responses may arrive in any order.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
@@ -59,4 +69,140 @@ public interface WireProtocol {
 
     String RESPONSE_OK_PREFIX = "OK ";
     String RESPONSE_ERROR_PREFIX = "ERR ";
+
+    /**
+     * Begins the line a standalone daemon writes to its standard output once it accepts connections; followed by the
+     * bound host and port, separated by a space. Launchers may connect as soon as they read it, and so may let the
+     * daemon choose its own port.
+     */
+    String READY_PREFIX = "ARQUILLIAN-DAEMON-READY ";
+
+    /**
+     * Path within a deployed archive under which the contents of shareable auxiliary archives (such as the test
+     * runner and its libraries) are placed. The server loads these once into a {@link ClassLoader} shared as the
+     * parent of every deployment with identical such contents, rather than into each deployment's own.
+     */
+    String PATH_SHARED_ARCHIVES = "/META-INF/arquillian-daemon/shared";
+
+    /**
+     * To be followed by the requested {@link WireProtocol#FRAME_VERSION}; switches the connection to framing mode
+     */
+    String COMMAND_PROTOCOL_PREFIX = PREFIX_STRING_COMMAND + "protocol ";
+
+    /**
+     * Version of the binary framing mode, carried as the first byte of every frame header
+     */
+    byte FRAME_VERSION = 3;
+
+    /**
+     * Length of a frame header: version (1 byte), opcode (1 byte), correlation ID (4 bytes), payload length (4 bytes)
+     */
+    int FRAME_HEADER_LENGTH = 10;
+
+    /**
+     * Request to stop the server; no payload
+     */
+    byte OPCODE_STOP = 0x01;
+
+    /**
+     * Request to deploy; the payload is the ZIP-formatted archive
+     */
+    byte OPCODE_DEPLOY = 0x02;
+
+    /**
+     * Request to undeploy; the payload is the deployment name
+     */
+    byte OPCODE_UNDEPLOY = 0x03;
+
+    /**
+     * Request to execute a test; the payload is the deployment name, the FQN of the test class and the method name,
+     * each written as by {@link java.io.DataOutput#writeUTF(String)}
+     */
+    byte OPCODE_TEST = 0x04;
+
+    /**
+     * Request to deploy an archive with the same contents as one the server already holds, without transferring it;
+     * the payload is the {@link ArchiveDigest#getDigest()} of the archive. Answered with
+     * {@link WireProtocol#OPCODE_RESPONSE_OK} carrying the name of the new deployment, or
+     * {@link WireProtocol#OPCODE_RESPONSE_NOT_FOUND} if the archive must be sent in full.
+     */
+    byte OPCODE_DEPLOY_CACHED = 0x05;
+
+    /**
+     * Request for the entries of an archive which must be sent to deploy it relative to the contents last deployed
+     * under the same archive name; the payload is a {@link DeltaManifest}. Answered with
+     * {@link WireProtocol#OPCODE_RESPONSE_ENTRIES}.
+     */
+    byte OPCODE_DELTA_QUERY = 0x06;
+
+    /**
+     * Request to deploy an archive relative to the contents last deployed under the same archive name; the payload is
+     * a {@link DeltaManifest} followed by a ZIP-formatted archive of (at least) the entries the server lacks. Answered
+     * with {@link WireProtocol#OPCODE_RESPONSE_OK} carrying the name of the new deployment, or
+     * {@link WireProtocol#OPCODE_RESPONSE_NOT_FOUND} if the server no longer holds every entry not sent, in which case
+     * the archive must be sent via {@link WireProtocol#OPCODE_DEPLOY}.
+     */
+    byte OPCODE_DEPLOY_DELTA = 0x07;
+
+    /**
+     * Request to execute a batch of tests; the payload is the deployment name, whether the tests may run in parallel
+     * (as by {@link java.io.DataOutput#writeBoolean(boolean)}), the number of tests (as an int), then the FQN of the
+     * test class and the method name of each, written as by {@link java.io.DataOutput#writeUTF(String)}. Answered by a
+     * {@link WireProtocol#OPCODE_RESPONSE_BATCH_RESULT} or {@link WireProtocol#OPCODE_RESPONSE_BATCH_ERROR} for each
+     * test as it completes (in the order given unless run in parallel), then {@link WireProtocol#OPCODE_RESPONSE_OK}
+     * once all have, or {@link WireProtocol#OPCODE_RESPONSE_ERROR} if the batch could not be run at all. Sent only by
+     * clients which batch tests through the API; the Arquillian integration requests each test on its own.
+     */
+    byte OPCODE_TEST_BATCH = 0x08;
+
+    /**
+     * Request for the current load of the server, by which a client may choose among several; no payload. Answered with
+     * {@link WireProtocol#OPCODE_RESPONSE_LOAD}.
+     */
+    byte OPCODE_LOAD = 0x09;
+
+    /**
+     * Successful response; the payload is a (possibly empty) String, such as the name of a new deployment
+     */
+    byte OPCODE_RESPONSE_OK = 0x41;
+
+    /**
+     * Failed response; the payload is the error message as a String
+     */
+    byte OPCODE_RESPONSE_ERROR = 0x42;
+
+    /**
+     * Response to {@link WireProtocol#OPCODE_TEST}; the payload is the test result, as a {@link CompactTestResult} if
+     * possible or else serialized
+     */
+    byte OPCODE_RESPONSE_TEST_RESULT = 0x43;
+
+    /**
+     * Response to a request for something the server does not hold; no payload
+     */
+    byte OPCODE_RESPONSE_NOT_FOUND = 0x44;
+
+    /**
+     * Response to {@link WireProtocol#OPCODE_DELTA_QUERY}; the payload is the paths of the entries the server lacks, as
+     * written by {@link DeltaManifest#writePaths(java.io.DataOutput, java.util.Collection)}
+     */
+    byte OPCODE_RESPONSE_ENTRIES = 0x45;
+
+    /**
+     * Response to one test of a {@link WireProtocol#OPCODE_TEST_BATCH}; the payload is the index of the test in the
+     * batch (as an int) followed by the test result, encoded as for {@link WireProtocol#OPCODE_RESPONSE_TEST_RESULT}
+     */
+    byte OPCODE_RESPONSE_BATCH_RESULT = 0x46;
+
+    /**
+     * Response to one test of a {@link WireProtocol#OPCODE_TEST_BATCH} which could not be run; the payload is the index
+     * of the test in the batch (as an int) followed by the error message as a String
+     */
+    byte OPCODE_RESPONSE_BATCH_ERROR = 0x47;
+
+    /**
+     * Response to {@link WireProtocol#OPCODE_LOAD}; the payload is the number of tests submitted and not yet complete,
+     * the number of threads executing tests, and the number of open connections, each as an int
+     */
+    byte OPCODE_RESPONSE_LOAD = 0x48;
 }
@@ -0,0 +1,427 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.protocol.wire;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Random-access reader of a ZIP archive held in a {@link ByteBuffer}: a file mapped into memory or copied into a direct
+ * buffer, or a JAR nested within another. The central directory is read once upon creation; thereafter each entry is
+ * read directly from the buffer, without staging anything on the filesystem. Shared by the server, which holds
+ * deployed archives this way, and the launcher, which reads the JARs of its modules from within its own JAR before any
+ * module is loaded. ZIP64 archives are not supported. Thread-safe.
+ * <p>
+ * A buffer this instance opened itself is released by {@link ZipBuffer#close()} rather than left for the garbage
+ * collector to find, so that memory is returned at once; as reading released memory would crash the JVM, copying reads
+ * and release exclude one another.
+ */
+public final class ZipBuffer {
+
+    private static final Logger log = Logger.getLogger(ZipBuffer.class.getName());
+
+    private static final int SIGNATURE_END = 0x06054b50;
+    private static final int SIGNATURE_CENTRAL = 0x02014b50;
+    private static final int SIGNATURE_LOCAL = 0x04034b50;
+    private static final int LENGTH_END = 22;
+    private static final int LENGTH_CENTRAL = 46;
+    private static final int LENGTH_LOCAL = 30;
+    private static final int MAX_COMMENT_LENGTH = 0xffff;
+    private static final int MASK_SHORT = 0xffff;
+    private static final long MASK_INT = 0xffffffffL;
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Means of releasing a direct or mapped buffer at once, or <code>null</code> if this JVM offers none
+     */
+    private static final BufferReleaser RELEASER = BufferReleaser.find();
+
+    /**
+     * The buffer as allocated, mapped or given; never read other than via {@link ZipBuffer#view()}, as its position is
+     * not ours to move
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Whether {@link ZipBuffer#buffer} was allocated or mapped by this instance, and so may be released by it
+     */
+    private final boolean owned;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Held for reading while reading out of {@link ZipBuffer#buffer}, and for writing while closing
+     */
+    private final ReadWriteLock lock;
+    private boolean closed;
+
+    private ZipBuffer(final ByteBuffer buffer, final boolean owned) throws IOException {
+        this.buffer = buffer;
+        this.owned = owned;
+        this.entries = Collections.unmodifiableMap(readCentralDirectory(this.view()));
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Creates a new {@link ZipBuffer} for the ZIP archive of the remaining bytes of the specified buffer, which is
+     * neither moved nor ever released
+     *
+     * @throws IOException
+     *     If the bytes are not a ZIP archive
+     */
+    public static ZipBuffer create(final ByteBuffer buffer) throws IOException {
+        assert buffer !=null :"Buffer must be specified";
+        return new ZipBuffer(buffer.slice(), false);
+    }
+
+    /**
+     * Creates a new {@link ZipBuffer} for the specified ZIP file, either mapped into memory read-only or copied into a
+     * newly-allocated direct buffer
+     *
+     * @throws IOException
+     *     If the file could not be read, is too large to be held in a single buffer, or is not a ZIP archive
+     * @throws OutOfMemoryError
+     *     If a direct buffer was requested but could not be allocated
+     */
+    public static ZipBuffer open(final File file, final boolean mapped) throws IOException, OutOfMemoryError {
+        assert file !=null :"File must be specified";
+        final ByteBuffer buffer;
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Too large to hold in a buffer: " + file.getAbsolutePath());
+            }
+            if (mapped) {
+                // The mapping outlives the channel
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } else {
+                buffer = ByteBuffer.allocateDirect((int) length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        release(buffer);
+                        throw new IOException("File truncated while being read: " + file.getAbsolutePath());
+                    }
+                }
+            }
+        } finally {
+            raf.close();
+        }
+        try {
+            return new ZipBuffer(buffer, true);
+        } catch (final IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns all entries, in the order of the central directory
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Returns the entry of the specified name, or <code>null</code> if there is none
+     */
+    public Entry getEntry(final String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns the contents of the specified entry of this archive, as a read-only view of the archive itself where
+     * stored uncompressed, else inflated onto the heap. A view may be read only until this buffer is closed.
+     *
+     * @throws IOException
+     *     If the contents could not be read, or this buffer has been closed
+     */
+    public ByteBuffer read(final Entry entry) throws IOException {
+        assert entry !=null :"Entry must be specified";
+        final byte[] compressed;
+        lock.readLock().lock();
+        try {
+            final ByteBuffer data = this.locate(entry);
+            if (entry.method == ZipEntry.STORED) {
+                return data.asReadOnlyBuffer();
+            }
+            compressed = toArray(data);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ByteBuffer.wrap(inflate(compressed, entry));
+    }
+
+    /**
+     * Returns the contents of the specified entry of this archive, copied onto the heap
+     *
+     * @throws IOException
+     *     If the contents could not be read, or this buffer has been closed
+     */
+    public byte[] readBytes(final Entry entry) throws IOException {
+        assert entry !=null :"Entry must be specified";
+        final byte[] data;
+        lock.readLock().lock();
+        try {
+            data = toArray(this.locate(entry));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return entry.method == ZipEntry.STORED ? data : inflate(data, entry);
+    }
+
+    /**
+     * Closes this buffer, waiting for any copying read in progress, and releases the buffer if this instance allocated
+     * or mapped it; no entry may be read afterward
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (owned) {
+                release(buffer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ByteBuffer view() {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns a view of the (compressed) contents of the specified entry; the read lock must be held
+     *
+     * @throws IOException
+     *     If the contents could not be located or are compressed by an unsupported method, or this buffer has been
+     *     closed
+     */
+    private ByteBuffer locate(final Entry entry) throws IOException {
+        if (closed) {
+            throw new IOException("Archive has been closed; cannot read " + entry.name);
+        }
+        if (entry.method != ZipEntry.STORED && entry.method != ZipEntry.DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry.method + " for " + entry.name);
+        }
+        final ByteBuffer in = this.view();
+        final int local = (int) entry.localHeaderOffset;
+        if (local < 0 || local + LENGTH_LOCAL > in.limit() || in.getInt(local) != SIGNATURE_LOCAL) {
+            throw new IOException("Invalid local header for " + entry.name);
+        }
+        final int dataStart = local + LENGTH_LOCAL + (in.getShort(local + 26) & MASK_SHORT)
+            + (in.getShort(local + 28) & MASK_SHORT);
+        final long dataEnd = dataStart + entry.compressedSize;
+        if (dataEnd > in.limit()) {
+            throw new IOException("Truncated contents of " + entry.name);
+        }
+        // Called via Buffer, as ByteBuffer overrides them covariantly from Java 9
+        ((Buffer) in).limit((int) dataEnd);
+        ((Buffer) in).position(dataStart);
+        return in.slice();
+    }
+
+    private static byte[] toArray(final ByteBuffer data) {
+        final byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    private static void release(final ByteBuffer buffer) {
+        if (RELEASER == null) {
+            return;
+        }
+        try {
+            RELEASER.release(buffer);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            if (log.isLoggable(Level.FINE)) {
+                log.log(Level.FINE, "Could not release buffer; leaving it to the garbage collector", e);
+            }
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(final ByteBuffer in) throws IOException {
+        // The end record is followed only by a comment of variable length
+        int end = -1;
+        for (int i = in.limit() - LENGTH_END; i >= 0 && i >= in.limit() - LENGTH_END - MAX_COMMENT_LENGTH; i--) {
+            if (in.getInt(i) == SIGNATURE_END) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new IOException("Not a ZIP archive: no end of central directory record");
+        }
+        final int count = in.getShort(end + 10) & MASK_SHORT;
+        final long offset = in.getInt(end + 16) & MASK_INT;
+        if (count == MASK_SHORT || offset == MASK_INT) {
+            throw new IOException("ZIP64 archives are not supported");
+        }
+        final Map<String, Entry> entries = new LinkedHashMap<>(count * 2);
+        int position = (int) offset;
+        for (int i = 0; i < count; i++) {
+            if (position + LENGTH_CENTRAL > in.limit() || in.getInt(position) != SIGNATURE_CENTRAL) {
+                throw new IOException("Invalid central directory entry " + i);
+            }
+            final int method = in.getShort(position + 10) & MASK_SHORT;
+            final long compressedSize = in.getInt(position + 20) & MASK_INT;
+            final long size = in.getInt(position + 24) & MASK_INT;
+            final int nameLength = in.getShort(position + 28) & MASK_SHORT;
+            final int extraLength = in.getShort(position + 30) & MASK_SHORT;
+            final int commentLength = in.getShort(position + 32) & MASK_SHORT;
+            final long localHeaderOffset = in.getInt(position + 42) & MASK_INT;
+            final byte[] name = new byte[nameLength];
+            ((Buffer) in).position(position + LENGTH_CENTRAL);
+            in.get(name);
+            // Where a name repeats, the last wins, as it does for ZipFile
+            final Entry entry = new Entry(new String(name, CHARSET), method, compressedSize, size, localHeaderOffset);
+            entries.put(entry.name, entry);
+            position += LENGTH_CENTRAL + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static byte[] inflate(final byte[] compressed, final Entry entry) throws IOException {
+        final byte[] inflated = new byte[(int) entry.size];
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < inflated.length) {
+                final int inflatedNow = inflater.inflate(inflated, read, inflated.length - read);
+                if (inflatedNow == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed contents of " + entry.name);
+                }
+                read += inflatedNow;
+            }
+        } catch (final DataFormatException dfe) {
+            throw new IOException("Corrupt compressed contents of " + entry.name, dfe);
+        } finally {
+            inflater.end();
+        }
+        return inflated;
+    }
+
+    /**
+     * An entry of the central directory. Immutable.
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        private Entry(final String name, final int method, final long compressedSize, final long size,
+            final long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        /**
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the uncompressed size, in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns whether this entry is a directory
+         */
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    /**
+     * Releases direct and mapped buffers by the means the running JVM offers, none of which is public API:
+     * <code>Unsafe.invokeCleaner</code> from Java 9, or the buffer's own cleaner before that
+     */
+    private abstract static class BufferReleaser {
+
+        abstract void release(ByteBuffer buffer) throws ReflectiveOperationException;
+
+        static BufferReleaser find() {
+            try {
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                final Object unsafe = theUnsafe.get(null);
+                return new BufferReleaser() {
+                    @Override
+                    void release(final ByteBuffer buffer) throws ReflectiveOperationException {
+                        invokeCleaner.invoke(unsafe, buffer);
+                    }
+                };
+            } catch (final ReflectiveOperationException | RuntimeException java9) {
+                // Fall through to the cleaner of Java 8 and before
+            }
+            try {
+                final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return new BufferReleaser() {
+                    @Override
+                    void release(final ByteBuffer buffer) throws ReflectiveOperationException {
+                        final Object bufferCleaner = cleaner.invoke(buffer);
+                        if (bufferCleaner != null) {
+                            clean.invoke(bufferCleaner);
+                        }
+                    }
+                };
+            } catch (final ReflectiveOperationException | RuntimeException e) {
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("No means of releasing buffers at once; leaving them to the garbage collector");
+                }
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * {@link ClassLoader} defining classes and serving resources straight from an {@link IndexedArchive}, so that each
+ * is inflated only when first asked for. Stands in for ShrinkWrap's <code>ShrinkWrapClassLoader</code>, which reads
+ * through an archive imported in full. Resources are given URLs of their own protocol, read from the archive upon
+ * opening. Delegates to its parent first, as any {@link ClassLoader}; a <code>null</code> parent isolates the archive
+ * from everything but the bootstrap {@link ClassLoader}.
+ */
+final class ArchiveClassLoader extends ClassLoader {
+
+    private static final String PROTOCOL = "arquillian-daemon-archive";
+    private static final String SEPARATOR_ENTRY = "!/";
+    private static final String SUFFIX_CLASS = ".class";
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final IndexedArchive archive;
+    private final URLStreamHandler handler;
+    private final URL rootUrl;
+    private final ProtectionDomain protectionDomain;
+
+    /**
+     * Creates a new instance over the specified archive, delegating first to the specified parent
+     *
+     * @throws IllegalStateException
+     *     If the archive's URL could not be formed
+     */
+    ArchiveClassLoader(final ClassLoader parent, final IndexedArchive archive) throws IllegalStateException {
+        super(parent);
+        assert archive !=null :"Archive must be specified";
+        this.archive = archive;
+        this.handler = new EntryHandler();
+        try {
+            this.rootUrl = new URL(PROTOCOL, null, -1, archive.getFile().getName(), handler);
+        } catch (final MalformedURLException murle) {
+            throw new IllegalStateException("Could not form URL for " + archive, murle);
+        }
+        this.protectionDomain = new ProtectionDomain(new CodeSource(rootUrl, (CodeSigner[]) null), null, this, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.ClassLoader#findClass(java.lang.String)
+     */
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final byte[] bytes;
+        try {
+            bytes = archive.readBytes('/' + name.replace('.', '/') + SUFFIX_CLASS);
+        } catch (final IOException | IllegalStateException e) {
+            // The latter if the archive has since been closed
+            throw new ClassNotFoundException("Could not read " + name + " from " + archive, e);
+        }
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        final int lastDot = name.lastIndexOf('.');
+        if (lastDot > 0) {
+            this.ensurePackageDefined(name.substring(0, lastDot));
+        }
+        return this.defineClass(name, bytes, 0, bytes.length, protectionDomain);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.ClassLoader#findResource(java.lang.String)
+     */
+    @Override
+    protected URL findResource(final String name) {
+        final String entryName = name.startsWith("/") ? name.substring(1) : name;
+        if (!archive.contains('/' + entryName)) {
+            return null;
+        }
+        try {
+            return new URL(PROTOCOL, null, -1, rootUrl.getFile() + SEPARATOR_ENTRY + entryName, handler);
+        } catch (final MalformedURLException murle) {
+            throw new IllegalStateException("Could not form URL for " + entryName + " in " + archive, murle);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.ClassLoader#findResources(java.lang.String)
+     */
+    @Override
+    protected Enumeration<URL> findResources(final String name) {
+        final URL url = this.findResource(name);
+        return url == null ? Collections.<URL> emptyEnumeration() : Collections.enumeration(Collections
+            .singleton(url));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return ArchiveClassLoader.class.getSimpleName() + " for " + archive;
+    }
+
+    private void ensurePackageDefined(final String packageName) {
+        if (this.getPackage(packageName) != null) {
+            return;
+        }
+        try {
+            this.definePackage(packageName, null, null, null, null, null, null, null);
+        } catch (final IllegalArgumentException iae) {
+            // Defined concurrently by another thread
+        }
+    }
+
+    /**
+     * Opens the entries named by URLs of this loader
+     */
+    private final class EntryHandler extends URLStreamHandler {
+
+        @Override
+        protected URLConnection openConnection(final URL url) throws IOException {
+            final String file = url.getFile();
+            final int separator = file.lastIndexOf(SEPARATOR_ENTRY);
+            final String path = separator == -1 ? null : '/' + file.substring(separator + SEPARATOR_ENTRY.length());
+            if (path == null || !archive.contains(path)) {
+                throw new IOException("No such resource: " + url);
+            }
+            return new URLConnection(url) {
+
+                @Override
+                public void connect() {
+                    connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    final InputStream in;
+                    try {
+                        in = archive.openStream(path);
+                    } catch (final IllegalStateException ise) {
+                        throw new IOException("Archive is no longer open: " + url, ise);
+                    }
+                    if (in == null) {
+                        throw new IOException("No such resource: " + url);
+                    }
+                    return in;
+                }
+            };
+        }
+    }
+}
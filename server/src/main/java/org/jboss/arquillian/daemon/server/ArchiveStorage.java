@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.util.Locale;
+
+/**
+ * Where the contents of a deployed archive are held while it is loaded for test execution, as chosen by the
+ * {@link ServerBase#SYSPROP_NAME_ARCHIVE_STORAGE} system property. Whichever is chosen, the contents are released
+ * when the archive is unloaded or undeployed, and the heap holds no more than the index of their entries.
+ */
+enum ArchiveStorage {
+
+    /**
+     * Entries are read from the spool file on disk as needed (the default)
+     */
+    FILE,
+
+    /**
+     * The spool file is mapped into memory, and entries read from the mapping; pages are shared with the operating
+     * system's file cache
+     */
+    MAPPED,
+
+    /**
+     * The spool file is copied into a direct buffer outside the heap, bounded by <code>-XX:MaxDirectMemorySize</code>,
+     * and entries read from the copy
+     */
+    DIRECT;
+
+    /**
+     * Returns the storage of the specified name, as given (case-insensitively) by a system property
+     *
+     * @throws IllegalArgumentException
+     *     If there is no storage of that name
+     */
+    static ArchiveStorage fromName(final String name) throws IllegalArgumentException {
+        assert name !=null :"Name must be specified";
+        return ArchiveStorage.valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+
+/**
+ * The contents of an archive received by the server, identified by their content digest and shared by every
+ * {@link Deployment} of identical contents. The contents live in a spool file on disk, which remains in place until
+ * {@link DeployedContent#release()} is called once no deployment references it any longer (reference counting is
+ * guarded by the owning server), or if the archive is still in use by a test then, until its last user releases it. The
+ * archive is opened from that file only while in use, as an {@link IndexedArchive}
+ * inflating each entry only when read and held in the configured {@link ArchiveStorage}; once the last user releases
+ * it, it is closed (releasing any memory holding it) and opened again upon next use. Entries interned by other
+ * contents may be left out of the spool file and linked in from theirs instead (see {@link InternedEntries}); those
+ * contents are referenced on this one's behalf, and their archives acquired along with its own.
+ */
+final class DeployedContent {
+
+    private static final Logger log = Logger.getLogger(DeployedContent.class.getName());
+
+    private final String digest;
+
+    /**
+     * Path of an entry with each distinct digest (in hexadecimal) present in the archive
+     */
+    private final Map<String, String> pathsByEntryDigest;
+
+    /**
+     * Digest of the entries to be loaded by a shared {@link ClassLoader}, or <code>null</code> if there are none
+     */
+    private final String sharedLayerDigest;
+    private final File spoolFile;
+    private final long size;
+    private final long storedSize;
+
+    /**
+     * Entries read from other contents instead of the spool file, by path
+     */
+    private final Map<String, Link> links;
+
+    /**
+     * The contents from which entries are linked, each acquired along with this
+     */
+    private final Set<DeployedContent> holders;
+    private final ArchiveStorage storage;
+    private int references;
+
+    /**
+     * The archive, while {@link DeployedContent#users} is non-zero; guarded by this
+     */
+    private IndexedArchive archive;
+    private int users;
+    private boolean released;
+
+    /**
+     * Creates a new instance for the archive of the specified digest and uncompressed size in bytes held in the
+     * specified spool file, to be held in the specified storage while in use
+     */
+    DeployedContent(final ArchiveDigest digest, final File spoolFile, final long size, final ArchiveStorage storage) {
+        this(digest, spoolFile, size, size, Collections.<String, Link> emptyMap(), storage);
+    }
+
+    /**
+     * Creates a new instance for the archive of the specified digest and uncompressed size in bytes, of which the
+     * specified size is held in the specified spool file and the remainder read from other contents via the specified
+     * links, by path, whose holders must already have been referenced on behalf of this content
+     */
+    DeployedContent(final ArchiveDigest digest, final File spoolFile, final long size, final long storedSize,
+        final Map<String, Link> links, final ArchiveStorage storage) {
+        assert digest !=null :"Digest must be specified";
+        assert spoolFile !=null :"Spool file must be specified";
+        assert links !=null :"Links must be specified";
+        assert storage !=null :"Storage must be specified";
+        this.digest = digest.getDigest();
+        this.pathsByEntryDigest = new HashMap<>();
+        for (final Map.Entry<String, byte[]> entry : digest.getEntryDigests().entrySet()) {
+            pathsByEntryDigest.put(ArchiveDigest.toHex(entry.getValue()), entry.getKey());
+        }
+        this.sharedLayerDigest = SharedClassLoaders.getLayerDigest(digest);
+        this.spoolFile = spoolFile;
+        this.size = size;
+        this.storedSize = storedSize;
+        this.links = links;
+        this.holders = new LinkedHashSet<>();
+        for (final Link link : links.values()) {
+            holders.add(link.holder);
+        }
+        this.storage = storage;
+    }
+
+    /**
+     * @return the digest
+     */
+    String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the digest of the entries under {@link WireProtocol#PATH_SHARED_ARCHIVES}, by which deployments share
+     * a {@link ClassLoader} for them (see {@link SharedClassLoaders}), or <code>null</code> if there are none
+     */
+    String getSharedLayerDigest() {
+        return sharedLayerDigest;
+    }
+
+    /**
+     * Returns the total uncompressed size of all entries, in bytes
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the total uncompressed size of the entries held in the spool file, rather than linked in, in bytes
+     */
+    long getStoredSize() {
+        return storedSize;
+    }
+
+    /**
+     * Returns the contents from which entries are linked into this one, which must be dereferenced once this content
+     * is released
+     */
+    Collection<DeployedContent> getHolders() {
+        return Collections.unmodifiableSet(holders);
+    }
+
+    /**
+     * Returns the archive, opening it from the spool file into its storage if it isn't already in use. Each call must
+     * be paired with a call to {@link DeployedContent#releaseArchive()} once the archive (and any asset obtained from
+     * it) is no longer needed.
+     *
+     * @throws IOException
+     *     If the spool file could not be read
+     */
+    synchronized IndexedArchive acquireArchive() throws IOException {
+        assert !released :"Content has been released";
+        if (archive == null) {
+            // Holders were deployed before this, so are always locked after it
+            final IndexedArchive opened = IndexedArchive.open(spoolFile, storage);
+            final Map<DeployedContent, IndexedArchive> holderArchives = new HashMap<>();
+            try {
+                for (final DeployedContent holder : holders) {
+                    holderArchives.put(holder, holder.acquireArchive());
+                }
+            } catch (final IOException | RuntimeException e) {
+                for (final DeployedContent holder : holderArchives.keySet()) {
+                    holder.releaseArchive();
+                }
+                opened.close();
+                throw e;
+            }
+            for (final Map.Entry<String, Link> link : links.entrySet()) {
+                opened.link(link.getKey(), holderArchives.get(link.getValue().holder), link.getValue().path);
+            }
+            archive = opened;
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("Opened contents " + digest + " from " + spoolFile.getAbsolutePath());
+            }
+        }
+        users++;
+        return archive;
+    }
+
+    /**
+     * Records that a user obtained via {@link DeployedContent#acquireArchive()} no longer needs the archive, dropping
+     * it if that was the last
+     */
+    synchronized void releaseArchive() {
+        assert users > 0 :"Archive is not in use";
+        if (--users == 0) {
+            try {
+                archive.close();
+            } catch (final IOException ignore) {
+            }
+            archive = null;
+            for (final DeployedContent holder : holders) {
+                holder.releaseArchive();
+            }
+            if (released) {
+                this.deleteSpoolFile();
+            }
+        }
+    }
+
+    /**
+     * Returns the digests (in hexadecimal) of all entries, each once
+     */
+    Set<String> getEntryDigests() {
+        return Collections.unmodifiableSet(pathsByEntryDigest.keySet());
+    }
+
+    /**
+     * Returns whether this content holds an entry with the specified digest (in hexadecimal) in its own spool file
+     */
+    boolean storesEntry(final String entryDigest) {
+        final String path = pathsByEntryDigest.get(entryDigest);
+        return path != null && !links.containsKey(path);
+    }
+
+    /**
+     * Returns the path of an entry in this content with the specified digest (in hexadecimal), or <code>null</code>
+     * if there is none
+     */
+    String getEntryPath(final String entryDigest) {
+        return pathsByEntryDigest.get(entryDigest);
+    }
+
+    /**
+     * Returns whether this content has an entry with the specified digest, whatever its path
+     */
+    boolean hasEntry(final byte[] entryDigest) {
+        return pathsByEntryDigest.containsKey(ArchiveDigest.toHex(entryDigest));
+    }
+
+    /**
+     * Returns the path of an entry in this content with the specified digest, or <code>null</code> if there is none
+     */
+    String getEntryPath(final byte[] entryDigest) {
+        return pathsByEntryDigest.get(ArchiveDigest.toHex(entryDigest));
+    }
+
+    /**
+     * Records a new {@link Deployment} of this content
+     */
+    void reference() {
+        references++;
+    }
+
+    /**
+     * Records the undeployment of a {@link Deployment} of this content, returning whether any remain
+     */
+    boolean dereference() {
+        assert references > 0 :"Content is not referenced";
+        return --references > 0;
+    }
+
+    /**
+     * Removes the spool file backing this content, at once or, if the archive is still in use, once its last user
+     * releases it. The content may not be acquired after this call, and its holders must be dereferenced by the caller.
+     */
+    synchronized void release() {
+        released = true;
+        if (users == 0) {
+            this.deleteSpoolFile();
+        }
+    }
+
+    private void deleteSpoolFile() {
+        assert Thread.holdsLock(this) :"Must hold lock on content";
+        if (spoolFile.exists() && !spoolFile.delete()) {
+            if (log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + spoolFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * An entry read from the spool file of another content. Immutable.
+     */
+    static final class Link {
+
+        private final DeployedContent holder;
+        private final String path;
+
+        /**
+         * Creates a new link to the entry at the specified path of the specified holding content
+         */
+        Link(final DeployedContent holder, final String path) {
+            assert holder !=null :"Holder must be specified";
+            assert path !=null :"Path must be specified";
+            this.holder = holder;
+            this.path = path;
+        }
+
+        /**
+         * @return the content holding the entry
+         */
+        DeployedContent getHolder() {
+            return holder;
+        }
+
+        /**
+         * Returns the path of the entry within its holder
+         */
+        String getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.IOException;
+
+
+/**
+ * A single archive deployed into the server. Deployments of identical archives share their {@link DeployedContent},
+ * but each has its own isolated {@link ClassLoader} so that they remain independent of one another. That
+ * {@link ClassLoader}, along with the imported archive it reads from, is created upon first test execution and may be
+ * dropped by the server via {@link Deployment#unload()} whenever no test is executing, to be recreated on demand. Once
+ * {@link Deployment#release()}d, it is closed as soon as the last executing test completes. Any shareable
+ * infrastructure in the archive is instead loaded by a parent held in {@link SharedClassLoaders}.
+ */
+final class Deployment {
+
+    private final String id;
+    private final DeployedContent content;
+    private final SharedClassLoaders sharedClassLoaders;
+
+    /**
+     * Created upon first test execution after deployment or unload; guarded by this
+     */
+    private DeploymentClassLoading classLoading;
+    private int executing;
+    private boolean released;
+
+    /**
+     * Creates a new instance of the specified content, which must already have been referenced on its behalf, obtaining
+     * any shared parent {@link ClassLoader} from the specified cache
+     */
+    Deployment(final String id, final DeployedContent content, final SharedClassLoaders sharedClassLoaders) {
+        assert id !=null && id.length() > 0 :"ID must be specified";
+        assert content !=null :"Content must be specified";
+        assert sharedClassLoaders !=null :"Shared ClassLoaders must be specified";
+        this.id = id;
+        this.content = content;
+        this.sharedClassLoaders = sharedClassLoaders;
+    }
+
+    /**
+     * @return the id
+     */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * @return the content
+     */
+    DeployedContent getContent() {
+        return content;
+    }
+
+    /**
+     * Returns the isolated {@link ClassLoader} and cached test runner support for this deployment, loading them if
+     * necessary, for the execution of a test. Each call must be paired with a call to {@link Deployment#endExecution()}
+     * once the test completes; until then this deployment will not be unloaded.
+     *
+     * @throws IllegalStateException
+     *     If this deployment has been released, or does not contain the Arquillian test runner support
+     * @throws IOException
+     *     If the archive could not be read from disk
+     */
+    synchronized DeploymentClassLoading beginExecution() throws IllegalStateException, IOException {
+        if (released) {
+            throw new IllegalStateException("Archive with ID " + id + " has been undeployed");
+        }
+        if (classLoading == null) {
+            final IndexedArchive archive = content.acquireArchive();
+            final String sharedLayerDigest = content.getSharedLayerDigest();
+            ClassLoader sharedParent = null;
+            try {
+                if (sharedLayerDigest != null) {
+                    sharedParent = sharedClassLoaders.acquire(sharedLayerDigest, archive);
+                }
+                classLoading = new DeploymentClassLoading(archive, sharedParent);
+            } catch (final IOException | RuntimeException e) {
+                if (sharedParent != null) {
+                    sharedClassLoaders.release(sharedLayerDigest);
+                }
+                content.releaseArchive();
+                throw e;
+            }
+        }
+        executing++;
+        return classLoading;
+    }
+
+    /**
+     * Records the completion of a test begun via {@link Deployment#beginExecution()}
+     */
+    synchronized void endExecution() {
+        assert executing > 0 :"No test is executing";
+        executing--;
+        if (released && executing == 0 && classLoading != null) {
+            this.closeClassLoading();
+        }
+    }
+
+    /**
+     * Drops the isolated {@link ClassLoader} of this deployment and its use of the archive, unless a test is executing
+     *
+     * @return <code>true</code> if nothing remains loaded, else <code>false</code>
+     */
+    synchronized boolean unload() {
+        if (executing > 0) {
+            return false;
+        }
+        if (classLoading != null) {
+            this.closeClassLoading();
+        }
+        return true;
+    }
+
+    /**
+     * Marks this deployment undeployed, so that no further test may begin, and closes its isolated {@link ClassLoader}
+     * now if no test is executing, else once the last completes; its content is released separately by the server once
+     * no deployment references it
+     */
+    synchronized void release() {
+        released = true;
+        if (executing == 0 && classLoading != null) {
+            this.closeClassLoading();
+        }
+    }
+
+    /**
+     * Returns whether this deployment has been {@link Deployment#release()}d
+     */
+    synchronized boolean isReleased() {
+        return released;
+    }
+
+    private void closeClassLoading() {
+        assert Thread.holdsLock(this) :"Must hold lock on deployment";
+        classLoading.close();
+        classLoading = null;
+        if (content.getSharedLayerDigest() != null) {
+            sharedClassLoaders.release(content.getSharedLayerDigest());
+        }
+        content.releaseArchive();
+    }
+}
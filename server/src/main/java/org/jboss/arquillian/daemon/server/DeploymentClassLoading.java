@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The isolated {@link ClassLoader} of a single {@link Deployment}, along with the test classes and Arquillian test
+ * runner entry points resolved from it. Kept for the life of the deployment so that repeated test invocations against
+ * the same archive reuse already-defined (and already-compiled) classes rather than redefining them each time.
+ * Infrastructure shared by several deployments may be defined instead by a common parent (see
+ * {@link SharedClassLoaders}). Thread-safe.
+ */
+final class DeploymentClassLoading {
+
+    private static final String CLASS_NAME_ARQ_TEST_RUNNERS = "org.jboss.arquillian.container.test.spi.util.TestRunners";
+    private static final String METHOD_NAME_GET_TEST_RUNNER = "getTestRunner";
+    private static final String METHOD_NAME_EXECUTE = "execute";
+    private static final MethodType TYPE_GET_TEST_RUNNER = MethodType.methodType(Object.class);
+    private static final MethodType TYPE_EXECUTE = MethodType.methodType(Object.class, Object.class, Class.class,
+        String.class);
+
+    private final IndexedArchive archive;
+    private final ArchiveClassLoader classLoader;
+    private final ConcurrentMap<String, Class<?>> testClasses;
+    private final MethodHandle getTestRunner;
+
+    /**
+     * Runner class and its <code>execute</code> handle, resolved upon the first test execution; guarded by this
+     */
+    private Class<?> testRunnerClass;
+    private MethodHandle execute;
+
+    /**
+     * Creates a new instance using an isolated {@link ClassLoader} over the specified archive, delegating first to the
+     * specified shared parent, if any
+     *
+     * @throws IllegalStateException
+     *     If neither the archive nor the parent contains the Arquillian test runner support
+     */
+    DeploymentClassLoading(final IndexedArchive archive, final ClassLoader sharedParent) throws IllegalStateException {
+        assert archive !=null :"Archive must be specified";
+
+        // Use a ClassLoader with explicitly null parent (or one itself so isolated) to achieve isolation from
+        // --classpath
+        final ArchiveClassLoader classLoader = new ArchiveClassLoader(sharedParent, archive);
+        try {
+            final Class<?> testRunnersClass;
+            try {
+                testRunnersClass = classLoader.loadClass(CLASS_NAME_ARQ_TEST_RUNNERS);
+            } catch (final ClassNotFoundException cnfe) {
+                throw new IllegalStateException("Could not load class " + CLASS_NAME_ARQ_TEST_RUNNERS
+                    + " from deployed archive: " + archive.toString());
+            }
+            final Method getTestRunnerMethod = testRunnersClass.getMethod(METHOD_NAME_GET_TEST_RUNNER,
+                ClassLoader.class);
+            this.getTestRunner = MethodHandles.insertArguments(
+                MethodHandles.publicLookup().unreflect(getTestRunnerMethod), 0, classLoader).asType(
+                TYPE_GET_TEST_RUNNER);
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Could not resolve test runner support in deployed archive: "
+                + archive.toString(), e);
+        }
+
+        this.archive = archive;
+        this.classLoader = classLoader;
+        this.testClasses = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the isolated {@link ClassLoader}
+     */
+    ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Executes the specified method name on the specified test class, returning the test result. The caller is
+     * responsible for any TCCL setup.
+     *
+     * @throws IllegalStateException
+     *     If the test class could not be loaded from the archive
+     */
+    Serializable execute(final String testClassName, final String methodName) throws IllegalStateException {
+        final Class<?> testClass = this.getTestClass(testClassName);
+        try {
+            final Object testRunner = (Object) getTestRunner.invokeExact();
+            final MethodHandle execute = this.getExecuteHandle(testRunner.getClass());
+            return (Serializable) (Object) execute.invokeExact(testRunner, testClass, methodName);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Drops the test classes of the isolated {@link ClassLoader}; no further tests may be executed, and the archive it
+     * reads from may be closed
+     */
+    void close() {
+        testClasses.clear();
+    }
+
+    private Class<?> getTestClass(final String testClassName) throws IllegalStateException {
+        Class<?> testClass = testClasses.get(testClassName);
+        if (testClass == null) {
+            try {
+                testClass = classLoader.loadClass(testClassName);
+            } catch (final ClassNotFoundException cnfe) {
+                throw new IllegalStateException("Could not load class " + testClassName + " from deployed archive: "
+                    + archive.toString());
+            }
+            testClasses.putIfAbsent(testClassName, testClass);
+        }
+        return testClass;
+    }
+
+    private synchronized MethodHandle getExecuteHandle(final Class<?> runnerClass) throws NoSuchMethodException,
+        IllegalAccessException {
+        // The runner is obtained from a service lookup so will in practice always be of the same type
+        if (execute == null || testRunnerClass != runnerClass) {
+            final Method executeMethod = runnerClass.getMethod(METHOD_NAME_EXECUTE, Class.class, String.class);
+            execute = MethodHandles.publicLookup().unreflect(executeMethod).asType(TYPE_EXECUTE);
+            testRunnerClass = runnerClass;
+        }
+        return execute;
+    }
+}
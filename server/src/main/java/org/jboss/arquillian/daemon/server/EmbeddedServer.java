@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+
+/**
+ * {@link Server} running within the JVM of its client, which deploys and executes tests by direct calls rather than
+ * over any connection. Deployments are isolated exactly as those of a standalone daemon, each in a
+ * {@link ClassLoader} containing only the archive's contents and the bootstrap {@link ClassLoader}, so a test sees
+ * nothing of the client's classpath. Nothing is bound; the client counts as the server's one open connection for as
+ * long as it runs.
+ */
+public final class EmbeddedServer extends ServerBase {
+
+    EmbeddedServer() {
+        // Never bound; reported as the bound address only so that callers of Server find one
+        super(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.server.ServerBase#startInternal()
+     */
+    @Override
+    protected void startInternal() throws ServerLifecycleException, IllegalStateException {
+        this.setBoundAddress(this.getBindAddress());
+        this.connectionOpened();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see org.jboss.arquillian.daemon.server.ServerBase#stopInternal()
+     */
+    @Override
+    protected void stopInternal() throws ServerLifecycleException, IllegalStateException {
+        this.connectionClosed();
+    }
+
+    /**
+     * Deploys the specified archive, returning the ID under which it was deployed. The archive is exported to a spool
+     * file, from which it is read as one sent by a client would be, so that it may be unloaded under memory pressure.
+     *
+     * @throws IOException
+     *     If the archive could not be exported
+     * @throws IllegalStateException
+     *     If the server is not running
+     */
+    public String deployArchive(final Archive<?> archive) throws IOException, IllegalStateException {
+        assert archive !=null :"Archive must be specified";
+        if (!this.isRunning()) {
+            throw new IllegalStateException("Server is not running");
+        }
+        final File spoolFile = this.createSpoolFile();
+        try {
+            archive.as(ZipExporter.class).exportTo(spoolFile, true);
+        } catch (final RuntimeException re) {
+            if (!spoolFile.delete()) {
+                spoolFile.deleteOnExit();
+            }
+            throw new IOException("Could not export " + archive.getName(), re);
+        }
+        return this.deploy(spoolFile);
+    }
+
+    /**
+     * Executes the specified test upon the archive with the specified ID in the calling thread, returning its result
+     * as a {@link CompactTestResult} where it can be described structurally, else as returned by the test runner
+     * within the deployment's {@link ClassLoader}, to be carried over to the caller's by serialization
+     *
+     * @throws IllegalStateException
+     *     If the archive is not deployed
+     */
+    public Object runTest(final String archiveId, final String testClassName, final String methodName)
+        throws IllegalStateException {
+        assert archiveId !=null :"Archive ID must be specified";
+        assert testClassName !=null :"Test class name must be specified";
+        assert methodName !=null :"Method name must be specified";
+        final Serializable testResult = this.executeTest(archiveId, testClassName, methodName);
+        final CompactTestResult compact = TestResultEncoder.toCompact(testResult);
+        return compact != null ? compact : testResult;
+    }
+
+    /**
+     * Undeploys the archive with the specified ID, releasing any resources backing it
+     *
+     * @return <code>true</code> if the archive was deployed, else <code>false</code>
+     */
+    public boolean undeployArchive(final String archiveId) {
+        assert archiveId !=null :"Archive ID must be specified";
+        return this.undeploy(archiveId);
+    }
+}
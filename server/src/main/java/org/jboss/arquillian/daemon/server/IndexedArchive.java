@@ -0,0 +1,337 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jboss.arquillian.daemon.protocol.wire.ZipBuffer;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+
+/**
+ * A deployed archive read in place from the ZIP file holding it. Only the central directory is read upon opening,
+ * into an index of entries by path; each entry is inflated only when read, so an archive of which a test touches few
+ * classes costs little more than its index, however large. Entries are known by their ShrinkWrap archive paths
+ * (absolute, as in <code>/org/example/Test.class</code>); directories are not indexed. The archive is read via
+ * {@link ZipFile} or, as the {@link ArchiveStorage} chosen when opening it dictates, held outside the heap in a
+ * {@link ZipBuffer} until closed. Entries interned by another deployment may be linked in, to be read from that
+ * deployment's archive as though held here. Thread-safe.
+ */
+final class IndexedArchive {
+
+    private static final Logger log = Logger.getLogger(IndexedArchive.class.getName());
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File file;
+
+    /**
+     * Whichever of the two holds the archive; the other is <code>null</code>
+     */
+    private final ZipFile zipFile;
+    private final ZipBuffer buffer;
+
+    /**
+     * Paths of all entries; each names the entry of the same name less its leading slash, unless found among
+     * {@link IndexedArchive#irregularNames}. Only the paths are held, as the {@link ZipFile} or {@link ZipBuffer} keeps
+     * its own index of entries by name.
+     */
+    private final Set<String> paths;
+    private final Map<String, String> irregularNames;
+    private final long size;
+
+    /**
+     * Entries held by other archives, by path; populated via
+     * {@link IndexedArchive#link(String, IndexedArchive, String)} only before this archive is shared
+     */
+    private final Map<String, Link> links;
+
+    private IndexedArchive(final File file, final ZipFile zipFile, final ZipBuffer buffer) {
+        this.file = file;
+        this.zipFile = zipFile;
+        this.buffer = buffer;
+        this.paths = new HashSet<>();
+        this.irregularNames = new HashMap<>();
+        this.links = new HashMap<>();
+        long size = 0;
+        if (zipFile != null) {
+            final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                final ZipEntry entry = zipEntries.nextElement();
+                if (!entry.isDirectory()) {
+                    this.index(entry.getName());
+                    size += Math.max(entry.getSize(), 0);
+                }
+            }
+        } else {
+            for (final ZipBuffer.Entry entry : buffer.getEntries()) {
+                if (!entry.isDirectory()) {
+                    this.index(entry.getName());
+                    size += entry.getSize();
+                }
+            }
+        }
+        this.size = size;
+    }
+
+    private void index(final String name) {
+        final String path = ArchivePaths.create(name).get();
+        paths.add(path);
+        if (!path.regionMatches(1, name, 0, name.length()) || path.length() != name.length() + 1) {
+            irregularNames.put(path, name);
+        }
+    }
+
+    /**
+     * Opens and indexes the archive in the specified ZIP file, reading entries from the file as needed, as
+     * {@link IndexedArchive#open(File, ArchiveStorage)} does for {@link ArchiveStorage#FILE}
+     *
+     * @throws IOException
+     *     If the file could not be read as a ZIP
+     */
+    static IndexedArchive open(final File file) throws IOException {
+        return open(file, ArchiveStorage.FILE);
+    }
+
+    /**
+     * Opens and indexes the archive in the specified ZIP file, holding it in the specified {@link ArchiveStorage}
+     * until closed via {@link IndexedArchive#close()}, which must be called once the archive is no longer needed. An
+     * archive which cannot be held in a buffer (being too large for one, or in ZIP64 format, or finding direct memory
+     * exhausted) is read from the file instead.
+     *
+     * @throws IOException
+     *     If the file could not be read as a ZIP
+     */
+    static IndexedArchive open(final File file, final ArchiveStorage storage) throws IOException {
+        assert file !=null :"File must be specified";
+        assert storage !=null :"Storage must be specified";
+        if (storage != ArchiveStorage.FILE) {
+            ZipBuffer buffer = null;
+            try {
+                buffer = ZipBuffer.open(file, storage == ArchiveStorage.MAPPED);
+            } catch (final IOException | OutOfMemoryError e) {
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Could not hold " + file.getAbsolutePath() + " in " + storage + " storage, reading "
+                        + "from file instead: " + e.getMessage());
+                }
+            }
+            if (buffer != null) {
+                try {
+                    return new IndexedArchive(file, null, buffer);
+                } catch (final RuntimeException re) {
+                    buffer.close();
+                    throw re;
+                }
+            }
+        }
+        final ZipFile zipFile = new ZipFile(file);
+        try {
+            return new IndexedArchive(file, zipFile, null);
+        } catch (final RuntimeException re) {
+            zipFile.close();
+            throw re;
+        }
+    }
+
+    /**
+     * Links the entry at the specified path of the specified archive into this one, under the specified path, so that
+     * it is read from there. Must be called before this archive is shared; the other archive must remain open for as
+     * long as this one is.
+     */
+    void link(final String path, final IndexedArchive holder, final String holderPath) {
+        assert path !=null :"Path must be specified";
+        assert holder !=null && holder != this :"Holding archive must be specified";
+        assert holder.contains(holderPath) :"No entry " + holderPath + " in " + holder;
+        links.put(path, new Link(holder, holderPath));
+    }
+
+    /**
+     * Returns the paths of all entries other than directories, including those linked in
+     */
+    Set<String> getPaths() {
+        if (links.isEmpty()) {
+            return Collections.unmodifiableSet(paths);
+        }
+        final Set<String> all = new HashSet<>(paths);
+        all.addAll(links.keySet());
+        return Collections.unmodifiableSet(all);
+    }
+
+    /**
+     * Returns whether there is an entry at the specified path
+     */
+    boolean contains(final String path) {
+        return paths.contains(path) || links.containsKey(path);
+    }
+
+    /**
+     * Returns the uncompressed size of the entry held in this archive at the specified path, or -1 if there is no
+     * such entry or its size is not recorded
+     */
+    long getEntrySize(final String path) {
+        final String name = this.getEntryName(path);
+        if (name == null) {
+            return -1;
+        }
+        if (buffer != null) {
+            final ZipBuffer.Entry entry = buffer.getEntry(name);
+            return entry == null ? -1 : entry.getSize();
+        }
+        final ZipEntry entry = zipFile.getEntry(name);
+        return entry == null ? -1 : entry.getSize();
+    }
+
+    /**
+     * Opens the contents of the entry at the specified path, inflating them as they are read, or returns
+     * <code>null</code> if there is no such entry
+     *
+     * @throws IOException
+     *     If the entry could not be read
+     */
+    InputStream openStream(final String path) throws IOException {
+        final Link link = links.get(path);
+        if (link != null) {
+            return link.archive.openStream(link.path);
+        }
+        final String name = this.getEntryName(path);
+        if (name == null) {
+            return null;
+        }
+        if (buffer != null) {
+            final byte[] bytes = this.readBytes(path);
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
+        }
+        final ZipEntry entry = zipFile.getEntry(name);
+        return entry == null ? null : zipFile.getInputStream(entry);
+    }
+
+    /**
+     * Returns the contents of the entry at the specified path, or <code>null</code> if there is no such entry
+     *
+     * @throws IOException
+     *     If the entry could not be read
+     */
+    byte[] readBytes(final String path) throws IOException {
+        final Link link = links.get(path);
+        if (link != null) {
+            return link.archive.readBytes(link.path);
+        }
+        final String name = this.getEntryName(path);
+        if (name == null) {
+            return null;
+        }
+        if (buffer != null) {
+            final ZipBuffer.Entry entry = buffer.getEntry(name);
+            return entry == null ? null : buffer.readBytes(entry);
+        }
+        final ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize()
+            : BUFFER_SIZE);
+        final InputStream in = zipFile.getInputStream(entry);
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the name of the entry held in this archive at the specified path, or <code>null</code> if there is none
+     */
+    private String getEntryName(final String path) {
+        if (!paths.contains(path)) {
+            return null;
+        }
+        final String name = irregularNames.get(path);
+        return name != null ? name : path.substring(1);
+    }
+
+    /**
+     * Returns the total uncompressed size of all entries held in this archive (not those linked in), as far as the
+     * central directory records them
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Closes the underlying ZIP file, or releases the buffer holding it; no entry may be read afterward. Archives from
+     * which entries are linked are left open.
+     *
+     * @throws IOException
+     */
+    void close() throws IOException {
+        if (buffer != null) {
+            buffer.close();
+        } else {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return IndexedArchive.class.getSimpleName() + " of " + paths.size() + " entries " + (buffer != null
+            ? "held from " : "in ") + file.getAbsolutePath() + (links.isEmpty() ? "" : " and " + links.size()
+            + " linked");
+    }
+
+    /**
+     * An entry of another archive, linked into this one
+     */
+    private static final class Link {
+
+        private final IndexedArchive archive;
+        private final String path;
+
+        private Link(final IndexedArchive archive, final String path) {
+            this.archive = archive;
+            this.path = path;
+        }
+    }
+}
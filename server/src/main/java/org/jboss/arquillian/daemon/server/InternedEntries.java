@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the distinct entry contents held by the server, by the digest (in hexadecimal) of each, so that an entry
+ * common to the archives of several deployments (such as a library merged into each) need be stored only once: by
+ * the first {@link DeployedContent} to hold it, from which later contents read it. Each entry counts the contents
+ * referencing it, whether holding or reading it, from which the footprint of each content may be told apart from
+ * what it shares. Not thread-safe; guarded by the owning server.
+ */
+final class InternedEntries {
+
+    private final Map<String, InternedEntry> entries;
+
+    InternedEntries() {
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Returns the entry with the specified digest, or <code>null</code> if no held content references one
+     */
+    InternedEntry get(final String entryDigest) {
+        return entries.get(entryDigest);
+    }
+
+    /**
+     * Records that the specified content references each of its entries, of the specified uncompressed sizes by
+     * digest, becoming the holder of those not yet interned
+     */
+    void add(final DeployedContent content, final Map<String, Long> entrySizes) {
+        assert content !=null :"Content must be specified";
+        assert entrySizes !=null :"Entry sizes must be specified";
+        for (final String entryDigest : content.getEntryDigests()) {
+            final InternedEntry entry = entries.get(entryDigest);
+            if (entry != null) {
+                entry.references++;
+            } else {
+                assert content.storesEntry(entryDigest) :"Content links an entry which is not interned";
+                final Long size = entrySizes.get(entryDigest);
+                entries.put(entryDigest, new InternedEntry(content, content.getEntryPath(entryDigest), size == null
+                    ? 0 : size));
+            }
+        }
+    }
+
+    /**
+     * Records that the specified content, no longer held, references none of its entries. Any entry it held which is
+     * still referenced passes to another of the specified remaining contents storing a copy of its own; as those
+     * reading from a holder keep it held, there must be one.
+     */
+    void remove(final DeployedContent content, final Collection<DeployedContent> remaining) {
+        assert content !=null :"Content must be specified";
+        for (final String entryDigest : content.getEntryDigests()) {
+            final InternedEntry entry = entries.get(entryDigest);
+            assert entry != null :"Entry " + entryDigest + " is not interned";
+            if (--entry.references == 0) {
+                entries.remove(entryDigest);
+            } else if (entry.holder == content) {
+                entries.remove(entryDigest);
+                for (final DeployedContent candidate : remaining) {
+                    if (candidate.storesEntry(entryDigest)) {
+                        final InternedEntry moved = new InternedEntry(candidate, candidate.getEntryPath(entryDigest),
+                            entry.size);
+                        moved.references = entry.references;
+                        entries.put(entryDigest, moved);
+                        break;
+                    }
+                }
+                assert entries.containsKey(entryDigest) :"No remaining content stores entry " + entryDigest;
+            }
+        }
+    }
+
+    /**
+     * Returns the uncompressed size, in bytes, of those entries of the specified content which no other content
+     * references, or, if <code>shared</code>, of those which others do
+     */
+    long getSize(final DeployedContent content, final boolean shared) {
+        long size = 0;
+        for (final String entryDigest : content.getEntryDigests()) {
+            final InternedEntry entry = entries.get(entryDigest);
+            if (entry != null && (entry.references > 1) == shared) {
+                size += entry.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the total uncompressed size, in bytes, of the entries referenced by more than one content, counting each
+     * once
+     */
+    long getSharedSize() {
+        long size = 0;
+        for (final InternedEntry entry : entries.values()) {
+            if (entry.references > 1) {
+                size += entry.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The contents of an entry, held by one {@link DeployedContent} at a known path and referenced by any number
+     */
+    static final class InternedEntry {
+
+        private final DeployedContent holder;
+        private final String path;
+        private final long size;
+        private int references;
+
+        private InternedEntry(final DeployedContent holder, final String path, final long size) {
+            assert path !=null :"Path must be specified";
+            this.holder = holder;
+            this.path = path;
+            this.size = size;
+            this.references = 1;
+        }
+
+        /**
+         * @return the content holding this entry
+         */
+        DeployedContent getHolder() {
+            return holder;
+        }
+
+        /**
+         * Returns the path of this entry within its holder
+         */
+        String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the uncompressed size, in bytes
+         */
+        long getSize() {
+            return size;
+        }
+    }
+}
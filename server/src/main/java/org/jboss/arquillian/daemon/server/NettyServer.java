@@ -21,7 +21,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundByteHandlerAdapter;
@@ -36,24 +38,42 @@ import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.codec.Delimiters;
 import io.netty.handler.codec.string.StringDecoder;
 
-import java.io.InputStream;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+import org.jboss.arquillian.daemon.protocol.wire.DeltaManifest;
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
 import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
-import org.jboss.shrinkwrap.api.GenericArchive;
-import org.jboss.shrinkwrap.api.importer.ZipImporter;
 
 /**
  * Netty-based implementation of a {@link Server}; not thread-safe via the Java API (though invoking wire protocol
- * operations through its communication channels is). Responsible for handling I/O aspects of the server daemon.
+ * operations through its communication channels is). Responsible for handling I/O aspects of the server daemon; tests
+ * are handed off to the worker pool of {@link ServerBase} so that the I/O threads are never blocked by them.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
@@ -61,10 +81,12 @@ final class NettyServer extends ServerBase implements Server {
 
     private static final Logger log = Logger.getLogger(NettyServer.class.getName());
     private static final EofDecoder EOF_DECODER;
+    private static final byte[] EOF_DELIMITER;
 
     static {
         try {
             EOF_DECODER = new EofDecoder();
+            EOF_DELIMITER = WireProtocol.COMMAND_EOF_DELIMITER.getBytes(WireProtocol.CHARSET);
         } catch (final UnsupportedEncodingException e) {
             throw new RuntimeException("Could not get encoding: " + WireProtocol.CHARSET, e);
         }
@@ -73,15 +95,40 @@ final class NettyServer extends ServerBase implements Server {
     private static final String NAME_CHANNEL_HANDLER_EOF = "EOFHandler";
     private static final String NAME_CHANNEL_HANDLER_ACTION_CONTROLLER = "ActionControllerHandler";
     private static final String NAME_CHANNEL_HANDLER_STRING_DECODER = "StringDecoder";
-    private static final String NAME_CHANNEL_HANDLER_FRAME_DECODER = "FrameDecoder";
     private static final String NAME_CHANNEL_HANDLER_DEPLOY_HANDLER = "DeployHandler";
     private static final String NAME_CHANNEL_HANDLER_COMMAND = "CommandHandler";
+    private static final String NAME_CHANNEL_HANDLER_FRAME = "FrameHandler";
     private static final String[] NAME_CHANNEL_HANDLERS = {NAME_CHANNEL_HANDLER_EOF,
         NAME_CHANNEL_HANDLER_ACTION_CONTROLLER, NAME_CHANNEL_HANDLER_STRING_DECODER,
-        NAME_CHANNEL_HANDLER_FRAME_DECODER, NAME_CHANNEL_HANDLER_DEPLOY_HANDLER, NAME_CHANNEL_HANDLER_COMMAND};
+        NAME_CHANNEL_HANDLER_DEPLOY_HANDLER, NAME_CHANNEL_HANDLER_COMMAND, NAME_CHANNEL_HANDLER_FRAME};
+
+    /**
+     * Upper bound on the payload of any framed request other than those describing a deployment (which are spooled
+     * rather than held)
+     */
+    private static final int MAX_FRAME_PAYLOAD_LENGTH = 64 * 1024;
+
+    private static final String PREFIX_DIGEST_THREAD_NAME = "arquillian-daemon-digest-";
+    private static final String PREFIX_DEPLOY_THREAD_NAME = "arquillian-daemon-deploy-";
+
+    /**
+     * Time to allow deployments already received to finish upon stop, so none is left behind once the server is down
+     */
+    private static final long DEPLOY_SHUTDOWN_TIMEOUT_SECONDS = 30;
 
     private ServerBootstrap bootstrap;
 
+    /**
+     * Runs the {@link StreamingArchiveDigester} of each deployment being received
+     */
+    private ExecutorService digestService;
+
+    /**
+     * Deploys (or compares against those deployed) each framed deployment once received, keeping the imports, digests
+     * and delta assembly involved off the I/O threads
+     */
+    private ExecutorService deployService;
+
     NettyServer(final InetSocketAddress bindAddress) {
         super(bindAddress);
     }
@@ -94,6 +141,34 @@ final class NettyServer extends ServerBase implements Server {
     @Override
     protected void startInternal() throws ServerLifecycleException, IllegalStateException {
 
+        // Digests deployments as they arrive
+        this.digestService = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, PREFIX_DIGEST_THREAD_NAME + count.incrementAndGet());
+                // Abandoned upon stop, so must not keep the JVM (the client's, when embedded) alive
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Deploys them once received
+        this.deployService = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, PREFIX_DEPLOY_THREAD_NAME + count.incrementAndGet());
+                // Stop waits only so long for deployments in progress; they must not hold the JVM beyond that
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
         // Set up Netty Boostrap
         final ServerBootstrap bootstrap = new ServerBootstrap().group(new NioEventLoopGroup(), new NioEventLoopGroup())
             .channel(NioServerSocketChannel.class).localAddress(this.getBindAddress())
@@ -102,6 +177,13 @@ final class NettyServer extends ServerBase implements Server {
                 public void initChannel(final SocketChannel channel) throws Exception {
                     final ChannelPipeline pipeline = channel.pipeline();
                     NettyServer.this.resetPipeline(pipeline);
+                    NettyServer.this.connectionOpened();
+                    channel.closeFuture().addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(final ChannelFuture future) {
+                            NettyServer.this.connectionClosed();
+                        }
+                    });
                 }
             }).childOption(ChannelOption.TCP_NODELAY, true).childOption(ChannelOption.SO_KEEPALIVE, true);
         this.bootstrap = bootstrap;
@@ -112,8 +194,12 @@ final class NettyServer extends ServerBase implements Server {
             openChannel = bootstrap.bind().sync();
         } catch (final InterruptedException ie) {
             Thread.interrupted();
+            digestService.shutdownNow();
+            deployService.shutdownNow();
             throw new ServerLifecycleException("Interrupted while awaiting server start", ie);
         } catch (final RuntimeException re) {
+            digestService.shutdownNow();
+            deployService.shutdownNow();
             // Exception xlate
             throw new ServerLifecycleException("Encountered error in binding; could not start server.", re);
         }
@@ -131,6 +217,19 @@ final class NettyServer extends ServerBase implements Server {
     protected void stopInternal() throws ServerLifecycleException, IllegalStateException {
         // Shutdown
         bootstrap.shutdown();
+        digestService.shutdownNow();
+
+        // Let deployments already received finish (digests abandoned above fall back to the spool) before the server
+        // releases what is deployed
+        deployService.shutdown();
+        try {
+            if (!deployService.awaitTermination(DEPLOY_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                && log.isLoggable(Level.WARNING)) {
+                log.warning("Deployments still in progress after " + DEPLOY_SHUTDOWN_TIMEOUT_SECONDS + "s; stopping");
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -172,6 +271,19 @@ final class NettyServer extends ServerBase implements Server {
                     // connection)
                     NettyServer.this.stopAsync();
                 }
+                // Switch to framing mode
+                else if (message.startsWith(WireProtocol.COMMAND_PROTOCOL_PREFIX)) {
+                    final String version = message.substring(WireProtocol.COMMAND_PROTOCOL_PREFIX.length()).trim();
+                    if (!Byte.toString(WireProtocol.FRAME_VERSION).equals(version)) {
+                        NettyServer.sendResponse(ctx, out, WireProtocol.RESPONSE_ERROR_PREFIX
+                            + "Unsupported protocol version: " + version);
+                        return;
+                    }
+                    // All further traffic on this connection is framed
+                    NettyServer.this.useFramedPipeline(pipeline);
+                    NettyServer.sendResponse(ctx, out, WireProtocol.RESPONSE_OK_PREFIX
+                        + message.substring(WireProtocol.PREFIX_STRING_COMMAND.length()));
+                }
                 // Undeployment
                 else if (message.startsWith(WireProtocol.COMMAND_UNDEPLOY_PREFIX)) {
 
@@ -181,10 +293,10 @@ final class NettyServer extends ServerBase implements Server {
                     if (log.isLoggable(Level.FINEST)) {
                         log.finest("Requesting undeployment of: " + deploymentName);
                     }
-                    final GenericArchive removedArchive = NettyServer.this.getDeployedArchives().remove(deploymentName);
+                    final boolean undeployed = NettyServer.this.undeploy(deploymentName);
 
                     // Check that we resulted in undeployment
-                    if (removedArchive == null) {
+                    if (!undeployed) {
                         if (log.isLoggable(Level.FINEST)) {
                             log.finest("Not current deployment: " + deploymentName);
                         }
@@ -212,22 +324,19 @@ final class NettyServer extends ServerBase implements Server {
                     final String testClassName = tokenizer.nextToken();
                     final String methodName = tokenizer.nextToken();
 
-                    // Execute the test and get the result
-                    final Serializable testResult = NettyServer.this.executeTest(archiveId, testClassName, methodName);
+                    // Execute the test, writing back the result when done
+                    NettyServer.this.executeTestAsync(ctx.channel(), archiveId, testClassName, methodName,
+                        new ChannelTestCallback(ctx.channel()) {
+                            @Override
+                            void completed(final Channel channel, final Serializable testResult) throws IOException {
+                                NettyServer.sendTestResult(channel, testResult);
+                            }
 
-                    ObjectOutputStream objectOutstream = null;
-                    try {
-                        // Write the test result
-                        out.discardReadBytes();
-                        objectOutstream = new ObjectOutputStream(new ByteBufOutputStream(out));
-                        objectOutstream.writeObject(testResult);
-                        objectOutstream.flush();
-                        ctx.flush();
-                    } finally {
-                        if (objectOutstream != null) {
-                            objectOutstream.close();
-                        }
-                    }
+                            @Override
+                            void failed(final Channel channel, final String message) {
+                                NettyServer.sendResponse(channel, WireProtocol.RESPONSE_ERROR_PREFIX + message);
+                            }
+                        });
                 }
                 // Unsupported command
                 else {
@@ -264,12 +373,17 @@ final class NettyServer extends ServerBase implements Server {
     }
 
     /**
-     * Handles deployment only
+     * Handles deployment only. Streams the incoming archive bytes to a {@link DeploymentSpool} as they arrive, so that
+     * the server never holds more than a single read's worth of the archive in memory and digests each entry as soon
+     * as it has been received, then hands the spool file to {@link NettyServer#deployService} once the
+     * {@link WireProtocol#COMMAND_EOF_DELIMITER} has been seen, leaving the I/O thread free meanwhile.
      *
      * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
      */
     private final class DeployHandlerAdapter extends ChannelInboundByteHandlerAdapter {
 
+        private final DeploymentSpool spool = new DeploymentSpool();
+
         @Override
         public void inboundBufferUpdated(final ChannelHandlerContext ctx, final ByteBuf in) throws Exception {
 
@@ -277,26 +391,620 @@ final class NettyServer extends ServerBase implements Server {
                 log.finest("Using the " + this.getClass().getSimpleName());
             }
 
+            final Channel channel = ctx.channel();
+            final SpooledRequest request;
             try {
-                // Read in the archive using the isolated CL context of this domain
-                final InputStream instream = new ByteBufInputStream(in);
-                final GenericArchive archive = NettyServer.this.getShrinkwrapDomain().getArchiveFactory()
-                    .create(ZipImporter.class).importFrom(instream).as(GenericArchive.class);
-                instream.close();
-                if (log.isLoggable(Level.FINEST)) {
-                    log.finest("Got archive: " + archive.toString(true));
+                spool.digestEntries();
+                // Spool everything we've got unless it may contain the start of the delimiter, split across reads
+                final int delimiterIndex = indexOfEofDelimiter(in);
+                if (delimiterIndex < 0) {
+                    spool.write(in, in.readableBytes() - (EOF_DELIMITER.length - 1));
+                    return;
+                }
+                spool.write(in, delimiterIndex - in.readerIndex());
+                in.skipBytes(EOF_DELIMITER.length);
+                request = new LegacyDeployRequest(channel, spool.complete(), spool.detachDigester());
+            } catch (final IOException | RuntimeException e) {
+                spool.discard();
+                NettyServer.this.resetPipeline(ctx.pipeline());
+                // Will be captured by any remote process which launched us and is piping in our output
+                e.printStackTrace();
+                NettyServer.sendResponse(ctx, ctx.nextOutboundByteBuffer(), WireProtocol.RESPONSE_ERROR_PREFIX
+                    + "Could not deploy: " + e.getMessage());
+                return;
+            }
+            // The client sends nothing more until it has the response, so the next command may be awaited meanwhile
+            NettyServer.this.resetPipeline(ctx.pipeline());
+            try {
+                deployService.execute(request);
+            } catch (final RejectedExecutionException ree) {
+                request.discard();
+                NettyServer.sendResponse(channel, WireProtocol.RESPONSE_ERROR_PREFIX
+                    + "Could not deploy: server is stopping");
+            }
+        }
+
+        /**
+         * Removes any partially-received archive if the client goes away mid-transfer
+         *
+         * @see io.netty.channel.ChannelStateHandlerAdapter#channelInactive(io.netty.channel.ChannelHandlerContext)
+         */
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+            spool.discard();
+            super.channelInactive(ctx);
+        }
+    }
+
+    /**
+     * Handles all requests on a connection which has negotiated the binary framing mode of the {@link WireProtocol}.
+     * Headers are decoded in constant time; deployment payloads are streamed to a {@link DeploymentSpool} as they
+     * arrive (archives being digested as they do), and all other payloads are bounded by
+     * {@link NettyServer#MAX_FRAME_PAYLOAD_LENGTH}. Unlike the text commands, this handler stays in place for the life
+     * of the connection, and as tests run asynchronously any number of requests may be outstanding; every response
+     * carries the correlation ID of its request.
+     */
+    private final class FrameHandler extends ChannelInboundByteHandlerAdapter {
+
+        private final DeploymentSpool spool = new DeploymentSpool();
+
+        /**
+         * Opcode and correlation ID of the frame currently being received
+         */
+        private byte opcode;
+        private int correlationId;
+
+        /**
+         * Payload bytes of the current frame not yet received, or -1 if awaiting the next header
+         */
+        private int remaining = -1;
+
+        /**
+         * Set if the deployment currently being received could not be written to its spool
+         */
+        private IOException spoolFailure;
+
+        @Override
+        public void inboundBufferUpdated(final ChannelHandlerContext ctx, final ByteBuf in) throws Exception {
+            while (true) {
+
+                // Header
+                if (remaining < 0) {
+                    if (in.readableBytes() < WireProtocol.FRAME_HEADER_LENGTH) {
+                        return;
+                    }
+                    final byte version = in.readByte();
+                    opcode = in.readByte();
+                    correlationId = in.readInt();
+                    final int length = in.readInt();
+                    if (version != WireProtocol.FRAME_VERSION || length < 0
+                        || (!isSpooled(opcode) && length > MAX_FRAME_PAYLOAD_LENGTH)) {
+                        // We can't find the next frame boundary, so give up on this connection
+                        NettyServer.sendFrame(ctx.channel(), correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                            "Invalid frame header: version " + version + ", opcode " + opcode + ", length " + length);
+                        in.clear();
+                        ctx.close();
+                        return;
+                    }
+                    remaining = length;
+                    if (opcode == WireProtocol.OPCODE_DEPLOY) {
+                        spool.digestEntries();
+                    }
+                }
+
+                // Deployment payload (archive or manifest), which we spool rather than accumulate
+                if (isSpooled(opcode)) {
+                    final int available = Math.min(remaining, in.readableBytes());
+                    final int end = in.readerIndex() + available;
+                    if (spoolFailure == null) {
+                        try {
+                            spool.write(in, available);
+                        } catch (final IOException ioe) {
+                            spoolFailure = ioe;
+                            spool.discard();
+                        }
+                    }
+                    // Always consume the payload, even if we can't store it, so we stay in sync with frame boundaries
+                    in.readerIndex(end);
+                    remaining -= available;
+                    if (remaining > 0) {
+                        return;
+                    }
+                    remaining = -1;
+                    this.receiveSpooled(ctx);
+                    continue;
                 }
 
-                // Store the archive
-                final String id = archive.getId();
-                NettyServer.this.getDeployedArchives().put(id, archive);
+                // All other payloads are small; wait for the full frame
+                if (in.readableBytes() < remaining) {
+                    return;
+                }
+                final ByteBuf payload = in.readSlice(remaining);
+                remaining = -1;
+                this.dispatch(ctx, correlationId, opcode, payload);
+            }
+        }
 
-                // Tell the client OK, and let it know the ID of the archive (so it may be undeployed)
-                final ByteBuf out = ctx.nextOutboundByteBuffer();
-                NettyServer.sendResponse(ctx, out, WireProtocol.RESPONSE_OK_PREFIX + WireProtocol.COMMAND_DEPLOY_PREFIX
-                    + id);
+        /**
+         * Hands the deployment request just received in full to {@link NettyServer#deployService}, which responds once
+         * it is done; the I/O thread is left free to serve other requests meanwhile
+         */
+        private void receiveSpooled(final ChannelHandlerContext ctx) {
+            final Channel channel = ctx.channel();
+            final SpooledRequest request;
+            try {
+                if (spoolFailure != null) {
+                    throw spoolFailure;
+                }
+                final File spoolFile = spool.complete();
+                request = new SpooledRequest(channel, correlationId, opcode, spoolFile, spool.detachDigester());
+            } catch (final IOException | RuntimeException e) {
+                spool.discard();
+                // Will be captured by any remote process which launched us and is piping in our output
+                e.printStackTrace();
+                NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                    "Could not deploy: " + e.getMessage());
+                return;
             } finally {
-                NettyServer.this.resetPipeline(ctx.pipeline());
+                spoolFailure = null;
+            }
+            try {
+                deployService.execute(request);
+            } catch (final RejectedExecutionException ree) {
+                request.discard();
+                NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                    "Could not deploy: server is stopping");
+            }
+        }
+
+        private void dispatch(final ChannelHandlerContext ctx, final int correlationId, final byte opcode,
+            final ByteBuf payload) {
+            final Channel channel = ctx.channel();
+            // We want to catch any and all errors to to write out a proper response to the client
+            try {
+                switch (opcode) {
+                    case WireProtocol.OPCODE_STOP:
+                        NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_OK, null);
+                        // Stop in another thread (after we send the response)
+                        NettyServer.this.stopAsync();
+                        break;
+                    case WireProtocol.OPCODE_UNDEPLOY:
+                        final String deploymentName = payload.toString(Charset.forName(WireProtocol.CHARSET));
+                        if (NettyServer.this.undeploy(deploymentName)) {
+                            NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_OK,
+                                deploymentName);
+                        } else {
+                            NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                                "Deployment " + deploymentName + " could not be found in current deployments.");
+                        }
+                        break;
+                    case WireProtocol.OPCODE_DEPLOY_CACHED:
+                        final String digest = payload.toString(Charset.forName(WireProtocol.CHARSET));
+                        final String cachedId = NettyServer.this.deployCached(digest);
+                        if (cachedId != null) {
+                            NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_OK, cachedId);
+                        } else {
+                            NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_NOT_FOUND, null);
+                        }
+                        break;
+                    case WireProtocol.OPCODE_TEST:
+                        final ByteBufInputStream arguments = new ByteBufInputStream(payload);
+                        final String archiveId = arguments.readUTF();
+                        final String testClassName = arguments.readUTF();
+                        final String methodName = arguments.readUTF();
+                        NettyServer.this.executeTestAsync(channel, archiveId, testClassName, methodName,
+                            new ChannelTestCallback(channel) {
+                                @Override
+                                void completed(final Channel channel, final Serializable testResult)
+                                    throws IOException {
+                                    NettyServer.sendTestResultFrame(channel, correlationId, testResult);
+                                }
+
+                                @Override
+                                void failed(final Channel channel, final String message) {
+                                    NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                                        message);
+                                }
+                            });
+                        break;
+                    case WireProtocol.OPCODE_TEST_BATCH:
+                        final ByteBufInputStream batch = new ByteBufInputStream(payload);
+                        final String batchArchiveId = batch.readUTF();
+                        final boolean parallel = batch.readBoolean();
+                        final int count = batch.readInt();
+                        if (count < 0) {
+                            throw new IllegalArgumentException("Invalid test count: " + count);
+                        }
+                        final List<TestMethod> tests = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            tests.add(new TestMethod(batch.readUTF(), batch.readUTF()));
+                        }
+                        try {
+                            NettyServer.this.executeTestsAsync(batchArchiveId, tests, parallel,
+                                new ChannelBatchCallback(channel, correlationId));
+                        } catch (final RejectedExecutionException ree) {
+                            if (log.isLoggable(Level.FINE)) {
+                                log.fine("Rejected batch of " + count + " tests: " + ree.getMessage());
+                            }
+                            NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                                "Server busy; too many tests already waiting to be executed");
+                        }
+                        break;
+                    case WireProtocol.OPCODE_LOAD:
+                        NettyServer.sendLoadFrame(channel, correlationId, NettyServer.this.getPendingTestCount(),
+                            NettyServer.this.getTestThreadCount(), NettyServer.this.getOpenConnectionCount());
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("This server does not support opcode: " + opcode);
+                }
+            } catch (final Throwable t) {
+                // Will be captured by any remote process which launched us and is piping in our output
+                t.printStackTrace();
+                NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                    "Caught unexpected error servicing request: " + t.getMessage());
+            }
+        }
+
+        /**
+         * Removes any partially-received archive if the client goes away mid-transfer
+         *
+         * @see io.netty.channel.ChannelStateHandlerAdapter#channelInactive(io.netty.channel.ChannelHandlerContext)
+         */
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+            spool.discard();
+            super.channelInactive(ctx);
+        }
+
+        /**
+         * Ignores all exceptions if the server is not running, else delegates to the super implementation.
+         *
+         * @see io.netty.channel.ChannelStateHandlerAdapter#exceptionCaught(io.netty.channel.ChannelHandlerContext,
+         * java.lang.Throwable)
+         */
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+            if (!NettyServer.this.isRunning()) {
+                if (log.isLoggable(Level.FINEST)) {
+                    log.finest("Got exception while server is not running: " + cause.getMessage());
+                }
+                ctx.close();
+            } else {
+                super.exceptionCaught(ctx, cause);
+            }
+        }
+    }
+
+    /**
+     * {@link TestCallback} which writes the outcome of a test back to the requesting {@link Channel}. Callbacks arrive
+     * on a test worker thread, so the write is handed back to the I/O thread of the channel; if the client has gone
+     * away in the meantime, or the connection is shutting down, the outcome is dropped.
+     */
+    private abstract static class ChannelTestCallback implements TestCallback {
+
+        private final Channel channel;
+
+        ChannelTestCallback(final Channel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes the result of a test which ran; called from the I/O thread of the channel
+         */
+        abstract void completed(Channel channel, Serializable testResult) throws IOException;
+
+        /**
+         * Writes the message of a test which could not be run; called from the I/O thread of the channel
+         */
+        abstract void failed(Channel channel, String message);
+
+        @Override
+        public final void completed(final Serializable testResult) {
+            NettyServer.writeLater(channel, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ChannelTestCallback.this.completed(channel, testResult);
+                    } catch (final IOException | RuntimeException e) {
+                        // Will be captured by any remote process which launched us and is piping in our output
+                        e.printStackTrace();
+                        ChannelTestCallback.this.failed(channel, "Could not write test result: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public final void failed(final Throwable cause) {
+            // Will be captured by any remote process which launched us and is piping in our output
+            cause.printStackTrace();
+            NettyServer.writeLater(channel, new Runnable() {
+                @Override
+                public void run() {
+                    ChannelTestCallback.this.failed(channel, "Caught unexpected error servicing request: "
+                        + cause.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * {@link BatchCallback} which streams the outcome of each test in a batch back to the requesting {@link Channel}
+     * as a frame carrying the correlation ID of the batch request. As with {@link ChannelTestCallback}, writes are
+     * handed back to the I/O thread of the channel, which also keeps them in the order the outcomes were reported.
+     */
+    private static final class ChannelBatchCallback implements BatchCallback {
+
+        private final Channel channel;
+        private final int correlationId;
+
+        ChannelBatchCallback(final Channel channel, final int correlationId) {
+            this.channel = channel;
+            this.correlationId = correlationId;
+        }
+
+        @Override
+        public void completed(final int index, final Serializable testResult) {
+            NettyServer.writeLater(channel, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        NettyServer.sendBatchResultFrame(channel, correlationId, index, testResult);
+                    } catch (final IOException | RuntimeException e) {
+                        // Will be captured by any remote process which launched us and is piping in our output
+                        e.printStackTrace();
+                        NettyServer.sendBatchErrorFrame(channel, correlationId, index, "Could not write test result: "
+                            + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void failed(final int index, final Throwable cause) {
+            // Will be captured by any remote process which launched us and is piping in our output
+            cause.printStackTrace();
+            NettyServer.writeLater(channel, new Runnable() {
+                @Override
+                public void run() {
+                    NettyServer.sendBatchErrorFrame(channel, correlationId, index,
+                        "Caught unexpected error servicing request: " + cause.getMessage());
+                }
+            });
+        }
+
+        @Override
+        public void finished() {
+            NettyServer.writeLater(channel, new Runnable() {
+                @Override
+                public void run() {
+                    NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_OK, null);
+                }
+            });
+        }
+    }
+
+    /**
+     * A framed deployment request received in full, carried out on a {@link NettyServer#deployService} thread; the
+     * response is handed back to the I/O thread of the channel, and dropped if the client has gone away meanwhile.
+     * Owns its spool file until handed to the server.
+     */
+    private class SpooledRequest implements Runnable {
+
+        private final Channel channel;
+        private final int correlationId;
+        private final byte opcode;
+        private final File spoolFile;
+        private final StreamingArchiveDigester digester;
+
+        SpooledRequest(final Channel channel, final int correlationId, final byte opcode, final File spoolFile,
+            final StreamingArchiveDigester digester) {
+            this.channel = channel;
+            this.correlationId = correlationId;
+            this.opcode = opcode;
+            this.spoolFile = spoolFile;
+            this.digester = digester;
+        }
+
+        @Override
+        public void run() {
+            try {
+                switch (opcode) {
+                    case WireProtocol.OPCODE_DEPLOY:
+                        final ArchiveDigest streamedDigest;
+                        try {
+                            streamedDigest = digester == null ? null : digester.finish();
+                        } catch (final IOException ioe) {
+                            this.discard();
+                            throw ioe;
+                        }
+                        // The server now owns the spool file
+                        this.respond(WireProtocol.OPCODE_RESPONSE_OK, NettyServer.this.deploy(spoolFile,
+                            streamedDigest));
+                        break;
+                    case WireProtocol.OPCODE_DELTA_QUERY:
+                        this.respond(NettyServer.this.findMissingEntries(readManifest(spoolFile)));
+                        break;
+                    case WireProtocol.OPCODE_DEPLOY_DELTA:
+                        final String deltaId = NettyServer.this.deployDelta(spoolFile);
+                        if (deltaId != null) {
+                            this.respond(WireProtocol.OPCODE_RESPONSE_OK, deltaId);
+                        } else {
+                            this.respond(WireProtocol.OPCODE_RESPONSE_NOT_FOUND, null);
+                        }
+                        break;
+                    default:
+                        this.discard();
+                        throw new IllegalStateException("Opcode is not spooled: " + opcode);
+                }
+            } catch (final IOException | RuntimeException e) {
+                // Will be captured by any remote process which launched us and is piping in our output
+                e.printStackTrace();
+                this.respond(WireProtocol.OPCODE_RESPONSE_ERROR, "Could not deploy: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Abandons the request without carrying it out
+         */
+        void discard() {
+            if (digester != null) {
+                digester.abandon();
+            }
+            if (!spoolFile.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + spoolFile.getAbsolutePath());
+            }
+        }
+
+        void respond(final byte responseOpcode, final String payload) {
+            this.respond(new Runnable() {
+                @Override
+                public void run() {
+                    NettyServer.sendFrame(channel, correlationId, responseOpcode, payload);
+                }
+            });
+        }
+
+        private void respond(final List<String> paths) {
+            this.respond(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        NettyServer.sendEntriesFrame(channel, correlationId, paths);
+                    } catch (final IOException ioe) {
+                        NettyServer.sendFrame(channel, correlationId, WireProtocol.OPCODE_RESPONSE_ERROR,
+                            "Could not write missing entries: " + ioe.getMessage());
+                    }
+                }
+            });
+        }
+
+        private void respond(final Runnable write) {
+            NettyServer.writeLater(channel, write);
+        }
+    }
+
+    /**
+     * A deployment received in full over the text protocol, carried out as a framed one is; the response is the line
+     * the text protocol expects rather than a frame.
+     */
+    private final class LegacyDeployRequest extends SpooledRequest {
+
+        private final Channel channel;
+
+        LegacyDeployRequest(final Channel channel, final File spoolFile, final StreamingArchiveDigester digester) {
+            // The text protocol has no correlation IDs
+            super(channel, 0, WireProtocol.OPCODE_DEPLOY, spoolFile, digester);
+            this.channel = channel;
+        }
+
+        @Override
+        void respond(final byte responseOpcode, final String payload) {
+            // Tell the client OK, and let it know the ID of the archive (so it may be undeployed)
+            final String response = responseOpcode == WireProtocol.OPCODE_RESPONSE_OK ? WireProtocol.RESPONSE_OK_PREFIX
+                + WireProtocol.COMMAND_DEPLOY_PREFIX + payload : WireProtocol.RESPONSE_ERROR_PREFIX + payload;
+            NettyServer.writeLater(channel, new Runnable() {
+                @Override
+                public void run() {
+                    NettyServer.sendResponse(channel, response);
+                }
+            });
+        }
+    }
+
+    /**
+     * Receives the bytes of a single incoming deployment into a spool file created by the server, and if asked, has a
+     * {@link StreamingArchiveDigester} read them back as they are written so that the archive is already digested once
+     * received in full. Not thread-safe; each instance is confined to the I/O thread of its channel.
+     */
+    private final class DeploymentSpool {
+
+        private File spoolFile;
+        private FileChannel spoolChannel;
+        private StreamingArchiveDigester digester;
+
+        /**
+         * Digests the entries of the archive about to be received as its bytes are written to the spool, creating it;
+         * has no effect once any have been written, or if the server is stopping
+         */
+        void digestEntries() throws IOException {
+            if (digester != null || spoolChannel != null) {
+                return;
+            }
+            this.open();
+            final StreamingArchiveDigester digester = new StreamingArchiveDigester(spoolFile);
+            try {
+                digestService.execute(digester);
+            } catch (final RejectedExecutionException ree) {
+                return;
+            }
+            this.digester = digester;
+        }
+
+        /**
+         * Moves the specified number of readable bytes from the buffer into the spool, creating it if necessary
+         */
+        void write(final ByteBuf in, final int length) throws IOException {
+            this.open();
+            int remaining = length;
+            while (remaining > 0) {
+                remaining -= in.readBytes(spoolChannel, remaining);
+            }
+            if (digester != null && length > 0) {
+                // Read back from the spool file rather than copied, so a lagging digest costs no memory
+                digester.written(length);
+            }
+        }
+
+        /**
+         * Closes the spool and hands off its file, resetting this instance for the next deployment
+         */
+        File complete() throws IOException {
+            // Nothing may have been received, in which case the empty spool will fail import with a proper message
+            this.open();
+            final File completed = spoolFile;
+            spoolChannel.close();
+            spoolChannel = null;
+            spoolFile = null;
+            return completed;
+        }
+
+        /**
+         * Hands off the digester of the archive just received, if any, to be finished by its new owner
+         */
+        StreamingArchiveDigester detachDigester() {
+            final StreamingArchiveDigester detached = digester;
+            digester = null;
+            return detached;
+        }
+
+        private void open() throws IOException {
+            if (spoolChannel == null) {
+                spoolFile = NettyServer.this.createSpoolFile();
+                spoolChannel = new FileOutputStream(spoolFile).getChannel();
+            }
+        }
+
+        /**
+         * Closes and deletes any spool in progress
+         */
+        void discard() {
+            if (digester != null) {
+                digester.abandon();
+                digester = null;
+            }
+            if (spoolChannel != null) {
+                try {
+                    spoolChannel.close();
+                } catch (final IOException ignore) {
+                }
+                spoolChannel = null;
+            }
+            if (spoolFile != null) {
+                if (!spoolFile.delete() && log.isLoggable(Level.WARNING)) {
+                    log.warning("Could not delete spool file " + spoolFile.getAbsolutePath());
+                }
+                spoolFile = null;
             }
         }
     }
@@ -327,27 +1035,22 @@ final class NettyServer extends ServerBase implements Server {
 
             // String-based Command?
             if (this.isStringCommand(magic1, magic2, magic3)) {
-                // Write a line break into the buffer so we mark the frame
-                in.writeBytes(Delimiters.lineDelimiter()[0]);
-                // Adjust the pipeline such that we use the command handler
-                pipeline.addLast(NAME_CHANNEL_HANDLER_FRAME_DECODER,
-                    new DelimiterBasedFrameDecoder(2000, Delimiters.lineDelimiter()));
+                // Adjust the pipeline such that we frame on the EOF delimiter and use the command handler
+                pipeline.addLast(NAME_CHANNEL_HANDLER_EOF, EOF_DECODER);
                 pipeline.addLast(NAME_CHANNEL_HANDLER_STRING_DECODER,
                     new StringDecoder(Charset.forName(WireProtocol.CHARSET)));
                 pipeline.addLast(NAME_CHANNEL_HANDLER_COMMAND, new StringCommandHandler());
                 pipeline.remove(NAME_CHANNEL_HANDLER_ACTION_CONTROLLER);
-                pipeline.remove(NAME_CHANNEL_HANDLER_EOF);
             }
             // Deploy command?
             else if (this.isDeployCommand(magic1, magic2, magic3)) {
                 // Set the reader index so we strip out the command portion, leaving only the bytes containing the
-                // archive (the frame decoder will strip off the EOF delimiter)
+                // archive (the deploy handler will strip off the EOF delimiter)
                 in.readerIndex(in.readerIndex() + WireProtocol.COMMAND_DEPLOY_PREFIX.length());
 
                 // Adjust the pipeline such that we use the deploy handler only
                 pipeline.addLast(NAME_CHANNEL_HANDLER_DEPLOY_HANDLER, new DeployHandlerAdapter());
                 pipeline.remove(NAME_CHANNEL_HANDLER_ACTION_CONTROLLER);
-                pipeline.remove(NAME_CHANNEL_HANDLER_EOF);
             } else {
                 // Unknown command/protocol
                 NettyServer.sendResponse(ctx, ctx.nextOutboundByteBuffer(), WireProtocol.RESPONSE_ERROR_PREFIX
@@ -409,6 +1112,21 @@ final class NettyServer extends ServerBase implements Server {
         }
     }
 
+    /**
+     * Submits the specified test to the worker pool, reporting immediately via the callback if the pool is saturated
+     */
+    private void executeTestAsync(final Channel channel, final String archiveId, final String testClassName,
+        final String methodName, final ChannelTestCallback callback) {
+        try {
+            this.executeTestAsync(archiveId, testClassName, methodName, callback);
+        } catch (final RejectedExecutionException ree) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Rejected test " + testClassName + "#" + methodName + ": " + ree.getMessage());
+            }
+            callback.failed(channel, "Server busy; too many tests already waiting to be executed");
+        }
+    }
+
     private void resetPipeline(final ChannelPipeline pipeline) {
         // Remove all we've added
         for (final String handlerName : NAME_CHANNEL_HANDLERS) {
@@ -418,11 +1136,75 @@ final class NettyServer extends ServerBase implements Server {
             }
         }
         // Manually set up pipeline for action controller
-        pipeline.addLast(NAME_CHANNEL_HANDLER_EOF, EOF_DECODER);
         pipeline.addLast(NAME_CHANNEL_HANDLER_ACTION_CONTROLLER, new ActionControllerHandler());
     }
 
+    private void useFramedPipeline(final ChannelPipeline pipeline) {
+        for (final String handlerName : NAME_CHANNEL_HANDLERS) {
+            try {
+                pipeline.remove(handlerName);
+            } catch (final NoSuchElementException ignore) {
+            }
+        }
+        pipeline.addLast(NAME_CHANNEL_HANDLER_FRAME, new FrameHandler());
+    }
+
+    /**
+     * Returns the absolute index of the first {@link WireProtocol#COMMAND_EOF_DELIMITER} in the readable bytes of the
+     * specified buffer, or -1 if not present
+     */
+    private static int indexOfEofDelimiter(final ByteBuf in) {
+        final int lastCandidate = in.writerIndex() - EOF_DELIMITER.length;
+        int candidate = in.readerIndex();
+        while (candidate <= lastCandidate) {
+            candidate = in.indexOf(candidate, lastCandidate + 1, EOF_DELIMITER[0]);
+            if (candidate < 0) {
+                return -1;
+            }
+            int matched = 1;
+            while (matched < EOF_DELIMITER.length && in.getByte(candidate + matched) == EOF_DELIMITER[matched]) {
+                matched++;
+            }
+            if (matched == EOF_DELIMITER.length) {
+                return candidate;
+            }
+            candidate++;
+        }
+        return -1;
+    }
+
+    /**
+     * Hands the specified write to the I/O thread of the channel from any other thread; the write is dropped if the
+     * client has gone away by then, or if the event loop of the channel is shutting down and so rejects it
+     */
+    private static void writeLater(final Channel channel, final Runnable write) {
+        try {
+            channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (channel.isActive()) {
+                        write.run();
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException ree) {
+            if (log.isLoggable(Level.FINEST)) {
+                log.finest("Dropped write to " + channel + "; connection is shutting down");
+            }
+        }
+    }
+
     private static void sendResponse(final ChannelHandlerContext ctx, final ByteBuf out, final String response) {
+        writeResponse(out, response);
+        ctx.flush();
+    }
+
+    private static void sendResponse(final Channel channel, final String response) {
+        writeResponse(channel.outboundByteBuffer(), response);
+        channel.flush();
+    }
+
+    private static void writeResponse(final ByteBuf out, final String response) {
         out.discardReadBytes();
         try {
             out.writeBytes(response.getBytes(WireProtocol.CHARSET));
@@ -430,6 +1212,165 @@ final class NettyServer extends ServerBase implements Server {
         } catch (final UnsupportedEncodingException uee) {
             throw new RuntimeException("Unsupported encoding", uee);
         }
-        ctx.flush();
+    }
+
+    private static void sendTestResult(final Channel channel, final Serializable testResult) throws IOException {
+        final ByteBuf out = channel.outboundByteBuffer();
+        out.discardReadBytes();
+        final ObjectOutputStream objectOutstream = new ObjectOutputStream(new ByteBufOutputStream(out));
+        try {
+            objectOutstream.writeObject(testResult);
+        } finally {
+            objectOutstream.close();
+        }
+        channel.flush();
+    }
+
+    private static void sendFrame(final Channel channel, final int correlationId, final byte opcode,
+        final String payload) {
+        final ByteBuf out = channel.outboundByteBuffer();
+        out.discardReadBytes();
+        final byte[] payloadBytes = Frame.create(correlationId, opcode, payload).getPayload();
+        out.writeByte(WireProtocol.FRAME_VERSION);
+        out.writeByte(opcode);
+        out.writeInt(correlationId);
+        out.writeInt(payloadBytes.length);
+        out.writeBytes(payloadBytes);
+        channel.flush();
+    }
+
+    /**
+     * Returns whether payloads of the specified opcode are potentially large, and so are spooled to disk rather than
+     * received in memory
+     */
+    private static boolean isSpooled(final byte opcode) {
+        return opcode == WireProtocol.OPCODE_DEPLOY || opcode == WireProtocol.OPCODE_DELTA_QUERY
+            || opcode == WireProtocol.OPCODE_DEPLOY_DELTA;
+    }
+
+    /**
+     * Reads the {@link DeltaManifest} making up the specified spool file, then deletes it
+     */
+    private static DeltaManifest readManifest(final File spoolFile) throws IOException {
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spoolFile)));
+            try {
+                return DeltaManifest.read(in);
+            } finally {
+                in.close();
+            }
+        } finally {
+            if (!spoolFile.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + spoolFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private static void sendEntriesFrame(final Channel channel, final int correlationId, final List<String> paths)
+        throws IOException {
+        final ByteBuf out = channel.outboundByteBuffer();
+        final int lengthIndex = beginFrame(out, correlationId, WireProtocol.OPCODE_RESPONSE_ENTRIES);
+        DeltaManifest.writePaths(new DataOutputStream(new ByteBufOutputStream(out)), paths);
+        endFrame(out, lengthIndex);
+        channel.flush();
+    }
+
+    private static void sendLoadFrame(final Channel channel, final int correlationId, final int pendingTests,
+        final int testThreads, final int openConnections) {
+        final ByteBuf out = channel.outboundByteBuffer();
+        final int lengthIndex = beginFrame(out, correlationId, WireProtocol.OPCODE_RESPONSE_LOAD);
+        out.writeInt(pendingTests);
+        out.writeInt(testThreads);
+        out.writeInt(openConnections);
+        endFrame(out, lengthIndex);
+        channel.flush();
+    }
+
+    private static void sendBatchResultFrame(final Channel channel, final int correlationId, final int index,
+        final Serializable testResult) throws IOException {
+        final ByteBuf out = channel.outboundByteBuffer();
+        final int lengthIndex = beginFrame(out, correlationId, WireProtocol.OPCODE_RESPONSE_BATCH_RESULT);
+        out.writeInt(index);
+        writeTestResult(out, lengthIndex, testResult);
+        endFrame(out, lengthIndex);
+        channel.flush();
+    }
+
+    private static void sendBatchErrorFrame(final Channel channel, final int correlationId, final int index,
+        final String message) {
+        final ByteBuf out = channel.outboundByteBuffer();
+        final int lengthIndex = beginFrame(out, correlationId, WireProtocol.OPCODE_RESPONSE_BATCH_ERROR);
+        out.writeInt(index);
+        out.writeBytes(Frame.create(correlationId, WireProtocol.OPCODE_RESPONSE_BATCH_ERROR, message).getPayload());
+        endFrame(out, lengthIndex);
+        channel.flush();
+    }
+
+    /**
+     * Writes the header of a frame whose payload is to be written directly into the specified buffer, returning the
+     * index of its length field to be passed to {@link NettyServer#endFrame(ByteBuf, int)} once it has been
+     */
+    private static int beginFrame(final ByteBuf out, final int correlationId, final byte opcode) {
+        out.discardReadBytes();
+        out.writeByte(WireProtocol.FRAME_VERSION);
+        out.writeByte(opcode);
+        out.writeInt(correlationId);
+        // Length isn't known until we've encoded, so reserve it and fill it in after
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        return lengthIndex;
+    }
+
+    private static void endFrame(final ByteBuf out, final int lengthIndex) {
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    /**
+     * Serializes the specified object into the payload of the frame begun via
+     * {@link NettyServer#beginFrame(ByteBuf, int, byte)}, discarding the frame entirely if that fails
+     */
+    private static void writeObject(final ByteBuf out, final int lengthIndex, final Serializable object)
+        throws IOException {
+        try {
+            final ObjectOutputStream objectOutstream = new ObjectOutputStream(new ByteBufOutputStream(out));
+            try {
+                objectOutstream.writeObject(object);
+            } finally {
+                objectOutstream.close();
+            }
+        } catch (final IOException | RuntimeException e) {
+            out.writerIndex(lengthIndex - WireProtocol.FRAME_HEADER_LENGTH + 4);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the specified test result into the payload of the frame begun via
+     * {@link NettyServer#beginFrame(ByteBuf, int, byte)} as a {@link CompactTestResult} where possible, else
+     * serialized
+     */
+    private static void writeTestResult(final ByteBuf out, final int lengthIndex, final Serializable testResult)
+        throws IOException {
+        final CompactTestResult compact = TestResultEncoder.toCompact(testResult);
+        if (compact != null) {
+            final int payloadIndex = out.writerIndex();
+            try {
+                compact.write(new DataOutputStream(new ByteBufOutputStream(out)));
+                return;
+            } catch (final IOException ioe) {
+                // Such as a name too long for the encoding; serialization has no such limit
+                out.writerIndex(payloadIndex);
+            }
+        }
+        writeObject(out, lengthIndex, testResult);
+    }
+
+    private static void sendTestResultFrame(final Channel channel, final int correlationId,
+        final Serializable testResult) throws IOException {
+        final ByteBuf out = channel.outboundByteBuffer();
+        final int lengthIndex = beginFrame(out, correlationId, WireProtocol.OPCODE_RESPONSE_TEST_RESULT);
+        writeTestResult(out, lengthIndex, testResult);
+        endFrame(out, lengthIndex);
+        channel.flush();
     }
 }
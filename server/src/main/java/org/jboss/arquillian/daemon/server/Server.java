@@ -34,6 +34,8 @@ public interface Server {
     Class<?>[] METHOD_PARAMS_START = new Class<?>[] {};
     String METHOD_NAME_STOP = "stop";
     Class<?>[] METHOD_PARAMS_STOP = new Class<?>[] {};
+    String METHOD_NAME_GET_BOUND_ADDRESS = "getBoundAddress";
+    Class<?>[] METHOD_PARAMS_GET_BOUND_ADDRESS = new Class<?>[] {};
 
     /**
      * Starts the server
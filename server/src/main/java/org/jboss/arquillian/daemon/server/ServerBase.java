@@ -16,51 +16,180 @@
  */
 package org.jboss.arquillian.daemon.server;
 
-import org.jboss.shrinkwrap.api.ConfigurationBuilder;
-import org.jboss.shrinkwrap.api.Domain;
-import org.jboss.shrinkwrap.api.GenericArchive;
-import org.jboss.shrinkwrap.api.ShrinkWrap;
-import org.jboss.shrinkwrap.api.classloader.ShrinkWrapClassLoader;
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.DeltaManifest;
+import org.jboss.shrinkwrap.api.ArchivePaths;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 /**
- * Base support for {@link Server} implementations
+ * Base support for {@link Server} implementations. Tests are executed on a dedicated pool of worker threads, sized by
+ * the {@link ServerBase#SYSPROP_NAME_TEST_THREADS} system property (defaulting to the number of available processors)
+ * and accepting up to {@link ServerBase#SYSPROP_NAME_TEST_QUEUE} waiting requests before rejecting further ones.
+ * Deployed archives are held in spool files on disk; those loaded for test execution are kept in memory up to the
+ * budget set by {@link ServerBase#SYSPROP_NAME_DEPLOYMENT_BUDGET}, beyond which the least recently used are unloaded.
+ * While loaded, their contents may be held off the heap as set by {@link ServerBase#SYSPROP_NAME_ARCHIVE_STORAGE}.
+ * A server left without connections for the time set by {@link ServerBase#SYSPROP_NAME_IDLE_TIMEOUT} stops itself.
  *
  * @author <a href="mailto:alr@jboss.org">Andrew Lee Rubinger</a>
  */
 public abstract class ServerBase implements Server {
 
+    /**
+     * System property naming the number of threads on which tests will be executed
+     */
+    public static final String SYSPROP_NAME_TEST_THREADS = "arquillian.daemon.test.threads";
+
+    /**
+     * System property naming the number of test requests which may wait for a free thread
+     */
+    public static final String SYSPROP_NAME_TEST_QUEUE = "arquillian.daemon.test.queue";
+
+    /**
+     * System property naming the number of undeployed archives whose contents are retained, so that deploying them
+     * again needs no transfer
+     */
+    public static final String SYSPROP_NAME_RETAINED_CONTENTS = "arquillian.daemon.deploy.retained";
+
+    /**
+     * System property naming the memory budget, in megabytes of uncompressed archive contents, for deployments loaded
+     * for test execution; beyond it, the least recently used are unloaded to their spool files on disk
+     */
+    public static final String SYSPROP_NAME_DEPLOYMENT_BUDGET = "arquillian.daemon.deploy.budget";
+
+    /**
+     * System property naming where the contents of deployments loaded for test execution are held: <code>file</code>
+     * (the default) reads them from their spool files as needed, <code>mapped</code> maps the spool files into memory
+     * and <code>direct</code> copies them into direct buffers. Either of the latter keeps archive contents off the heap
+     * while making reads cheaper; the memory is released as soon as a deployment is unloaded or undeployed.
+     */
+    public static final String SYSPROP_NAME_ARCHIVE_STORAGE = "arquillian.daemon.deploy.storage";
+
+    /**
+     * System property naming the number of seconds the server may go without any open connection before stopping
+     * itself; 0 (the default) never stops an idle server
+     */
+    public static final String SYSPROP_NAME_IDLE_TIMEOUT = "arquillian.daemon.idle.timeout";
+
     private static final Logger log = Logger.getLogger(ServerBase.class.getName());
+    private static final int DEFAULT_TEST_QUEUE = 256;
+    private static final int DEFAULT_RETAINED_CONTENTS = 8;
+    private static final int DEFAULT_DEPLOYMENT_BUDGET = 256;
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+    private static final int COPY_BUFFER_SIZE = 8192;
+    private static final String PREFIX_TEST_THREAD_NAME = "arquillian-daemon-test-";
+    private static final String NAME_IDLE_THREAD = "arquillian-daemon-idle";
+    private static final long MAX_MILLIS_IDLE_CHECK = 1000L;
+    private static final long MAX_SECONDS_TEST_TERMINATION = 10L;
 
-    private static final String CLASS_NAME_ARQ_TEST_RUNNERS = "org.jboss.arquillian.container.test.spi.util.TestRunners";
-    private static final String METHOD_NAME_GET_TEST_RUNNER = "getTestRunner";
-    private static final String METHOD_NAME_EXECUTE = "execute";
+    private static final String PREFIX_SPOOL_FILE = "arquillian-daemon-deployment-";
+    private static final String SUFFIX_SPOOL_FILE = ".zip";
 
     private ExecutorService shutdownService;
+    private ThreadPoolExecutor testService;
+    private ScheduledExecutorService idleService;
     private boolean running;
     private InetSocketAddress boundAddress;
     private final InetSocketAddress bindAddress;
-    private final ConcurrentMap<String, GenericArchive> deployedArchives;
-    private final Domain shrinkwrapDomain;
+    private final ConcurrentMap<String, Deployment> deployments;
+    private final int maxRetainedContents;
+
+    /**
+     * Contents of all deployments, and of recently undeployed archives which may be deployed again, keyed by digest;
+     * all content reference counting is guarded by this
+     */
+    private final Map<String, DeployedContent> contents;
+
+    /**
+     * Contents no longer referenced by any deployment, eldest first; guarded by {@link ServerBase#contents}
+     */
+    private final Map<String, DeployedContent> retainedContents;
+
+    /**
+     * Digest of the contents last deployed under each archive name, against which deltas are resolved; guarded by
+     * {@link ServerBase#contents}
+     */
+    private final Map<String, String> namedContents;
+
+    /**
+     * Distinct entries of all held contents, by digest, so that those common to several are stored once; guarded by
+     * {@link ServerBase#contents}
+     */
+    private final InternedEntries internedEntries;
+
+    /**
+     * Deployments whose {@link ClassLoader} is loaded, least recently used first; guarded by itself
+     */
+    private final Map<String, Deployment> residentDeployments;
+
+    /**
+     * Contents loaded on behalf of resident deployments, whether deployed or linked into those deployed, with the
+     * number of resident deployments using each, and their total stored size; guarded by
+     * {@link ServerBase#residentDeployments}
+     */
+    private final Map<DeployedContent, Integer> residentContents;
+    private long residentBytes;
+    private final long residentBudget;
+    private final ArchiveStorage archiveStorage;
+    private final SharedClassLoaders sharedClassLoaders;
+    private final long idleTimeoutMillis;
+
+    /**
+     * Connections currently open, and the time at which their number last fell to zero
+     */
+    private final AtomicInteger openConnections;
+
+    /**
+     * Tests submitted for execution and not yet complete
+     */
+    private final AtomicInteger pendingTests;
+    private volatile long idleSince;
+    private final AtomicLong evictions;
 
     /**
      * Creates a new instance, to be bound on start at the specified, required {@link InetSocketAddress}
@@ -69,19 +198,24 @@ public abstract class ServerBase implements Server {
         // Precondition checks
         assert bindAddress !=null :"Bind address must be specified";
 
-        // Determine the ClassLoader to use in creating the SW Domain
-        final ClassLoader thisCl = NettyServer.class.getClassLoader();
-        final Set<ClassLoader> classloaders = new HashSet<>(1);
-        classloaders.add(thisCl);
-        if (log.isLoggable(Level.FINEST)) {
-            log.finest("Using ClassLoader for ShrinkWrap Domain: " + thisCl);
-        }
-        final Domain shrinkwrapDomain = ShrinkWrap.createDomain(new ConfigurationBuilder().classLoaders(classloaders));
-
         // Set
         this.bindAddress = bindAddress;
-        this.deployedArchives = new ConcurrentHashMap<>();
-        this.shrinkwrapDomain = shrinkwrapDomain;
+        this.deployments = new ConcurrentHashMap<>();
+        this.maxRetainedContents = getIntegerProperty(SYSPROP_NAME_RETAINED_CONTENTS, DEFAULT_RETAINED_CONTENTS, 0);
+        this.contents = new HashMap<>();
+        this.retainedContents = new LinkedHashMap<>();
+        this.namedContents = new HashMap<>();
+        this.internedEntries = new InternedEntries();
+        this.residentDeployments = new LinkedHashMap<>(16, 0.75f, true);
+        this.residentContents = new HashMap<>();
+        this.residentBudget = getIntegerProperty(SYSPROP_NAME_DEPLOYMENT_BUDGET, DEFAULT_DEPLOYMENT_BUDGET, 0)
+            * BYTES_PER_MEGABYTE;
+        this.archiveStorage = getStorageProperty(SYSPROP_NAME_ARCHIVE_STORAGE, ArchiveStorage.FILE);
+        this.sharedClassLoaders = new SharedClassLoaders(archiveStorage);
+        this.evictions = new AtomicLong();
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(getIntegerProperty(SYSPROP_NAME_IDLE_TIMEOUT, 0, 0));
+        this.openConnections = new AtomicInteger();
+        this.pendingTests = new AtomicInteger();
     }
 
     /**
@@ -114,13 +248,27 @@ public abstract class ServerBase implements Server {
             throw new IllegalStateException("Already running");
         }
 
+        // Create the test service; must be ready before we accept connections
+        final ThreadPoolExecutor testService = createTestService();
+        this.testService = testService;
+
         // Forward to engine impl
-        startInternal();
+        try {
+            startInternal();
+        } catch (final ServerLifecycleException | RuntimeException e) {
+            testService.shutdownNow();
+            this.testService = null;
+            throw e;
+        }
 
         // Running
         running = true;
         // Create the shutdown service
         this.shutdownService = Executors.newSingleThreadExecutor();
+        // Stop once idle too long, if so configured
+        if (idleTimeoutMillis > 0) {
+            this.idleService = this.createIdleService();
+        }
 
         if (log.isLoggable(Level.INFO)) {
             log.info("Server started on " + boundAddress.getHostName() + ":" + boundAddress.getPort());
@@ -167,6 +315,32 @@ public abstract class ServerBase implements Server {
         // Signal engine to shut down
         stopInternal();
 
+        // Abandon any tests still running or waiting, giving those running a while to finish before their
+        // deployments are released from under them
+        testService.shutdownNow();
+        try {
+            if (!testService.awaitTermination(MAX_SECONDS_TEST_TERMINATION, TimeUnit.SECONDS)
+                && log.isLoggable(Level.WARNING)) {
+                log.warning("Tests still running after " + MAX_SECONDS_TEST_TERMINATION + "s; abandoning them");
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        testService = null;
+
+        // Release everything still deployed or retained so we don't leave spool files behind
+        for (final String deploymentId : deployments.keySet()) {
+            this.undeploy(deploymentId);
+        }
+        this.releaseRetainedContents();
+        sharedClassLoaders.close();
+
+        // No longer watch for idleness
+        if (idleService != null) {
+            idleService.shutdownNow();
+            idleService = null;
+        }
+
         // Kill the shutdown service
         shutdownService.shutdownNow();
         shutdownService = null;
@@ -214,77 +388,781 @@ public abstract class ServerBase implements Server {
     }
 
     /**
-     * @return the deployedArchives
+     * Creates a new, empty file into which the contents of an incoming deployment may be streamed before being passed
+     * to {@link ServerBase#deploy(File)}
+     *
+     * @throws IOException
+     *     If the file could not be created
+     */
+    protected final File createSpoolFile() throws IOException {
+        return File.createTempFile(PREFIX_SPOOL_FILE, SUFFIX_SPOOL_FILE);
+    }
+
+    /**
+     * Deploys the ZIP-formatted archive contained in the specified spool file, returning the ID under which it was
+     * deployed. Entries are read lazily from the file, which is owned by the server from this point on and will be
+     * deleted once no deployment of its contents remains (or immediately, if the import fails or the server already
+     * holds identical contents). Where most of its entries are already held for other deployments, the file is
+     * replaced by one holding only the rest, the others being read from where they are held.
+     *
+     * @throws IOException
+     *     If the spool file could not be read as a ZIP
+     */
+    protected final String deploy(final File spoolFile) throws IOException {
+        return this.deploy(spoolFile, null);
+    }
+
+    /**
+     * Deploys the archive in the specified spool file as {@link ServerBase#deploy(File)} does, taking its contents to
+     * have the specified {@link ArchiveDigest}, if any, as computed while the archive was received; the digest is
+     * computed from the spool file instead if not specified, or if it does not describe exactly the entries indexed.
+     *
+     * @throws IOException
+     *     If the spool file could not be read as a ZIP
+     */
+    protected final String deploy(final File spoolFile, final ArchiveDigest streamedDigest) throws IOException {
+        return this.deploy(spoolFile, null, null, streamedDigest);
+    }
+
+    private String deploy(final File spoolFile, final String archiveName, final String expectedDigest,
+        final ArchiveDigest streamedDigest) throws IOException {
+        assert spoolFile !=null :"Spool file must be specified";
+        final DeployedContent imported;
+        final Map<String, Long> entrySizes = new HashMap<>();
+        Map<String, DeployedContent.Link> links = Collections.emptyMap();
+        File storedFile = spoolFile;
+        try {
+            // Only the central directory is read; entries are inflated when first needed, if ever
+            final IndexedArchive archive = IndexedArchive.open(spoolFile);
+            try {
+                if (log.isLoggable(Level.FINEST)) {
+                    log.finest("Got archive: " + archive.toString());
+                }
+                final ArchiveDigest digest;
+                if (streamedDigest != null && streamedDigest.getEntryDigests().keySet().equals(archive.getPaths())) {
+                    digest = streamedDigest;
+                } else {
+                    if (streamedDigest != null && log.isLoggable(Level.FINER)) {
+                        log.finer("Entries digested while receiving do not match those indexed; digesting again");
+                    }
+                    digest = digest(archive);
+                }
+                if (expectedDigest != null && !expectedDigest.equals(digest.getDigest())) {
+                    throw new IOException("Contents of archive " + archiveName + " do not match its manifest");
+                }
+                for (final Map.Entry<String, byte[]> entry : digest.getEntryDigests().entrySet()) {
+                    entrySizes.put(ArchiveDigest.toHex(entry.getValue()), Math.max(archive.getEntrySize(entry
+                        .getKey()), 0));
+                }
+
+                // Store only those entries not already interned by other contents, if worth rewriting the spool file
+                links = this.linkInternedEntries(digest, archive.getSize());
+                long storedSize = archive.getSize();
+                if (!links.isEmpty()) {
+                    storedFile = this.excludeEntries(archive, links.keySet());
+                    for (final String path : links.keySet()) {
+                        storedSize -= Math.max(archive.getEntrySize(path), 0);
+                    }
+                }
+                imported = new DeployedContent(digest, storedFile, archive.getSize(), storedSize, links,
+                    archiveStorage);
+            } finally {
+                // Opened again from the spool file when first needed
+                archive.close();
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (!spoolFile.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + spoolFile.getAbsolutePath());
+            }
+            if (storedFile != spoolFile && !storedFile.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + storedFile.getAbsolutePath());
+            }
+            for (final DeployedContent holder : this.getHolders(links)) {
+                this.dereferenceContent(holder);
+            }
+            throw e;
+        }
+        if (storedFile != spoolFile && !spoolFile.delete() && log.isLoggable(Level.WARNING)) {
+            log.warning("Could not delete spool file " + spoolFile.getAbsolutePath());
+        }
+
+        // Someone may have sent the same contents in the meantime, in which case we use theirs
+        final DeployedContent content;
+        synchronized (contents) {
+            final DeployedContent existing = this.referenceContent(imported.getDigest());
+            if (existing == null) {
+                contents.put(imported.getDigest(), imported);
+                imported.reference();
+                internedEntries.add(imported, entrySizes);
+                content = imported;
+            } else {
+                content = existing;
+            }
+            if (archiveName != null) {
+                namedContents.put(archiveName, content.getDigest());
+            }
+        }
+        if (content != imported) {
+            this.releaseContent(imported);
+        }
+        final String id = this.register(content);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Deployed " + id + ": " + this.getFootprint(id) + "; server stores " + this.getStoredBytes()
+                + " bytes in all");
+        }
+        return id;
+    }
+
+    /**
+     * Returns links to the entries of an archive of the specified digest and total uncompressed size which are
+     * interned by other contents, referencing those contents on its behalf, or no links if there are too few to be
+     * worth leaving out of its spool file (that is, less than would be stored) or the same contents are already held
+     */
+    private Map<String, DeployedContent.Link> linkInternedEntries(final ArchiveDigest digest, final long size) {
+        final Map<String, DeployedContent.Link> links = new HashMap<>();
+        synchronized (contents) {
+            if (contents.containsKey(digest.getDigest())) {
+                return Collections.emptyMap();
+            }
+            long linkedSize = 0;
+            for (final Map.Entry<String, byte[]> entry : digest.getEntryDigests().entrySet()) {
+                final InternedEntries.InternedEntry interned = internedEntries.get(ArchiveDigest.toHex(entry
+                    .getValue()));
+                if (interned != null) {
+                    links.put(entry.getKey(), new DeployedContent.Link(interned.getHolder(), interned.getPath()));
+                    linkedSize += interned.getSize();
+                }
+            }
+            if (links.isEmpty() || linkedSize < size - linkedSize) {
+                return Collections.emptyMap();
+            }
+            for (final DeployedContent holder : this.getHolders(links)) {
+                this.referenceContent(holder.getDigest());
+            }
+        }
+        return links;
+    }
+
+    private Set<DeployedContent> getHolders(final Map<String, DeployedContent.Link> links) {
+        final Set<DeployedContent> holders = new HashSet<>();
+        for (final DeployedContent.Link link : links.values()) {
+            holders.add(link.getHolder());
+        }
+        return holders;
+    }
+
+    /**
+     * Writes a new spool file holding the entries of the specified archive other than those at the specified paths,
+     * and returns it
+     *
+     * @throws IOException
+     */
+    private File excludeEntries(final IndexedArchive archive, final Set<String> excludedPaths) throws IOException {
+        final File stored = this.createSpoolFile();
+        boolean complete = false;
+        try {
+            final ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(stored)));
+            try {
+                for (final String path : archive.getPaths()) {
+                    if (excludedPaths.contains(path)) {
+                        continue;
+                    }
+                    out.putNextEntry(new ZipEntry(path.substring(1)));
+                    final InputStream contents = archive.openStream(path);
+                    try {
+                        copy(contents, out);
+                    } finally {
+                        contents.close();
+                    }
+                    out.closeEntry();
+                }
+                complete = true;
+            } finally {
+                out.close();
+            }
+        } finally {
+            if (!complete && !stored.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + stored.getAbsolutePath());
+            }
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("Left " + excludedPaths.size() + " interned entries out of " + stored.getAbsolutePath());
+        }
+        return stored;
+    }
+
+    /**
+     * Deploys an archive with the same contents as one the server already holds, identified by the specified
+     * {@link ArchiveDigest#getDigest()}, returning the ID under which it was deployed, or <code>null</code> if no such
+     * contents are held and the archive must be sent in full
+     */
+    protected final String deployCached(final String digest) {
+        assert digest !=null :"Digest must be specified";
+        final DeployedContent content;
+        synchronized (contents) {
+            content = this.referenceContent(digest);
+        }
+        if (content == null) {
+            return null;
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("Deploying from held contents: " + digest);
+        }
+        return this.register(content);
+    }
+
+    /**
+     * Returns the paths of those entries described by the specified manifest which must be sent to deploy it via
+     * {@link ServerBase#deployDelta(File)}; that is, all entries whose contents are not present in the contents last
+     * deployed under the same archive name, if any are still held
+     */
+    protected final List<String> findMissingEntries(final DeltaManifest manifest) {
+        assert manifest !=null :"Manifest must be specified";
+        final List<String> missing = new ArrayList<>();
+        synchronized (contents) {
+            final String baseDigest = namedContents.get(manifest.getArchiveName());
+            final DeployedContent base = baseDigest == null ? null : contents.get(baseDigest);
+            for (final Map.Entry<String, byte[]> entry : manifest.getEntryDigests().entrySet()) {
+                if (base == null || !base.hasEntry(entry.getValue())) {
+                    missing.add(entry.getKey());
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Deploys an archive described by the {@link DeltaManifest} at the start of the specified spool file, taking the
+     * entries which follow it in ZIP format and all others from the contents last deployed under the same archive name,
+     * and returns the ID under which it was deployed, or <code>null</code> if some entry was neither sent nor held, in
+     * which case the archive must be sent in full. The spool file is deleted before this method returns.
+     *
+     * @throws IOException
+     *     If the spool file could not be read, or the assembled archive does not match its manifest
+     */
+    protected final String deployDelta(final File deltaSpoolFile) throws IOException {
+        assert deltaSpoolFile !=null :"Spool file must be specified";
+        final DeltaManifest manifest;
+        final File assembled;
+        DeployedContent base = null;
+        final InputStream in = new BufferedInputStream(new FileInputStream(deltaSpoolFile));
+        try {
+            final DataInputStream dataIn = new DataInputStream(in);
+            manifest = DeltaManifest.read(dataIn);
+            // Keep the base from being released while we copy from it
+            synchronized (contents) {
+                final String baseDigest = namedContents.get(manifest.getArchiveName());
+                base = baseDigest == null ? null : this.referenceContent(baseDigest);
+            }
+            assembled = this.assemble(manifest, new ZipInputStream(dataIn), base);
+        } finally {
+            in.close();
+            if (base != null) {
+                this.dereferenceContent(base);
+            }
+            if (!deltaSpoolFile.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + deltaSpoolFile.getAbsolutePath());
+            }
+        }
+        if (assembled == null) {
+            return null;
+        }
+        return this.deploy(assembled, manifest.getArchiveName(), manifest.getDigest(), null);
+    }
+
+    /**
+     * Undeploys the archive with the specified ID, releasing any resources backing it
+     *
+     * @return <code>true</code> if the archive was deployed, else <code>false</code>
+     */
+    protected final boolean undeploy(final String archiveId) {
+        final Deployment deployment = deployments.remove(archiveId);
+        if (deployment == null) {
+            return false;
+        }
+        deployment.release();
+        synchronized (residentDeployments) {
+            if (residentDeployments.remove(archiveId) != null) {
+                this.unloadResident(deployment.getContent());
+            }
+        }
+        this.dereferenceContent(deployment.getContent());
+        return true;
+    }
+
+    /**
+     * Records that the specified contents are referenced by one deployment (or content linking their entries) fewer,
+     * holding on to them a while if that was the last in case they're deployed again
+     */
+    private void dereferenceContent(final DeployedContent content) {
+        DeployedContent evicted = null;
+        synchronized (contents) {
+            if (!content.dereference()) {
+                retainedContents.put(content.getDigest(), content);
+                if (retainedContents.size() > maxRetainedContents) {
+                    final Iterator<DeployedContent> eldest = retainedContents.values().iterator();
+                    evicted = eldest.next();
+                    eldest.remove();
+                    this.forgetContent(evicted);
+                }
+            }
+        }
+        if (evicted != null) {
+            this.releaseContent(evicted);
+        }
+    }
+
+    /**
+     * Releases the specified contents, no longer indexed, and with them their references to the contents holding any
+     * entries linked into them
+     */
+    private void releaseContent(final DeployedContent content) {
+        content.release();
+        for (final DeployedContent holder : content.getHolders()) {
+            this.dereferenceContent(holder);
+        }
+    }
+
+    /**
+     * Removes the specified contents from all indexes, so they may be released. Must be called while holding the lock
+     * on {@link ServerBase#contents}.
+     */
+    private void forgetContent(final DeployedContent content) {
+        assert Thread.holdsLock(contents) :"Must hold lock on contents";
+        contents.remove(content.getDigest());
+        internedEntries.remove(content, contents.values());
+        final Iterator<String> namedDigests = namedContents.values().iterator();
+        while (namedDigests.hasNext()) {
+            if (namedDigests.next().equals(content.getDigest())) {
+                namedDigests.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the held contents with the specified digest, referenced for a new deployment, or <code>null</code> if
+     * none are held. Must be called while holding the lock on {@link ServerBase#contents}.
+     */
+    private DeployedContent referenceContent(final String digest) {
+        assert Thread.holdsLock(contents) :"Must hold lock on contents";
+        final DeployedContent content = contents.get(digest);
+        if (content == null) {
+            return null;
+        }
+        retainedContents.remove(digest);
+        content.reference();
+        return content;
+    }
+
+    private String register(final DeployedContent content) {
+        final String id = UUID.randomUUID().toString();
+        deployments.put(id, new Deployment(id, content, sharedClassLoaders));
+        return id;
+    }
+
+    /**
+     * Releases all contents held only in anticipation of their being deployed again
+     */
+    private void releaseRetainedContents() {
+        // Releasing contents may leave those holding their linked entries unreferenced in turn
+        List<DeployedContent> released;
+        do {
+            synchronized (contents) {
+                released = new ArrayList<>(retainedContents.values());
+                for (final DeployedContent content : released) {
+                    this.forgetContent(content);
+                }
+                retainedContents.clear();
+            }
+            for (final DeployedContent content : released) {
+                this.releaseContent(content);
+            }
+        } while (!released.isEmpty());
+    }
+
+    /**
+     * Computes the {@link ArchiveDigest} of the specified archive's contents
+     *
+     * @throws IOException
+     *     If the contents could not be read
      */
-    protected final ConcurrentMap<String, GenericArchive> getDeployedArchives() {
-        return deployedArchives;
+    static ArchiveDigest digest(final IndexedArchive archive) throws IOException {
+        final ArchiveDigest digest = new ArchiveDigest();
+        for (final String path : archive.getPaths()) {
+            final InputStream contents = archive.openStream(path);
+            try {
+                digest.addEntry(path, contents);
+            } finally {
+                contents.close();
+            }
+        }
+        return digest;
     }
 
     /**
-     * @return the shrinkwrapDomain
+     * Writes a new spool file of the archive described by the specified manifest, taking each entry from the specified
+     * delta if present there, else from the specified base contents (if any), and returns it, or <code>null</code> if
+     * some entry was found in neither
+     *
+     * @throws IOException
      */
-    protected final Domain getShrinkwrapDomain() {
-        return shrinkwrapDomain;
+    private File assemble(final DeltaManifest manifest, final ZipInputStream delta, final DeployedContent base)
+        throws IOException {
+        final Map<String, byte[]> entryDigests = manifest.getEntryDigests();
+        final Set<String> written = new HashSet<>();
+        final File assembled = this.createSpoolFile();
+        final IndexedArchive baseArchive = base == null ? null : base.acquireArchive();
+        boolean complete = false;
+        try {
+            final ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(assembled)));
+            try {
+                ZipEntry entry;
+                while ((entry = delta.getNextEntry()) != null) {
+                    final String path = ArchivePaths.create(entry.getName()).get();
+                    if (!entry.isDirectory() && entryDigests.containsKey(path) && written.add(path)) {
+                        out.putNextEntry(new ZipEntry(entry.getName()));
+                        copy(delta, out);
+                        out.closeEntry();
+                    }
+                }
+                for (final Map.Entry<String, byte[]> entryDigest : entryDigests.entrySet()) {
+                    final String path = entryDigest.getKey();
+                    if (written.contains(path)) {
+                        continue;
+                    }
+                    final String basePath = base == null ? null : base.getEntryPath(entryDigest.getValue());
+                    if (basePath == null) {
+                        if (log.isLoggable(Level.FINER)) {
+                            log.finer("Could not resolve entry " + path + " of " + manifest.getArchiveName());
+                        }
+                        return null;
+                    }
+                    out.putNextEntry(new ZipEntry(path.substring(1)));
+                    final InputStream contents = baseArchive.openStream(basePath);
+                    try {
+                        copy(contents, out);
+                    } finally {
+                        contents.close();
+                    }
+                    out.closeEntry();
+                }
+                complete = true;
+            } finally {
+                out.close();
+            }
+        } finally {
+            if (base != null) {
+                base.releaseArchive();
+            }
+            if (!complete && !assembled.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete spool file " + assembled.getAbsolutePath());
+            }
+        }
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("Assembled " + manifest.getArchiveName() + " from " + written.size() + " of "
+                + entryDigests.size() + " entries sent");
+        }
+        return assembled;
+    }
+
+    private static void copy(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
     }
 
     /**
      * Executes the specified method name on the specified test class upon the archive with the specified archive ID in
      * an isolated ClassLoader containing only the archive's contents and the bootstrap {@link ClassLoader}. Note that
-     * the system --classpath {@link ClassLoader} will not be visible to the test.
+     * the system --classpath {@link ClassLoader} will not be visible to the test. The ClassLoader is created upon the
+     * first test against the archive and reused until it is undeployed.
      *
      * @throws IllegalStateException
      */
     protected final Serializable executeTest(final String archiveId, final String testClassName, final String methodName)
         throws IllegalStateException {
-        final GenericArchive archive = this.getDeployedArchives().get(archiveId);
-        if (archive == null) {
+        final Deployment deployment = deployments.get(archiveId);
+        if (deployment == null) {
             throw new IllegalStateException("Archive with ID " + archiveId + " is not deployed");
         }
-
-        // Use a ClassLoader with explicitly null parent to achieve isolation from --classpath
-        final ShrinkWrapClassLoader isolatedArchiveCL = new ShrinkWrapClassLoader((ClassLoader) null, archive);
+        final DeploymentClassLoading classLoading;
+        try {
+            classLoading = deployment.beginExecution();
+        } catch (final IOException ioe) {
+            throw new IllegalStateException("Could not load archive with ID " + archiveId + " from disk", ioe);
+        }
 
         final ClassLoader oldCl = SecurityActions.getTccl();
-        ObjectOutputStream objectOutstream = null;
         try {
+            this.markResident(deployment);
             // We have to set the TCCL here due to ARQ-1181; if that's resolved we can remove all TCCL mucking
-            SecurityActions.setTccl(isolatedArchiveCL);
-            /*
-             * All reflection in this section is to avoid CCE when we load these classes from the isolated ClassLoader,
-             * we can't have them assignable to the ClassLoader which loaded this class.
-             */
-            final Class<?> testClass;
-            try {
-                testClass = isolatedArchiveCL.loadClass(testClassName);
-            } catch (final ClassNotFoundException cnfe) {
-                throw new IllegalStateException("Could not load class " + testClassName + " from deployed archive: "
-                    + archive.toString());
-            }
-            final Class<?> testRunnersClass;
-            try {
-                testRunnersClass = isolatedArchiveCL.loadClass(CLASS_NAME_ARQ_TEST_RUNNERS);
-            } catch (final ClassNotFoundException cnfe) {
-                throw new IllegalStateException("Could not load class " + CLASS_NAME_ARQ_TEST_RUNNERS
-                    + " from deployed archive: " + archive.toString());
-            }
-            final Method getTestRunnerMethod = testRunnersClass.getMethod(METHOD_NAME_GET_TEST_RUNNER,
-                ClassLoader.class);
-            final Object testRunner = getTestRunnerMethod.invoke(null, isolatedArchiveCL);
-            final Class<?> testRunnerClass = testRunner.getClass();
-            final Method executeMethod = testRunnerClass.getMethod(METHOD_NAME_EXECUTE, Class.class, String.class);
-            return (Serializable) executeMethod.invoke(testRunner, testClass, methodName);
-        } catch (final IllegalAccessException | InvocationTargetException | NoSuchMethodException iae) {
-            throw new RuntimeException(iae);
+            SecurityActions.setTccl(classLoading.getClassLoader());
+            return classLoading.execute(testClassName, methodName);
         } finally {
             SecurityActions.setTccl(oldCl);
-            try {
-                isolatedArchiveCL.close();
-            } catch (final IOException ignore) {
+            deployment.endExecution();
+        }
+    }
+
+    /**
+     * Records the specified deployment, which has a test executing, as most recently used, then unloads the least
+     * recently used idle deployments until all those remaining loaded fit within the memory budget. Unloaded
+     * deployments keep their contents on disk and are loaded again by their next test. A deployment undeployed in the
+     * meantime is left out.
+     */
+    private void markResident(final Deployment deployment) {
+        final Map<Deployment, Long> evicted = new LinkedHashMap<>();
+        final long remaining;
+        synchronized (residentDeployments) {
+            if (deployment.isReleased()) {
+                return;
+            }
+            if (residentDeployments.put(deployment.getId(), deployment) == null) {
+                this.loadResident(deployment.getContent());
+            }
+            final Iterator<Deployment> leastRecentlyUsed = residentDeployments.values().iterator();
+            while (residentBytes > residentBudget && leastRecentlyUsed.hasNext()) {
+                final Deployment candidate = leastRecentlyUsed.next();
+                if (candidate != deployment && candidate.unload()) {
+                    leastRecentlyUsed.remove();
+                    evicted.put(candidate, this.unloadResident(candidate.getContent()));
+                }
+            }
+            remaining = residentBytes;
+        }
+        for (final Map.Entry<Deployment, Long> unloaded : evicted.entrySet()) {
+            evictions.incrementAndGet();
+            if (log.isLoggable(Level.INFO)) {
+                log.info("Evicted deployment " + unloaded.getKey().getId() + " (" + unloaded.getValue()
+                    + " bytes freed) to disk; " + remaining + " of " + residentBudget + " bytes now loaded");
+            }
+        }
+    }
+
+    /**
+     * Counts the specified contents, and those linked into them, as used by one more resident deployment, adding the
+     * stored size of any not already loaded to the resident total. Must be called while holding the lock on
+     * {@link ServerBase#residentDeployments}.
+     */
+    private void loadResident(final DeployedContent content) {
+        assert Thread.holdsLock(residentDeployments) :"Must hold lock on resident deployments";
+        for (final DeployedContent loaded : getLoadedContents(content)) {
+            final Integer users = residentContents.get(loaded);
+            if (users == null) {
+                residentContents.put(loaded, 1);
+                residentBytes += loaded.getStoredSize();
+            } else {
+                residentContents.put(loaded, users + 1);
+            }
+        }
+    }
+
+    /**
+     * Counts the specified contents, and those linked into them, as used by one fewer resident deployment, removing
+     * the stored size of any no longer used from the resident total. Must be called while holding the lock on
+     * {@link ServerBase#residentDeployments}.
+     *
+     * @return the number of bytes no longer counted as resident
+     */
+    private long unloadResident(final DeployedContent content) {
+        assert Thread.holdsLock(residentDeployments) :"Must hold lock on resident deployments";
+        long freed = 0;
+        for (final DeployedContent loaded : getLoadedContents(content)) {
+            final int users = residentContents.get(loaded);
+            if (users == 1) {
+                residentContents.remove(loaded);
+                freed += loaded.getStoredSize();
+            } else {
+                residentContents.put(loaded, users - 1);
+            }
+        }
+        residentBytes -= freed;
+        return freed;
+    }
+
+    /**
+     * Returns the specified contents and all those whose archives are acquired along with theirs, each once
+     */
+    private static Set<DeployedContent> getLoadedContents(final DeployedContent content) {
+        final Set<DeployedContent> loaded = new LinkedHashSet<>();
+        final List<DeployedContent> pending = new ArrayList<>();
+        pending.add(content);
+        while (!pending.isEmpty()) {
+            final DeployedContent next = pending.remove(pending.size() - 1);
+            if (loaded.add(next)) {
+                pending.addAll(next.getHolders());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the number of times a deployment has been unloaded to stay within the memory budget set by
+     * {@link ServerBase#SYSPROP_NAME_DEPLOYMENT_BUDGET}
+     */
+    protected final long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the total uncompressed size, in bytes, of the archive contents loaded for test execution and counted
+     * against the budget set by {@link ServerBase#SYSPROP_NAME_DEPLOYMENT_BUDGET}, counting each content once however
+     * many deployments use it
+     */
+    protected final long getResidentBytes() {
+        synchronized (residentDeployments) {
+            return residentBytes;
+        }
+    }
+
+    /**
+     * Returns the storage footprint of the archive with the specified ID, or <code>null</code> if it is not deployed
+     */
+    protected final Footprint getFootprint(final String archiveId) {
+        final Deployment deployment = deployments.get(archiveId);
+        if (deployment == null) {
+            return null;
+        }
+        synchronized (contents) {
+            return new Footprint(internedEntries.getSize(deployment.getContent(), false), internedEntries.getSize(
+                deployment.getContent(), true));
+        }
+    }
+
+    /**
+     * Returns the total uncompressed size, in bytes, of the archive contents stored by the server for all deployments
+     * and retained contents, counting each entry interned by several once (or as many times as it is stored)
+     */
+    protected final long getStoredBytes() {
+        long size = 0;
+        synchronized (contents) {
+            for (final DeployedContent content : contents.values()) {
+                size += content.getStoredSize();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the total uncompressed size, in bytes, of the entries referenced by the contents of more than one
+     * deployment (or retained contents), counting each once
+     */
+    protected final long getSharedBytes() {
+        synchronized (contents) {
+            return internedEntries.getSharedSize();
+        }
+    }
+
+    /**
+     * Returns the number of tests submitted for execution and not yet complete, whether executing or waiting
+     */
+    protected final int getPendingTestCount() {
+        return pendingTests.get();
+    }
+
+    /**
+     * Returns the number of threads upon which tests are executed
+     */
+    protected final int getTestThreadCount() {
+        final ThreadPoolExecutor testService = this.testService;
+        return testService == null ? 0 : testService.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns the number of connections currently open to this server
+     */
+    protected final int getOpenConnectionCount() {
+        return openConnections.get();
+    }
+
+    /**
+     * Submits the specified test for execution as per
+     * {@link ServerBase#executeTest(String, String, String)} on the test worker pool, notifying the specified callback
+     * upon completion from the worker thread
+     *
+     * @throws RejectedExecutionException
+     *     If the test worker pool is saturated
+     */
+    protected final void executeTestAsync(final String archiveId, final String testClassName,
+        final String methodName, final TestCallback callback) throws RejectedExecutionException {
+        assert callback !=null :"Callback must be specified";
+        pendingTests.incrementAndGet();
+        try {
+            testService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final Serializable testResult;
+                    try {
+                        testResult = ServerBase.this.executeTest(archiveId, testClassName, methodName);
+                    } catch (final Throwable t) {
+                        pendingTests.decrementAndGet();
+                        callback.failed(t);
+                        return;
+                    }
+                    pendingTests.decrementAndGet();
+                    callback.completed(testResult);
+                }
+            });
+        } catch (final RejectedExecutionException ree) {
+            pendingTests.decrementAndGet();
+            throw ree;
+        }
+    }
+
+    /**
+     * Submits the specified tests against the archive with the specified ID to the worker pool, notifying the
+     * specified callback of the outcome of each as it completes and then once all have. Tests are executed one after
+     * another in the order given, or if parallel, by as many workers at once as the pool has threads.
+     *
+     * @throws RejectedExecutionException
+     *     If the pool is saturated, in which case none of the tests will be executed
+     */
+    protected final void executeTestsAsync(final String archiveId, final List<TestMethod> tests,
+        final boolean parallel, final BatchCallback callback) throws RejectedExecutionException {
+        assert tests !=null :"Tests must be specified";
+        assert callback !=null :"Callback must be specified";
+        final int workers = parallel ? Math.max(Math.min(tests.size(), testService.getMaximumPoolSize()), 1) : 1;
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger(workers);
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while ((index = next.getAndIncrement()) < tests.size()) {
+                    final TestMethod test = tests.get(index);
+                    final Serializable testResult;
+                    try {
+                        testResult = ServerBase.this.executeTest(archiveId, test.getTestClassName(),
+                            test.getMethodName());
+                    } catch (final Throwable t) {
+                        pendingTests.decrementAndGet();
+                        callback.failed(index, t);
+                        continue;
+                    }
+                    pendingTests.decrementAndGet();
+                    callback.completed(index, testResult);
+                }
+                if (active.decrementAndGet() == 0) {
+                    callback.finished();
+                }
             }
-            if (objectOutstream != null) {
-                try {
-                    objectOutstream.close();
-                } catch (final IOException ignore) {
+        };
+        // The first must be accepted; any others only add parallelism, as the workers share the tests
+        pendingTests.addAndGet(tests.size());
+        try {
+            testService.execute(worker);
+        } catch (final RejectedExecutionException ree) {
+            pendingTests.addAndGet(-tests.size());
+            throw ree;
+        }
+        for (int i = 1; i < workers; i++) {
+            try {
+                testService.execute(worker);
+            } catch (final RejectedExecutionException ree) {
+                if (active.decrementAndGet() == 0) {
+                    callback.finished();
                 }
             }
         }
@@ -304,6 +1182,218 @@ public abstract class ServerBase implements Server {
         });
     }
 
+    /**
+     * Notes that a connection to this server has been opened; implementations must call upon this, and later
+     * {@link ServerBase#connectionClosed()}, for each connection so that an idle server may stop itself
+     */
+    protected final void connectionOpened() {
+        openConnections.incrementAndGet();
+    }
+
+    /**
+     * Notes that a connection noted by {@link ServerBase#connectionOpened()} has been closed
+     */
+    protected final void connectionClosed() {
+        if (openConnections.decrementAndGet() == 0) {
+            idleSince = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Creates a service which periodically checks whether this server has gone without any open connection for
+     * longer than the idle timeout, and if so stops it
+     */
+    private ScheduledExecutorService createIdleService() {
+        idleSince = System.currentTimeMillis();
+        final ScheduledExecutorService idleService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, NAME_IDLE_THREAD);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final long period = Math.min(idleTimeoutMillis, MAX_MILLIS_IDLE_CHECK);
+        idleService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (openConnections.get() > 0 || System.currentTimeMillis() - idleSince < idleTimeoutMillis) {
+                    return;
+                }
+                if (log.isLoggable(Level.INFO)) {
+                    log.info("No connections for " + TimeUnit.MILLISECONDS.toSeconds(idleTimeoutMillis)
+                        + "s; shutting down idle server");
+                }
+                // Check no more; stopping shuts this service down in any case
+                idleService.shutdown();
+                ServerBase.this.stopAsync();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        return idleService;
+    }
+
+    private static ThreadPoolExecutor createTestService() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final int threads = getIntegerProperty(SYSPROP_NAME_TEST_THREADS, processors, 1);
+        final int queue = getIntegerProperty(SYSPROP_NAME_TEST_QUEUE, DEFAULT_TEST_QUEUE, 1);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Executing tests on " + threads + " threads with " + queue + " queued requests");
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+            queue), new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, PREFIX_TEST_THREAD_NAME + count.incrementAndGet());
+                // A test ignoring interruption must not keep the JVM (the client's, when embedded) alive
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static int getIntegerProperty(final String sysPropName, final int defaultValue, final int minimum) {
+        final String value = SecurityActions.getSystemProperty(sysPropName);
+        if (value == null) {
+            return defaultValue;
+        }
+        final int parsed;
+        try {
+            parsed = Integer.parseInt(value.trim());
+        } catch (final NumberFormatException nfe) {
+            throw new IllegalArgumentException("System property " + sysPropName + " must be an integer: " + value);
+        }
+        if (parsed < minimum) {
+            throw new IllegalArgumentException("System property " + sysPropName + " must be at least " + minimum + ": "
+                + value);
+        }
+        return parsed;
+    }
+
+    private static ArchiveStorage getStorageProperty(final String sysPropName, final ArchiveStorage defaultValue) {
+        final String value = SecurityActions.getSystemProperty(sysPropName);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return ArchiveStorage.fromName(value);
+        } catch (final IllegalArgumentException iae) {
+            throw new IllegalArgumentException("System property " + sysPropName + " must be one of "
+                + Arrays.toString(ArchiveStorage.values()).toLowerCase(Locale.ENGLISH) + ": " + value);
+        }
+    }
+
+    /**
+     * Receives the outcome of a test submitted via
+     * {@link ServerBase#executeTestAsync(String, String, String, TestCallback)}
+     */
+    protected interface TestCallback {
+
+        /**
+         * Called with the result of a test which ran (whether or not the test itself passed)
+         */
+        void completed(Serializable testResult);
+
+        /**
+         * Called if the test could not be run
+         */
+        void failed(Throwable cause);
+    }
+
+    /**
+     * Receives the outcomes of tests submitted via
+     * {@link ServerBase#executeTestsAsync(String, List, boolean, BatchCallback)}; calls for tests run in parallel may
+     * arrive concurrently
+     */
+    protected interface BatchCallback {
+
+        /**
+         * Called with the result of the test at the specified index which ran (whether or not the test itself passed)
+         */
+        void completed(int index, Serializable testResult);
+
+        /**
+         * Called if the test at the specified index could not be run
+         */
+        void failed(int index, Throwable cause);
+
+        /**
+         * Called once all tests have completed or failed
+         */
+        void finished();
+    }
+
+    /**
+     * A test method to be executed as part of a batch
+     */
+    protected static final class TestMethod {
+
+        private final String testClassName;
+        private final String methodName;
+
+        TestMethod(final String testClassName, final String methodName) {
+            assert testClassName !=null :"Test class name must be specified";
+            assert methodName !=null :"Method name must be specified";
+            this.testClassName = testClassName;
+            this.methodName = methodName;
+        }
+
+        /**
+         * @return the testClassName
+         */
+        String getTestClassName() {
+            return testClassName;
+        }
+
+        /**
+         * @return the methodName
+         */
+        String getMethodName() {
+            return methodName;
+        }
+    }
+
+    /**
+     * The storage footprint of a deployment: the uncompressed size of the entries no other held contents reference,
+     * and of those shared with others (which are stored once, wherever they were first deployed). Immutable.
+     */
+    protected static final class Footprint {
+
+        private final long exclusiveBytes;
+        private final long sharedBytes;
+
+        Footprint(final long exclusiveBytes, final long sharedBytes) {
+            this.exclusiveBytes = exclusiveBytes;
+            this.sharedBytes = sharedBytes;
+        }
+
+        /**
+         * Returns the uncompressed size, in bytes, of the entries referenced by this deployment alone
+         */
+        long getExclusiveBytes() {
+            return exclusiveBytes;
+        }
+
+        /**
+         * Returns the uncompressed size, in bytes, of the entries this deployment shares with others
+         */
+        long getSharedBytes() {
+            return sharedBytes;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return exclusiveBytes + " bytes exclusive, " + sharedBytes + " bytes shared";
+        }
+    }
+
     /**
      * Internal secured actions not to leak out of this class/package
      *
@@ -332,6 +1422,18 @@ public abstract class ServerBase implements Server {
             return AccessController.doPrivileged(GetTcclAction.INSTANCE);
         }
 
+        static String getSystemProperty(final String sysPropName) {
+            if (System.getSecurityManager() == null) {
+                return System.getProperty(sysPropName);
+            }
+            return AccessController.doPrivileged(new PrivilegedAction<String>() {
+                @Override
+                public String run() {
+                    return System.getProperty(sysPropName);
+                }
+            });
+        }
+
         static void setTccl(final ClassLoader cl) {
             assert cl !=null :"ClassLoader must be specified";
             if (System.getSecurityManager() == null) {
@@ -63,4 +63,12 @@ public final class Servers {
         // Create and return a new server instance
         return new NettyServer(resolvedInetAddress);
     }
+
+    /**
+     * Creates a {@link Server} instance running within the JVM of its caller, to which archives are deployed and upon
+     * which tests are executed by direct calls rather than over a connection
+     */
+    public static EmbeddedServer createEmbedded() {
+        return new EmbeddedServer();
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+
+/**
+ * Cache of the {@link ClassLoader}s shared as parents by deployments holding identical contents under
+ * {@link WireProtocol#PATH_SHARED_ARCHIVES}, keyed by the digest of those contents (see
+ * {@link SharedClassLoaders#getLayerDigest(ArchiveDigest)}). Each such layer is extracted once into a file of its own,
+ * from which its classes are defined (and compiled) once for all deployments using it, while each deployment's own
+ * classes remain in its isolated {@link ClassLoader}. Layers no longer in use are kept, least recently released
+ * first, up to {@link SharedClassLoaders#MAX_IDLE_LAYERS}, in anticipation of further deployments. Thread-safe.
+ */
+final class SharedClassLoaders {
+
+    private static final Logger log = Logger.getLogger(SharedClassLoaders.class.getName());
+    private static final String PREFIX_SHARED_PATHS = WireProtocol.PATH_SHARED_ARCHIVES + '/';
+    private static final String PREFIX_LAYER_FILE = "arquillian-daemon-shared-";
+    private static final String SUFFIX_LAYER_FILE = ".zip";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_IDLE_LAYERS = 4;
+
+    private final ArchiveStorage storage;
+
+    /**
+     * Layers by digest, and those of them no longer in use, least recently released first; guarded by this
+     */
+    private final Map<String, Layer> layers;
+    private final Map<String, Layer> idleLayers;
+
+    /**
+     * Creates a new instance holding each layer's archive in the specified storage
+     */
+    SharedClassLoaders(final ArchiveStorage storage) {
+        assert storage !=null :"Storage must be specified";
+        this.storage = storage;
+        this.layers = new HashMap<>();
+        this.idleLayers = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns the digest of the entries under {@link WireProtocol#PATH_SHARED_ARCHIVES} among those of the specified
+     * archive digest, taken relative to that path, or <code>null</code> if there are none
+     */
+    static String getLayerDigest(final ArchiveDigest digest) {
+        assert digest !=null :"Digest must be specified";
+        final ArchiveDigest layerDigest = new ArchiveDigest();
+        boolean shared = false;
+        for (final Map.Entry<String, byte[]> entry : digest.getEntryDigests().entrySet()) {
+            if (entry.getKey().startsWith(PREFIX_SHARED_PATHS)) {
+                layerDigest.addEntryDigest(entry.getKey().substring(PREFIX_SHARED_PATHS.length() - 1),
+                    entry.getValue());
+                shared = true;
+            }
+        }
+        return shared ? layerDigest.getDigest() : null;
+    }
+
+    /**
+     * Returns the {@link ClassLoader} of the layer with the specified digest, extracting it from the specified archive
+     * if it isn't already held. Each call must be paired with a call to {@link SharedClassLoaders#release(String)}
+     * once the {@link ClassLoader} is no longer needed.
+     *
+     * @throws IOException
+     *     If the layer could not be extracted
+     */
+    synchronized ClassLoader acquire(final String digest, final IndexedArchive archive) throws IOException {
+        assert digest !=null :"Digest must be specified";
+        assert archive !=null :"Archive must be specified";
+        Layer layer = layers.get(digest);
+        if (layer == null) {
+            // Deployments of other layers wait on this, but extraction is a copy of what is usually a few JARs
+            layer = extract(digest, archive);
+            layers.put(digest, layer);
+        } else {
+            idleLayers.remove(digest);
+        }
+        layer.users++;
+        return layer.classLoader;
+    }
+
+    /**
+     * Records that a user obtained via {@link SharedClassLoaders#acquire(String, IndexedArchive)} no longer needs the
+     * layer of the specified digest, closing the eldest idle layers beyond those kept
+     */
+    synchronized void release(final String digest) {
+        final Layer layer = layers.get(digest);
+        assert layer != null && layer.users > 0 :"Layer is not in use";
+        if (--layer.users > 0) {
+            return;
+        }
+        idleLayers.put(digest, layer);
+        final Iterator<Map.Entry<String, Layer>> eldest = idleLayers.entrySet().iterator();
+        while (idleLayers.size() > MAX_IDLE_LAYERS) {
+            final Map.Entry<String, Layer> evicted = eldest.next();
+            eldest.remove();
+            layers.remove(evicted.getKey());
+            evicted.getValue().close();
+        }
+    }
+
+    /**
+     * Closes all layers, whether or not in use, and removes their files
+     */
+    synchronized void close() {
+        for (final Layer layer : layers.values()) {
+            layer.close();
+        }
+        layers.clear();
+        idleLayers.clear();
+    }
+
+    private Layer extract(final String digest, final IndexedArchive archive) throws IOException {
+        final File file = File.createTempFile(PREFIX_LAYER_FILE, SUFFIX_LAYER_FILE);
+        boolean complete = false;
+        try {
+            final ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                for (final String path : archive.getPaths()) {
+                    if (!path.startsWith(PREFIX_SHARED_PATHS)) {
+                        continue;
+                    }
+                    out.putNextEntry(new ZipEntry(path.substring(PREFIX_SHARED_PATHS.length())));
+                    final InputStream contents = archive.openStream(path);
+                    try {
+                        copy(contents, out);
+                    } finally {
+                        contents.close();
+                    }
+                    out.closeEntry();
+                }
+            } finally {
+                out.close();
+            }
+            final IndexedArchive layerArchive = IndexedArchive.open(file, storage);
+            // Isolated from --classpath just as each deployment's own ClassLoader
+            final Layer layer = new Layer(file, layerArchive, new ArchiveClassLoader(null, layerArchive));
+            complete = true;
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("Extracted shared layer " + digest + " into " + file.getAbsolutePath());
+            }
+            return layer;
+        } finally {
+            if (!complete && !file.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete shared layer file " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static void copy(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * A shared {@link ClassLoader} and the archive it reads from
+     */
+    private static final class Layer {
+
+        private final File file;
+        private final IndexedArchive archive;
+        private final ArchiveClassLoader classLoader;
+
+        /**
+         * Number of deployments using this layer; guarded by the owning {@link SharedClassLoaders}
+         */
+        private int users;
+
+        Layer(final File file, final IndexedArchive archive, final ArchiveClassLoader classLoader) {
+            this.file = file;
+            this.archive = archive;
+            this.classLoader = classLoader;
+        }
+
+        void close() {
+            try {
+                archive.close();
+            } catch (final IOException ignore) {
+            }
+            if (!file.delete() && log.isLoggable(Level.WARNING)) {
+                log.warning("Could not delete shared layer file " + file.getAbsolutePath());
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+
+/**
+ * Computes the {@link ArchiveDigest} of a ZIP archive while its bytes are still arriving, inflating each entry as soon
+ * as it has been received rather than once the whole archive is in hand, so that receiving and inflating a deployment
+ * overlap. The archive is read back from the spool file it is being written to, following the writer as
+ * {@link StreamingArchiveDigester#written(long)} reports its progress, so that no copy of the bytes is held in memory
+ * however far parsing falls behind; parsing is done by {@link StreamingArchiveDigester#run()} on another thread. Should
+ * the archive not be readable as a stream (such as one naming an entry twice), the digest is abandoned and must be
+ * computed from the complete archive as before.
+ */
+final class StreamingArchiveDigester implements Runnable {
+
+    private static final Logger log = Logger.getLogger(StreamingArchiveDigester.class.getName());
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final File spoolFile;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean abandoned;
+
+    /**
+     * Bytes of the archive written to the spool file so far, and whether that is all of them; guarded by this
+     */
+    private long written;
+    private boolean ended;
+
+    /**
+     * Set by {@link StreamingArchiveDigester#run()} before {@link StreamingArchiveDigester#finished} is counted down
+     */
+    private ArchiveDigest digest;
+
+    /**
+     * Creates a new instance digesting the archive being written to the specified spool file
+     */
+    StreamingArchiveDigester(final File spoolFile) {
+        assert spoolFile !=null :"Spool file must be specified";
+        this.spoolFile = spoolFile;
+    }
+
+    /**
+     * Notes that the specified number of further bytes of the archive have been written to the spool file, and may be
+     * read back from it
+     */
+    synchronized void written(final long length) {
+        assert length >= 0 :"Length must not be negative";
+        written += length;
+        this.notifyAll();
+    }
+
+    /**
+     * Signals the end of the archive and waits for the remaining entries to be digested, returning the digest of all,
+     * or <code>null</code> if it was abandoned and must be computed from the complete archive
+     *
+     * @throws InterruptedIOException
+     *     If interrupted while waiting
+     */
+    ArchiveDigest finish() throws InterruptedIOException {
+        this.end();
+        try {
+            finished.await();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            this.abandon();
+            throw new InterruptedIOException("Interrupted while awaiting archive digest");
+        }
+        return abandoned ? null : digest;
+    }
+
+    /**
+     * Gives up on the digest, such as when the archive is not to be deployed after all, so that the spool file is read
+     * no further
+     */
+    void abandon() {
+        abandoned = true;
+        this.end();
+    }
+
+    private synchronized void end() {
+        ended = true;
+        this.notifyAll();
+    }
+
+    /**
+     * Parses and digests the archive as its bytes are written, until its end is signalled
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        try {
+            final SpoolInputStream in = new SpoolInputStream(new FileInputStream(spoolFile));
+            try {
+                final ArchiveDigest digest = new ArchiveDigest();
+                final Set<String> paths = new HashSet<>();
+                final ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in, READ_BUFFER_SIZE));
+                ZipEntry entry;
+                while (!abandoned && (entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    final String path = ArchivePaths.create(entry.getName()).get();
+                    if (!paths.add(path)) {
+                        // The entry read from the central directory may be either; leave that to the importer
+                        abandoned = true;
+                        break;
+                    }
+                    digest.addEntry(path, zip);
+                }
+                this.digest = digest;
+            } finally {
+                // The central directory, or anything after a failure, is of no interest
+                in.close();
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("Abandoning streaming digest: " + e);
+            }
+            abandoned = true;
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Reads the spool file up to the bytes written so far, blocking until more are written or the end is signalled
+     */
+    private final class SpoolInputStream extends InputStream {
+
+        private final FileInputStream file;
+        private long position;
+
+        SpoolInputStream(final FileInputStream file) {
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            final long available = this.awaitAvailable();
+            if (available == 0) {
+                return -1;
+            }
+            final int read = file.read(b, off, (int) Math.min(len, available));
+            if (read == -1) {
+                throw new IOException("Spool file " + spoolFile.getAbsolutePath() + " ended before bytes written");
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+
+        /**
+         * Waits until bytes beyond the current position have been written, returning how many, or 0 once there will be
+         * no more (or the digest has been abandoned)
+         */
+        private long awaitAvailable() throws InterruptedIOException {
+            final StreamingArchiveDigester digester = StreamingArchiveDigester.this;
+            synchronized (digester) {
+                while (!abandoned && written == position && !ended) {
+                    try {
+                        digester.wait();
+                    } catch (final InterruptedException ie) {
+                        throw new InterruptedIOException("Interrupted while awaiting archive contents");
+                    }
+                }
+                return abandoned ? 0 : written - position;
+            }
+        }
+    }
+}
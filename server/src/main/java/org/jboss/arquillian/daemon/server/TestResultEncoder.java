@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+
+/**
+ * Renders the test results returned by the Arquillian test runner as {@link CompactTestResult}s. Those results are
+ * instances of the test result type as loaded by each deployment's {@link ClassLoader}, which the server does not
+ * otherwise link against, so their state is read reflectively.
+ */
+final class TestResultEncoder {
+
+    private static final String CLASS_NAME_TEST_RESULT = "org.jboss.arquillian.test.spi.TestResult";
+    private static final String METHOD_NAME_GET_STATUS = "getStatus";
+    private static final String METHOD_NAME_GET_START = "getStart";
+    private static final String METHOD_NAME_GET_END = "getEnd";
+    private static final String METHOD_NAME_GET_THROWABLE = "getThrowable";
+
+    private TestResultEncoder() {
+        throw new UnsupportedOperationException("No instances permitted");
+    }
+
+    /**
+     * Returns the specified test result as a {@link CompactTestResult}, or <code>null</code> if it is not an Arquillian
+     * test result or carries a {@link Throwable} which cannot be described structurally, and so must be
+     * Java-serialized
+     */
+    static CompactTestResult toCompact(final Serializable testResult) {
+        assert testResult !=null :"Test result must be specified";
+        final Class<?> type = testResult.getClass();
+        if (!CLASS_NAME_TEST_RESULT.equals(type.getName())) {
+            return null;
+        }
+        try {
+            final Enum<?> status = (Enum<?>) invoke(type, METHOD_NAME_GET_STATUS, testResult);
+            if (status == null) {
+                return null;
+            }
+            return CompactTestResult.create(status.name(), (Long) invoke(type, METHOD_NAME_GET_START, testResult),
+                (Long) invoke(type, METHOD_NAME_GET_END, testResult),
+                (Throwable) invoke(type, METHOD_NAME_GET_THROWABLE, testResult));
+        } catch (final ReflectiveOperationException | ClassCastException e) {
+            // Not the contract we expect; let Java serialization carry it as-is
+            return null;
+        }
+    }
+
+    private static Object invoke(final Class<?> type, final String methodName, final Object target)
+        throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        final Method method = type.getMethod(methodName);
+        return method.invoke(target);
+    }
+}
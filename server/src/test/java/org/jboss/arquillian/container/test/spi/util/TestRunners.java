@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.container.test.spi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Test double for the Arquillian SPI entry point which the server invokes reflectively from within a deployment. The
+ * "result" of executing a test identifies the method run, the {@link ClassLoader} it was run in and that of the runner
+ * itself (as <code>class#method@testLoader/runnerLoader</code>), so tests may verify how the server loaded them.
+ * Executing a method named {@link TestRunners#METHOD_NAME_SLOW} takes {@link TestRunners#SLOW_MILLIS} to complete,
+ * then reads the test class back from its {@link ClassLoader}, failing if the deployment is no longer readable.
+ */
+public final class TestRunners {
+
+    public static final String METHOD_NAME_SLOW = "slow";
+    public static final long SLOW_MILLIS = 1000;
+
+    private TestRunners() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static StubTestRunner getTestRunner(final ClassLoader classLoader) {
+        return new StubTestRunner();
+    }
+
+    public static final class StubTestRunner {
+        public String execute(final Class<?> testClass, final String methodName) {
+            if (METHOD_NAME_SLOW.equals(methodName)) {
+                try {
+                    Thread.sleep(SLOW_MILLIS);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                readClass(testClass);
+            }
+            return testClass.getName() + "#" + methodName + "@"
+                + System.identityHashCode(testClass.getClassLoader()) + "/"
+                + System.identityHashCode(StubTestRunner.class.getClassLoader());
+        }
+
+        private static void readClass(final Class<?> testClass) {
+            final InputStream in = testClass.getClassLoader().getResourceAsStream(
+                testClass.getName().replace('.', '/') + ".class");
+            if (in == null) {
+                throw new IllegalStateException("Test class is no longer readable from its deployment");
+            }
+            try {
+                try {
+                    while (in.read() != -1) {
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException ioe) {
+                throw new IllegalStateException("Could not read test class from its deployment", ioe);
+            }
+        }
+    }
+}
@@ -17,17 +17,35 @@
 package org.jboss.arquillian.daemon.server;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
 
+import org.jboss.arquillian.container.test.spi.util.TestRunners;
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.jboss.arquillian.daemon.protocol.wire.DeltaManifest;
+import org.jboss.arquillian.daemon.protocol.wire.Frame;
 import org.jboss.arquillian.daemon.protocol.wire.WireProtocol;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.junit.Assert;
@@ -41,6 +59,7 @@ import org.junit.Test;
 public class NettyServerTest {
 
     private static final Logger log = Logger.getLogger(NettyServerTest.class.getName());
+    private static final int MAX_RESPONSE_PAYLOAD_LENGTH = 64 * 1024 * 1024;
 
     @Test
     public void isNotRunningAfterCreate() throws ServerLifecycleException {
@@ -160,6 +179,985 @@ public class NettyServerTest {
         }
     }
 
+    @Test
+    public void deployLargeArchiveThenUndeploy() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        // Make an archive large enough to arrive over many reads, with incompressible contents
+        final byte[] contents = new byte[4 * 1024 * 1024];
+        new Random(1L).nextBytes(contents);
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClass(this.getClass())
+            .add(new ByteArrayAsset(contents), "random.bin");
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            // Deploy
+            writer.print(WireProtocol.COMMAND_DEPLOY_PREFIX);
+            writer.flush();
+            archive.as(ZipExporter.class).exportTo(socketOutstream);
+            socketOutstream.flush();
+            writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+            writer.flush();
+            final String deployResponse = reader.readLine();
+            log.info("Got response: " + deployResponse);
+            final String deployOkPrefix = WireProtocol.RESPONSE_OK_PREFIX + WireProtocol.COMMAND_DEPLOY_PREFIX;
+            Assert.assertTrue(deployResponse.startsWith(deployOkPrefix));
+            final String deploymentId = deployResponse.substring(deployOkPrefix.length());
+
+            // Undeploy using the ID we were given
+            writer.print(WireProtocol.COMMAND_UNDEPLOY_PREFIX);
+            writer.print(deploymentId);
+            writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+            writer.flush();
+            final String undeployResponse = reader.readLine();
+            log.info("Got response: " + undeployResponse);
+            Assert.assertEquals(WireProtocol.RESPONSE_OK_PREFIX + deploymentId, undeployResponse);
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void framedDeployThenUndeploy() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        // Make an archive which itself contains the EOF delimiter, which would truncate a text deployment
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClass(this.getClass())
+            .add(new ByteArrayAsset(WireProtocol.COMMAND_EOF_DELIMITER.getBytes(WireProtocol.CHARSET)), "eof.txt");
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        archive.as(ZipExporter.class).exportTo(exported);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Deploy
+            Frame.create(1, WireProtocol.OPCODE_DEPLOY, exported.toByteArray()).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame deployResponse = readFrame(frameInstream);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, deployResponse.getOpcode());
+            final String deploymentId = deployResponse.getPayloadAsString();
+
+            // Undeploy using the ID we were given, over the same connection
+            Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, deploymentId).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame undeployResponse = readFrame(frameInstream);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, undeployResponse.getOpcode());
+            Assert.assertEquals(deploymentId, undeployResponse.getPayloadAsString());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void deployCachedAfterUndeploy() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        archive.as(ZipExporter.class).exportTo(exported);
+        final ArchiveDigest digest = new ArchiveDigest();
+        for (final Node node : archive.getContent().values()) {
+            if (node.getAsset() != null) {
+                digest.addEntry(node.getPath().get(), node.getAsset().openStream());
+            }
+        }
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Nothing held yet
+            Frame.create(1, WireProtocol.OPCODE_DEPLOY_CACHED, digest.getDigest()).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_NOT_FOUND, readFrame(frameInstream).getOpcode());
+
+            // Deploy in full, then undeploy
+            Frame.create(2, WireProtocol.OPCODE_DEPLOY, exported.toByteArray()).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame deployResponse = readFrame(frameInstream);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, deployResponse.getOpcode());
+            final String deploymentId = deployResponse.getPayloadAsString();
+            Frame.create(3, WireProtocol.OPCODE_UNDEPLOY, deploymentId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+
+            // The contents are still held, so deploy them again without sending the archive
+            Frame.create(4, WireProtocol.OPCODE_DEPLOY_CACHED, digest.getDigest()).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame cachedResponse = readFrame(frameInstream);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, cachedResponse.getOpcode());
+            final String cachedId = cachedResponse.getPayloadAsString();
+            Assert.assertFalse("Each deployment should get its own ID", deploymentId.equals(cachedId));
+            Assert.assertTrue(executeTest(frameOutstream, frameInstream, cachedId, "test").startsWith(
+                this.getClass().getName() + "#test@"));
+
+            Frame.create(5, WireProtocol.OPCODE_UNDEPLOY, cachedId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void deltaDeploySendsOnlyChangedEntries() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        final JavaArchive original = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class).add(new StringAsset("original"), "changed.txt");
+        final JavaArchive changed = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class).add(new StringAsset("changed"), "changed.txt");
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Nothing deployed under this name yet, so everything is missing
+            final DeltaManifest originalManifest = manifest(original);
+            Assert.assertEquals(originalManifest.getEntryDigests().keySet(), new HashSet<>(queryMissing(
+                frameOutstream, frameInstream, originalManifest)));
+            final Frame originalResponse = deployDelta(frameOutstream, frameInstream, originalManifest, original);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, originalResponse.getOpcode());
+
+            // Only the changed entry need be sent
+            final DeltaManifest changedManifest = manifest(changed);
+            final List<String> missing = queryMissing(frameOutstream, frameInstream, changedManifest);
+            Assert.assertEquals(Collections.singletonList("/changed.txt"), missing);
+            final GenericArchive delta = ShrinkWrap.create(GenericArchive.class).add(
+                changed.get("changed.txt").getAsset(), "changed.txt");
+            final Frame changedResponse = deployDelta(frameOutstream, frameInstream, changedManifest, delta);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, changedResponse.getOpcode());
+            final String changedId = changedResponse.getPayloadAsString();
+            Assert.assertTrue(executeTest(frameOutstream, frameInstream, changedId, "test").startsWith(
+                this.getClass().getName() + "#test@"));
+
+            // Deltas are resolved only against contents deployed under the same name
+            final DeltaManifest otherManifest = DeltaManifest.create("other.jar", changedManifest.getEntryDigests());
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_NOT_FOUND, deployDelta(frameOutstream, frameInstream,
+                otherManifest, delta).getOpcode());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void executeTestReusesClassLoaderUntilUndeployed() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        // Make an archive containing a test class and the (stub) test runner support
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        archive.as(ZipExporter.class).exportTo(exported);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Deploy
+            Frame.create(1, WireProtocol.OPCODE_DEPLOY, exported.toByteArray()).write(frameOutstream);
+            frameOutstream.flush();
+            final String deploymentId = readFrame(frameInstream).getPayloadAsString();
+
+            // Run twice; both must be loaded by the same isolated ClassLoader
+            final String first = executeTest(frameOutstream, frameInstream, deploymentId, "deploy");
+            final String second = executeTest(frameOutstream, frameInstream, deploymentId, "stop");
+            log.info("Got results: " + first + ", " + second);
+            final String testClassName = this.getClass().getName();
+            Assert.assertTrue(first.startsWith(testClassName + "#deploy@"));
+            Assert.assertTrue(second.startsWith(testClassName + "#stop@"));
+            Assert.assertEquals(first.substring(first.indexOf('@')), second.substring(second.indexOf('@')));
+
+            // Undeploy, after which the archive's tests may no longer be run
+            Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, deploymentId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+            final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+            final DataOutputStream argumentsOutstream = new DataOutputStream(arguments);
+            argumentsOutstream.writeUTF(deploymentId);
+            argumentsOutstream.writeUTF(testClassName);
+            argumentsOutstream.writeUTF("deploy");
+            Frame.create(1, WireProtocol.OPCODE_TEST, arguments.toByteArray()).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_ERROR, readFrame(frameInstream).getOpcode());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedDeploymentIsUnloadedOverBudget() throws Exception {
+
+        // Create a server with no room for more than the deployment in use
+        System.setProperty(ServerBase.SYSPROP_NAME_DEPLOYMENT_BUDGET, "0");
+        final ServerBase server;
+        try {
+            server = (ServerBase) Servers.create(null, 12345);
+        } finally {
+            System.clearProperty(ServerBase.SYSPROP_NAME_DEPLOYMENT_BUDGET);
+        }
+        server.start();
+
+        // Two archives with different contents
+        final JavaArchive first = ShrinkWrap.create(JavaArchive.class, "first.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+        final JavaArchive second = ShrinkWrap.create(JavaArchive.class, "second.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class).add(new StringAsset("second"), "second.txt");
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            final String firstId = deploy(frameOutstream, frameInstream, first);
+            final String secondId = deploy(frameOutstream, frameInstream, second);
+
+            // Running the second unloads the first, which is transparently loaded again by its next test
+            final String testClassName = this.getClass().getName();
+            executeTest(frameOutstream, frameInstream, firstId, "test");
+            Assert.assertEquals(0, server.getEvictionCount());
+            executeTest(frameOutstream, frameInstream, secondId, "test");
+            Assert.assertEquals(1, server.getEvictionCount());
+            Assert.assertTrue(executeTest(frameOutstream, frameInstream, firstId, "test").startsWith(
+                testClassName + "#test@"));
+            Assert.assertEquals(2, server.getEvictionCount());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void identicalDeploymentsCountOnceAgainstBudget() throws Exception {
+
+        // Create the server
+        final ServerBase server = (ServerBase) Servers.create(null, 12345);
+        server.start();
+
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Both deployments share one content, loaded once
+            final String firstId = deploy(frameOutstream, frameInstream, archive);
+            final String secondId = deploy(frameOutstream, frameInstream, archive);
+            executeTest(frameOutstream, frameInstream, firstId, "test");
+            executeTest(frameOutstream, frameInstream, secondId, "test");
+            Assert.assertEquals(server.getStoredBytes(), server.getResidentBytes());
+
+            // Nothing remains counted once both are undeployed
+            Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, firstId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+            Assert.assertEquals(server.getStoredBytes(), server.getResidentBytes());
+            Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, secondId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+            Assert.assertEquals(0, server.getResidentBytes());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void undeployDuringTestLetsItComplete() throws Exception {
+
+        // Create the server
+        final ServerBase server = (ServerBase) Servers.create(null, 12345);
+        server.start();
+
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Start a slow test, which reads from the deployment once done, then undeploy it meanwhile
+            final String deploymentId = deploy(frameOutstream, frameInstream, archive);
+            final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+            final DataOutputStream argumentsOutstream = new DataOutputStream(arguments);
+            argumentsOutstream.writeUTF(deploymentId);
+            argumentsOutstream.writeUTF(this.getClass().getName());
+            argumentsOutstream.writeUTF(TestRunners.METHOD_NAME_SLOW);
+            Frame.create(2, WireProtocol.OPCODE_TEST, arguments.toByteArray()).write(frameOutstream);
+            frameOutstream.flush();
+            Thread.sleep(TestRunners.SLOW_MILLIS / 4);
+            Frame.create(3, WireProtocol.OPCODE_UNDEPLOY, deploymentId).write(frameOutstream);
+            frameOutstream.flush();
+            final Frame undeployResponse = readFrame(frameInstream);
+            Assert.assertEquals(3, undeployResponse.getCorrelationId());
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, undeployResponse.getOpcode());
+
+            // The test still completes, and leaves nothing counted as loaded
+            final Frame testResponse = readFrame(frameInstream);
+            Assert.assertEquals(2, testResponse.getCorrelationId());
+            Assert.assertEquals(testResponse.getPayloadAsString(), WireProtocol.OPCODE_RESPONSE_TEST_RESULT,
+                testResponse.getOpcode());
+            Assert.assertEquals(0, server.getResidentBytes());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void offHeapStorageServesTestsUntilUndeployed() throws Exception {
+        for (final String storage : new String[] { "mapped", "direct" }) {
+
+            // Create a server holding loaded archives off the heap
+            System.setProperty(ServerBase.SYSPROP_NAME_ARCHIVE_STORAGE, storage);
+            final Server server;
+            try {
+                server = Servers.create(null, 12345);
+            } finally {
+                System.clearProperty(ServerBase.SYSPROP_NAME_ARCHIVE_STORAGE);
+            }
+            server.start();
+
+            final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(
+                this.getClass(), TestRunners.class, TestRunners.StubTestRunner.class);
+
+            Socket socket = null;
+            BufferedReader reader = null;
+            try {
+                socket = new Socket("localhost", 12345);
+                final OutputStream socketOutstream = socket.getOutputStream();
+                final InputStream socketInstream = socket.getInputStream();
+                final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream,
+                    WireProtocol.CHARSET), true);
+                reader = new BufferedReader(new InputStreamReader(socketInstream));
+                negotiateFraming(writer, reader);
+                final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+                final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+                // Classes are loaded from the buffer, which is released upon undeployment
+                final String deploymentId = deploy(frameOutstream, frameInstream, archive);
+                final String testClassName = this.getClass().getName();
+                Assert.assertTrue(executeTest(frameOutstream, frameInstream, deploymentId, "deploy").startsWith(
+                    testClassName + "#deploy@"));
+                Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, deploymentId).write(frameOutstream);
+                frameOutstream.flush();
+                Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+
+                // Deployed again from the retained contents, which are held anew
+                final String redeployedId = deploy(frameOutstream, frameInstream, archive);
+                Assert.assertTrue(executeTest(frameOutstream, frameInstream, redeployedId, "stop").startsWith(
+                    testClassName + "#stop@"));
+            } finally {
+                if (socket != null) {
+                    try {
+                        socket.close();
+                    } catch (final IOException ignore) {
+                    }
+                }
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (final IOException ignore) {
+                    }
+                }
+
+                // Stop
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void identicalEntriesAreStoredOnceAcrossDeployments() throws Exception {
+
+        // Create the server
+        final ServerBase server = (ServerBase) Servers.create(null, 12345);
+        server.start();
+
+        // Two archives differing only in a small entry, sharing the test classes and a large library
+        final byte[] library = new byte[256 * 1024];
+        new Random(42).nextBytes(library);
+        final JavaArchive first = ShrinkWrap.create(JavaArchive.class, "first.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class).add(new ByteArrayAsset(library), "lib/library.bin")
+            .add(new StringAsset("first"), "name.txt");
+        final JavaArchive second = ShrinkWrap.create(JavaArchive.class, "second.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class).add(new ByteArrayAsset(library), "lib/library.bin")
+            .add(new StringAsset("second"), "name.txt");
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            final String firstId = deploy(frameOutstream, frameInstream, first);
+            final long firstStored = server.getStoredBytes();
+            Assert.assertEquals(0, server.getSharedBytes());
+            Assert.assertEquals(0, server.getFootprint(firstId).getSharedBytes());
+
+            // Only the differing entry of the second is stored anew
+            final String secondId = deploy(frameOutstream, frameInstream, second);
+            final ServerBase.Footprint footprint = server.getFootprint(secondId);
+            log.info("Footprint of second deployment: " + footprint + "; " + server.getStoredBytes() + " bytes stored");
+            Assert.assertEquals("second".length(), footprint.getExclusiveBytes());
+            Assert.assertTrue(footprint.getSharedBytes() > library.length);
+            Assert.assertEquals(footprint.getSharedBytes(), server.getSharedBytes());
+            Assert.assertEquals(firstStored + "second".length(), server.getStoredBytes());
+
+            // The second reads its classes from the first, which stays stored once undeployed
+            final String testClassName = this.getClass().getName();
+            Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, firstId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+            Assert.assertTrue(executeTest(frameOutstream, frameInstream, secondId, "test").startsWith(
+                testClassName + "#test@"));
+            Assert.assertEquals(footprint.getSharedBytes(), server.getSharedBytes());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void sharedArchivesAreLoadedOnceAcrossDeployments() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        // Two archives with the test runner support placed where the client puts shareable auxiliary archives
+        final JavaArchive infrastructure = ShrinkWrap.create(JavaArchive.class, "arquillian-stub.jar").addClasses(
+            TestRunners.class, TestRunners.StubTestRunner.class);
+        final JavaArchive first = ShrinkWrap.create(JavaArchive.class, "first.jar").addClass(this.getClass())
+            .add(new StringAsset("first"), "name.txt").merge(infrastructure, WireProtocol.PATH_SHARED_ARCHIVES);
+        final JavaArchive second = ShrinkWrap.create(JavaArchive.class, "second.jar").addClass(this.getClass())
+            .add(new StringAsset("second"), "name.txt").merge(infrastructure, WireProtocol.PATH_SHARED_ARCHIVES);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            final String firstId = deploy(frameOutstream, frameInstream, first);
+            final String secondId = deploy(frameOutstream, frameInstream, second);
+
+            // Test classes remain isolated, while the runner is loaded once for both
+            final String testClassName = this.getClass().getName();
+            final String firstResult = executeTest(frameOutstream, frameInstream, firstId, "test");
+            final String secondResult = executeTest(frameOutstream, frameInstream, secondId, "test");
+            log.info("Got results: " + firstResult + ", " + secondResult);
+            Assert.assertTrue(firstResult.startsWith(testClassName + "#test@"));
+            Assert.assertTrue(secondResult.startsWith(testClassName + "#test@"));
+            Assert.assertNotEquals(testLoader(firstResult), testLoader(secondResult));
+            Assert.assertEquals(runnerLoader(firstResult), runnerLoader(secondResult));
+            Assert.assertNotEquals(testLoader(firstResult), runnerLoader(firstResult));
+
+            // The shared loader outlives the first deployment while the second still uses it
+            Frame.create(1, WireProtocol.OPCODE_UNDEPLOY, firstId).write(frameOutstream);
+            frameOutstream.flush();
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, readFrame(frameInstream).getOpcode());
+            Assert.assertEquals(runnerLoader(secondResult), runnerLoader(executeTest(frameOutstream, frameInstream,
+                secondId, "stop")));
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void batchStreamsResultsThenCompletes() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+            final String deploymentId = deploy(frameOutstream, frameInstream, archive);
+            final String testClassName = this.getClass().getName();
+
+            for (final boolean parallel : new boolean[] {false, true}) {
+                final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+                final DataOutputStream argumentsOutstream = new DataOutputStream(arguments);
+                argumentsOutstream.writeUTF(deploymentId);
+                argumentsOutstream.writeBoolean(parallel);
+                argumentsOutstream.writeInt(3);
+                argumentsOutstream.writeUTF(testClassName);
+                argumentsOutstream.writeUTF("first");
+                argumentsOutstream.writeUTF("org.example.Missing");
+                argumentsOutstream.writeUTF("second");
+                argumentsOutstream.writeUTF(testClassName);
+                argumentsOutstream.writeUTF("third");
+                Frame.create(7, WireProtocol.OPCODE_TEST_BATCH, arguments.toByteArray()).write(frameOutstream);
+                frameOutstream.flush();
+
+                // One response per test, each carrying its index, then the final response
+                final String[] results = new String[3];
+                for (int i = 0; i < 3; i++) {
+                    final Frame response = readFrame(frameInstream);
+                    Assert.assertEquals(7, response.getCorrelationId());
+                    final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(response
+                        .getPayload()));
+                    final int index = payload.readInt();
+                    if (!parallel) {
+                        Assert.assertEquals("Results of an ordered batch should arrive in order", i, index);
+                    }
+                    if (index == 1) {
+                        Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_BATCH_ERROR, response.getOpcode());
+                        results[index] = "error";
+                    } else {
+                        Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_BATCH_RESULT, response.getOpcode());
+                        final ObjectInputStream objectInstream = new ObjectInputStream(payload);
+                        results[index] = (String) objectInstream.readObject();
+                        objectInstream.close();
+                    }
+                }
+                Assert.assertTrue(results[0].startsWith(testClassName + "#first@"));
+                Assert.assertEquals("error", results[1]);
+                Assert.assertTrue(results[2].startsWith(testClassName + "#third@"));
+                final Frame finished = readFrame(frameInstream);
+                Assert.assertEquals(7, finished.getCorrelationId());
+                Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, finished.getOpcode());
+            }
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void slowTestDoesNotBlockOtherRequests() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        // Make an archive containing a test class and the (stub) test runner support
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        archive.as(ZipExporter.class).exportTo(exported);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+
+            // Deploy
+            Frame.create(1, WireProtocol.OPCODE_DEPLOY, exported.toByteArray()).write(frameOutstream);
+            frameOutstream.flush();
+            final String deploymentId = readFrame(frameInstream).getPayloadAsString();
+
+            // Start a slow test, then make another request on the same connection while it's running
+            final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+            final DataOutputStream argumentsOutstream = new DataOutputStream(arguments);
+            argumentsOutstream.writeUTF(deploymentId);
+            argumentsOutstream.writeUTF(this.getClass().getName());
+            argumentsOutstream.writeUTF(TestRunners.METHOD_NAME_SLOW);
+            final long start = System.currentTimeMillis();
+            Frame.create(2, WireProtocol.OPCODE_TEST, arguments.toByteArray()).write(frameOutstream);
+            Frame.create(3, WireProtocol.OPCODE_UNDEPLOY, "notDeployed").write(frameOutstream);
+            frameOutstream.flush();
+
+            // The second request is answered first, without waiting on the test
+            final Frame undeployResponse = readFrame(frameInstream);
+            Assert.assertEquals(3, undeployResponse.getCorrelationId());
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_ERROR, undeployResponse.getOpcode());
+            Assert.assertTrue("Request was blocked by a running test",
+                System.currentTimeMillis() - start < TestRunners.SLOW_MILLIS);
+            final Frame testResponse = readFrame(frameInstream);
+            Assert.assertEquals(2, testResponse.getCorrelationId());
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_TEST_RESULT, testResponse.getOpcode());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void loadQueryCountsPendingTests() throws Exception {
+
+        // Create the server
+        final Server server = Servers.create(null, 12345);
+        server.start();
+
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myarchive.jar").addClasses(this.getClass(),
+            TestRunners.class, TestRunners.StubTestRunner.class);
+
+        Socket socket = null;
+        BufferedReader reader = null;
+        try {
+            socket = new Socket("localhost", 12345);
+            final OutputStream socketOutstream = socket.getOutputStream();
+            final InputStream socketInstream = socket.getInputStream();
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socketOutstream, WireProtocol.CHARSET),
+                true);
+            reader = new BufferedReader(new InputStreamReader(socketInstream));
+            negotiateFraming(writer, reader);
+            final DataOutputStream frameOutstream = new DataOutputStream(socketOutstream);
+            final DataInputStream frameInstream = new DataInputStream(socketInstream);
+            final String deploymentId = deploy(frameOutstream, frameInstream, archive);
+
+            // Nothing pending yet
+            DataInputStream load = queryLoad(frameOutstream, frameInstream);
+            Assert.assertEquals(0, load.readInt());
+            Assert.assertTrue("Server must report its test threads", load.readInt() > 0);
+            Assert.assertEquals(1, load.readInt());
+
+            // A slow test counts until it completes
+            final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+            final DataOutputStream argumentsOutstream = new DataOutputStream(arguments);
+            argumentsOutstream.writeUTF(deploymentId);
+            argumentsOutstream.writeUTF(this.getClass().getName());
+            argumentsOutstream.writeUTF(TestRunners.METHOD_NAME_SLOW);
+            Frame.create(2, WireProtocol.OPCODE_TEST, arguments.toByteArray()).write(frameOutstream);
+            load = queryLoad(frameOutstream, frameInstream);
+            Assert.assertEquals(1, load.readInt());
+            final Frame testResponse = readFrame(frameInstream);
+            Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_TEST_RESULT, testResponse.getOpcode());
+            Assert.assertEquals(0, queryLoad(frameOutstream, frameInstream).readInt());
+        } finally {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException ignore) {
+                }
+            }
+
+            // Stop
+            server.stop();
+        }
+    }
+
+    @Test
+    public void idleServerStopsItself() throws Exception {
+
+        // Create a server which stops after a second without connections
+        System.setProperty(ServerBase.SYSPROP_NAME_IDLE_TIMEOUT, "1");
+        final Server server;
+        try {
+            server = Servers.create(null, 12345);
+        } finally {
+            System.clearProperty(ServerBase.SYSPROP_NAME_IDLE_TIMEOUT);
+        }
+        server.start();
+
+        try {
+            // An open connection keeps it running past the timeout
+            final Socket socket = new Socket("localhost", 12345);
+            try {
+                Thread.sleep(2000);
+                Assert.assertTrue("Server with an open connection must not be stopped as idle", server.isRunning());
+            } finally {
+                socket.close();
+            }
+
+            // Once closed, it stops
+            final long deadline = System.currentTimeMillis() + 10 * 1000;
+            while (server.isRunning() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            Assert.assertFalse("Idle server did not stop itself in the allotted time", server.isRunning());
+        } finally {
+            if (server.isRunning()) {
+                server.stop();
+            }
+        }
+    }
+
     @Test
     public void stopOverWireProtocol() throws Exception {
 
@@ -216,4 +1214,110 @@ public class NettyServerTest {
             }
         }
     }
+
+    /**
+     * Switches the connection to the binary framing mode. The reader consumes only the response line, as the server
+     * sends nothing more until asked.
+     */
+    private static void negotiateFraming(final PrintWriter writer, final BufferedReader reader) throws IOException {
+        writer.print(WireProtocol.COMMAND_PROTOCOL_PREFIX + WireProtocol.FRAME_VERSION);
+        writer.write(WireProtocol.COMMAND_EOF_DELIMITER);
+        writer.flush();
+        final String response = reader.readLine();
+        log.info("Got response: " + response);
+        Assert.assertTrue(response.startsWith(WireProtocol.RESPONSE_OK_PREFIX));
+    }
+
+    private static Frame readFrame(final DataInputStream frameInstream) throws IOException {
+        return Frame.read(frameInstream, MAX_RESPONSE_PAYLOAD_LENGTH);
+    }
+
+    private static String deploy(final DataOutputStream frameOutstream, final DataInputStream frameInstream,
+        final Archive<?> archive) throws IOException {
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        archive.as(ZipExporter.class).exportTo(exported);
+        Frame.create(1, WireProtocol.OPCODE_DEPLOY, exported.toByteArray()).write(frameOutstream);
+        frameOutstream.flush();
+        final Frame response = readFrame(frameInstream);
+        Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_OK, response.getOpcode());
+        return response.getPayloadAsString();
+    }
+
+    /**
+     * Asks the server for its load, returning the payload of the response positioned at the count of pending tests
+     */
+    private static DataInputStream queryLoad(final DataOutputStream frameOutstream,
+        final DataInputStream frameInstream) throws IOException {
+        Frame.create(9, WireProtocol.OPCODE_LOAD, (String) null).write(frameOutstream);
+        frameOutstream.flush();
+        final Frame response = readFrame(frameInstream);
+        Assert.assertEquals(9, response.getCorrelationId());
+        Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_LOAD, response.getOpcode());
+        return new DataInputStream(new ByteArrayInputStream(response.getPayload()));
+    }
+
+    private static DeltaManifest manifest(final Archive<?> archive) throws IOException {
+        final ArchiveDigest digest = new ArchiveDigest();
+        for (final Node node : archive.getContent().values()) {
+            if (node.getAsset() != null) {
+                digest.addEntry(node.getPath().get(), node.getAsset().openStream());
+            }
+        }
+        return DeltaManifest.create(archive.getName(), digest.getEntryDigests());
+    }
+
+    private static List<String> queryMissing(final DataOutputStream frameOutstream,
+        final DataInputStream frameInstream, final DeltaManifest manifest) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        manifest.write(new DataOutputStream(payload));
+        Frame.create(1, WireProtocol.OPCODE_DELTA_QUERY, payload.toByteArray()).write(frameOutstream);
+        frameOutstream.flush();
+        final Frame response = readFrame(frameInstream);
+        Assert.assertEquals(WireProtocol.OPCODE_RESPONSE_ENTRIES, response.getOpcode());
+        return DeltaManifest.readPaths(new DataInputStream(new ByteArrayInputStream(response.getPayload())));
+    }
+
+    private static Frame deployDelta(final DataOutputStream frameOutstream, final DataInputStream frameInstream,
+        final DeltaManifest manifest, final Archive<?> delta) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        manifest.write(new DataOutputStream(payload));
+        delta.as(ZipExporter.class).exportTo(payload);
+        Frame.create(1, WireProtocol.OPCODE_DEPLOY_DELTA, payload.toByteArray()).write(frameOutstream);
+        frameOutstream.flush();
+        return readFrame(frameInstream);
+    }
+
+    /**
+     * Returns the identity of the {@link ClassLoader} of the test class reported in the specified stub result
+     */
+    private static String testLoader(final String result) {
+        return result.substring(result.indexOf('@') + 1, result.indexOf('/'));
+    }
+
+    /**
+     * Returns the identity of the {@link ClassLoader} of the test runner reported in the specified stub result
+     */
+    private static String runnerLoader(final String result) {
+        return result.substring(result.indexOf('/') + 1);
+    }
+
+    private String executeTest(final DataOutputStream frameOutstream, final DataInputStream frameInstream,
+        final String deploymentId, final String methodName) throws Exception {
+        final ByteArrayOutputStream arguments = new ByteArrayOutputStream();
+        final DataOutputStream argumentsOutstream = new DataOutputStream(arguments);
+        argumentsOutstream.writeUTF(deploymentId);
+        argumentsOutstream.writeUTF(this.getClass().getName());
+        argumentsOutstream.writeUTF(methodName);
+        Frame.create(1, WireProtocol.OPCODE_TEST, arguments.toByteArray()).write(frameOutstream);
+        frameOutstream.flush();
+        final Frame response = readFrame(frameInstream);
+        Assert.assertEquals(response.getPayloadAsString(), WireProtocol.OPCODE_RESPONSE_TEST_RESULT,
+            response.getOpcode());
+        final ObjectInputStream objectInstream = new ObjectInputStream(new ByteArrayInputStream(response.getPayload()));
+        try {
+            return (String) objectInstream.readObject();
+        } finally {
+            objectInstream.close();
+        }
+    }
 }
@@ -41,6 +41,13 @@ public class ReflectionContractTest {
         assertNotNull(method);
     }
 
+    @Test
+    public void getBoundAddressMethod() throws NoSuchMethodException {
+        final Method method = Server.class.getMethod(Server.METHOD_NAME_GET_BOUND_ADDRESS,
+            Server.METHOD_PARAMS_GET_BOUND_ADDRESS);
+        assertNotNull(method);
+    }
+
     @Test
     public void createMethod() throws NoSuchMethodException {
         final Method method = Servers.class.getMethod(Servers.METHOD_NAME_CREATE, Servers.METHOD_PARAMS_CREATE);
@@ -0,0 +1,157 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.arquillian.daemon.protocol.wire.ArchiveDigest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that {@link StreamingArchiveDigester} digests an archive as the server would from its spool file, and
+ * abandons the digest where it cannot
+ */
+public class StreamingArchiveDigesterTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Test
+    public void streamedDigestMatchesSpoolDigest() throws IOException {
+        final Random random = new Random(42L);
+        final byte[] large = new byte[200 * 1024];
+        random.nextBytes(large);
+        final File archive = writeArchive(new String[] { "META-INF/MANIFEST.MF", "org/example/", "org/example/A.class",
+            "org/example/B.class", "large.bin" }, new byte[][] { "Manifest-Version: 1.0\n".getBytes("UTF-8"), null,
+            new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe }, new byte[0], large });
+        try {
+            final ArchiveDigest streamed = streamDigest(Files.readAllBytes(archive.toPath()));
+            Assert.assertNotNull("Streamed digest should not have been abandoned", streamed);
+
+            final ArchiveDigest spooled;
+            final IndexedArchive indexed = IndexedArchive.open(archive);
+            try {
+                spooled = ServerBase.digest(indexed);
+            } finally {
+                indexed.close();
+            }
+            Assert.assertEquals(spooled.getEntryDigests().keySet(), streamed.getEntryDigests().keySet());
+            Assert.assertEquals(spooled.getDigest(), streamed.getDigest());
+        } finally {
+            Assert.assertTrue(archive.delete());
+        }
+    }
+
+    @Test
+    public void duplicateNameIsAbandoned() throws IOException {
+        // Distinct names to ZIP, the same path to the archive
+        final File archive = writeArchive(new String[] { "duplicate.txt", "/duplicate.txt" }, new byte[][] {
+            "first".getBytes("UTF-8"), "second".getBytes("UTF-8") });
+        try {
+            Assert.assertNull("Digest of an archive naming a path twice should be abandoned",
+                streamDigest(Files.readAllBytes(archive.toPath())));
+        } finally {
+            Assert.assertTrue(archive.delete());
+        }
+    }
+
+    @Test
+    public void abandonStopsWaitingForBytes() throws Exception {
+        final File spoolFile = File.createTempFile("digester", ".jar");
+        try {
+            // Nothing more will be written; the parser must give up as soon as it is told to
+            final StreamingArchiveDigester digester = new StreamingArchiveDigester(spoolFile);
+            final Thread parser = new Thread(digester);
+            parser.start();
+            digester.abandon();
+            parser.join(TimeUnit.SECONDS.toMillis(10));
+            Assert.assertFalse("Parser still waiting after digest was abandoned", parser.isAlive());
+            Assert.assertNull("Abandoned digest should not be returned", digester.finish());
+        } finally {
+            Assert.assertTrue(spoolFile.delete());
+        }
+    }
+
+    /**
+     * Writes the specified archive to a spool file in chunks, as the server receives it, for a new
+     * {@link StreamingArchiveDigester} to read back as it goes
+     */
+    private static ArchiveDigest streamDigest(final byte[] archive) throws IOException {
+        final File spoolFile = File.createTempFile("digester", ".jar");
+        try {
+            final StreamingArchiveDigester digester = new StreamingArchiveDigester(spoolFile);
+            final Thread parser = new Thread(digester);
+            parser.start();
+            final FileOutputStream out = new FileOutputStream(spoolFile);
+            try {
+                for (int offset = 0; offset < archive.length; offset += CHUNK_SIZE) {
+                    final int length = Math.min(CHUNK_SIZE, archive.length - offset);
+                    out.write(archive, offset, length);
+                    digester.written(length);
+                }
+            } finally {
+                out.close();
+            }
+            final ArchiveDigest digest = digester.finish();
+            try {
+                parser.join();
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return digest;
+        } finally {
+            Assert.assertTrue(spoolFile.delete());
+        }
+    }
+
+    /**
+     * Writes a ZIP of the specified names and contents (<code>null</code> for a directory), storing every other file
+     * uncompressed
+     */
+    private static File writeArchive(final String[] names, final byte[][] contents) throws IOException {
+        final File file = File.createTempFile("digester", ".jar");
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < names.length; i++) {
+                final ZipEntry entry = new ZipEntry(names[i]);
+                if (contents[i] != null && i % 2 == 0) {
+                    final CRC32 crc = new CRC32();
+                    crc.update(contents[i]);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(contents[i].length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                if (contents[i] != null) {
+                    out.write(contents[i]);
+                }
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
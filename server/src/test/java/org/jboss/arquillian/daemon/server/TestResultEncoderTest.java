@@ -0,0 +1,205 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.arquillian.daemon.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult;
+import org.jboss.arquillian.daemon.protocol.wire.CompactTestResult.ThrowableDescription;
+import org.jboss.arquillian.test.spi.TestResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests ensuring that test results are encoded compactly where possible, and measuring that encoding against Java
+ * serialization
+ */
+public class TestResultEncoderTest {
+
+    private static final Logger log = Logger.getLogger(TestResultEncoderTest.class.getName());
+
+    private static final int BENCHMARK_WARMUP = 2000;
+    private static final int BENCHMARK_ITERATIONS = 5000;
+
+    @Test
+    public void passedResultRoundTrips() throws IOException {
+        final TestResult result = TestResult.passed().setStart(1000L).setEnd(1042L);
+        final CompactTestResult decoded = roundTrip(result);
+        Assert.assertEquals("PASSED", decoded.getStatus());
+        Assert.assertEquals(1000L, decoded.getStart());
+        Assert.assertEquals(1042L, decoded.getEnd());
+        Assert.assertNull(decoded.getThrowable());
+    }
+
+    @Test
+    public void failedResultRoundTripsWithCause() throws IOException {
+        final IllegalStateException cause = new IllegalStateException("broken");
+        final AssertionError failure = new AssertionError("expected:<1> but was:<2>");
+        failure.initCause(cause);
+        final CompactTestResult decoded = roundTrip(TestResult.failed(failure));
+        Assert.assertEquals("FAILED", decoded.getStatus());
+
+        final ThrowableDescription description = decoded.getThrowable();
+        final Throwable recreated = description.newInstance(this.getClass().getClassLoader());
+        Assert.assertTrue(recreated instanceof AssertionError);
+        Assert.assertEquals(failure.getMessage(), recreated.getMessage());
+        assertSameStackTrace(failure.getStackTrace(), recreated.getStackTrace());
+        Assert.assertNull("Cause must be left to the caller", recreated.getCause());
+
+        final Throwable recreatedCause = description.getCause().newInstance(this.getClass().getClassLoader());
+        Assert.assertTrue(recreatedCause instanceof IllegalStateException);
+        Assert.assertEquals(cause.getMessage(), recreatedCause.getMessage());
+        Assert.assertNull(description.getCause().getCause());
+    }
+
+    @Test
+    public void nullMessageIsPreserved() throws IOException {
+        final CompactTestResult decoded = roundTrip(TestResult.failed(new AssertionError()));
+        final Throwable recreated = decoded.getThrowable().newInstance(this.getClass().getClassLoader());
+        Assert.assertTrue(recreated instanceof AssertionError);
+        Assert.assertNull(recreated.getMessage());
+    }
+
+    @Test
+    public void exoticPayloadsAreLeftToSerialization() {
+        Assert.assertNull("Throwable with its own state must be serialized",
+            TestResultEncoder.toCompact(TestResult.failed(new StatefulException("failed", 42))));
+        final Exception suppressing = new Exception("failed");
+        suppressing.addSuppressed(new Exception("suppressed"));
+        Assert.assertNull("Throwable with suppressed exceptions must be serialized",
+            TestResultEncoder.toCompact(TestResult.failed(suppressing)));
+        Assert.assertNull("Results of other types must be serialized", TestResultEncoder.toCompact("Some result"));
+    }
+
+    @Test
+    public void compactEncodingIsSmallerThanSerialization() throws IOException {
+        for (final TestResult result : benchmarkResults()) {
+            final int compactBytes = encodeCompact(result).length;
+            final int serializedBytes = serialize(result).length;
+            Assert.assertTrue(result.getStatus() + " result should be smaller encoded compactly (" + compactBytes
+                + " bytes) than serialized (" + serializedBytes + " bytes)", compactBytes < serializedBytes);
+        }
+    }
+
+    /**
+     * Compares bytes on the wire and encode/decode throughput of the compact encoding against Java serialization,
+     * logging the figures. Timing is too noisy to assert upon, so this is not part of the test suite; run it alone for
+     * stable numbers via <code>java -cp ... org.jboss.arquillian.daemon.server.TestResultEncoderTest</code>.
+     */
+    public static void main(final String... args) throws Exception {
+        for (final TestResult result : benchmarkResults()) {
+            final int compactBytes = encodeCompact(result).length;
+            final int serializedBytes = serialize(result).length;
+            for (int i = 0; i < BENCHMARK_WARMUP; i++) {
+                decodeCompact(encodeCompact(result));
+                deserialize(serialize(result));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                decodeCompact(encodeCompact(result));
+            }
+            final long compactNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                deserialize(serialize(result));
+            }
+            final long serializedNanos = System.nanoTime() - start;
+
+            log.info(result.getStatus() + " result: compact " + compactBytes + " bytes, "
+                + perSecond(compactNanos) + " round trips/s; serialized " + serializedBytes + " bytes, "
+                + perSecond(serializedNanos) + " round trips/s");
+        }
+    }
+
+    private static TestResult[] benchmarkResults() {
+        return new TestResult[] { TestResult.passed(),
+            TestResult.failed(new AssertionError("expected:<1> but was:<2>")) };
+    }
+
+    private static void assertSameStackTrace(final StackTraceElement[] expected, final StackTraceElement[] actual) {
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            // Compare only what the encoding carries; newer JVMs also record class loader and module details
+            Assert.assertEquals(expected[i].getClassName(), actual[i].getClassName());
+            Assert.assertEquals(expected[i].getMethodName(), actual[i].getMethodName());
+            Assert.assertEquals(expected[i].getFileName(), actual[i].getFileName());
+            Assert.assertEquals(expected[i].getLineNumber(), actual[i].getLineNumber());
+        }
+    }
+
+    private static CompactTestResult roundTrip(final TestResult result) throws IOException {
+        final byte[] encoded = encodeCompact(result);
+        Assert.assertEquals(CompactTestResult.MARKER, encoded[0]);
+        return decodeCompact(encoded);
+    }
+
+    private static byte[] encodeCompact(final Serializable result) throws IOException {
+        final CompactTestResult compact = TestResultEncoder.toCompact(result);
+        Assert.assertNotNull("Result should be encoded compactly", compact);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compact.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static CompactTestResult decodeCompact(final byte[] encoded) throws IOException {
+        return CompactTestResult.read(new DataInputStream(new ByteArrayInputStream(encoded)));
+    }
+
+    private static byte[] serialize(final Serializable result) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(result);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] serialized) throws IOException, ClassNotFoundException {
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static long perSecond(final long nanos) {
+        return BENCHMARK_ITERATIONS * 1000000000L / Math.max(nanos, 1L);
+    }
+
+    private static final class StatefulException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final int code;
+
+        StatefulException(final String message, final int code) {
+            super(message);
+            this.code = code;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + " (" + code + ")";
+        }
+    }
+}